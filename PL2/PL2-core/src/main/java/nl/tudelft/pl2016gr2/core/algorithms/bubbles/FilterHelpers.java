@@ -1,9 +1,8 @@
 package nl.tudelft.pl2016gr2.core.algorithms.bubbles;
 
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 
@@ -15,6 +14,8 @@ import java.util.Set;
  */
 public class FilterHelpers {
 
+  private static final GenomeSet FIRST_GENOME = GenomeSet.of(0);
+
   private FilterHelpers() {
   }
 
@@ -41,28 +42,20 @@ public class FilterHelpers {
    * @param leaves the labels of the leaves of the phylo node
    * @return true if the node is shared
    */
-  public static boolean isShared(GraphNode node, List<Integer> leaves) {
-    sortIfUnsorted(leaves);
-    if (node.containsAllGenomes(leaves)) {
-      return true;
-    }
-
-    for (Integer genome : node.getGenomes()) {
-      if (genome != 0 && Collections.binarySearch(leaves, genome) < 0) {
-        return true;
-      }
-    }
-    return false;
+  public static boolean isShared(GraphNode node, GenomeSet leaves) {
+    return isShared(node.getGenomeSet(), leaves);
   }
 
-  private static void sortIfUnsorted(List<Integer> genomes) {
-    int previous = Integer.MIN_VALUE;
-    for (int i = 0; i < genomes.size(); i++) {
-      if (genomes.get(i) < previous) {
-        genomes.sort(null);
-        return;
-      }
-      previous = genomes.get(i);
-    }
+  /**
+   * Check if a node with the given genomes is shared among the leaves of a phylo genetic tree node
+   * (see {@link #isShared(GraphNode, GenomeSet)}). Genome 0 is never counted as a genome of
+   * another branch.
+   *
+   * @param genomes the genomes of the node to check
+   * @param leaves  the labels of the leaves of the phylo node
+   * @return true if the node is shared
+   */
+  public static boolean isShared(GenomeSet genomes, GenomeSet leaves) {
+    return genomes.containsAll(leaves) || !genomes.andNot(leaves).andNot(FIRST_GENOME).isEmpty();
   }
 }
@@ -4,28 +4,46 @@ import nl.tudelft.pl2016gr2.model.Annotation;
 import nl.tudelft.pl2016gr2.model.GenomeMap;
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
-import nl.tudelft.pl2016gr2.util.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This class can be used to map annotations on the genomes in the graph and also to find bases in
  * the graph.
+ * <p>
+ * The path of a genome through the graph is followed only once: the ids of the nodes on the path
+ * and the base offset at which each of them ends are stored (see {@link GenomePath}), so finding
+ * the node which contains a base of the genome is a binary search. The path of a genome is stored
+ * when a base of the genome is requested for the first time, or in advance by
+ * {@link #indexGenome(int)}. Only ids are stored, so the mapper doesn't keep any nodes alive which
+ * the graph creates on demand.
+ * </p>
  *
  * @author Faris
  */
 public class GraphBaseMapper {
 
+  private static final int ANNOTATIONS_PER_TASK = 1 << 12;
   private static final Logger LOGGER = Logger.getLogger(GraphBaseMapper.class.getName());
-  private final ArrayList<GraphNode> orderedGraph;
+  private final SequenceGraph graph;
+  private final ConcurrentHashMap<Integer, GenomePath> genomePaths = new ConcurrentHashMap<>();
 
+  /**
+   * Create a mapper for a graph of which the levels of the nodes have already been computed.
+   *
+   * @param graph the graph.
+   */
   public GraphBaseMapper(SequenceGraph graph) {
-    orderedGraph = graph.getOrderedGraph();
+    this.graph = graph;
   }
 
   /**
@@ -33,70 +51,114 @@ public class GraphBaseMapper {
    *
    * @param annotations the given annotations.
    */
-  public void mapAnnotations(LinkedList<Annotation> annotations) {
-    annotations.sort((Annotation first, Annotation second) -> {
-      return first.start - second.start;
+  public void mapAnnotations(Collection<Annotation> annotations) {
+    mapAnnotations(annotations, Runnable::run).join();
+  }
+
+  /**
+   * Map the given annotations on the graph on the given executor. The annotations are grouped by
+   * their genome: the path of every genome is followed in a separate task, after which the
+   * annotations of the genome are mapped in parts of {@link #ANNOTATIONS_PER_TASK} annotations.
+   * An annotation only changes its own position in the graph and the annotation index of the
+   * nodes it is mapped on, which can be added to from multiple threads.
+   *
+   * @param annotations the annotations.
+   * @param executor    the executor on which to run the tasks.
+   * @return a future which completes when all annotations have been mapped.
+   */
+  public CompletableFuture<Void> mapAnnotations(Collection<Annotation> annotations,
+      Executor executor) {
+    HashMap<Integer, ArrayList<Annotation>> genomeAnnotations = groupByGenome(annotations);
+    ArrayList<CompletableFuture<Void>> futures = new ArrayList<>();
+    genomeAnnotations.forEach((genome, annotationsOfGenome) -> {
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        annotationsOfGenome.sort((Annotation first, Annotation second) -> {
+          return first.start - second.start;
+        });
+        return getGenomePath(genome);
+      }, executor).thenCompose(path -> mapAnnotations(path, annotationsOfGenome, executor)));
     });
-    HashMap<Integer, GraphNode> nodeMapping = new HashMap<>();
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+  }
+
+  /**
+   * Group the annotations by the id of their genome. Annotations of unknown genomes are skipped.
+   *
+   * @param annotations the annotations.
+   * @return the annotations of every genome.
+   */
+  private static HashMap<Integer, ArrayList<Annotation>> groupByGenome(
+      Collection<Annotation> annotations) {
     GenomeMap genomeMap = GenomeMap.getInstance();
+    HashMap<Integer, ArrayList<Annotation>> genomeAnnotations = new HashMap<>();
     for (Annotation annotation : annotations) {
       Integer genomeId = genomeMap.getId(annotation.sequenceId);
-      if (!nodeMapping.containsKey(genomeId)) {
-        nodeMapping.put(genomeId, findBase(genomeId, 0));
+      if (genomeId == null) {
+        LOGGER.log(Level.WARNING, "Couldn't find the genome of annotation: {0}", annotation);
+        continue;
       }
+      genomeAnnotations.computeIfAbsent(genomeId, key -> new ArrayList<>()).add(annotation);
     }
-    mapAnnotations(annotations, nodeMapping, genomeMap);
+    return genomeAnnotations;
   }
 
   /**
-   * Map the given annotations on the given graph.
+   * Map the annotations of a genome in parts on the given executor.
    *
-   * @param annotations the given annotations.
-   * @param nodeMapping the node map, containing the start node of each genome which is present in
-   *                    the list of annotations.
-   * @param genomeMap   the genome map.
+   * @param path        the path of the genome.
+   * @param annotations the annotations of the genome.
+   * @param executor    the executor on which to run the tasks.
+   * @return a future which completes when all annotations of the genome have been mapped.
    */
-  private void mapAnnotations(LinkedList<Annotation> annotations,
-      HashMap<Integer, GraphNode> nodeMapping, GenomeMap genomeMap) {
-    while (!annotations.isEmpty()) {
-      String genomeName = annotations.getFirst().sequenceId;
-      Integer genomeId = genomeMap.getId(annotations.getFirst().sequenceId);
-      GraphNode curNode = nodeMapping.get(genomeId);
-      int curBasePosition = 0;
-      for (int i = 0; i < annotations.size();) {
-        Annotation annotation = annotations.get(i);
-        if (!genomeName.equals(annotation.sequenceId) || annotation.start < curBasePosition) {
-          i++;
-          continue;
-        }
-        annotations.removeFirst();
-        Pair<Integer, GraphNode> nextBase = findBase(genomeId, annotation.start, curBasePosition,
-            curNode);
-        curNode = nextBase.right;
-        curBasePosition = nextBase.left;
-        if (nextBase.left == -1) {
-          LOGGER.log(Level.WARNING, "Couldn't find base position of annotation: {0}", annotation);
-          continue;
-        }
-        mapAnnotation(curNode, annotation, curBasePosition, genomeId);
+  private CompletableFuture<Void> mapAnnotations(GenomePath path, List<Annotation> annotations,
+      Executor executor) {
+    ArrayList<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int from = 0; from < annotations.size(); from += ANNOTATIONS_PER_TASK) {
+      List<Annotation> part = annotations.subList(from,
+          Math.min(annotations.size(), from + ANNOTATIONS_PER_TASK));
+      futures.add(CompletableFuture.runAsync(() -> mapAnnotations(path, part), executor));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+  }
+
+  /**
+   * Map annotations of a genome.
+   *
+   * @param path        the path of the genome.
+   * @param annotations the annotations of the genome.
+   */
+  private void mapAnnotations(GenomePath path, List<Annotation> annotations) {
+    for (Annotation annotation : annotations) {
+      int firstIndex = path.find(annotation.start);
+      if (firstIndex == -1) {
+        LOGGER.log(Level.WARNING, "Couldn't find base position of annotation: {0}", annotation);
+        continue;
       }
+      mapAnnotation(path, firstIndex, annotation);
     }
   }
 
-  private void mapAnnotation(GraphNode firstNode, Annotation annotation, int nodeStart,
-      Integer genomeId) {
-    annotation.setStartInGraph(firstNode.getLevel() - firstNode.size()
-        + annotation.start - nodeStart);
-
-    firstNode.addAnnotation(annotation);
-    int basePosition = nodeStart + firstNode.size();
-    GraphNode curNode = firstNode;
-    while (basePosition < annotation.end) {
-      curNode = getNextNode(curNode, genomeId);
-      curNode.addAnnotation(annotation);
-      basePosition += curNode.size();
+  /**
+   * Map an annotation on the nodes of the path of its genome, starting at the node which contains
+   * its first base.
+   *
+   * @param path       the path of the genome of the annotation.
+   * @param firstIndex the index in the path of the node which contains the first base.
+   * @param annotation the annotation.
+   */
+  private void mapAnnotation(GenomePath path, int firstIndex, Annotation annotation) {
+    GraphNode node = graph.getNode(path.nodeIds[firstIndex]);
+    annotation.setStartInGraph(node.getLevel() - node.size()
+        + annotation.start - path.getStart(firstIndex));
+
+    int index = firstIndex;
+    node.addAnnotation(annotation);
+    while (path.ends[index] < annotation.end && index + 1 < path.nodeIds.length) {
+      index++;
+      node = graph.getNode(path.nodeIds[index]);
+      node.addAnnotation(annotation);
     }
-    annotation.setEndInGraph(curNode.getLevel() + annotation.end - basePosition);
+    annotation.setEndInGraph(node.getLevel() + annotation.end - path.ends[index]);
   }
 
   /**
@@ -104,30 +166,81 @@ public class GraphBaseMapper {
    *
    * @param genome     the genome to search for.
    * @param baseOffset the base offset to find for the given genome.
-   * @return the found base.
+   * @return the found base, the last node of the genome if the genome contains less bases, or
+   *         null if no node contains the genome.
    */
   public GraphNode findBase(Integer genome, int baseOffset) {
-    Iterator<GraphNode> it = orderedGraph.iterator();
-    GraphNode firstNode = it.next();
-    while (it.hasNext() && !firstNode.containsGenome(genome)) {
-      firstNode = it.next();
+    GenomePath path = getGenomePath(genome);
+    if (path.nodeIds.length == 0) {
+      return null;
     }
-    return findBase(genome, baseOffset, 0, firstNode).right;
+    int index = path.find(baseOffset);
+    return graph.getNode(path.nodeIds[index == -1 ? path.nodeIds.length - 1 : index]);
   }
 
-  private Pair<Integer, GraphNode> findBase(Integer genome, int baseOffset, int startOffset,
-      GraphNode startNode) {
-    int curBaseIndex = startOffset + startNode.size();
-    GraphNode curGraphNode = startNode;
-    while (curBaseIndex < baseOffset) {
-      GraphNode nextNode = getNextNode(curGraphNode, genome);
-      if (nextNode == null || nextNode.equals(curGraphNode)) {
-        return new Pair<>(-1, curGraphNode);
+  /**
+   * Store the path of a genome through the graph, so the bases of the genome can be found without
+   * delay later on.
+   *
+   * @param genome the genome.
+   */
+  public void indexGenome(int genome) {
+    getGenomePath(genome);
+  }
+
+  /**
+   * Get the path of a genome, after following it if this hasn't been done yet. Paths of different
+   * genomes may be followed at the same time.
+   *
+   * @param genome the genome.
+   * @return the path of the genome.
+   */
+  private GenomePath getGenomePath(Integer genome) {
+    GenomePath path = genomePaths.get(genome);
+    if (path == null) {
+      path = createGenomePath(genome);
+      GenomePath storedPath = genomePaths.putIfAbsent(genome, path);
+      if (storedPath != null) {
+        path = storedPath;
       }
-      curBaseIndex += nextNode.size();
-      curGraphNode = nextNode;
     }
-    return new Pair<>(curBaseIndex - curGraphNode.size(), curGraphNode);
+    return path;
+  }
+
+  /**
+   * Follow the path of a genome through the graph. It starts at the node with the lowest level
+   * which contains the genome and continues with the closest next node of the genome, until no
+   * such node exists. The path is empty if no node contains the genome.
+   *
+   * @param genome the genome.
+   * @return the path of the genome.
+   */
+  private GenomePath createGenomePath(Integer genome) {
+    GraphNode node = null;
+    for (GraphNode graphNode : graph) {
+      if ((node == null || graphNode.getLevel() < node.getLevel())
+          && graphNode.containsGenome(genome)) {
+        node = graphNode;
+      }
+    }
+
+    int[] nodeIds = new int[16];
+    int[] ends = new int[16];
+    int size = 0;
+    int end = 0;
+    while (node != null) {
+      if (size == ends.length) {
+        nodeIds = Arrays.copyOf(nodeIds, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+      }
+      end += node.size();
+      nodeIds[size] = node.getId();
+      ends[size] = end;
+      size++;
+      GraphNode nextNode = getNextNode(node, genome);
+      node = node.equals(nextNode) ? null : nextNode;
+    }
+    return new GenomePath(Arrays.copyOf(nodeIds, size), Arrays.copyOf(ends, size));
   }
 
   private GraphNode getNextNode(GraphNode curGraphNode, Integer genome) {
@@ -141,4 +254,56 @@ public class GraphBaseMapper {
     }
     return nextNode;
   }
+
+  /**
+   * The path of a genome through the graph: the ids of the nodes which contain the genome in the
+   * order in which the genome passes them, and for every node the base offset in the genome at
+   * which the node ends.
+   */
+  private static class GenomePath {
+
+    private final int[] nodeIds;
+    private final int[] ends;
+
+    /**
+     * Construct a genome path.
+     *
+     * @param nodeIds the ids of the nodes on the path.
+     * @param ends    the base offset at which each of the nodes ends.
+     */
+    private GenomePath(int[] nodeIds, int[] ends) {
+      this.nodeIds = nodeIds;
+      this.ends = ends;
+    }
+
+    /**
+     * Find the first node which ends at or after the given base offset.
+     *
+     * @param baseOffset the base offset.
+     * @return the index of the node, or -1 if the genome ends before the base offset.
+     */
+    private int find(int baseOffset) {
+      int low = 0;
+      int high = ends.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (ends[middle] < baseOffset) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low < ends.length ? low : -1;
+    }
+
+    /**
+     * Get the base offset at which a node of the path starts.
+     *
+     * @param index the index of the node.
+     * @return the base offset at which the node starts.
+     */
+    private int getStart(int index) {
+      return index == 0 ? 0 : ends[index - 1];
+    }
+  }
 }
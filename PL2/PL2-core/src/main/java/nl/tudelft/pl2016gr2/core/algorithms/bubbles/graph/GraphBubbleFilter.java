@@ -2,6 +2,7 @@ package nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph;
 
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.AbstractBubbleFilter;
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.FilterHelpers;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphBubble;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
@@ -163,13 +164,14 @@ public class GraphBubbleFilter extends AbstractBubbleFilter {
   private Bubble makeBubble(Queue<GraphNode> toVisit, Set<GraphNode> visited, GraphNode start, 
       GraphNode endNode, Set<GraphNode> nestedNodes) {
     GraphBubble bubble = null;
+    GenomeSet startGenomes = start.getGenomeSet();
     while (!toVisit.isEmpty()) {
       GraphNode next = toVisit.poll();
       visited.add(next);
       if (endNode != null && next.getLevel() >= endNode.getLevel()) {
         continue;
       }
-      if (next.hasSameGenomes(start.getGenomes())) {
+      if (next.getGenomeSet().equals(startGenomes)) {
         endNode = next;
         bubble = new GraphBubble(mutationId, this, 
             Collections.singletonList(start), Collections.singletonList(endNode));
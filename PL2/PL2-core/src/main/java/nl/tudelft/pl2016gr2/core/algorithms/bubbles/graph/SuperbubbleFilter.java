@@ -0,0 +1,320 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph;
+
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.AbstractBubbleFilter;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Class to make superbubbles. A superbubble is a part of the graph with a single entrance and a
+ * single exit node: all of the paths from the entrance end in the exit, all of the paths to the
+ * exit start in the entrance and no other edges enter or leave the part of the graph in between.
+ * Like the bubbles of the {@link GraphBubbleFilter}, these bubbles are based solely on the graph
+ * and are drawn as {@link GraphBubble}s, but superbubbles are found in linear time.
+ * <p>
+ * The nodes are ordered by a depth first search (in reverse postorder). In this order, the nodes
+ * of every superbubble are consecutive, so a superbubble is an interval of positions where all of
+ * the parents of the nodes after the entrance and all of the children of the nodes before the exit
+ * lie within the interval. For every entrance, the closest exit is found by a single sweep from the
+ * last to the first position, which reuses the intervals of the later positions. The superbubbles
+ * are nested or follow each other, so the nesting is determined with a stack of open bubbles.
+ * </p>
+ * <p>
+ * All of the superbubbles are created at once. The nested nodes of a bubble are the nodes and
+ * bubbles which are directly inside of the bubble; the edges between them are set when the bubble
+ * is zoomed in on.
+ * </p>
+ */
+public class SuperbubbleFilter extends AbstractBubbleFilter {
+
+  private static final int NO_BUBBLE = -1;
+
+  private final GraphNode[] nodes;
+  private final HashMap<Integer, Integer> positions;
+  private final int[] owners;
+  private final GraphBubble[] bubbles;
+  private final IdentityHashMap<GraphNode, Integer> bubbleEntrances = new IdentityHashMap<>();
+  private final ArrayList<GraphNode> topLevelNodes = new ArrayList<>();
+  private int bubbleId = -1;
+
+  /**
+   * Creates an instance of this class.
+   *
+   * @param orderedNodes the nodes that need to be bubbled.
+   */
+  public SuperbubbleFilter(Collection<GraphNode> orderedNodes) {
+    super(orderedNodes);
+    this.positions = new HashMap<>(orderedNodes.size() * 4 / 3 + 1);
+    // The positions in the order by level are only used to order the nodes depth first.
+    for (GraphNode node : orderedNodes) {
+      positions.put(node.getId(), positions.size());
+    }
+    this.nodes = orderDepthFirst(orderedNodes);
+    for (int i = 0; i < nodes.length; i++) {
+      positions.put(nodes[i].getId(), i);
+    }
+    this.owners = new int[nodes.length];
+    this.bubbles = new GraphBubble[nodes.length];
+    createBubbles(findExits());
+  }
+
+  /**
+   * Makes bubbles.
+   *
+   * @return A list containing all the nodes in the graph after it has been bubbled, ordered by
+   *         level.
+   */
+  public ArrayList<GraphNode> filter() {
+    connect(topLevelNodes, NO_BUBBLE, null, null);
+    ArrayList<GraphNode> sortedNodes = new ArrayList<>(topLevelNodes);
+    sortedNodes.sort((GraphNode first, GraphNode second) -> first.getLevel() - second.getLevel());
+    return sortedNodes;
+  }
+
+  @Override
+  public List<GraphNode> zoomIn(Bubble bubble) {
+    return new SuperbubbleZoom(this).zoom(bubble);
+  }
+
+  /**
+   * Order the nodes in reverse postorder of a depth first search from the root nodes. This is a
+   * topological order in which the nodes of every superbubble are consecutive. The searches are
+   * started from the unvisited nodes in order of their level, which are always root nodes.
+   *
+   * @param orderedNodes the nodes of the graph, ordered by level.
+   * @return the nodes in reverse postorder.
+   */
+  private GraphNode[] orderDepthFirst(Collection<GraphNode> orderedNodes) {
+    GraphNode[] levelOrder = orderedNodes.toArray(new GraphNode[orderedNodes.size()]);
+    GraphNode[] order = new GraphNode[levelOrder.length];
+    boolean[] visited = new boolean[levelOrder.length];
+    int[] stack = new int[levelOrder.length];
+    ArrayList<List<GraphNode>> children = new ArrayList<>(levelOrder.length);
+    int[] nextChild = new int[levelOrder.length];
+    for (GraphNode node : levelOrder) {
+      children.add(new ArrayList<>(getOriginalOutEdges().get(node.getId())));
+    }
+    int position = levelOrder.length;
+    for (int root = 0; root < levelOrder.length; root++) {
+      if (visited[root]) {
+        continue;
+      }
+      int size = 0;
+      stack[size++] = root;
+      visited[root] = true;
+      while (size > 0) {
+        int current = stack[size - 1];
+        List<GraphNode> currentChildren = children.get(current);
+        if (nextChild[current] < currentChildren.size()) {
+          Integer child = positions.get(currentChildren.get(nextChild[current]++).getId());
+          if (child != null && !visited[child]) {
+            visited[child] = true;
+            stack[size++] = child;
+          }
+        } else {
+          order[--position] = levelOrder[current];
+          size--;
+        }
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Find the exit of the smallest superbubble of every entrance.
+   * <p>
+   * The interval from position i to j is a superbubble if none of the nodes in (i, j] have a parent
+   * before i and none of the nodes in [i, j) have a child after j. The smallest j which satisfies
+   * the second condition is found by extending j to the furthest child of every node in [i, j). The
+   * positions are processed from the last to the first, so the interval of the next position is
+   * already known and can be skipped as a whole; the skipped intervals are removed from a stack, so
+   * every position is skipped only once. The closest parent within the interval is computed along
+   * with it.
+   * </p>
+   *
+   * @return for every position the position of the exit of the smallest superbubble which starts
+   *         there, or {@link #NO_BUBBLE} if no superbubble starts there.
+   */
+  private int[] findExits() {
+    int amountOfNodes = nodes.length;
+    int[] closestParents = new int[amountOfNodes];
+    int[] furthestChildren = new int[amountOfNodes];
+    for (int i = 0; i < amountOfNodes; i++) {
+      closestParents[i] = closestParent(nodes[i]);
+      furthestChildren[i] = furthestChild(nodes[i]);
+    }
+
+    int[] exits = new int[amountOfNodes];
+    int[] intervalEnds = new int[amountOfNodes];
+    int[] intervalParents = new int[amountOfNodes];
+    int[] stack = new int[amountOfNodes];
+    int size = 0;
+    for (int start = amountOfNodes - 1; start >= 0; start--) {
+      int end = furthestChildren[start];
+      int closestParent = Integer.MAX_VALUE;
+      int next = start + 1;
+      while (next < end) {
+        int skipped = stack[--size];
+        assert skipped == next : "The skipped interval must start at the next position.";
+        closestParent = Math.min(closestParent, intervalParents[skipped]);
+        end = Math.max(end, intervalEnds[skipped]);
+        next = intervalEnds[skipped];
+      }
+      if (end < amountOfNodes) {
+        closestParent = Math.min(closestParent, closestParents[end]);
+      }
+      intervalEnds[start] = end;
+      intervalParents[start] = Math.min(closestParent, closestParents[start]);
+      stack[size++] = start;
+      boolean isBubble = end < amountOfNodes && end > start + 1 && closestParent >= start;
+      exits[start] = isBubble ? end : NO_BUBBLE;
+    }
+    return exits;
+  }
+
+  /**
+   * Get the position of the first parent of a node, or -1 if the node doesn't have any parents.
+   *
+   * @param node the node.
+   * @return the position of the first parent.
+   */
+  private int closestParent(GraphNode node) {
+    Collection<GraphNode> inEdges = getOriginalInEdges().get(node.getId());
+    if (inEdges.isEmpty()) {
+      return -1;
+    }
+    int closest = Integer.MAX_VALUE;
+    for (GraphNode inEdge : inEdges) {
+      Integer position = positions.get(inEdge.getId());
+      closest = Math.min(closest, position == null ? -1 : position);
+    }
+    return closest;
+  }
+
+  /**
+   * Get the position of the last child of a node, or the amount of nodes if the node doesn't have
+   * any children.
+   *
+   * @param node the node.
+   * @return the position of the last child.
+   */
+  private int furthestChild(GraphNode node) {
+    Collection<GraphNode> outEdges = getOriginalOutEdges().get(node.getId());
+    if (outEdges.isEmpty()) {
+      return nodes.length;
+    }
+    int furthest = Integer.MIN_VALUE;
+    for (GraphNode outEdge : outEdges) {
+      Integer position = positions.get(outEdge.getId());
+      furthest = Math.max(furthest, position == null ? nodes.length : position);
+    }
+    return furthest;
+  }
+
+  /**
+   * Create the bubbles and nest every node in the innermost bubble which contains it.
+   *
+   * @param exits the exit of the superbubble of every position.
+   */
+  private void createBubbles(int[] exits) {
+    int[] openBubbles = new int[nodes.length];
+    int size = 0;
+    for (int position = 0; position < nodes.length; position++) {
+      while (size > 0 && exits[openBubbles[size - 1]] <= position) {
+        size--;
+      }
+      owners[position] = size == 0 ? NO_BUBBLE : openBubbles[size - 1];
+      addToParent(nodes[position], owners[position]);
+      if (exits[position] != NO_BUBBLE) {
+        GraphBubble bubble = new GraphBubble(bubbleId--, this,
+            Collections.singletonList(nodes[position]),
+            Collections.singletonList(nodes[exits[position]]));
+        bubbles[position] = bubble;
+        bubbleEntrances.put(bubble, position);
+        addToParent(bubble, owners[position]);
+        openBubbles[size++] = position;
+      }
+    }
+  }
+
+  /**
+   * Add a node to the nested nodes of a bubble, or to the top level nodes.
+   *
+   * @param node   the node.
+   * @param parent the position of the entrance of the bubble, or {@link #NO_BUBBLE}.
+   */
+  private void addToParent(GraphNode node, int parent) {
+    if (parent == NO_BUBBLE) {
+      topLevelNodes.add(node);
+    } else {
+      bubbles[parent].addChild(node);
+    }
+  }
+
+  /**
+   * Get the position of the entrance of a bubble which has been created by this filter.
+   *
+   * @param bubble the bubble.
+   * @return the position of the entrance.
+   */
+  /*package*/ int getEntrance(Bubble bubble) {
+    return bubbleEntrances.get(bubble);
+  }
+
+  /**
+   * Set the edges between the nodes directly inside of a bubble (or at the top level), and from
+   * the entrance and to the exit of the bubble. An edge to a node inside of a nested bubble is
+   * replaced by an edge to the nested bubble, which can only come from the entrance of the nested
+   * bubble. The nested bubbles keep their single in and out edge.
+   *
+   * @param content  the nodes directly inside of the bubble.
+   * @param owner    the position of the entrance of the bubble, or {@link #NO_BUBBLE}.
+   * @param entrance the entrance of the bubble, or null at the top level.
+   * @param exit     the exit of the bubble, or null at the top level.
+   */
+  /*package*/ void connect(Collection<GraphNode> content, int owner, GraphNode entrance,
+      GraphNode exit) {
+    ArrayList<GraphNode> sources = new ArrayList<>(content.size() + 1);
+    for (GraphNode node : content) {
+      if (!bubbleEntrances.containsKey(node)) {
+        node.setInEdges(new HashSet<>());
+        node.setOutEdges(new HashSet<>());
+        sources.add(node);
+      }
+    }
+    if (entrance != null) {
+      entrance.setOutEdges(new HashSet<>());
+      sources.add(entrance);
+      exit.setInEdges(new HashSet<>());
+    }
+    for (GraphNode source : sources) {
+      int sourcePosition = positions.get(source.getId());
+      for (GraphNode target : getOriginalOutEdges().get(source.getId())) {
+        Integer targetPosition = positions.get(target.getId());
+        if (targetPosition == null) {
+          continue;
+        }
+        if (target == exit || owners[targetPosition] == owner) {
+          source.addOutEdge(target);
+          target.addInEdge(source);
+        } else {
+          assert bubbles[sourcePosition] != null : "Only the entrance of a bubble has edges into it.";
+          source.addOutEdge(bubbles[sourcePosition]);
+        }
+      }
+    }
+    for (GraphNode node : content) {
+      if (bubbleEntrances.containsKey(node)) {
+        node.getOutEdges().iterator().next().addInEdge(node);
+      }
+    }
+  }
+}
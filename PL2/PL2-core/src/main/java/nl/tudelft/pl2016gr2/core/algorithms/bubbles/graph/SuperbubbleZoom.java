@@ -0,0 +1,34 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph;
+
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.AbstractZoom;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class to zoom in on superbubbles. The nested bubbles have already been created by the
+ * {@link SuperbubbleFilter}, so zooming in only connects the nodes inside of the bubble.
+ */
+public class SuperbubbleZoom extends AbstractZoom {
+
+  private final SuperbubbleFilter filter;
+
+  /**
+   * Creates an object to zoom in on a superbubble with.
+   *
+   * @param filter the filter which created the superbubble.
+   */
+  public SuperbubbleZoom(SuperbubbleFilter filter) {
+    this.filter = filter;
+  }
+
+  @Override
+  public List<GraphNode> zoom(Bubble bubble) {
+    GraphNode entrance = bubble.getInEdges().iterator().next();
+    GraphNode exit = bubble.getOutEdges().iterator().next();
+    filter.connect(bubble.getChildren(), filter.getEntrance(bubble), entrance, exit);
+    return alignNodes(new ArrayList<>(bubble.getChildren()), bubble);
+  }
+}
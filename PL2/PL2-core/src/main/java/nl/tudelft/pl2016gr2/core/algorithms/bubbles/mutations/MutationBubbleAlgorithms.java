@@ -7,24 +7,89 @@ import nl.tudelft.pl2016gr2.model.graph.nodes.PointMutationBubble;
 import nl.tudelft.pl2016gr2.model.graph.nodes.StraightSequenceBubble;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.PriorityQueue;
 
 /**
  * This class creates straight sequence bubbles, indel bubbles and point mutation bubbles in the
- * given graph to group together the mutations and make the graph smaller..
+ * given graph to group together the mutations and make the graph smaller.
+ * <p>
+ * All three kinds of bubbles are created in a single sweep over the nodes in order of their level.
+ * The created bubbles are merged into the sweep by their level, so the resulting list of nodes is
+ * ordered without sorting it. The graph is bubbled as if the point mutations are created first,
+ * the indels second and the straight sequences last: when a straight sequence is followed, the
+ * point mutations and indels of the nodes in the sequence are created before the sequence is
+ * extended, and when an indel is followed, the point mutations of the nodes in the indel are
+ * created first. The state of every node is stored as flags in a primitive array, indexed by the
+ * position of the node in the sweep.
+ * </p>
  *
  * @author Cas
  */
 public class MutationBubbleAlgorithms {
 
+  private static final byte POINT_RESOLVED = 1;
+  private static final byte INDEL_RESOLVED = 1 << 1;
+  private static final byte VISITED = 1 << 2;
+  private static final byte NESTED = 1 << 3;
+
   private static int bubbleCount = Integer.MIN_VALUE;
 
-  private MutationBubbleAlgorithms() {
+  private final List<GraphNode> orderedNodes;
+  private final boolean pointMutations;
+  private final boolean indels;
+  private final boolean straightSequences;
+  private final int[] indexOfId;
+  private final int lowestId;
+  private final HashMap<Integer, Integer> sparseIndexOfId;
+  private final IdentityHashMap<GraphNode, Integer> indexOfBubble = new IdentityHashMap<>();
+  private final PriorityQueue<GraphNode> pendingBubbles = new PriorityQueue<>(
+      (GraphNode first, GraphNode second) -> Integer.compare(first.getLevel(), second.getLevel()));
+  private byte[] flags;
+
+  /**
+   * Create the state of a single sweep over the given nodes.
+   *
+   * @param orderedNodes the ordered list of nodes (by level) of the graph.
+   * @param algorithms   the selected bubbling algorithms.
+   */
+  private MutationBubbleAlgorithms(List<GraphNode> orderedNodes,
+      List<Settings.BubbleAlgorithms> algorithms) {
+    this.orderedNodes = orderedNodes;
+    this.pointMutations = algorithms.contains(Settings.BubbleAlgorithms.POINT);
+    this.indels = algorithms.contains(Settings.BubbleAlgorithms.INDEL);
+    this.straightSequences = algorithms.contains(Settings.BubbleAlgorithms.STRAIGHT);
+    this.flags = new byte[orderedNodes.size() * 2 + 16];
+
+    int lowest = Integer.MAX_VALUE;
+    int highest = Integer.MIN_VALUE;
+    for (GraphNode node : orderedNodes) {
+      lowest = Math.min(lowest, node.getId());
+      highest = Math.max(highest, node.getId());
+    }
+    this.lowestId = lowest;
+    long range = (long) highest - lowest + 1;
+    if (orderedNodes.isEmpty() || range > orderedNodes.size() * 4L + 64) {
+      this.indexOfId = null;
+      this.sparseIndexOfId = new HashMap<>(orderedNodes.size() * 4 / 3 + 1);
+      for (int i = 0; i < orderedNodes.size(); i++) {
+        sparseIndexOfId.put(orderedNodes.get(i).getId(), i);
+      }
+    } else {
+      this.sparseIndexOfId = null;
+      this.indexOfId = new int[(int) range];
+      Arrays.fill(indexOfId, -1);
+      for (int i = 0; i < orderedNodes.size(); i++) {
+        indexOfId[orderedNodes.get(i).getId() - lowest] = i;
+      }
+    }
   }
 
   /**
@@ -36,59 +101,169 @@ public class MutationBubbleAlgorithms {
    *         graph.
    */
   public static ArrayList<GraphNode> makeBubbels(ArrayList<GraphNode> orderedNodes) {
+    resetBubbleCount();
+    List<Settings.BubbleAlgorithms> algorithms = Settings.getInstance().getAlgorithms();
+    if (!algorithms.contains(Settings.BubbleAlgorithms.POINT)
+        && !algorithms.contains(Settings.BubbleAlgorithms.INDEL)
+        && !algorithms.contains(Settings.BubbleAlgorithms.STRAIGHT)) {
+      return orderedNodes;
+    }
+    return new MutationBubbleAlgorithms(orderedNodes, algorithms).sweep();
+  }
+
+  /**
+   * Reset the identifiers of the bubbles when a quarter of them has been used.
+   */
+  private static synchronized void resetBubbleCount() {
     if (bubbleCount > Integer.MIN_VALUE / 4 * 3) {
       bubbleCount = Integer.MIN_VALUE;
     }
-    return initStraightInDelPoint(orderedNodes);
   }
 
-  private static ArrayList<GraphNode> initStraightInDelPoint(ArrayList<GraphNode> orderedGraph) {
-    Settings settings = Settings.getInstance();
-    List<Settings.BubbleAlgorithms> algorithms = settings.getAlgorithms();
+  /**
+   * Get a unique identifier for a new bubble.
+   *
+   * @return the identifier.
+   */
+  private static synchronized int getNextBubbleId() {
+    return bubbleCount++;
+  }
 
-    ArrayList<GraphNode> orderedNodes = orderedGraph;
-    if (algorithms.contains(Settings.BubbleAlgorithms.POINT)) {
-      orderedNodes = filterPointMutation(orderedNodes);
+  /**
+   * Visit all of the nodes and created bubbles in order of their level, create the bubbles which
+   * start at every node and collect the nodes which aren't nested in a bubble.
+   *
+   * @return the ordered list of nodes containing the bubbles.
+   */
+  private ArrayList<GraphNode> sweep() {
+    ArrayList<GraphNode> bubbledNodes = new ArrayList<>(orderedNodes.size());
+    int next = 0;
+    while (next < orderedNodes.size() || !pendingBubbles.isEmpty()) {
+      GraphNode node;
+      if (next == orderedNodes.size() || (!pendingBubbles.isEmpty()
+          && pendingBubbles.peek().getLevel() < orderedNodes.get(next).getLevel())) {
+        node = pendingBubbles.poll();
+      } else {
+        node = orderedNodes.get(next++);
+      }
+      int index = indexOf(node);
+      if (hasFlag(index, NESTED)) {
+        continue;
+      }
+      resolveMutations(node, index);
+      if (straightSequences && !hasFlag(index, VISITED)) {
+        setFlag(index, VISITED);
+        detectStraightSequence(node);
+      }
+      bubbledNodes.add(node);
     }
-    if (algorithms.contains(Settings.BubbleAlgorithms.INDEL)) {
-      orderedNodes = filterIndel(orderedNodes);
-      orderedNodes.sort((GraphNode first, GraphNode secon) -> first.getLevel() - secon.getLevel());
+    return bubbledNodes;
+  }
+
+  /**
+   * Get the position of a node in the sweep. The nodes of the given list are looked up by their
+   * identifier, the created bubbles by their reference.
+   *
+   * @param node the node.
+   * @return the position of the node, or -1 if the node isn't part of the sweep.
+   */
+  private int indexOf(GraphNode node) {
+    int index = -1;
+    if (indexOfId != null) {
+      long offset = (long) node.getId() - lowestId;
+      if (offset >= 0 && offset < indexOfId.length) {
+        index = indexOfId[(int) offset];
+      }
+    } else {
+      Integer sparseIndex = sparseIndexOfId.get(node.getId());
+      index = sparseIndex == null ? -1 : sparseIndex;
     }
-    if (algorithms.contains(Settings.BubbleAlgorithms.STRAIGHT)) {
-      orderedNodes = filterStraightSequence(orderedNodes);
-      orderedNodes.sort((GraphNode first, GraphNode secon) -> first.getLevel() - secon.getLevel());
+    if (index != -1 && orderedNodes.get(index) == node) {
+      return index;
     }
-    return orderedNodes;
+    Integer bubbleIndex = indexOfBubble.get(node);
+    return bubbleIndex == null ? -1 : bubbleIndex;
   }
 
   /**
-   * Filter the point mutations out of the graph by creating bubbles of them.
+   * Add a created bubble to the sweep.
    *
-   * @param orderedNodes the ordered list of nodes.
-   * @return the list of nodes containing bubbles.
+   * @param bubble the bubble.
+   * @param state  the initial flags of the bubble.
    */
-  private static ArrayList<GraphNode> filterPointMutation(List<GraphNode> orderedNodes) {
-    HashSet<GraphNode> nestedNodes = new HashSet<>();
-    ArrayList<GraphNode> bubbledNodes = new ArrayList<>();
-    for (GraphNode node : orderedNodes) {
-      if (nestedNodes.contains(node)) {
-        continue;
+  private void addBubble(GraphNode bubble, byte state) {
+    int index = orderedNodes.size() + indexOfBubble.size();
+    if (index == flags.length) {
+      flags = Arrays.copyOf(flags, flags.length * 2);
+    }
+    indexOfBubble.put(bubble, index);
+    flags[index] = state;
+    pendingBubbles.add(bubble);
+  }
+
+  private boolean hasFlag(int index, byte flag) {
+    return index != -1 && (flags[index] & flag) != 0;
+  }
+
+  private void setFlag(int index, byte flag) {
+    if (index != -1) {
+      flags[index] |= flag;
+    }
+  }
+
+  /**
+   * Mark the given nodes as nested in a bubble, so they are skipped by the sweep.
+   *
+   * @param nestedNodes the nested nodes.
+   */
+  private void setNested(Collection<GraphNode> nestedNodes) {
+    for (GraphNode nestedNode : nestedNodes) {
+      setFlag(indexOf(nestedNode), NESTED);
+    }
+  }
+
+  /**
+   * Create the point mutation and indel bubbles which start at the given node, if they haven't
+   * been created yet.
+   *
+   * @param node  the node.
+   * @param index the position of the node in the sweep.
+   */
+  private void resolveMutations(GraphNode node, int index) {
+    resolvePointMutation(node, index);
+    if (indels && !hasFlag(index, INDEL_RESOLVED)) {
+      setFlag(index, INDEL_RESOLVED);
+      IndelBubble bubble = createIndelBubble(node);
+      if (bubble != null) {
+        setNested(bubble.getChildren());
+        addBubble(bubble, (byte) (POINT_RESOLVED | INDEL_RESOLVED));
       }
-      bubbledNodes.add(node);
-      PointMutationBubble mutationBubble = createPointMutationBubble(node.getOutEdges());
-      if (mutationBubble != null) {
-        bubbledNodes.add(mutationBubble);
-        nestedNodes.addAll(mutationBubble.getChildren());
+    }
+  }
+
+  /**
+   * Create the point mutation bubble which starts at the given node, if it hasn't been created
+   * yet.
+   *
+   * @param node  the node.
+   * @param index the position of the node in the sweep.
+   */
+  private void resolvePointMutation(GraphNode node, int index) {
+    if (pointMutations && !hasFlag(index, POINT_RESOLVED)) {
+      setFlag(index, POINT_RESOLVED);
+      PointMutationBubble bubble = createPointMutationBubble(node.getOutEdges());
+      if (bubble != null) {
+        setNested(bubble.getChildren());
+        addBubble(bubble, (byte) (POINT_RESOLVED | INDEL_RESOLVED));
       }
     }
-    return bubbledNodes;
   }
 
   /**
    * Creates a point mutation bubble iff the given list contains 2 nodes which form a point
    * mutation, otherwise returns null.
    *
-   * @param node the collection of nodes.
+   * @param outEdges the collection of nodes.
    * @return a point mutation bubble or null if the nodes didn't form a point mutation.
    */
   private static PointMutationBubble createPointMutationBubble(Collection<GraphNode> outEdges) {
@@ -119,8 +294,9 @@ public class MutationBubbleAlgorithms {
     nestedNodes.add(firstChild);
     nestedNodes.add(secondChild);
 
-    PointMutationBubble bubble = new PointMutationBubble(bubbleCount++, firstChild.getInEdges(),
-        firstChild.getOutEdges(), nestedNodes, VerticalAligner.POINT_MUTATION_ALIGNER);
+    PointMutationBubble bubble = new PointMutationBubble(getNextBubbleId(),
+        firstChild.getInEdges(), firstChild.getOutEdges(), nestedNodes,
+        VerticalAligner.POINT_MUTATION_ALIGNER);
 
     GraphNode startNode = firstChild.getInEdges().iterator().next();
     startNode.removeOutEdge(firstChild);
@@ -136,35 +312,13 @@ public class MutationBubbleAlgorithms {
   }
 
   /**
-   * Filter the insertions/deletions out of the graph by creating bubbles of them.
-   *
-   * @param orderedNodes the ordered list of nodes.
-   * @return the list of nodes containing bubbles.
-   */
-  private static ArrayList<GraphNode> filterIndel(List<GraphNode> orderedNodes) {
-    HashSet<GraphNode> nestedNodes = new HashSet<>();
-    ArrayList<GraphNode> bubbledNodes = new ArrayList<>();
-    for (GraphNode node : orderedNodes) {
-      if (nestedNodes.contains(node)) {
-        continue;
-      }
-      bubbledNodes.add(node);
-      IndelBubble mutationBubble = createIndelBubble(node);
-      if (mutationBubble != null) {
-        bubbledNodes.add(mutationBubble);
-        nestedNodes.addAll(mutationBubble.getChildren());
-      }
-    }
-    return bubbledNodes;
-  }
-
-  /**
-   * Creates an indel bubble iff the children of the given parent contain for an indel bubble.
+   * Creates an indel bubble iff the children of the given parent contain for an indel bubble. The
+   * point mutations of the nodes of the indel are created first.
    *
    * @param parent the parent node.
-   * @return a point mutation bubble or null if the nodes didn't form a point mutation.
+   * @return an indel bubble or null if the nodes didn't form an indel.
    */
-  private static IndelBubble createIndelBubble(GraphNode parent) {
+  private IndelBubble createIndelBubble(GraphNode parent) {
     Collection<GraphNode> outEdges = parent.getOutEdges();
     if (outEdges.size() == 2) {
       Iterator<GraphNode> it = outEdges.iterator();
@@ -177,10 +331,12 @@ public class MutationBubbleAlgorithms {
       }
       ArrayList<GraphNode> nestedNodes = new ArrayList<>();
       GraphNode nodeIter = startNode;
+      resolvePointMutation(nodeIter, indexOf(nodeIter));
       while (nodeIter.getOutEdges().size() == 1 && nodeIter.getInEdges().size() == 1
           && nodeIter.getLevel() < endNode.getLevel()) {
         nestedNodes.add(nodeIter);
         nodeIter = nodeIter.getOutEdges().iterator().next();
+        resolvePointMutation(nodeIter, indexOf(nodeIter));
       }
       if (nodeIter == endNode) {
         return createIndelBubble(nestedNodes, parent, endNode);
@@ -195,7 +351,7 @@ public class MutationBubbleAlgorithms {
    * @param nestedNodes the nested nodes of the bubble.
    * @param startNode   the inedge node of the bubble.
    * @param endNode     the outedge node of the bubble.
-   * @return the point mutation bubble.
+   * @return the indel bubble.
    */
   private static IndelBubble createIndelBubble(List<GraphNode> nestedNodes, GraphNode startNode,
       GraphNode endNode) {
@@ -204,7 +360,7 @@ public class MutationBubbleAlgorithms {
     ArrayList<GraphNode> outEdges = new ArrayList<>();
     outEdges.add(endNode);
 
-    IndelBubble bubble = new IndelBubble(bubbleCount++, inEdges, outEdges,
+    IndelBubble bubble = new IndelBubble(getNextBubbleId(), inEdges, outEdges,
         new HashSet<>(nestedNodes), VerticalAligner.INDEL_ALIGNER);
 
     startNode.removeOutEdge(nestedNodes.get(0));
@@ -219,83 +375,46 @@ public class MutationBubbleAlgorithms {
   }
 
   /**
-   * Filters all straight sequences.
+   * Detects a straight sequence starting at the given node.
    * <p>
    * A straight sequence is defined as a sequence of nodes that have no branches. Both the first and
    * the last node may have multiple in/out edges. In addition, all nodes in the straight sequence
    * must have the same overlap type. E.g. they must be either in both graphs or only in the
-   * current. The last requirement prevents bubbling of inter-graph mutations
-   * </p>
-   *
-   * @param orderedNodes The nodes in the unfiltered graph
-   * @return The nodes in the filtered graph
-   */
-  private static ArrayList<GraphNode> filterStraightSequence(List<GraphNode> orderedNodes) {
-    ArrayList<GraphNode> newNodes = new ArrayList<>(orderedNodes.size());
-    HashSet<GraphNode> visited = new HashSet<>(orderedNodes.size());
-    orderedNodes.forEach(node -> {
-      // Node has not been seen earlier
-      if (!visited.contains(node)) {
-        // It has now
-        visited.add(node);
-
-        // Iterate as far as possible and create a bubble if that length > 1.
-        // Add the result (which is either a single node, or the created bubble
-        newNodes.addAll(detectStraightSequence(node, visited));
-      }
-    });
-    return newNodes;
-  }
-
-  /**
-   * Determines whether the node is a straight sequence.
-   * <p>
-   * Tries to form a straight sequence starting at <code>startNode</code>. If the immediate child
-   * does not qualify for a straight sequence, the <code>startNode</code> itself is returned. If it
-   * does, a Bubble is created, which is then returned.
+   * current. The last requirement prevents bubbling of inter-graph mutations. If the sequence
+   * contains at least three nodes, a bubble is created of the nodes between the first and the last
+   * node.
    * </p>
    *
    * @param startNode The node to start at (potential first node in bubble)
-   * @param visited   The visited list to avoid iterating over nodes multiple times
-   * @return The <code>startNode</code> if no sequence was made, or the Bubble for the sequence
    */
-  @SuppressWarnings("checkstyle:MethodLength")
-  private static Collection<GraphNode> detectStraightSequence(GraphNode startNode,
-      Set<GraphNode> visited) {
+  private void detectStraightSequence(GraphNode startNode) {
     boolean overlap = startNode.getGuiData().overlapping;
-    HashSet<GraphNode> nestedNodes = new HashSet<>();
-    nestedNodes.add(startNode);
+    ArrayList<GraphNode> sequence = new ArrayList<>();
+    sequence.add(startNode);
     GraphNode current = startNode;
     while (current.getOutEdges().size() == 1) {
       GraphNode child = current.getOutEdges().iterator().next();
-      if (child.getGuiData().overlapping == overlap && child.getInEdges().size() == 1) {
-        visited.add(child);
-        nestedNodes.add(child);
+      int childIndex = indexOf(child);
+      if (child.getGuiData().overlapping == overlap && child.getInEdges().size() == 1
+          && !hasFlag(childIndex, VISITED)) {
+        setFlag(childIndex, VISITED);
+        resolveMutations(child, childIndex);
+        sequence.add(child);
         current = child;
       } else {
         break;
       }
     }
-    if (nestedNodes.size() < 3) {
-      return nestedNodes;
+    if (sequence.size() < 3) {
+      return;
     }
-    nestedNodes.remove(startNode);
-    nestedNodes.remove(current);
-    StraightSequenceBubble bubble = new StraightSequenceBubble(bubbleCount++,
-        Collections.singletonList(startNode), Collections.singletonList(current), nestedNodes,
-        VerticalAligner.STRAIGHT_SEQUENCE_ALIGNER);
-    return getNewNodes(startNode, current, bubble);
-  }
-
-  private static Collection<GraphNode> getNewNodes(GraphNode start, GraphNode end,
-      GraphNode bubble) {
-    start.setOutEdges(Collections.singletonList(bubble));
-    end.setInEdges(Collections.singletonList(bubble));
-
-    List<GraphNode> newNodes = new ArrayList<>();
-    newNodes.add(start);
-    newNodes.add(bubble);
-    newNodes.add(end);
-    return newNodes;
+    List<GraphNode> nestedNodes = sequence.subList(1, sequence.size() - 1);
+    setNested(nestedNodes);
+    StraightSequenceBubble bubble = new StraightSequenceBubble(getNextBubbleId(),
+        Collections.singletonList(startNode), Collections.singletonList(current),
+        new HashSet<>(nestedNodes), VerticalAligner.STRAIGHT_SEQUENCE_ALIGNER);
+    startNode.setOutEdges(Collections.singletonList(bubble));
+    current.setInEdges(Collections.singletonList(bubble));
+    addBubble(bubble, (byte) (POINT_RESOLVED | INDEL_RESOLVED | VISITED));
   }
 }
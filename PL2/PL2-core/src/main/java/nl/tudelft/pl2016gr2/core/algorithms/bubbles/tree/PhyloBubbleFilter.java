@@ -1,26 +1,27 @@
 package nl.tudelft.pl2016gr2.core.algorithms.bubbles.tree;
 
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.AbstractBubbleFilter;
-import nl.tudelft.pl2016gr2.core.algorithms.bubbles.FilterHelpers;
 import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
-import nl.tudelft.pl2016gr2.model.graph.nodes.PhyloBubble;
-import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeNode;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeRoot;
-import nl.tudelft.pl2016gr2.visitor.BubbleChildrenVisitor;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
 
 /**
  * Class used to make PhyloBubbles. These are bubbles based on the phylogenetic tree.
+ * <p>
+ * The complete hierarchy of phylo bubbles is stored in a {@link PhyloBubbleIndex}. The top level
+ * is computed by {@link #filter(IPhylogeneticTreeRoot, Collection)}; the nested levels can be
+ * computed in the background with {@link #indexHierarchy(Executor, BooleanSupplier)}, so zooming in
+ * on a bubble doesn't have to traverse the graph.
+ * </p>
  *
  * @author Casper
  *
@@ -29,6 +30,8 @@ public class PhyloBubbleFilter extends AbstractBubbleFilter {
 
   private static int mutationId = -1;
 
+  private final PhyloBubbleIndex index;
+
   /**
    * Creates an instance of this class.
    *
@@ -36,11 +39,28 @@ public class PhyloBubbleFilter extends AbstractBubbleFilter {
    */
   public PhyloBubbleFilter(Collection<GraphNode> orderedNodes) {
     super(orderedNodes);
+    resetBubbleCount();
+    this.index = new PhyloBubbleIndex(this, orderedNodes);
+  }
+
+  /**
+   * Reset the identifiers of the bubbles when a quarter of them has been used.
+   */
+  private static synchronized void resetBubbleCount() {
     if (mutationId < Integer.MIN_VALUE / 4) {
       mutationId = -1;
     }
   }
 
+  /**
+   * Get a unique identifier for a new bubble.
+   *
+   * @return the identifier.
+   */
+  /*package*/ static synchronized int getNextBubbleId() {
+    return mutationId--;
+  }
+
   /**
    * Zooms in on this node, if it's a bubble, by going down a level in the phylogenetic tree.
    *
@@ -49,10 +69,23 @@ public class PhyloBubbleFilter extends AbstractBubbleFilter {
    */
   @Override
   public List<GraphNode> zoomIn(Bubble bubble) {
-    mutationId--;
     return new PhyloBubbleZoom(this).zoom(bubble);
   }
 
+  @Override
+  public void prefetch(Bubble bubble) {
+    index.prefetch(bubble);
+  }
+
+  /**
+   * Get the index which stores the hierarchy of phylo bubbles.
+   *
+   * @return the index.
+   */
+  /*package*/ PhyloBubbleIndex getIndex() {
+    return index;
+  }
+
   /**
    * Filters the input graph of this object, using the phylogenetic tree. It finds all leaves of the
    * current node of the tree, which correspond to a certain genome. The filtered graph then only
@@ -66,10 +99,10 @@ public class PhyloBubbleFilter extends AbstractBubbleFilter {
   public ArrayList<GraphNode> filter(IPhylogeneticTreeRoot<?> treeRoot,
       Collection<Integer> genomes) {
     IPhylogeneticTreeRoot<?> newRoot = new TreeBuilder(treeRoot, genomes).getTree();
-    HashSet<GraphNode> graphNodes = new HashSet<>();
-    ArrayList<Bubble> newBubbles = new ArrayList<>();
-    debubble(graphNodes, newRoot, newBubbles);
-    pruneNodes(graphNodes, newBubbles);
+    PhyloBubbleIndex.View view = index.getTopLevelView(newRoot);
+    HashSet<GraphNode> graphNodes = view.getNodes();
+    removeEdges(view);
+    pruneNodes(graphNodes, view.getBubbles());
 
     ArrayList<GraphNode> sortedNodes = new ArrayList<>(graphNodes);
     Collections.sort(sortedNodes, (GraphNode first, GraphNode second) -> {
@@ -78,143 +111,33 @@ public class PhyloBubbleFilter extends AbstractBubbleFilter {
     return sortedNodes;
   }
 
-  private List<Bubble> debubble(Set<GraphNode> graphNodes, IPhylogeneticTreeNode<?> treeNode,
-      ArrayList<Bubble> newBubbles) {
-    mutationId--;
-    ArrayList<Integer> leaves = treeNode.getGenomes();
-    Queue<GraphNode> toVisit = new LinkedList<>();
-    Set<GraphNode> visited = new HashSet<>();
-
-    Iterator<GraphNode> rootIterator = getRootNodes().iterator();
-    while (rootIterator.hasNext()) {
-      GraphNode rootNode = rootIterator.next();
-      if (FilterHelpers.isShared(rootNode, leaves)) {
-        toVisit.add(rootNode);
-      } else {
-        List<GraphNode> bubbleStart = new ArrayList<>();
-        bubbleStart.add(rootNode);
-        createBubble(treeNode, null, bubbleStart, leaves, toVisit, visited,
-            newBubbles, graphNodes);
-      }
-    }
-
-    filterBubbles(toVisit, visited, graphNodes, leaves, null, treeNode, newBubbles);
-    return newBubbles;
-  }
-
   /**
-   * Filters a set of nodes to make bubbles out of them based on the phylogenetic tree.
+   * Compute the nested levels of the hierarchy of phylo bubbles in the background. Must be called
+   * after {@link #filter(IPhylogeneticTreeRoot, Collection)}.
    *
-   * @param toVisit     : nodes which need to be visited.
-   * @param visited     : nodes which have already been visited.
-   * @param poppedNodes : nodes that are in the new graph.
-   * @param leaves      : the leaves of the phylogenetic tree on which the bubbling is based.
-   * @param bubble      : the bubble which is zoomed in on.
-   * @param treeNode    : the treenode on which the bubbling is based.
-   * @param newBubbles  : list of newly made bubbles.
+   * @param executor  the executor on which the hierarchy is computed.
+   * @param cancelled supplies if the indexing has been cancelled, after which the remaining levels
+   *                  are only computed when they are zoomed in on.
+   * @return a future which completes when the whole hierarchy has been computed or the indexing
+   *         has been cancelled.
    */
-  @SuppressWarnings("checkstyle:MethodLength")
-  protected void filterBubbles(Queue<GraphNode> toVisit, Set<GraphNode> visited,
-      Set<GraphNode> poppedNodes, ArrayList<Integer> leaves, Bubble bubble,
-      IPhylogeneticTreeNode<?> treeNode, List<Bubble> newBubbles) {
-    Set<GraphNode> endNodes = new HashSet<>();
-    if (bubble != null) {
-      endNodes.addAll(bubble.getOutEdges());
-    }
-    while (!toVisit.isEmpty()) {
-      GraphNode next = toVisit.poll();
-      if (bubble != null && endNodes.contains(next)) {
-        continue;
-      }
-      next.setInEdges(new HashSet<>());
-      next.setOutEdges(new HashSet<>());
-      visited.add(next);
-      poppedNodes.add(next);
-      List<GraphNode> bubbleLinks = new ArrayList<>();
-      for (GraphNode outlink : calcNodeOutlinks(getOriginalOutEdges().get(next.getId()),
-          leaves, bubble)) {
-        GraphNode node = outlink;
-        if (FilterHelpers.isShared(node, leaves)) {
-          FilterHelpers.addToVisit(outlink, toVisit, visited);
-        } else {
-          bubbleLinks.add(outlink);
-        }
-      }
-      createBubble(treeNode, next, bubbleLinks, leaves, toVisit, visited, newBubbles, poppedNodes);
-    }
-  }
-
-  private void addNestedNodes(List<GraphNode> nestedNodes, Bubble bubble) {
-    for (GraphNode node : nestedNodes) {
-      BubbleChildrenVisitor visitor = new BubbleChildrenVisitor(node);
-      bubble.accept(visitor);
-    }
-  }
-
-  private void createBubble(IPhylogeneticTreeNode<?> treeNode, GraphNode inlink,
-      List<GraphNode> bubbleLinks, List<Integer> leaves, Queue<GraphNode> toVisit,
-      Set<GraphNode> visited, List<Bubble> newBubbles, Set<GraphNode> poppedNodes) {
-    if (!bubbleLinks.isEmpty()) {
-      Bubble newBubble = new PhyloBubble(mutationId, treeNode, this);
-      if (inlink != null) {
-        newBubble.addInEdge(inlink);
-      }
-      addNestedNodes(bubbleLinks, newBubble);
-      Queue<GraphNode> toVisitNodes = makeBubble(newBubble, bubbleLinks, leaves);
-      while (!toVisitNodes.isEmpty()) {
-        FilterHelpers.addToVisit(toVisitNodes.poll(), toVisit, visited);
-      }
-
-      newBubbles.add(newBubble);
-      poppedNodes.add(newBubble);
-      mutationId--;
-    }
-  }
-
-  private Queue<GraphNode> makeBubble(Bubble bubble, List<GraphNode> start, List<Integer> leaves) {
-    Queue<GraphNode> endPoints = new LinkedList<>();
-    Set<GraphNode> visited = new HashSet<>();
-    Queue<GraphNode> toVisit = new LinkedList<>();
-
-    toVisit.addAll(start);
-
-    while (!toVisit.isEmpty()) {
-      GraphNode next = toVisit.poll();
-      visited.add(next);
-
-      if (FilterHelpers.isShared(next, leaves)) {
-        endPoints.add(next);
-        bubble.addOutEdge(next);
-      } else {
-        bubble.accept(new BubbleChildrenVisitor(next));
-
-        for (GraphNode outlink : next.getOutEdges()) {
-          FilterHelpers.addToVisit(outlink, toVisit, visited);
-        }
-      }
-    }
-
-    return endPoints;
+  public CompletableFuture<Void> indexHierarchy(Executor executor, BooleanSupplier cancelled) {
+    return CompletableFuture.runAsync(() -> index.indexHierarchy(cancelled), executor);
   }
 
-  private List<GraphNode> calcNodeOutlinks(Collection<GraphNode> outEdges,
-      ArrayList<Integer> leaves, Bubble bubble) {
-    List<GraphNode> curNodeOutlinks = new ArrayList<>();
-    if (outEdges == null) {
-      return curNodeOutlinks; // should be fixed??? -> occurs for first bubble of the graph
-    }
-    for (GraphNode outlink : outEdges) {
-      if (bubble != null && !bubble.hasChild(outlink)) {
-        continue;
-      }
-
-      for (Integer leaf : leaves) {
-        if (outlink.containsGenome(leaf)) {
-          curNodeOutlinks.add(outlink);
-          break;
-        }
+  /**
+   * Remove the edges of the nodes of a view (except for the bubbles in it), so they can be
+   * connected by {@link #pruneNodes(HashSet, ArrayList)}.
+   *
+   * @param view the view.
+   */
+  /*package*/ void removeEdges(PhyloBubbleIndex.View view) {
+    HashSet<GraphNode> bubbles = new HashSet<>(view.getBubbles());
+    for (GraphNode node : view.getNodes()) {
+      if (!bubbles.contains(node)) {
+        node.setInEdges(new HashSet<>());
+        node.setOutEdges(new HashSet<>());
       }
     }
-    return curNodeOutlinks;
   }
 }
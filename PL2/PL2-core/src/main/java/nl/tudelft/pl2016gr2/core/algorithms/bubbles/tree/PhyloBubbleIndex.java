@@ -0,0 +1,369 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.tree;
+
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.FilterHelpers;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.PhyloBubble;
+import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeNode;
+import nl.tudelft.pl2016gr2.util.Pair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An index of the hierarchy of phylo bubbles of a graph. For every phylo bubble it stores the view
+ * which is shown when the bubble is zoomed in on: the nodes which are directly inside of the bubble
+ * and the phylo bubbles which are nested in it. The views are computed from the original edges of
+ * the graph and the genomes of the nodes, which don't change when the user zooms in, so the whole
+ * hierarchy can be computed in the background (see {@link #indexHierarchy(BooleanSupplier)}) while
+ * the top level of the graph is already being drawn. Zooming in on a bubble of which the view has
+ * been computed is a lookup.
+ * <p>
+ * The views are the same as the views which were made by traversing the graph every time the user
+ * zoomed in: a node is shared by the leaves of a tree node if it contains all of their genomes or
+ * a genome of another branch of the tree; the shared nodes are visible and the parts of the graph
+ * in between them are nested in a bubble of the tree node. The genomes of the nodes and of the
+ * leaves of the tree nodes are stored as {@link GenomeSet}s, so checking if a node is shared is a
+ * few bitwise operations.
+ * </p>
+ */
+public class PhyloBubbleIndex {
+
+  private final PhyloBubbleFilter filter;
+  private final HashMap<Integer, GenomeSet> nodeGenomes;
+  private final IdentityHashMap<Bubble, Boundary> boundaries = new IdentityHashMap<>();
+  private final IdentityHashMap<Bubble, View> views = new IdentityHashMap<>();
+  private final IdentityHashMap<Bubble, Pair<Boundary, View>> changedViews
+      = new IdentityHashMap<>();
+  private View topLevelView;
+
+  /**
+   * Create an index of the phylo bubbles of a graph.
+   *
+   * @param filter       the filter which creates the phylo bubbles.
+   * @param orderedNodes the nodes of the graph.
+   */
+  /*package*/ PhyloBubbleIndex(PhyloBubbleFilter filter, Collection<GraphNode> orderedNodes) {
+    this.filter = filter;
+    this.nodeGenomes = new HashMap<>(orderedNodes.size() * 4 / 3 + 1);
+    for (GraphNode node : orderedNodes) {
+      nodeGenomes.put(node.getId(), node.getGenomeSet());
+    }
+  }
+
+  /**
+   * Get the view of the top level of the graph, which contains the nodes which are shared by all
+   * of the leaves of the tree.
+   *
+   * @param treeRoot the root of the tree.
+   * @return the view of the top level of the graph.
+   */
+  /*package*/ synchronized View getTopLevelView(IPhylogeneticTreeNode<?> treeRoot) {
+    if (topLevelView == null) {
+      View view = new View();
+      GenomeSet leaves = treeRoot.getGenomeSet();
+      Traversal traversal = new Traversal();
+      for (GraphNode rootNode : filter.getRootNodes()) {
+        if (isShared(rootNode, leaves)) {
+          traversal.add(rootNode);
+        } else {
+          createBubble(view, treeRoot, null, Collections.singletonList(rootNode), leaves,
+              traversal);
+        }
+      }
+      visit(view, treeRoot, leaves, null, Collections.emptySet(), traversal);
+      topLevelView = view;
+    }
+    return topLevelView;
+  }
+
+  /**
+   * Get the view of a bubble. If the in or out edges of the bubble have been changed since it was
+   * created, the view is computed again with the current edges. That view is stored separately and
+   * is reused for as long as the edges of the bubble don't change again.
+   *
+   * @param bubble the bubble.
+   * @return the view of the bubble.
+   */
+  /*package*/ synchronized View getView(Bubble bubble) {
+    Boundary boundary = boundaries.get(bubble);
+    assert boundary != null : "The bubble was not created by this index.";
+    if (boundary.matches(bubble)) {
+      return getStoredView(bubble, boundary);
+    }
+    Pair<Boundary, View> changedView = changedViews.get(bubble);
+    if (changedView == null || !changedView.left.matches(bubble)) {
+      Boundary changedBoundary = new Boundary(boundary.treeNode, bubble);
+      changedView = new Pair<>(changedBoundary, createView(bubble, boundary.treeNode,
+          changedBoundary.inEdges, changedBoundary.outEdges));
+      changedViews.put(bubble, changedView);
+    }
+    return changedView.right;
+  }
+
+  /**
+   * Compute the view of a bubble ahead of time. Only the edges which were stored when the bubble
+   * was created are used, so this can be done while the graph is being changed by another thread.
+   *
+   * @param bubble the bubble.
+   */
+  /*package*/ synchronized void prefetch(Bubble bubble) {
+    Boundary boundary = boundaries.get(bubble);
+    if (boundary != null) {
+      getStoredView(bubble, boundary);
+    }
+  }
+
+  /**
+   * Compute the views of all of the bubbles, from the top level down. Bubbles of which the view is
+   * requested in the meantime are computed first by the requesting thread. Stops as soon as the
+   * indexing is cancelled; the remaining views are then computed when they are requested.
+   *
+   * @param cancelled supplies if the indexing has been cancelled.
+   */
+  /*package*/ void indexHierarchy(BooleanSupplier cancelled) {
+    Queue<Bubble> pending = new ArrayDeque<>();
+    synchronized (this) {
+      if (topLevelView == null) {
+        return;
+      }
+      pending.addAll(topLevelView.bubbles);
+    }
+    while (!pending.isEmpty() && !cancelled.getAsBoolean()) {
+      Bubble bubble = pending.poll();
+      View view;
+      synchronized (this) {
+        view = getStoredView(bubble, boundaries.get(bubble));
+      }
+      pending.addAll(view.bubbles);
+    }
+  }
+
+  /**
+   * Get the stored view of a bubble, or compute and store it if it hasn't been computed yet.
+   *
+   * @param bubble   the bubble.
+   * @param boundary the in and out edges of the bubble when it was created.
+   * @return the view of the bubble.
+   */
+  private View getStoredView(Bubble bubble, Boundary boundary) {
+    View view = views.get(bubble);
+    if (view == null) {
+      view = createView(bubble, boundary.treeNode, boundary.inEdges, boundary.outEdges);
+      views.put(bubble, view);
+    }
+    return view;
+  }
+
+  /**
+   * Compute the view of a bubble. The bubble is split along both of the children of its tree node,
+   * starting at the in edges of the bubble and ending at the out edges of the bubble.
+   *
+   * @param bubble   the bubble.
+   * @param treeNode the tree node of the bubble.
+   * @param inEdges  the in edges of the bubble.
+   * @param outEdges the out edges of the bubble.
+   * @return the view of the bubble.
+   */
+  private View createView(Bubble bubble, IPhylogeneticTreeNode<?> treeNode,
+      Collection<GraphNode> inEdges, Collection<GraphNode> outEdges) {
+    View view = new View();
+    HashSet<GraphNode> endNodes = new HashSet<>(outEdges);
+    for (int i = 0; i < treeNode.getDirectChildCount(); i++) {
+      IPhylogeneticTreeNode<?> child = treeNode.getChild(i);
+      Traversal traversal = new Traversal();
+      inEdges.forEach(traversal::add);
+      visit(view, child, child.getGenomeSet(), bubble, endNodes, traversal);
+      view.nodes.addAll(outEdges);
+    }
+    return view;
+  }
+
+  /**
+   * Visit the shared nodes which can be reached from the nodes in the traversal, and create a
+   * bubble for the nodes which aren't shared after every visited node.
+   *
+   * @param view      the view to which the visited nodes and created bubbles are added.
+   * @param treeNode  the tree node of which the leaves determine which nodes are shared.
+   * @param leaves    the genomes of the leaves of the tree node.
+   * @param bubble    the bubble of which the view is computed, or null at the top level.
+   * @param endNodes  the out edges of the bubble, which are not visited.
+   * @param traversal the nodes which must be visited.
+   */
+  private void visit(View view, IPhylogeneticTreeNode<?> treeNode, GenomeSet leaves,
+      Bubble bubble, Set<GraphNode> endNodes, Traversal traversal) {
+    while (!traversal.isEmpty()) {
+      GraphNode next = traversal.poll();
+      if (endNodes.contains(next)) {
+        continue;
+      }
+      traversal.visited.add(next);
+      view.nodes.add(next);
+      List<GraphNode> bubbleLinks = new ArrayList<>();
+      Collection<GraphNode> outEdges = filter.getOriginalOutEdges().get(next.getId());
+      if (outEdges != null) {
+        for (GraphNode outEdge : outEdges) {
+          if ((bubble != null && !bubble.hasChild(outEdge))
+              || !getGenomes(outEdge).intersects(leaves)) {
+            continue;
+          }
+          if (isShared(outEdge, leaves)) {
+            traversal.add(outEdge);
+          } else {
+            bubbleLinks.add(outEdge);
+          }
+        }
+      }
+      createBubble(view, treeNode, next, bubbleLinks, leaves, traversal);
+    }
+  }
+
+  /**
+   * Create a bubble which contains the given nodes and all of the nodes after them, up to the
+   * shared nodes. The shared nodes become the out edges of the bubble and are added to the
+   * traversal.
+   *
+   * @param view        the view to which the bubble is added.
+   * @param treeNode    the tree node of the bubble.
+   * @param inEdge      the in edge of the bubble, or null if it starts at a root node.
+   * @param bubbleLinks the first nodes in the bubble.
+   * @param leaves      the genomes of the leaves of the tree node.
+   * @param traversal   the traversal to which the out edges of the bubble are added.
+   */
+  private void createBubble(View view, IPhylogeneticTreeNode<?> treeNode, GraphNode inEdge,
+      List<GraphNode> bubbleLinks, GenomeSet leaves, Traversal traversal) {
+    if (bubbleLinks.isEmpty()) {
+      return;
+    }
+    PhyloBubble newBubble = new PhyloBubble(PhyloBubbleFilter.getNextBubbleId(), treeNode,
+        filter);
+    if (inEdge != null) {
+      newBubble.addInEdge(inEdge);
+    }
+    Traversal nested = new Traversal();
+    bubbleLinks.forEach(nested::add);
+    List<GraphNode> endNodes = new ArrayList<>();
+    while (!nested.isEmpty()) {
+      GraphNode next = nested.poll();
+      nested.visited.add(next);
+      if (isShared(next, leaves)) {
+        newBubble.addOutEdge(next);
+        endNodes.add(next);
+      } else {
+        newBubble.addChild(next);
+        Collection<GraphNode> outEdges = filter.getOriginalOutEdges().get(next.getId());
+        // The edges of the nodes which are visible in this view have been removed.
+        if (outEdges != null && !view.nodes.contains(next)) {
+          outEdges.forEach(nested::add);
+        }
+      }
+    }
+    endNodes.forEach(traversal::add);
+    boundaries.put(newBubble, new Boundary(treeNode, newBubble));
+    view.nodes.add(newBubble);
+    view.bubbles.add(newBubble);
+  }
+
+  /**
+   * Check if a node is shared by the leaves of a tree node (see
+   * {@link FilterHelpers#isShared(GenomeSet, GenomeSet)}), using the genomes which the node had
+   * before the graph was filtered.
+   *
+   * @param node   the node.
+   * @param leaves the genomes of the leaves of the tree node.
+   * @return if the node is shared.
+   */
+  private boolean isShared(GraphNode node, GenomeSet leaves) {
+    return FilterHelpers.isShared(getGenomes(node), leaves);
+  }
+
+  private GenomeSet getGenomes(GraphNode node) {
+    GenomeSet genomes = nodeGenomes.get(node.getId());
+    return genomes == null ? node.getGenomeSet() : genomes;
+  }
+
+  /**
+   * The nodes which are shown when a bubble is zoomed in on (or at the top level of the graph).
+   */
+  /*package*/ static class View {
+
+    private final HashSet<GraphNode> nodes = new HashSet<>();
+    private final ArrayList<Bubble> bubbles = new ArrayList<>();
+
+    /**
+     * Get the nodes of the view, including the bubbles.
+     *
+     * @return the nodes of the view.
+     */
+    /*package*/ HashSet<GraphNode> getNodes() {
+      return nodes;
+    }
+
+    /**
+     * Get the bubbles which are nested directly in the view.
+     *
+     * @return the bubbles.
+     */
+    /*package*/ ArrayList<Bubble> getBubbles() {
+      return bubbles;
+    }
+  }
+
+  /**
+   * The tree node and the in and out edges of a bubble at the moment it was created.
+   */
+  private static class Boundary {
+
+    private final IPhylogeneticTreeNode<?> treeNode;
+    private final HashSet<GraphNode> inEdges;
+    private final HashSet<GraphNode> outEdges;
+
+    private Boundary(IPhylogeneticTreeNode<?> treeNode, Bubble bubble) {
+      this.treeNode = treeNode;
+      this.inEdges = new HashSet<>(bubble.getInEdges());
+      this.outEdges = new HashSet<>(bubble.getOutEdges());
+    }
+
+    private boolean matches(Bubble bubble) {
+      return inEdges.equals(new HashSet<>(bubble.getInEdges()))
+          && outEdges.equals(new HashSet<>(bubble.getOutEdges()));
+    }
+  }
+
+  /**
+   * A queue of nodes which must be visited, in which every node is added at most once until it has
+   * been visited.
+   */
+  private static class Traversal {
+
+    private final ArrayDeque<GraphNode> toVisit = new ArrayDeque<>();
+    private final HashSet<GraphNode> queued = new HashSet<>();
+    private final HashSet<GraphNode> visited = new HashSet<>();
+
+    private void add(GraphNode node) {
+      if (!visited.contains(node) && queued.add(node)) {
+        toVisit.add(node);
+      }
+    }
+
+    private GraphNode poll() {
+      GraphNode node = toVisit.poll();
+      queued.remove(node);
+      return node;
+    }
+
+    private boolean isEmpty() {
+      return toVisit.isEmpty();
+    }
+  }
+}
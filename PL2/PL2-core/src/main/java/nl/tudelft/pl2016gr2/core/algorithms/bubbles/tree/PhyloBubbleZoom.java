@@ -3,23 +3,17 @@ package nl.tudelft.pl2016gr2.core.algorithms.bubbles.tree;
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.AbstractZoom;
 import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
-import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeNode;
-import nl.tudelft.pl2016gr2.visitor.BubblePhyloVisitor;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
 
 /**
- * Class to zoom in on phylo bubbles.
+ * Class to zoom in on phylo bubbles. The nodes inside of the bubble are looked up in the
+ * {@link PhyloBubbleIndex} of the filter, so zooming in only sets the edges of these nodes.
  * 
  * @author Casper
  *
@@ -43,45 +37,16 @@ public class PhyloBubbleZoom extends AbstractZoom {
     Map<Integer, Collection<GraphNode>> originalInEdges = new HashMap<>();
     Map<Integer, Collection<GraphNode>> originalOutEdges = new HashMap<>();
     setOriginalEdges(originalInEdges, originalOutEdges, bubble);
-    IPhylogeneticTreeNode<?> curTreeNode = getTreeNode(bubble);
-    IPhylogeneticTreeNode<?> childOne = curTreeNode.getChild(0);
-    IPhylogeneticTreeNode<?> childTwo = curTreeNode.getChild(1);
-    HashSet<GraphNode> poppedNodes = new HashSet<>();
-    ArrayList<Bubble> newBubbles = new ArrayList<>();
-    debubble(poppedNodes, childOne, bubble, newBubbles);
-    debubble(poppedNodes, childTwo, bubble, newBubbles);
+    PhyloBubbleIndex.View view = filter.getIndex().getView(bubble);
+    filter.removeEdges(view);
     pruneStart(bubble.getInEdges(), originalInEdges, originalOutEdges, bubble.getId());
     pruneEnd(bubble.getOutEdges(), originalOutEdges, originalInEdges, bubble.getId());
-    filter.pruneNodes(poppedNodes, newBubbles);
+    filter.pruneNodes(view.getNodes(), view.getBubbles());
     
-    ArrayList<GraphNode> sortedNodes = new ArrayList<>(poppedNodes);
+    ArrayList<GraphNode> sortedNodes = new ArrayList<>(view.getNodes());
     Collections.sort(sortedNodes, (GraphNode first, GraphNode second) -> {
       return first.getLevel() - second.getLevel();
     });
     return alignNodes(sortedNodes, bubble);
   }
-  
-  private IPhylogeneticTreeNode<?> getTreeNode(Bubble bubble) {
-    BubblePhyloVisitor visitor = new BubblePhyloVisitor();
-    bubble.accept(visitor);
-    return visitor.getTreeNode();
-  }
-  
-  private List<Bubble> debubble(Set<GraphNode> poppedNodes, IPhylogeneticTreeNode<?> treeNode, 
-      Bubble bubble, ArrayList<Bubble> newBubbles) {
-    Collection<GraphNode> startNodes = bubble.getInEdges();
-    ArrayList<Integer> leaves = treeNode.getGenomes();
-    Queue<GraphNode> toVisit = new LinkedList<>();
-    Set<GraphNode> visited = new HashSet<>();
-    toVisit.addAll(startNodes);
-    filter.filterBubbles(toVisit, visited, poppedNodes, leaves, bubble, treeNode, newBubbles);
-    Iterator<GraphNode> iterator = bubble.getOutEdges().iterator();
-    while (iterator.hasNext()) {
-      GraphNode next = iterator.next();
-      next.setInEdges(new HashSet<>());
-      next.setOutEdges(new HashSet<>());
-      poppedNodes.add(next);
-    }
-    return newBubbles;
-  }
 }
@@ -1,18 +1,25 @@
 package nl.tudelft.pl2016gr2.core.algorithms.bubbles.tree;
 
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeNode;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeRoot;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.PhylogeneticTreeNode;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.PhylogeneticTreeRoot;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Class to build a new phylogenetictree given an existing phylogenetic
  * tree and a set of genomes that should be in the new tree.
+ * <p>
+ * The amount of selected genomes in every subtree is counted in a single pass from the leaves to
+ * the root, in a primitive array indexed by the preorder of the existing tree. A node is copied to
+ * the new tree if both of its children contain a selected genome; otherwise it is skipped and
+ * replaced by the child which does.
+ * </p>
  * 
  * @author Casper
  *
@@ -20,7 +27,7 @@ import java.util.Set;
 public class TreeBuilder {
 
   private final IPhylogeneticTreeRoot<?> treeRoot;
-  private final Set<Integer> genomes;
+  private final GenomeSet genomes;
   private PhylogeneticTreeNode newRoot;
 
   /**
@@ -32,7 +39,7 @@ public class TreeBuilder {
    */
   public TreeBuilder(IPhylogeneticTreeRoot<?> treeRoot, Collection<Integer> genomes) {
     this.treeRoot = treeRoot;
-    this.genomes = new HashSet<>(genomes);
+    this.genomes = GenomeSet.of(genomes);
   }
 
   /**
@@ -46,36 +53,85 @@ public class TreeBuilder {
     }
 
     if (newRoot == null) {
-      buildTree(treeRoot, null);
+      buildTree();
     }
 
     return new PhylogeneticTreeRoot(newRoot, treeRoot.getMetaDatas());
   }
 
-  // WARNING, O(n2) algorithm incomming
-  private void buildTree(IPhylogeneticTreeNode<?> node, PhylogeneticTreeNode parent) {
-    if (node.isLeaf()) {
-      PhylogeneticTreeNode newNode = new PhylogeneticTreeNode(node.getGenomeId(), parent,
-          node.getEdgeLength());
-      addChild(parent, newNode);
-    } else {
-      IPhylogeneticTreeNode<?> child1 = node.getChild(0);
-      boolean child1HasGenome = containsGenome(child1.getGenomes());
-      IPhylogeneticTreeNode<?> child2 = node.getChild(1);
-      boolean child2HasGenome = containsGenome(child2.getGenomes());
+  /**
+   * Build the new tree without recursion, so deep trees can't overflow the call stack. The amount
+   * of selected genomes in every subtree and the amount of children of every node which contain a
+   * selected genome are counted in reverse preorder, so the children of a node are counted before
+   * the node itself. The new tree is then built in preorder: every node is either copied, or
+   * skipped and replaced by its only child which contains a selected genome.
+   */
+  private void buildTree() {
+    ArrayList<IPhylogeneticTreeNode<?>> preorder = new ArrayList<>();
+    int[] parents = listPreorder(preorder);
+    int[] counts = new int[preorder.size()];
+    int[] childrenWithGenomes = new int[preorder.size()];
+    for (int i = preorder.size() - 1; i >= 0; i--) {
+      IPhylogeneticTreeNode<?> node = preorder.get(i);
+      if (node.isLeaf() && genomes.contains(node.getGenomeId())) {
+        counts[i]++;
+      }
+      if (counts[i] > 0 && parents[i] >= 0) {
+        counts[parents[i]] += counts[i];
+        childrenWithGenomes[parents[i]]++;
+      }
+    }
 
-      // Both branches contain at least one genome
-      if (child1HasGenome && child2HasGenome) {
+    PhylogeneticTreeNode[] newParents = new PhylogeneticTreeNode[preorder.size()];
+    for (int i = 0; i < preorder.size(); i++) {
+      if (counts[i] == 0) {
+        continue;
+      }
+      IPhylogeneticTreeNode<?> node = preorder.get(i);
+      PhylogeneticTreeNode parent = parents[i] < 0 ? null : newParents[parents[i]];
+      if (node.isLeaf()) {
+        addChild(parent, new PhylogeneticTreeNode(node.getGenomeId(), parent,
+            node.getEdgeLength()));
+      } else if (childrenWithGenomes[i] > 1) {
         PhylogeneticTreeNode copyNode = new PhylogeneticTreeNode(node, parent);
         addChild(parent, copyNode);
-        buildTree(child1, copyNode);
-        buildTree(child2, copyNode);
-      } else if (child1HasGenome) {
-        buildTree(child1, parent);
-      } else if (child2HasGenome) {
-        buildTree(child2, parent);
+        newParents[i] = copyNode;
+      } else {
+        newParents[i] = parent;
+      }
+    }
+  }
+
+  /**
+   * List the nodes of the existing tree in preorder, visiting the children of a node in order.
+   *
+   * @param preorder the list to which the nodes are added.
+   * @return the index in the preorder of the parent of every node, or -1 for the root.
+   */
+  private int[] listPreorder(ArrayList<IPhylogeneticTreeNode<?>> preorder) {
+    int[] parents = new int[16];
+    ArrayDeque<IPhylogeneticTreeNode<?>> toVisit = new ArrayDeque<>();
+    // the parent of the node at depth d of the stack is stored at index d
+    int[] toVisitParents = new int[16];
+    toVisit.push(treeRoot);
+    toVisitParents[0] = -1;
+    while (!toVisit.isEmpty()) {
+      IPhylogeneticTreeNode<?> node = toVisit.pop();
+      int index = preorder.size();
+      preorder.add(node);
+      if (index == parents.length) {
+        parents = Arrays.copyOf(parents, index * 2);
+      }
+      parents[index] = toVisitParents[toVisit.size()];
+      for (int i = node.getDirectChildCount() - 1; i >= 0; i--) {
+        if (toVisit.size() == toVisitParents.length) {
+          toVisitParents = Arrays.copyOf(toVisitParents, toVisit.size() * 2);
+        }
+        toVisitParents[toVisit.size()] = index;
+        toVisit.push(node.getChild(i));
       }
     }
+    return parents;
   }
 
   private void addChild(PhylogeneticTreeNode parent, PhylogeneticTreeNode node) {
@@ -85,13 +141,4 @@ public class TreeBuilder {
       parent.addChild(node);
     }
   }
-
-  private boolean containsGenome(ArrayList<Integer> leaves) {
-    for (Integer leaf : leaves) {
-      if (genomes.contains(leaf)) {
-        return true;
-      }
-    }
-    return false;
-  }
 }
@@ -11,8 +11,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class is used to compare and align two subgraphs with each other, so all of the overlapping
@@ -40,21 +41,25 @@ public class CompareSubgraphs {
    */
   public static void compareGraphs(ArrayList<GraphNode> orderedTopGraph,
       ArrayList<GraphNode> orderedBottomGraph) {
-    OverlapThread overlapThread = new OverlapThread(orderedTopGraph, orderedBottomGraph);
-    GraphAlignThread topAligner = new GraphAlignThread(orderedTopGraph);
-    GraphAlignThread bottomAligner = new GraphAlignThread(orderedBottomGraph);
-
-    overlapThread.start();
-    topAligner.start();
-    bottomAligner.start();
-
-    try {
-      overlapThread.join();
-      topAligner.join();
-      bottomAligner.join();
-    } catch (InterruptedException ex) {
-      Logger.getLogger(CompareSubgraphs.class.getName()).log(Level.SEVERE, null, ex);
-    }
+    compareGraphs(orderedTopGraph, orderedBottomGraph, ForkJoinPool.commonPool()).join();
+  }
+
+  /**
+   * Align two subgraphs on the given executor: the overlapping nodes are marked and the vertical
+   * positions of the nodes of both graphs are calculated at the same time.
+   *
+   * @param orderedTopGraph    the ordered top graph.
+   * @param orderedBottomGraph the ordered bottom graph.
+   * @param executor           the executor on which to run the tasks.
+   * @return a future which completes when both graphs have been aligned.
+   */
+  public static CompletableFuture<Void> compareGraphs(ArrayList<GraphNode> orderedTopGraph,
+      ArrayList<GraphNode> orderedBottomGraph, Executor executor) {
+    return CompletableFuture.allOf(
+        CompletableFuture.runAsync(new OverlapCalculator(orderedTopGraph, orderedBottomGraph),
+            executor),
+        CompletableFuture.runAsync(() -> alignVertically(orderedTopGraph), executor),
+        CompletableFuture.runAsync(() -> alignVertically(orderedBottomGraph), executor));
   }
 
   /**
@@ -397,21 +402,4 @@ public class CompareSubgraphs {
       return startBlock - other.startBlock;
     }
   }
-
-  /**
-   * Thread which can be used to vertically align a subgraph and mark the overlapping nodes.
-   */
-  private static class GraphAlignThread extends Thread {
-
-    private final ArrayList<GraphNode> orderedGraph;
-
-    private GraphAlignThread(ArrayList<GraphNode> orderedGraph) {
-      this.orderedGraph = orderedGraph;
-    }
-
-    @Override
-    public void run() {
-      alignVertically(orderedGraph);
-    }
-  }
 }
@@ -0,0 +1,143 @@
+package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
+
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.mutations.MutationBubbleAlgorithms;
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.mutations.VerticalAligner;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.IndelBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.PointMutationBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.StraightSequenceBubble;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Copies an ordered list of nodes, including the nodes nested in its bubbles and all of the edges
+ * between them. The copies don't share any edges with the original nodes, so the copies and the
+ * original nodes can be modified independently of each other. The sequences and annotations of the
+ * nodes are shared.
+ * <p>
+ * Only sequence nodes and the bubbles of the {@link MutationBubbleAlgorithms} can be copied, and
+ * the bubbles must not have been popped. Any other node (such as the bubbles of the filters) is
+ * skipped: it is left out of the copies, together with its nested nodes and the edges to it.
+ * </p>
+ */
+/*package*/ class GraphNodeCopier {
+
+  private final IdentityHashMap<GraphNode, GraphNode> copies = new IdentityHashMap<>();
+  private final ArrayDeque<GraphNode> nodesWithoutEdges = new ArrayDeque<>();
+
+  /**
+   * Use {@link #copy(List)} to copy nodes.
+   */
+  private GraphNodeCopier() {
+  }
+
+  /**
+   * Copy the given ordered list of nodes.
+   *
+   * @param orderedNodes the ordered list of nodes.
+   * @return the copies of the nodes, in the same order, without the nodes which are skipped.
+   */
+  /*package*/ static ArrayList<GraphNode> copy(List<GraphNode> orderedNodes) {
+    GraphNodeCopier copier = new GraphNodeCopier();
+    ArrayList<GraphNode> copiedNodes = new ArrayList<>(orderedNodes.size());
+    for (GraphNode node : orderedNodes) {
+      GraphNode copy = copier.getCopy(node);
+      if (copy != null) {
+        copiedNodes.add(copy);
+      }
+    }
+    copier.copyEdges();
+    return copiedNodes;
+  }
+
+  /**
+   * Get the copy of the given node, creating it (without edges) if it hasn't been copied yet.
+   *
+   * @param node the node.
+   * @return the copy of the node, or null if the node is skipped.
+   */
+  private GraphNode getCopy(GraphNode node) {
+    if (copies.containsKey(node)) {
+      return copies.get(node);
+    }
+    GraphNode copy = createCopy(node);
+    copies.put(node, copy);
+    if (copy != null) {
+      nodesWithoutEdges.add(node);
+    }
+    return copy;
+  }
+
+  /**
+   * Create a copy of the given node. The nested nodes of a bubble are copied right away, but the
+   * edges of the copy are set by {@link #copyEdges()} (until then, the edges of a copied bubble
+   * still refer to the original nodes).
+   *
+   * @param node the node.
+   * @return the copy of the node, or null if the node can't be copied.
+   */
+  private GraphNode createCopy(GraphNode node) {
+    if (!node.hasChildren()) {
+      GraphNode copy = node.copy();
+      copy.addAllGenomes(node.getGenomes());
+      return copy;
+    }
+    if (!(node instanceof PointMutationBubble || node instanceof IndelBubble
+        || node instanceof StraightSequenceBubble)) {
+      return null;
+    }
+    HashSet<GraphNode> nestedNodes = new HashSet<>();
+    for (GraphNode child : node.getChildren()) {
+      GraphNode childCopy = getCopy(child);
+      if (childCopy != null) {
+        nestedNodes.add(childCopy);
+      }
+    }
+    Collection<GraphNode> inEdges = node.getInEdges();
+    Collection<GraphNode> outEdges = node.getOutEdges();
+    if (node instanceof PointMutationBubble) {
+      return new PointMutationBubble(node.getId(), inEdges, outEdges, nestedNodes,
+          VerticalAligner.POINT_MUTATION_ALIGNER);
+    } else if (node instanceof IndelBubble) {
+      return new IndelBubble(node.getId(), inEdges, outEdges, nestedNodes,
+          VerticalAligner.INDEL_ALIGNER);
+    }
+    return new StraightSequenceBubble(node.getId(), inEdges, outEdges, nestedNodes,
+        VerticalAligner.STRAIGHT_SEQUENCE_ALIGNER);
+  }
+
+  /**
+   * Give every copy the copies of the edges of its original node. Nodes which are only reachable
+   * through an edge are copied as well.
+   */
+  private void copyEdges() {
+    while (!nodesWithoutEdges.isEmpty()) {
+      GraphNode node = nodesWithoutEdges.poll();
+      GraphNode copy = copies.get(node);
+      copy.setInEdges(getCopies(node.getInEdges()));
+      copy.setOutEdges(getCopies(node.getOutEdges()));
+    }
+  }
+
+  /**
+   * Get the copies of the given nodes.
+   *
+   * @param nodes the nodes.
+   * @return the copies of the nodes, without the nodes which are skipped.
+   */
+  private ArrayList<GraphNode> getCopies(Collection<GraphNode> nodes) {
+    ArrayList<GraphNode> nodeCopies = new ArrayList<>(nodes.size());
+    for (GraphNode node : nodes) {
+      GraphNode copy = getCopy(node);
+      if (copy != null) {
+        nodeCopies.add(copy);
+      }
+    }
+    return nodeCopies;
+  }
+}
@@ -0,0 +1,267 @@
+package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
+
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Calculates the level of every node of a graph, so there are no backward edges. The level of a
+ * node is the maximum level of its in edges plus the size of the node.
+ * <p>
+ * The nodes are numbered from 0 till the amount of nodes and the edges are stored in primitive
+ * arrays, after which the levels are calculated with a single topological traversal (Kahn's
+ * algorithm): a node is visited as soon as all of its in edges have been visited, which is tracked
+ * with an in degree counter per node. Nodes which are part of a cycle are never visited, so their
+ * level is not changed.
+ * </p>
+ * <p>
+ * The traversal can also be performed in parallel (see {@link #orderParallel()}), which results in
+ * exactly the same levels. The main graph only needs its levels ({@link #computeLevels()}): its
+ * subgraphs are listed in level order by the graph itself.
+ * </p>
+ */
+public class GraphOrderer {
+
+  /**
+   * Frontiers with less nodes than this are processed by a single thread.
+   */
+  /*package*/ static final int PARALLEL_THRESHOLD = 1 << 10;
+
+  private final SequenceGraph graph;
+  private final int amountOfNodes;
+  private GraphNode[] nodes;
+  private final int[] outOffsets;
+  private int[] outTargets;
+  private final int[] sizes;
+  private final int[] levels;
+
+  /**
+   * Create an orderer for the given graph.
+   *
+   * @param graph the graph to order.
+   */
+  public GraphOrderer(SequenceGraph graph) {
+    this.graph = graph;
+    this.amountOfNodes = graph.size();
+    this.outOffsets = new int[amountOfNodes + 1];
+    this.sizes = new int[amountOfNodes];
+    this.levels = new int[amountOfNodes];
+    if (graph instanceof CompactGraph) {
+      initialize((CompactGraph) graph);
+    } else {
+      initialize();
+    }
+  }
+
+  /**
+   * Copy the edges, sizes and levels of a compact graph, of which the nodes are already numbered.
+   *
+   * @param compactGraph the graph.
+   */
+  private void initialize(CompactGraph compactGraph) {
+    for (int i = 0; i < amountOfNodes; i++) {
+      outOffsets[i + 1] = outOffsets[i] + compactGraph.getOutDegree(i);
+      sizes[i] = compactGraph.getNodeSize(i);
+      levels[i] = compactGraph.getLevel(i);
+    }
+    outTargets = new int[outOffsets[amountOfNodes]];
+    for (int i = 0; i < amountOfNodes; i++) {
+      for (int edge = 0; edge < compactGraph.getOutDegree(i); edge++) {
+        outTargets[outOffsets[i] + edge] = compactGraph.getOutEdge(i, edge);
+      }
+    }
+  }
+
+  /**
+   * Number the nodes of the graph and copy their edges, sizes and levels. Edges to nodes which are
+   * not in the graph are ignored.
+   */
+  private void initialize() {
+    nodes = new GraphNode[amountOfNodes];
+    HashMap<Integer, Integer> indices = new HashMap<>(amountOfNodes * 4 / 3 + 1);
+    int maxEdges = 0;
+    int index = 0;
+    for (GraphNode node : graph) {
+      nodes[index] = node;
+      indices.put(node.getId(), index);
+      sizes[index] = node.size();
+      levels[index] = node.getLevel();
+      maxEdges += node.getOutEdges().size();
+      index++;
+    }
+    outTargets = new int[maxEdges];
+    int edge = 0;
+    for (int i = 0; i < amountOfNodes; i++) {
+      outOffsets[i] = edge;
+      for (GraphNode outEdge : nodes[i].getOutEdges()) {
+        Integer target = indices.get(outEdge.getId());
+        if (target != null) {
+          outTargets[edge++] = target;
+        }
+      }
+    }
+    outOffsets[amountOfNodes] = edge;
+  }
+
+  /**
+   * Calculate the levels of all of the nodes, store them in the nodes and sort the nodes by their
+   * level.
+   *
+   * @return the nodes of the graph, sorted by their level.
+   */
+  public ArrayList<GraphNode> order() {
+    computeLevels();
+    return getSortedNodes();
+  }
+
+  /**
+   * Calculate the levels of all of the nodes and store them in the nodes, without sorting the
+   * nodes. A compact graph sorts its nodes by level when the order is first needed.
+   */
+  public void computeLevels() {
+    calculateLevels();
+    storeLevels();
+  }
+
+  /**
+   * Calculate the levels of all of the nodes in parallel, store them in the nodes and sort the
+   * nodes by their level. The result is the same as the result of {@link #order()}.
+   *
+   * @return the nodes of the graph, sorted by their level.
+   */
+  public ArrayList<GraphNode> orderParallel() {
+    computeLevelsParallel();
+    return getSortedNodes();
+  }
+
+  /**
+   * Calculate the levels of all of the nodes in parallel and store them in the nodes, without
+   * sorting the nodes. The levels are the same as the levels of {@link #computeLevels()}.
+   */
+  public void computeLevelsParallel() {
+    calculateLevelsParallel();
+    storeLevels();
+  }
+
+  /**
+   * Calculate the levels with a topological traversal starting at the nodes without in edges.
+   */
+  private void calculateLevels() {
+    int[] inDegree = new int[amountOfNodes];
+    for (int i = 0; i < outOffsets[amountOfNodes]; i++) {
+      inDegree[outTargets[i]]++;
+    }
+    int[] maxInLevel = new int[amountOfNodes];
+    int[] queue = new int[amountOfNodes];
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < amountOfNodes; i++) {
+      if (inDegree[i] == 0) {
+        queue[tail++] = i;
+      }
+    }
+    while (head < tail) {
+      int node = queue[head++];
+      int level = maxInLevel[node] + sizes[node];
+      levels[node] = level;
+      for (int edge = outOffsets[node]; edge < outOffsets[node + 1]; edge++) {
+        int target = outTargets[edge];
+        if (level > maxInLevel[target]) {
+          maxInLevel[target] = level;
+        }
+        if (--inDegree[target] == 0) {
+          queue[tail++] = target;
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculate the levels with a topological traversal which processes a whole frontier (all of the
+   * nodes of which all in edges have been visited) at once. The nodes of a wide frontier are
+   * processed in parallel; the in degree counters and maximum in levels are updated atomically and
+   * a node is appended to the next frontier by the thread which visits its last in edge. When that
+   * happens, all of the in edges have already updated the maximum in level of the node, so the
+   * levels are the same as the levels which are calculated by a single thread.
+   */
+  private void calculateLevelsParallel() {
+    AtomicIntegerArray inDegree = new AtomicIntegerArray(amountOfNodes);
+    for (int i = 0; i < outOffsets[amountOfNodes]; i++) {
+      inDegree.incrementAndGet(outTargets[i]);
+    }
+    AtomicIntegerArray maxInLevel = new AtomicIntegerArray(amountOfNodes);
+    int[] queue = new int[amountOfNodes];
+    AtomicInteger tail = new AtomicInteger();
+    for (int i = 0; i < amountOfNodes; i++) {
+      if (inDegree.get(i) == 0) {
+        queue[tail.getAndIncrement()] = i;
+      }
+    }
+    int head = 0;
+    while (head < tail.get()) {
+      int frontierStart = head;
+      int frontierEnd = tail.get();
+      IntStream frontier = IntStream.range(frontierStart, frontierEnd);
+      if (frontierEnd - frontierStart >= PARALLEL_THRESHOLD) {
+        frontier = frontier.parallel();
+      }
+      frontier.forEach(position -> {
+        int node = queue[position];
+        int level = maxInLevel.get(node) + sizes[node];
+        levels[node] = level;
+        for (int edge = outOffsets[node]; edge < outOffsets[node + 1]; edge++) {
+          int target = outTargets[edge];
+          maxInLevel.accumulateAndGet(target, level, Math::max);
+          if (inDegree.decrementAndGet(target) == 0) {
+            queue[tail.getAndIncrement()] = target;
+          }
+        }
+      });
+      head = frontierEnd;
+    }
+  }
+
+  /**
+   * Store the calculated levels in the graph.
+   */
+  private void storeLevels() {
+    if (nodes == null) {
+      ((CompactGraph) graph).setLevels(levels);
+    } else {
+      for (int i = 0; i < amountOfNodes; i++) {
+        nodes[i].setLevel(levels[i]);
+      }
+    }
+  }
+
+  /**
+   * Sort the nodes by their level. The level and the index of each node are packed in a long, so
+   * the nodes can be sorted as primitives.
+   *
+   * @return the nodes sorted by their level.
+   */
+  private ArrayList<GraphNode> getSortedNodes() {
+    long[] order = new long[amountOfNodes];
+    for (int i = 0; i < amountOfNodes; i++) {
+      order[i] = ((long) levels[i] << Integer.SIZE) | i;
+    }
+    Arrays.sort(order);
+    ArrayList<GraphNode> sortedNodes = new ArrayList<>(amountOfNodes);
+    for (long levelAndIndex : order) {
+      int index = (int) levelAndIndex;
+      if (nodes == null) {
+        sortedNodes.add(((CompactGraph) graph).getNodeAt(index));
+      } else {
+        sortedNodes.add(nodes[index]);
+      }
+    }
+    return sortedNodes;
+  }
+}
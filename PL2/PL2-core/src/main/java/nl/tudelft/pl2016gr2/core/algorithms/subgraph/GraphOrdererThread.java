@@ -2,15 +2,11 @@ package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
 
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph.GraphBaseMapper;
 import nl.tudelft.pl2016gr2.model.Annotation;
+import nl.tudelft.pl2016gr2.model.GenomeMap;
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
-import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,53 +41,6 @@ public class GraphOrdererThread extends Thread {
     this.annotations = annotations;
   }
 
-  /**
-   * Calculate the order of the nodes of the graph, so there are no backward edges. The given array
-   * list contains the nodes in order from left to right. Nodes which are at the same horizontal
-   * position have sequential positions in the array list and have the same value for their level
-   * field.
-   */
-  private void calculateGraphOrder() {
-    HashMap<GraphNode, Integer> reachedCount = new HashMap<>();
-    Set<GraphNode> currentLevel = new HashSet<>();
-    currentLevel.addAll(graph.getRootNodes());
-    while (!currentLevel.isEmpty()) {
-      Set<GraphNode> nextLevel = new HashSet<>();
-      ArrayList<ArrayList<GraphNode>> addedOutLinks = new ArrayList<>();
-      for (GraphNode node : currentLevel) {
-        int count = reachedCount.getOrDefault(node, 0);
-        if (node.getInEdges().size() == count) {
-          int maxInLevel = 0;
-          for (GraphNode inEdge : node.getInEdges()) {
-            if (inEdge.getLevel() > maxInLevel) {
-              maxInLevel = inEdge.getLevel();
-            }
-          }
-          node.setLevel(maxInLevel + node.size());
-          nextLevel.addAll(node.getOutEdges());
-          addedOutLinks.add(new ArrayList<>(node.getOutEdges()));
-        }
-      }
-      updateReachedCount(reachedCount, addedOutLinks);
-      currentLevel = nextLevel;
-    }
-  }
-
-  /**
-   * Update the reached count according to the out edges which have been iterated over.
-   *
-   * @param reachedCount  the reached count map.
-   * @param addedOutLinks the outlinks which have been iterated over.
-   */
-  private static void updateReachedCount(HashMap<GraphNode, Integer> reachedCount,
-      ArrayList<ArrayList<GraphNode>> addedOutLinks) {
-    for (ArrayList<GraphNode> outEdges : addedOutLinks) {
-      for (GraphNode outEdge : outEdges) {
-        reachedCount.put(outEdge, reachedCount.getOrDefault(outEdge, 0) + 1);
-      }
-    }
-  }
-
   /**
    * Wait till the thread completes its execution and get the ordered map of nodes.
    *
@@ -121,14 +70,28 @@ public class GraphOrdererThread extends Thread {
   }
 
   /**
-   * Calculate the graph order.
+   * Calculate the graph order (see {@link GraphOrderer}). The order is calculated in parallel when
+   * more than one processor is available. Afterwards the path of the reference genome is indexed,
+   * so the graph can be centered on a base of the reference, and the annotations are mapped (per
+   * genome in parallel, when more than one processor is available).
    */
   @Override
   public void run() {
-    calculateGraphOrder();
+    GraphOrderer orderer = new GraphOrderer(graph);
+    boolean parallel = ForkJoinPool.getCommonPoolParallelism() > 1;
+    if (parallel) {
+      orderer.computeLevelsParallel();
+    } else {
+      orderer.computeLevels();
+    }
+    mapper = new GraphBaseMapper(graph);
+    mapper.indexGenome(GenomeMap.getInstance().getReferenceId());
     if (annotations != null) {
-      mapper = new GraphBaseMapper(graph);
-      mapper.mapAnnotations(new LinkedList<>(annotations));
+      if (parallel) {
+        mapper.mapAnnotations(annotations, ForkJoinPool.commonPool()).join();
+      } else {
+        mapper.mapAnnotations(annotations);
+      }
       annotations = null;
     }
   }
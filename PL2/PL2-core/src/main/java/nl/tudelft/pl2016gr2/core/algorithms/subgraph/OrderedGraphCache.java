@@ -0,0 +1,241 @@
+package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
+
+import nl.tudelft.pl2016gr2.model.Settings.BubbleAlgorithms;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeRoot;
+import nl.tudelft.pl2016gr2.util.Pair;
+
+import java.lang.ref.SoftReference;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded cache of the results of the subgraph algorithms, so a previously viewed selection of
+ * genomes doesn't have to be split, bubbled and aligned again.
+ * <p>
+ * A result is identified by the selected genomes and the selected bubbling algorithms (see
+ * {@link Key}). At most a fixed amount of results is stored; when more results are added the
+ * least recently used result is evicted. The results are stored as soft references, so they are
+ * also evicted when the garbage collector needs the memory. All of the results are removed when
+ * the results of another graph or phylogenetic tree are requested.
+ * </p>
+ * <p>
+ * A stored result is the same graph which was handed to the GUI, which pops and unpops its bubbles
+ * while it is drawn. The bubbles of the filters can't be copied (they zoom in through the state of
+ * their filter), so instead of returning a copy, all of the bubbles of a stored result are
+ * unpopped before it is returned. This restores the edges of the graph to the state in which it
+ * was stored.
+ * </p>
+ */
+public class OrderedGraphCache {
+
+  private final int maximumSize;
+  private final LinkedHashMap<Key, SoftReference<Pair<OrderedGraph, OrderedGraph>>> results;
+  private SequenceGraph mainGraph;
+  private IPhylogeneticTreeRoot<?> treeRoot;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /**
+   * Create a cache.
+   *
+   * @param maximumSize the maximum amount of results which are stored.
+   */
+  @SuppressWarnings("serial")
+  public OrderedGraphCache(int maximumSize) {
+    this.maximumSize = maximumSize;
+    this.results = new LinkedHashMap<Key, SoftReference<Pair<OrderedGraph, OrderedGraph>>>(
+        maximumSize * 4 / 3 + 1, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<Key, SoftReference<Pair<OrderedGraph, OrderedGraph>>> eldest) {
+        if (size() > OrderedGraphCache.this.maximumSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Set the graph and tree of which the results are requested. If they differ from the graph and
+   * tree of the stored results, all of the stored results are removed.
+   *
+   * @param mainGraph the main graph.
+   * @param treeRoot  the root of the phylogenetic tree.
+   */
+  public synchronized void setSource(SequenceGraph mainGraph, IPhylogeneticTreeRoot<?> treeRoot) {
+    if (this.mainGraph != mainGraph || this.treeRoot != treeRoot) {
+      results.clear();
+      this.mainGraph = mainGraph;
+      this.treeRoot = treeRoot;
+    }
+  }
+
+  /**
+   * Get a stored result. All of the bubbles of the result are unpopped.
+   *
+   * @param key the key of the result.
+   * @return the result, or null if it isn't stored.
+   */
+  public synchronized Pair<OrderedGraph, OrderedGraph> get(Key key) {
+    SoftReference<Pair<OrderedGraph, OrderedGraph>> reference = results.get(key);
+    Pair<OrderedGraph, OrderedGraph> result = reference == null ? null : reference.get();
+    if (result == null) {
+      if (reference != null) {
+        results.remove(key);
+        evictions++;
+      }
+      misses++;
+    } else {
+      hits++;
+      unpopAll(result.left);
+      unpopAll(result.right);
+    }
+    return result;
+  }
+
+  /**
+   * Unpop all of the bubbles of a graph. The nested bubbles are unpopped by the bubbles which
+   * contain them.
+   *
+   * @param graph the graph, or null if there is no graph.
+   */
+  private static void unpopAll(OrderedGraph graph) {
+    if (graph != null) {
+      for (GraphNode node : graph.getGraphOrder()) {
+        node.unpop();
+      }
+    }
+  }
+
+  /**
+   * Store a result.
+   *
+   * @param key    the key of the result.
+   * @param result the result.
+   */
+  public synchronized void put(Key key, Pair<OrderedGraph, OrderedGraph> result) {
+    results.put(key, new SoftReference<>(result));
+  }
+
+  /**
+   * Remove all of the stored results. The counters are not reset.
+   */
+  public synchronized void clear() {
+    results.clear();
+  }
+
+  /**
+   * Get the amount of stored results (including results which have been garbage collected, but
+   * haven't been requested since).
+   *
+   * @return the amount of stored results.
+   */
+  public synchronized int size() {
+    return results.size();
+  }
+
+  /**
+   * Get the amount of requests for which a stored result was returned.
+   *
+   * @return the amount of cache hits.
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Get the amount of requests for which no stored result was found.
+   *
+   * @return the amount of cache misses.
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Get the amount of results which were removed because the cache was full or because the
+   * garbage collector cleared them.
+   *
+   * @return the amount of evictions.
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * The key of a result: the genomes of the top graph, the genomes of the bottom graph (if two
+   * graphs are compared) and the selected bubbling algorithms. The order of the genomes and of the
+   * algorithms doesn't matter.
+   */
+  public static final class Key {
+
+    private final GenomeSet topGenomes;
+    private final GenomeSet bottomGenomes;
+    private final EnumSet<BubbleAlgorithms> algorithms;
+
+    /**
+     * Create a key.
+     *
+     * @param topGenomes    the genomes of the top graph.
+     * @param bottomGenomes the genomes of the bottom graph, or null if only one graph is drawn.
+     * @param algorithms    the selected bubbling algorithms.
+     */
+    private Key(GenomeSet topGenomes, GenomeSet bottomGenomes,
+        Collection<BubbleAlgorithms> algorithms) {
+      this.topGenomes = topGenomes;
+      this.bottomGenomes = bottomGenomes;
+      this.algorithms = EnumSet.noneOf(BubbleAlgorithms.class);
+      this.algorithms.addAll(algorithms);
+    }
+
+    /**
+     * Create the key of the result of a single graph.
+     *
+     * @param genomes    the genomes of the graph.
+     * @param algorithms the selected bubbling algorithms.
+     * @return the key.
+     */
+    public static Key forGraph(Collection<Integer> genomes,
+        Collection<BubbleAlgorithms> algorithms) {
+      return new Key(GenomeSet.of(genomes), null, algorithms);
+    }
+
+    /**
+     * Create the key of the result of two compared graphs.
+     *
+     * @param topGenomes    the genomes of the top graph.
+     * @param bottomGenomes the genomes of the bottom graph.
+     * @param algorithms    the selected bubbling algorithms.
+     * @return the key.
+     */
+    public static Key forComparison(Collection<Integer> topGenomes,
+        Collection<Integer> bottomGenomes, Collection<BubbleAlgorithms> algorithms) {
+      return new Key(GenomeSet.of(topGenomes), GenomeSet.of(bottomGenomes), algorithms);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return topGenomes.equals(other.topGenomes)
+          && Objects.equals(bottomGenomes, other.bottomGenomes)
+          && algorithms.equals(other.algorithms);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(topGenomes, bottomGenomes, algorithms);
+    }
+  }
+}
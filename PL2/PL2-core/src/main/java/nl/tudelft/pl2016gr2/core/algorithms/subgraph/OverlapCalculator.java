@@ -6,20 +6,20 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
- * Thread which can be used to calculate the overlapping nodes of two graph.
+ * Task which can be used to calculate the overlapping nodes of two graph.
  */
-public class OverlapThread extends Thread {
+public class OverlapCalculator implements Runnable {
 
   private final ArrayList<GraphNode> smallestOrderedGraph;
   private final ArrayList<GraphNode> largestOrderedGraph;
 
   /**
-   * Construct a overlap thread, which finds the overlapping nodes of the given graphs.
+   * Construct an overlap calculator, which finds the overlapping nodes of the given graphs.
    *
    * @param orderedTopGraph    the ordered top graph nodes.
    * @param orderedBottomGraph the ordered bottom graph nodes.
    */
-  public OverlapThread(ArrayList<GraphNode> orderedTopGraph,
+  public OverlapCalculator(ArrayList<GraphNode> orderedTopGraph,
       ArrayList<GraphNode> orderedBottomGraph) {
     if (orderedTopGraph.size() < orderedBottomGraph.size()) {
       this.smallestOrderedGraph = orderedTopGraph;
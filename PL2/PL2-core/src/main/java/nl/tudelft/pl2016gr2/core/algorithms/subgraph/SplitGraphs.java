@@ -1,15 +1,14 @@
 package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
 
 
-import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
-import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.SubgraphView;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.NoSuchElementException;
 
 /**
@@ -21,10 +20,17 @@ import java.util.NoSuchElementException;
  * <li>The nodes in the subgraph are a subset of the nodes in the original graph.</li>
  * <li>The nodes in the subgraph will have an identical ID as their counterparts in the original
  * graph.</li>
- * <li>The nodes will be newly instantiated, meaning that the subgraph data structure is not backed
- * by the original graph.</li>
+ * <li>The nodes only contain the genomes of the subgraph. Their sequences and annotations are shared
+ * with the original graph, but modifying their edges doesn't modify the original graph.</li>
  * </ul>
  * </p>
+ * <p>
+ * The subgraph is a {@link SubgraphView}: the original graph is not copied. A subgraph node is a
+ * light view on a node of the original graph, which is created when it is first requested. Its
+ * edges are derived from the original graph when they are first accessed. When the original graph
+ * is a {@link CompactGraph}, the nodes and edges of the subgraph are determined up front as a mask
+ * of flags over the arrays of the original graph.
+ * </p>
  *
  * @author Wouter Smit
  */
@@ -36,8 +42,8 @@ public class SplitGraphs {
   /**
    * Instantiates an algorithmic class on a <code>SequenceGraph</code>.
    * <p>
-   * When {@link #getSubgraph(Collection)} is called, this class will construct a new instance of
-   * the graph containing only the specified genomes.
+   * When {@link #getSubgraph(Collection)} is called, this class will construct a view on the graph
+   * containing only the specified genomes.
    * </p>
    *
    * @param mainGraph The graph to split
@@ -61,150 +67,8 @@ public class SplitGraphs {
     assert mainGraph.getGenomes().containsAll(
         sortedGenomes) : "Tried splitting graph on absent genomes";
 
-    sortedGenomes.sort(null);
-    HashMap<Integer, GraphNode> nodeMap = findSubgraphNodes(sortedGenomes);
-    return createNewGraph(nodeMap, sortedGenomes);
-  }
-
-  /**
-   * Find all of the nodes which are part of the subgraph and put them into a map.
-   * <p>
-   * The nodes in the returned map are backed by the original nodes.
-   * </p>
-   *
-   * @param genomes the genomes that should be included in the subgraph.
-   * @return a map containing all of the nodes which are part of the subgraph.
-   */
-  private HashMap<Integer, GraphNode> findSubgraphNodes(ArrayList<Integer> genomes) {
-    HashMap<Integer, GraphNode> nodeMap = new HashMap<>();
-    mainGraph.forEach(node -> {
-      if (node.containsAnyGenome(genomes)) {
-        nodeMap.put(node.getId(), node);
-      }
-    });
-    assert !nodeMap.isEmpty() : "Subgraph returned zero nodes. This is impossible at this stage";
-    return nodeMap;
-  }
-
-  /**
-   * Create a new graph, containing copies of all the nodes in the node map with the correct in/out
-   * links
-   * and genome lists.
-   * <p>
-   * This operation is performed in <code>O(n)</code> for <code>n</code> nodes. This method
-   * requires a {@link HashSet} to provide this time complexity.
-   * </p>
-   *
-   * @param oldNodes The set containing the original nodes which are contained in the subgraph.
-   * @param genomes  The set of all genomes that should be included in the subgraph.
-   * @return the new graph which contains all of the newly created nodes.
-   */
-  private SequenceGraph createNewGraph(HashMap<Integer, GraphNode> oldNodes,
-      ArrayList<Integer> genomes) {
-    HashMap<Integer, GraphNode> newNodes = new HashMap<>();
-
-    oldNodes.forEach((id, originalNode) -> newNodes.put(id, originalNode.copy()));
-    HashMap<Integer, GraphNode> prunedNodes = pruneNodes(newNodes, oldNodes, genomes);
-    return new HashGraph(prunedNodes, genomes);
-  }
-
-  /**
-   * Prunes irrelevant fields of the original nodes and applies them to the new nodes.
-   * <p>
-   * This method returns the same <code>newNodes</code> map, with all nodes updated correctly.
-   * </p>
-   * <p>
-   * This operation is performed in <code>O(n*(k+l+m)</code> for <code>n</code> nodes and <code>k,
-   * l, m</code> genomes, in edges and out edges respectively.
-   * </p>
-   *
-   * @param newNodes The new nodes to apply the pruned data to
-   * @param oldNodes The original <code>node</code>s whose data to prune
-   * @param genomes  The set of genomes that should be retained in the pruning process
-   * @return The updated map of nodes
-   */
-  private HashMap<Integer, GraphNode> pruneNodes(HashMap<Integer, GraphNode> newNodes,
-      HashMap<Integer, GraphNode> oldNodes, ArrayList<Integer> genomes) {
-    newNodes.forEach((id, node) -> {
-      node.addAllInEdges(pruneInEdges(node, newNodes, oldNodes, genomes));
-      node.addAllGenomes(pruneGenomes(oldNodes.get(id), genomes));
-    });
-    newNodes.forEach((id, node) -> {
-      node.addAllOutEdges(pruneOutEdges(node, newNodes, oldNodes));
-    });
-
-    return newNodes;
-  }
-
-  /**
-   * Builds a subset of inLinks that is the intersection of the nodes in the graph and the inLinks
-   * in the node.
-   * <p>
-   * This operation is performed in <code>O(m)</code> for <code>m</code> inLinks.
-   * </p>
-   *
-   * @param newNode  The node to build the subset for
-   * @param newNodes The nodes of the new graph
-   * @param oldNodes The nodes of the old graph
-   * @return The intersection of the node inLinks and the graph nodes
-   */
-  private Collection<GraphNode> pruneInEdges(GraphNode newNode,
-      HashMap<Integer, GraphNode> newNodes, HashMap<Integer, GraphNode> oldNodes,
-      Collection<Integer> genomes) {
-    Collection<GraphNode> prunedInEdges = new ArrayList<>();
-    GraphNode oldNode = oldNodes.get(newNode.getId());
-    for (GraphNode oldInEdge : oldNode.getInEdges()) {
-      if (oldNodes.containsKey(oldInEdge.getId())
-          && oldInEdge.getGenomesOverEdge(oldNode).stream().anyMatch(genomes::contains)) {
-        // Edge is valid
-        GraphNode newInEdge = newNodes.get(oldInEdge.getId());
-        assert newInEdge != null;
-        prunedInEdges.add(newInEdge);
-      }
-    }
-    return prunedInEdges;
-  }
-
-  /**
-   * Builds a subset of outLinks that is the intersection of the nodes in the graph and the
-   * outLinks
-   * in the node.
-   * <p>
-   * This operation is performed in <code>O(m)</code> for <code>m</code> outLinks.
-   * </p>
-   *
-   * @param newNode  The node to build the subset for
-   * @param newNodes The nodes of the new graph
-   * @param oldNodes The nodes of the old graph
-   * @return The intersection of the node outLinks and the subgraph nodes
-   */
-  private Collection<GraphNode> pruneOutEdges(GraphNode newNode,
-      HashMap<Integer, GraphNode> newNodes, HashMap<Integer, GraphNode> oldNodes) {
-    Collection<GraphNode> prunedOutEdges = new ArrayList<>();
-    GraphNode oldNode = oldNodes.get(newNode.getId());
-    oldNode.getOutEdges().forEach(outEdge -> {
-      GraphNode newOutEdge = newNodes.get(outEdge.getId());
-      if (newOutEdge != null && newOutEdge.getInEdges().contains(newNode)) {
-        // Edge is valid
-        prunedOutEdges.add(newOutEdge);
-      }
-    });
-    return prunedOutEdges;
-  }
-
-  /**
-   * Builds a subset of genomes that is the intersection of the genomes in the graph and the node.
-   * <p>
-   * This operation is performed in <code>O(m)</code> for <code>m</code> genomes.
-   * </p>
-   *
-   * @param node         The node to build the subset for
-   * @param graphGenomes The set of genomes in the graph
-   * @return The intersection of the node and graph genomes
-   */
-  private ArrayList<Integer> pruneGenomes(GraphNode node, ArrayList<Integer> graphGenomes) {
-    ArrayList<Integer> prunedGenomes = new ArrayList<>();
-    node.forEachContainedGenome(graphGenomes, prunedGenomes::add);
-    return prunedGenomes;
+    SubgraphView subgraph = new SubgraphView(mainGraph, GenomeSet.of(sortedGenomes));
+    assert !subgraph.isEmpty() : "Subgraph returned zero nodes. This is impossible at this stage";
+    return subgraph;
   }
 }
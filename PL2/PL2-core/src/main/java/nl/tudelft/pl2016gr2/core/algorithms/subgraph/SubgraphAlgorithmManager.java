@@ -1,6 +1,7 @@
 package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
 
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph.GraphBubbleFilter;
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph.SuperbubbleFilter;
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.mutations.MutationBubbleAlgorithms;
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.tree.PhyloBubbleFilter;
 import nl.tudelft.pl2016gr2.model.Settings;
@@ -12,20 +13,69 @@ import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeRoot;
 import nl.tudelft.pl2016gr2.util.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This class manages all of the subgraph algorithms. It makes sure the correct algorithms are
- * applied to the input and the correct result is returned.
+ * applied to the input and the correct result is returned. The results are cached (see
+ * {@link OrderedGraphCache}), so the results of a previously drawn selection of genomes are
+ * returned immediately.
+ * <p>
+ * The algorithms are run as a pipeline of stages on a shared executor (splitting, bubbling,
+ * comparing/aligning and adding dummy nodes). Only the newest request is relevant, so starting a
+ * new request cancels the request which is still being computed. A listener can be given which
+ * receives snapshots of the result while it is being computed: first the unbubbled subgraph, then
+ * the subgraph with only the mutation bubbles and finally the complete result. The snapshots are
+ * computed next to the pipeline from their own split of the main graph (see
+ * {@link #takeSnapshots(Request, Collection, SequenceGraph, EnumMap)}), so the pipeline never
+ * waits for a snapshot and its nodes can be bubbled while the snapshots are aligned.
+ * </p>
  *
  * @author Faris
  */
 public class SubgraphAlgorithmManager {
 
+  /**
+   * The maximum amount of results which are cached.
+   */
+  private static final int MAX_CACHED_RESULTS = 8;
+  private static final OrderedGraphCache CACHE = new OrderedGraphCache(MAX_CACHED_RESULTS);
+
+  /**
+   * The executor on which all of the stages of the pipeline are run.
+   */
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+      Math.max(3, Runtime.getRuntime().availableProcessors()), runnable -> {
+        Thread thread = new Thread(runnable, "subgraph-pipeline");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /**
+   * The executor on which the hierarchy of phylo bubbles is indexed in the background, so the
+   * indexing doesn't compete with the stages of the pipeline.
+   */
+  private static final ExecutorService INDEX_EXECUTOR = Executors.newSingleThreadExecutor(
+      runnable -> {
+        Thread thread = new Thread(runnable, "phylo-bubble-index");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      });
+
   private static int dummyRootNodeId = Integer.MAX_VALUE;
+  private static Request currentRequest;
 
   /**
    * This is a utility class, so let no one create an instance of it.
@@ -34,7 +84,18 @@ public class SubgraphAlgorithmManager {
   }
 
   /**
-   * Create, compare and align the nodes of two subgraphs.
+   * Get the cache which contains the previously computed results.
+   *
+   * @return the cache of results.
+   */
+  public static OrderedGraphCache getCache() {
+    return CACHE;
+  }
+
+  /**
+   * Create, compare and align the nodes of two subgraphs. Waits till the result is computed (see
+   * {@link #compareTwoGraphsAsync(Collection, Collection, SequenceGraph, GraphOrdererThread,
+   * IPhylogeneticTreeRoot)}).
    *
    * @param topGenomes     the genomes which must be present in the top subgraph.
    * @param bottomGenomes  the genomes which must be present in the bottom subgraph.
@@ -44,42 +105,219 @@ public class SubgraphAlgorithmManager {
    * @return a pair containing as left value the ordered graph of the top subgraph and as right
    *         value the ordered graph of the bottom subgraph.
    */
-  @SuppressWarnings({"checkstyle:MethodLength", "checkstyle:VariableDeclarationUsageDistance"})
   public static Pair<OrderedGraph, OrderedGraph> compareTwoGraphs(Collection<Integer> topGenomes,
       Collection<Integer> bottomGenomes, SequenceGraph mainGraph, GraphOrdererThread mainGraphOrder,
       IPhylogeneticTreeRoot<?> treeRoot) {
+    return compareTwoGraphsAsync(topGenomes, bottomGenomes, mainGraph, mainGraphOrder, treeRoot)
+        .join();
+  }
+
+  /**
+   * Create, compare and align the nodes of two subgraphs on the pipeline executor. The request
+   * cancels any request which is still being computed.
+   *
+   * @param topGenomes     the genomes which must be present in the top subgraph.
+   * @param bottomGenomes  the genomes which must be present in the bottom subgraph.
+   * @param mainGraph      the main graph.
+   * @param mainGraphOrder the order of the main graph.
+   * @param treeRoot       the root of the phylogenetic tree.
+   * @return a future which completes with a pair containing as left value the ordered graph of the
+   *         top subgraph and as right value the ordered graph of the bottom subgraph, or which is
+   *         cancelled when a newer request is made.
+   */
+  public static CompletableFuture<Pair<OrderedGraph, OrderedGraph>> compareTwoGraphsAsync(
+      Collection<Integer> topGenomes, Collection<Integer> bottomGenomes, SequenceGraph mainGraph,
+      GraphOrdererThread mainGraphOrder, IPhylogeneticTreeRoot<?> treeRoot) {
+    return compareTwoGraphsAsync(topGenomes, bottomGenomes, mainGraph, mainGraphOrder, treeRoot,
+        null);
+  }
+
+  /**
+   * Create, compare and align the nodes of two subgraphs on the pipeline executor. The request
+   * cancels any request which is still being computed.
+   * <p>
+   * While the result is being computed, less refined versions of the result (see
+   * {@link Refinement}) are passed to the snapshot listener as soon as they are available. A
+   * snapshot is never passed to the listener after a more refined snapshot or after the result
+   * has been completed.
+   * </p>
+   *
+   * @param topGenomes       the genomes which must be present in the top subgraph.
+   * @param bottomGenomes    the genomes which must be present in the bottom subgraph.
+   * @param mainGraph        the main graph.
+   * @param mainGraphOrder   the order of the main graph.
+   * @param treeRoot         the root of the phylogenetic tree.
+   * @param snapshotListener the listener which receives the snapshots, or null if no snapshots
+   *                         have to be computed.
+   * @return a future which completes with a pair containing as left value the ordered graph of the
+   *         top subgraph and as right value the ordered graph of the bottom subgraph, or which is
+   *         cancelled when a newer request is made.
+   */
+  public static CompletableFuture<Pair<OrderedGraph, OrderedGraph>> compareTwoGraphsAsync(
+      Collection<Integer> topGenomes, Collection<Integer> bottomGenomes, SequenceGraph mainGraph,
+      GraphOrdererThread mainGraphOrder, IPhylogeneticTreeRoot<?> treeRoot,
+      Consumer<Pair<OrderedGraph, OrderedGraph>> snapshotListener) {
+    return compareTwoGraphsAsync(topGenomes, bottomGenomes, mainGraph, treeRoot,
+        snapshotListener == null ? null
+            : (refinement, snapshot) -> snapshotListener.accept(snapshot));
+  }
+
+  /**
+   * Create, compare and align the nodes of two subgraphs on the pipeline executor, passing the
+   * snapshots together with their refinement to the snapshot listener.
+   *
+   * @param topGenomes       the genomes which must be present in the top subgraph.
+   * @param bottomGenomes    the genomes which must be present in the bottom subgraph.
+   * @param mainGraph        the main graph.
+   * @param treeRoot         the root of the phylogenetic tree.
+   * @param snapshotListener the listener which receives the snapshots, or null if no snapshots
+   *                         have to be computed.
+   * @return a future which completes with a pair containing as left value the ordered graph of the
+   *         top subgraph and as right value the ordered graph of the bottom subgraph, or which is
+   *         cancelled when a newer request is made.
+   */
+  /*package*/ static CompletableFuture<Pair<OrderedGraph, OrderedGraph>> compareTwoGraphsAsync(
+      Collection<Integer> topGenomes, Collection<Integer> bottomGenomes, SequenceGraph mainGraph,
+      IPhylogeneticTreeRoot<?> treeRoot,
+      BiConsumer<Refinement, Pair<OrderedGraph, OrderedGraph>> snapshotListener) {
+    ArrayList<Integer> topGenomeList = new ArrayList<>(topGenomes);
+    ArrayList<Integer> bottomGenomeList = new ArrayList<>(bottomGenomes);
+    ArrayList<Settings.BubbleAlgorithms> algorithms
+        = new ArrayList<>(Settings.getInstance().getAlgorithms());
+    OrderedGraphCache.Key key = OrderedGraphCache.Key.forComparison(topGenomeList,
+        bottomGenomeList, algorithms);
+    CACHE.setSource(mainGraph, treeRoot);
+    Pair<OrderedGraph, OrderedGraph> cachedResult = CACHE.get(key);
+    if (cachedResult != null) {
+      cancelCurrentRequest();
+      return CompletableFuture.completedFuture(cachedResult);
+    }
+    Request request = startRequest();
     dummyRootNodeId = Integer.MAX_VALUE;
-    SplitGraphsThread topSubGraphThread = new SplitGraphsThread(new SplitGraphs(mainGraph),
-        topGenomes);
-    SplitGraphsThread bottomSubGraphThread = new SplitGraphsThread(new SplitGraphs(mainGraph),
-        bottomGenomes);
-    topSubGraphThread.start();
-    bottomSubGraphThread.start();
-
-    FilterBubbleThread topFilter = new FilterBubbleThread(
-        topSubGraphThread.getSubGraph().getOrderedGraph(), topGenomes, treeRoot);
-    FilterBubbleThread bottomFilter = new FilterBubbleThread(
-        bottomSubGraphThread.getSubGraph().getOrderedGraph(), bottomGenomes, treeRoot);
-    int topGenomeCount = topSubGraphThread.getSubGraph().getGenomes().size();
-    int bottomGenomeCount = bottomSubGraphThread.getSubGraph().getGenomes().size();
-    topSubGraphThread = null; // allow garbage collecting
-    bottomSubGraphThread = null; // allow garbage collecting
-    topFilter.start();
-    bottomFilter.start();
-
-    ArrayList<GraphNode> topGraphOrder = topFilter.getOrderedNodes();
-    ArrayList<GraphNode> bottomGraphOrder = bottomFilter.getOrderedNodes();
-    CompareSubgraphs.compareGraphs(topGraphOrder, bottomGraphOrder);
-    addDummyNodes(topGraphOrder);
-    addDummyNodes(bottomGraphOrder);
-
-    OrderedGraph orderedTopGraph = new OrderedGraph(topGenomeCount, topGraphOrder);
-    OrderedGraph orderedBottomGraph = new OrderedGraph(bottomGenomeCount, bottomGraphOrder);
-    return new Pair<>(orderedTopGraph, orderedBottomGraph);
-  }
-
-  /**
-   * Create and align the nodes of a single subgraph.
+
+    EnumMap<Refinement, CompletableFuture<Pair<Integer, ArrayList<GraphNode>>>> topSnapshots
+        = new EnumMap<>(Refinement.class);
+    EnumMap<Refinement, CompletableFuture<Pair<Integer, ArrayList<GraphNode>>>> bottomSnapshots
+        = new EnumMap<>(Refinement.class);
+    if (snapshotListener != null) {
+      CompletableFuture<Void> previousSnapshot = CompletableFuture.completedFuture(null);
+      for (Refinement refinement : Refinement.getSnapshots(algorithms)) {
+        topSnapshots.put(refinement, new CompletableFuture<>());
+        bottomSnapshots.put(refinement, new CompletableFuture<>());
+        CompletableFuture<Pair<OrderedGraph, OrderedGraph>> snapshot = topSnapshots.get(refinement)
+            .thenCombine(bottomSnapshots.get(refinement), (top, bottom) -> new Pair<>(top, bottom))
+            .thenCompose(graphs -> compareGraphs(request, graphs));
+        previousSnapshot = publishInOrder(request, refinement, snapshot, previousSnapshot,
+            snapshotListener);
+      }
+    }
+    CompletableFuture<Pair<Integer, ArrayList<GraphNode>>> topGraph = splitAndBubble(request,
+        topGenomeList, mainGraph, treeRoot, algorithms);
+    CompletableFuture<Pair<Integer, ArrayList<GraphNode>>> bottomGraph = splitAndBubble(request,
+        bottomGenomeList, mainGraph, treeRoot, algorithms);
+    takeSnapshots(request, topGenomeList, mainGraph, topSnapshots);
+    takeSnapshots(request, bottomGenomeList, mainGraph, bottomSnapshots);
+    CompletableFuture<Pair<OrderedGraph, OrderedGraph>> result = topGraph
+        .thenCombine(bottomGraph, (top, bottom) -> new Pair<>(top, bottom))
+        .thenCompose(graphs -> compareGraphs(request, graphs))
+        .thenApply(orderedGraphs -> {
+          CACHE.put(key, orderedGraphs);
+          request.complete();
+          return orderedGraphs;
+        });
+    return request.track(result);
+  }
+
+  /**
+   * Compare and align the nodes of two bubbled subgraphs.
+   *
+   * @param request the request of which this is a part.
+   * @param graphs  the amount of genomes and the ordered nodes of the top and bottom subgraphs.
+   * @return a future which completes with the ordered top and bottom graphs.
+   */
+  private static CompletableFuture<Pair<OrderedGraph, OrderedGraph>> compareGraphs(
+      Request request,
+      Pair<Pair<Integer, ArrayList<GraphNode>>, Pair<Integer, ArrayList<GraphNode>>> graphs) {
+    request.checkCancelled();
+    return CompareSubgraphs.compareGraphs(graphs.left.right, graphs.right.right, EXECUTOR)
+        .thenApplyAsync(ignored -> {
+          request.checkCancelled();
+          addDummyNodes(graphs.left.right);
+          addDummyNodes(graphs.right.right);
+          return new Pair<>(new OrderedGraph(graphs.left.left, graphs.left.right),
+              new OrderedGraph(graphs.right.left, graphs.right.right));
+        }, EXECUTOR);
+  }
+
+  /**
+   * Compute the snapshots of a subgraph on the pipeline executor, next to the pipeline which
+   * computes the complete result. The snapshots are computed from their own split of the main
+   * graph, which is only read by the splits, so the nodes of the pipeline are never shared with a
+   * snapshot. The unbubbled nodes are copied (see {@link GraphNodeCopier}) before they are
+   * published, but only if the mutation bubbles are needed as a snapshot as well.
+   *
+   * @param request   the request of which the snapshots are a part.
+   * @param genomes   the genomes of the subgraph.
+   * @param mainGraph the main graph.
+   * @param snapshots the futures of the snapshots, by refinement. If the snapshots can't be
+   *                  computed, the futures are completed exceptionally.
+   */
+  private static void takeSnapshots(Request request, Collection<Integer> genomes,
+      SequenceGraph mainGraph,
+      EnumMap<Refinement, CompletableFuture<Pair<Integer, ArrayList<GraphNode>>>> snapshots) {
+    if (snapshots.isEmpty()) {
+      return;
+    }
+    CompletableFuture.runAsync(() -> {
+      request.checkCancelled();
+      SequenceGraph subgraph = new SplitGraphs(mainGraph).getSubgraph(genomes);
+      ArrayList<GraphNode> orderedNodes = subgraph.getOrderedGraph();
+      int amountOfGenomes = subgraph.getGenomes().size();
+      CompletableFuture<Pair<Integer, ArrayList<GraphNode>>> mutationSnapshot
+          = snapshots.get(Refinement.MUTATION_BUBBLES);
+      ArrayList<GraphNode> copiedNodes
+          = mutationSnapshot == null ? null : GraphNodeCopier.copy(orderedNodes);
+      snapshots.get(Refinement.UNBUBBLED).complete(new Pair<>(amountOfGenomes, orderedNodes));
+      if (mutationSnapshot != null) {
+        request.checkCancelled();
+        mutationSnapshot.complete(new Pair<>(amountOfGenomes,
+            MutationBubbleAlgorithms.makeBubbels(copiedNodes)));
+      }
+    }, EXECUTOR).exceptionally(ex -> {
+      for (CompletableFuture<Pair<Integer, ArrayList<GraphNode>>> snapshot : snapshots.values()) {
+        snapshot.completeExceptionally(ex);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Publish a snapshot when it has been computed and the previous snapshot has been published (or
+   * has failed). The snapshots are computed in parallel, but publishing them in order of their
+   * refinement makes sure a snapshot which is computed faster doesn't cause a less refined
+   * snapshot to be dropped.
+   *
+   * @param <T>              the type of the snapshot.
+   * @param request          the request of which the snapshot is a part.
+   * @param refinement       the refinement of the snapshot.
+   * @param snapshot         the future of the snapshot.
+   * @param previousSnapshot the future which completes when the previous snapshot is published.
+   * @param snapshotListener the listener which receives the snapshots.
+   * @return a future which completes when the snapshot is published.
+   */
+  private static <T> CompletableFuture<Void> publishInOrder(Request request,
+      Refinement refinement, CompletableFuture<T> snapshot,
+      CompletableFuture<Void> previousSnapshot, BiConsumer<Refinement, T> snapshotListener) {
+    return previousSnapshot.handle((ignored, ex) -> null)
+        .thenCombine(snapshot, (ignored, computed) -> computed)
+        .thenAccept(computed -> request.publish(refinement,
+            () -> snapshotListener.accept(refinement, computed)));
+  }
+
+  /**
+   * Create and align the nodes of a single subgraph. Waits till the result is computed (see
+   * {@link #alignOneGraphAsync(Collection, SequenceGraph, GraphOrdererThread,
+   * IPhylogeneticTreeRoot)}).
    *
    * @param genomes        the genomes which must be present in the subgraph.
    * @param mainGraph      the main graph.
@@ -87,48 +325,201 @@ public class SubgraphAlgorithmManager {
    * @param treeRoot       the root of the phylogenetic tree.
    * @return the ordered graph.
    */
-  @SuppressWarnings("checkstyle:VariableDeclarationUsageDistance")
   public static OrderedGraph alignOneGraph(Collection<Integer> genomes, SequenceGraph mainGraph,
       GraphOrdererThread mainGraphOrder, IPhylogeneticTreeRoot<?> treeRoot) {
+    return alignOneGraphAsync(genomes, mainGraph, mainGraphOrder, treeRoot).join();
+  }
+
+  /**
+   * Create and align the nodes of a single subgraph on the pipeline executor. The request cancels
+   * any request which is still being computed.
+   *
+   * @param genomes        the genomes which must be present in the subgraph.
+   * @param mainGraph      the main graph.
+   * @param mainGraphOrder the order of the main graph.
+   * @param treeRoot       the root of the phylogenetic tree.
+   * @return a future which completes with the ordered graph, or which is cancelled when a newer
+   *         request is made.
+   */
+  public static CompletableFuture<OrderedGraph> alignOneGraphAsync(Collection<Integer> genomes,
+      SequenceGraph mainGraph, GraphOrdererThread mainGraphOrder,
+      IPhylogeneticTreeRoot<?> treeRoot) {
+    return alignOneGraphAsync(genomes, mainGraph, mainGraphOrder, treeRoot, null);
+  }
+
+  /**
+   * Create and align the nodes of a single subgraph on the pipeline executor. The request cancels
+   * any request which is still being computed.
+   * <p>
+   * While the result is being computed, less refined versions of the result (see
+   * {@link Refinement}) are passed to the snapshot listener as soon as they are available. A
+   * snapshot is never passed to the listener after a more refined snapshot or after the result
+   * has been completed.
+   * </p>
+   *
+   * @param genomes          the genomes which must be present in the subgraph.
+   * @param mainGraph        the main graph.
+   * @param mainGraphOrder   the order of the main graph.
+   * @param treeRoot         the root of the phylogenetic tree.
+   * @param snapshotListener the listener which receives the snapshots, or null if no snapshots
+   *                         have to be computed.
+   * @return a future which completes with the ordered graph, or which is cancelled when a newer
+   *         request is made.
+   */
+  public static CompletableFuture<OrderedGraph> alignOneGraphAsync(Collection<Integer> genomes,
+      SequenceGraph mainGraph, GraphOrdererThread mainGraphOrder,
+      IPhylogeneticTreeRoot<?> treeRoot, Consumer<OrderedGraph> snapshotListener) {
+    return alignOneGraphAsync(genomes, mainGraph, treeRoot,
+        snapshotListener == null ? null
+            : (refinement, snapshot) -> snapshotListener.accept(snapshot));
+  }
+
+  /**
+   * Create and align the nodes of a single subgraph on the pipeline executor, passing the
+   * snapshots together with their refinement to the snapshot listener.
+   *
+   * @param genomes          the genomes which must be present in the subgraph.
+   * @param mainGraph        the main graph.
+   * @param treeRoot         the root of the phylogenetic tree.
+   * @param snapshotListener the listener which receives the snapshots, or null if no snapshots
+   *                         have to be computed.
+   * @return a future which completes with the ordered graph, or which is cancelled when a newer
+   *         request is made.
+   */
+  /*package*/ static CompletableFuture<OrderedGraph> alignOneGraphAsync(
+      Collection<Integer> genomes, SequenceGraph mainGraph, IPhylogeneticTreeRoot<?> treeRoot,
+      BiConsumer<Refinement, OrderedGraph> snapshotListener) {
+    ArrayList<Integer> genomeList = new ArrayList<>(genomes);
+    ArrayList<Settings.BubbleAlgorithms> algorithms
+        = new ArrayList<>(Settings.getInstance().getAlgorithms());
+    OrderedGraphCache.Key key = OrderedGraphCache.Key.forGraph(genomeList, algorithms);
+    CACHE.setSource(mainGraph, treeRoot);
+    Pair<OrderedGraph, OrderedGraph> cachedResult = CACHE.get(key);
+    if (cachedResult != null) {
+      cancelCurrentRequest();
+      return CompletableFuture.completedFuture(cachedResult.left);
+    }
+    Request request = startRequest();
     dummyRootNodeId = Integer.MAX_VALUE;
-    SplitGraphsThread topSubGraphThread = new SplitGraphsThread(new SplitGraphs(mainGraph),
-        genomes);
-    topSubGraphThread.start();
-    SequenceGraph subgraph = topSubGraphThread.getSubGraph();
 
-    ArrayList<GraphNode> orderedNodes = subgraph.getOrderedGraph();
-    int amountOfGenomes = subgraph.getGenomes().size();
-    subgraph = null; // allow garbage collection
-    orderedNodes = performBubblingAlgorithms(orderedNodes, genomes, treeRoot);
+    EnumMap<Refinement, CompletableFuture<Pair<Integer, ArrayList<GraphNode>>>> snapshots
+        = new EnumMap<>(Refinement.class);
+    if (snapshotListener != null) {
+      CompletableFuture<Void> previousSnapshot = CompletableFuture.completedFuture(null);
+      for (Refinement refinement : Refinement.getSnapshots(algorithms)) {
+        snapshots.put(refinement, new CompletableFuture<>());
+        CompletableFuture<OrderedGraph> snapshot = snapshots.get(refinement)
+            .thenApplyAsync(graph -> alignGraph(request, graph.left, graph.right), EXECUTOR);
+        previousSnapshot = publishInOrder(request, refinement, snapshot, previousSnapshot,
+            snapshotListener);
+      }
+    }
+    CompletableFuture<OrderedGraph> result = splitAndBubble(request, genomeList, mainGraph,
+        treeRoot, algorithms)
+        .thenApplyAsync(graph -> alignGraph(request, graph.left, graph.right), EXECUTOR)
+        .thenApply(orderedGraph -> {
+          CACHE.put(key, new Pair<>(orderedGraph, null));
+          request.complete();
+          return orderedGraph;
+        });
+    takeSnapshots(request, genomeList, mainGraph, snapshots);
+    return request.track(result);
+  }
 
+  /**
+   * Align the nodes of a single bubbled subgraph.
+   *
+   * @param request         the request of which this is a part.
+   * @param amountOfGenomes the amount of genomes in the subgraph.
+   * @param orderedNodes    the ordered nodes of the subgraph.
+   * @return the ordered graph.
+   */
+  private static OrderedGraph alignGraph(Request request, int amountOfGenomes,
+      ArrayList<GraphNode> orderedNodes) {
+    request.checkCancelled();
     CompareSubgraphs.alignVertically(orderedNodes);
+    request.checkCancelled();
     addDummyNodes(orderedNodes);
     return new OrderedGraph(amountOfGenomes, orderedNodes);
   }
 
+  /**
+   * Split the main graph and bubble the subgraph on the pipeline executor.
+   *
+   * @param request    the request of which this is a part.
+   * @param genomes    the genomes of the subgraph.
+   * @param mainGraph  the main graph.
+   * @param treeRoot   the root of the phylogenetic tree.
+   * @param algorithms the selected bubbling algorithms.
+   * @return a future which completes with a pair containing as left value the amount of genomes in
+   *         the subgraph and as right value the ordered and bubbled nodes of the subgraph.
+   */
+  private static CompletableFuture<Pair<Integer, ArrayList<GraphNode>>> splitAndBubble(
+      Request request, Collection<Integer> genomes, SequenceGraph mainGraph,
+      IPhylogeneticTreeRoot<?> treeRoot, List<Settings.BubbleAlgorithms> algorithms) {
+    return CompletableFuture.supplyAsync(() -> {
+      request.checkCancelled();
+      return new SplitGraphs(mainGraph).getSubgraph(genomes);
+    }, EXECUTOR).thenApplyAsync(subgraph -> {
+      request.checkCancelled();
+      ArrayList<GraphNode> orderedNodes = subgraph.getOrderedGraph();
+      int amountOfGenomes = subgraph.getGenomes().size();
+      request.checkCancelled();
+      orderedNodes = performBubblingAlgorithms(request, orderedNodes, genomes, treeRoot,
+          algorithms);
+      return new Pair<>(amountOfGenomes, orderedNodes);
+    }, EXECUTOR);
+  }
+
   /**
    * Bubble the given graph according to the selected bubbling algorithms in the menu.
    *
+   * @param request      the request of which this is a part.
    * @param orderedNodes the ordered list of nodes.
    * @param genomes      the genomes.
    * @param treeRoot     the root of the tree.
+   * @param algorithms   the selected bubbling algorithms.
    */
-  private static ArrayList<GraphNode> performBubblingAlgorithms(ArrayList<GraphNode> orderedNodes,
-      Collection<Integer> genomes, IPhylogeneticTreeRoot<?> treeRoot) {
-    Settings settings = Settings.getInstance();
-    List<Settings.BubbleAlgorithms> algorithms = settings.getAlgorithms();
-
+  private static ArrayList<GraphNode> performBubblingAlgorithms(Request request,
+      ArrayList<GraphNode> orderedNodes, Collection<Integer> genomes,
+      IPhylogeneticTreeRoot<?> treeRoot, List<Settings.BubbleAlgorithms> algorithms) {
     orderedNodes = MutationBubbleAlgorithms.makeBubbels(orderedNodes);
+    request.checkCancelled();
     if (algorithms.contains(Settings.BubbleAlgorithms.PHYLO)) {
       PhyloBubbleFilter filter = new PhyloBubbleFilter(orderedNodes);
       orderedNodes = filter.filter(treeRoot, genomes);
+      request.trackBackground(filter.indexHierarchy(INDEX_EXECUTOR, request::isCancelled));
     } else if (algorithms.contains(Settings.BubbleAlgorithms.GRAPH)) {
       GraphBubbleFilter graphFilter = new GraphBubbleFilter(orderedNodes);
       orderedNodes = graphFilter.filter();
+    } else if (algorithms.contains(Settings.BubbleAlgorithms.SUPERBUBBLE)) {
+      SuperbubbleFilter superbubbleFilter = new SuperbubbleFilter(orderedNodes);
+      orderedNodes = superbubbleFilter.filter();
     }
     return orderedNodes;
   }
 
+  /**
+   * Start a new request and cancel the request which is currently being computed.
+   *
+   * @return the new request.
+   */
+  private static synchronized Request startRequest() {
+    cancelCurrentRequest();
+    currentRequest = new Request();
+    return currentRequest;
+  }
+
+  /**
+   * Cancel the request which is currently being computed, if there is any.
+   */
+  private static synchronized void cancelCurrentRequest() {
+    if (currentRequest != null) {
+      currentRequest.cancel();
+      currentRequest = null;
+    }
+  }
+
   /**
    * Add dummy nodes before each root node.
    *
@@ -151,74 +542,141 @@ public class SubgraphAlgorithmManager {
   }
 
   /**
-   * Thread which is used to get a graph of a subset of the genomes from a graph.
+   * A request for the result of the subgraph algorithms. The stages of the pipeline check if the
+   * request has been cancelled before they start, so a cancelled request stops as soon as the
+   * running stage completes.
    */
-  private static class SplitGraphsThread extends Thread {
+  private static class Request {
 
-    private SequenceGraph subGraph;
-    private final SplitGraphs splitGraphs;
-    private final Collection<Integer> genomes;
+    private volatile boolean cancelled = false;
+    private CompletableFuture<?> result;
+    private final ArrayList<CompletableFuture<?>> backgroundTasks = new ArrayList<>();
+    private Refinement published;
 
     /**
-     * Construct a split graph thread. Subtracts a subgraph from the given graph, containing all of
-     * the given genomes.
+     * Remember the future of the result of this request, so it can be cancelled.
      *
-     * @param splitGraphs a {@link SplitGraphs} object.
-     * @param genomes     the list of genomes which must be present in the subgraph.
+     * @param result the future of the result.
+     * @param <T>    the type of the result.
+     * @return the given future.
      */
-    private SplitGraphsThread(SplitGraphs splitGraphs, Collection<Integer> genomes) {
-      this.splitGraphs = splitGraphs;
-      this.genomes = genomes;
+    private synchronized <T> CompletableFuture<T> track(CompletableFuture<T> result) {
+      this.result = result;
+      if (cancelled) {
+        result.cancel(true);
+      }
+      return result;
     }
 
     /**
-     * Wait till the thread completes its execution and get the subgraph.
+     * Remember the future of a task which keeps running in the background after the result of
+     * this request has been completed, so it can be cancelled together with this request. Failures
+     * of the task are logged.
      *
-     * @return the subgraph.
+     * @param task the future of the task.
      */
-    private SequenceGraph getSubGraph() {
-      try {
-        this.join();
-      } catch (InterruptedException ex) {
-        Logger.getLogger(SubgraphAlgorithmManager.class.getName()).log(Level.SEVERE, null, ex);
+    private void trackBackground(CompletableFuture<Void> task) {
+      synchronized (this) {
+        backgroundTasks.add(task);
+        if (cancelled) {
+          task.cancel(true);
+        }
       }
-      return subGraph;
+      task.whenComplete((ignored, ex) -> {
+        if (ex != null && !(ex instanceof CancellationException)
+            && !(ex.getCause() instanceof CancellationException)) {
+          Logger.getLogger(SubgraphAlgorithmManager.class.getName()).log(Level.SEVERE, null, ex);
+        }
+      });
     }
 
     /**
-     * Subtract a subgraph from the given graph, containing all of the given genomes.
+     * Cancel this request and its background tasks.
      */
-    @Override
-    public void run() {
-      subGraph = splitGraphs.getSubgraph(genomes);
+    private synchronized void cancel() {
+      cancelled = true;
+      if (result != null) {
+        result.cancel(true);
+      }
+      backgroundTasks.forEach(task -> task.cancel(true));
     }
-  }
 
-  private static class FilterBubbleThread extends Thread {
+    /**
+     * Check if this request has been cancelled.
+     *
+     * @return if this request has been cancelled.
+     */
+    private boolean isCancelled() {
+      return cancelled;
+    }
 
-    private final Collection<Integer> genomes;
-    private final IPhylogeneticTreeRoot<?> treeRoot;
-    private ArrayList<GraphNode> orderedNodes;
+    /**
+     * Publish a (partial) result of this request, unless the request has been cancelled or a
+     * result with the same or a higher refinement has already been published.
+     *
+     * @param refinement the refinement of the result.
+     * @param publisher  the action which publishes the result.
+     */
+    private synchronized void publish(Refinement refinement, Runnable publisher) {
+      if (cancelled || (published != null && published.compareTo(refinement) >= 0)) {
+        return;
+      }
+      published = refinement;
+      publisher.run();
+    }
 
-    private FilterBubbleThread(ArrayList<GraphNode> orderedSubgraph, Collection<Integer> genomes,
-        IPhylogeneticTreeRoot<?> treeRoot) {
-      this.orderedNodes = orderedSubgraph;
-      this.genomes = genomes;
-      this.treeRoot = treeRoot;
+    /**
+     * Mark the complete result as published, so no snapshots are published anymore.
+     */
+    private synchronized void complete() {
+      published = Refinement.COMPLETE;
     }
 
-    public ArrayList<GraphNode> getOrderedNodes() {
-      try {
-        this.join();
-      } catch (InterruptedException ex) {
-        Logger.getLogger(SubgraphAlgorithmManager.class.getName()).log(Level.SEVERE, null, ex);
+    /**
+     * Check if the request has been cancelled or the thread has been interrupted.
+     *
+     * @throws CancellationException if the request has been cancelled.
+     */
+    private void checkCancelled() {
+      if (cancelled || Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("The request has been superseded by a newer request.");
       }
-      return orderedNodes;
     }
+  }
 
-    @Override
-    public void run() {
-      orderedNodes = performBubblingAlgorithms(orderedNodes, genomes, treeRoot);
+  /**
+   * The bubbling algorithms which have been applied to a (partial) result, from the least to the
+   * most refined result.
+   */
+  /*package*/ enum Refinement {
+    /**
+     * No bubbling algorithms have been applied, the subgraph is only split and ordered.
+     */
+    UNBUBBLED,
+    /**
+     * Only the point mutation, indel and straight sequence bubbles have been created.
+     */
+    MUTATION_BUBBLES,
+    /**
+     * All of the selected bubbling algorithms have been applied.
+     */
+    COMPLETE;
+
+    /**
+     * Get the refinements of which a snapshot is published before the complete result is
+     * available. Mutation bubbles are only a separate snapshot if another bubbling algorithm is
+     * selected, as they would otherwise be the same as the complete result.
+     *
+     * @param algorithms the selected bubbling algorithms.
+     * @return the refinements of the snapshots.
+     */
+    private static List<Refinement> getSnapshots(List<Settings.BubbleAlgorithms> algorithms) {
+      if (algorithms.contains(Settings.BubbleAlgorithms.PHYLO)
+          || algorithms.contains(Settings.BubbleAlgorithms.GRAPH)
+          || algorithms.contains(Settings.BubbleAlgorithms.SUPERBUBBLE)) {
+        return Arrays.asList(UNBUBBLED, MUTATION_BUBBLES);
+      }
+      return Arrays.asList(UNBUBBLED);
     }
   }
 
@@ -2,7 +2,10 @@ package nl.tudelft.pl2016gr2.core.factories;
 
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
 
-public interface GraphFactory {
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface GraphFactory extends Closeable {
 
   /**
    * Get the graph.
@@ -10,4 +13,14 @@ public interface GraphFactory {
    * @return the graph.
    */
   SequenceGraph getGraph();
+
+  /**
+   * Release the resources (such as open files) which are used by the graph of this factory. Must
+   * be called when the graph is no longer used, for example when it is replaced by another graph.
+   *
+   * @throws IOException if the resources can not be released.
+   */
+  @Override
+  default void close() throws IOException {
+  }
 }
@@ -2,8 +2,13 @@ package nl.tudelft.pl2016gr2.core.factories;
 
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
 import nl.tudelft.pl2016gr2.parser.controller.GfaReader;
+import nl.tudelft.pl2016gr2.parser.controller.MappedGfaReader;
+import nl.tudelft.pl2016gr2.parser.controller.ParallelGfaReader;
 
+import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
 
 public class InputStreamGraphFactory implements GraphFactory {
 
@@ -13,8 +18,22 @@ public class InputStreamGraphFactory implements GraphFactory {
     this.stream = file;
   }
 
+  /**
+   * Get the graph. When the stream is a file stream, the file is memory mapped and parsed in
+   * parallel by the {@link ParallelGfaReader} (or by the {@link MappedGfaReader} on a single core
+   * machine), otherwise the stream is parsed by the {@link GfaReader}.
+   *
+   * @return the graph.
+   */
   @Override
   public SequenceGraph getGraph() {
+    if (stream instanceof FileInputStream) {
+      FileChannel channel = ((FileInputStream) stream).getChannel();
+      if (ForkJoinPool.commonPool().getParallelism() > 1) {
+        return new ParallelGfaReader(channel, ForkJoinPool.commonPool()).read();
+      }
+      return new MappedGfaReader(channel).read();
+    }
     return getGfaReader().read();
   }
 
@@ -0,0 +1,78 @@
+package nl.tudelft.pl2016gr2.core.factories;
+
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.parser.controller.GraphSnapshot;
+import nl.tudelft.pl2016gr2.parser.controller.ParallelGfaReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Graph factory which reads the graph from the binary snapshot next to the gfa file when there is
+ * an up to date snapshot. Otherwise the gfa file is parsed and a snapshot is written, so the next
+ * time the file is opened it can be read from the snapshot.
+ * <p>
+ * The bases of the nodes are not kept in memory: every node refers to the location of its bases in
+ * the gfa file, from where they are read when they are needed (see {@link SequenceStore}). The
+ * graph itself is stored as a {@link CompactGraph}, so no objects are kept per node or edge. The
+ * gfa file is kept open for this, until the factory is closed.
+ * </p>
+ */
+public class SnapshotGraphFactory implements GraphFactory {
+
+  private final File gfaFile;
+  private SequenceStore sequenceStore;
+
+  /**
+   * Create a graph factory for the given gfa file.
+   *
+   * @param gfaFile the gfa file.
+   */
+  public SnapshotGraphFactory(File gfaFile) {
+    this.gfaFile = gfaFile;
+  }
+
+  /**
+   * Get the graph. When there is no up to date snapshot, the gfa file is parsed in parallel by the
+   * {@link ParallelGfaReader}, which builds the compact graph straight from the parsed file.
+   *
+   * @return the graph, or null if the gfa file can not be read.
+   */
+  @Override
+  public SequenceGraph getGraph() {
+    try {
+      close();
+      sequenceStore = new SequenceStore(gfaFile.toPath());
+      GraphSnapshot snapshot = new GraphSnapshot(gfaFile.toPath(), sequenceStore);
+      SequenceGraph graph = snapshot.read();
+      if (graph == null) {
+        graph = new ParallelGfaReader(gfaFile.toPath(), ForkJoinPool.commonPool(), sequenceStore)
+            .readCompact();
+        snapshot.write(graph);
+      }
+      return graph;
+    } catch (IOException ex) {
+      Logger.getLogger(SnapshotGraphFactory.class.getName()).log(Level.SEVERE, null, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Close the gfa file from which the bases of the graph are read. The graph can't be used anymore
+   * after the factory is closed.
+   *
+   * @throws IOException if the gfa file can not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (sequenceStore != null) {
+      sequenceStore.close();
+      sequenceStore = null;
+    }
+  }
+}
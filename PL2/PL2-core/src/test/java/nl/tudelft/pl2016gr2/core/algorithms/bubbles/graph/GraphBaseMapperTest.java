@@ -0,0 +1,136 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.Annotation;
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test of class {@link GraphBaseMapper}.
+ */
+public class GraphBaseMapperTest {
+
+  private ArrayList<GraphNode> nodes;
+  private GraphBaseMapper mapper;
+
+  /**
+   * Create the graph 0 -> (1, 2) -> 3, where genome 0 passes through node 1 and genome 1 passes
+   * through node 2. Nodes 0, 1, 2 and 3 contain 3, 2, 5 and 4 bases.
+   */
+  @Before
+  public void setup() {
+    GenomeMap.getInstance().clear();
+    GenomeMap.getInstance().addGenome("reference");
+    GenomeMap.getInstance().addGenome("other");
+    nodes = new ArrayList<>();
+    nodes.add(createNode(0, "ACG", 3, 0, 1));
+    nodes.add(createNode(1, "TT", 5, 0));
+    nodes.add(createNode(2, "GGGGG", 8, 1));
+    nodes.add(createNode(3, "CCCC", 12, 0, 1));
+    addEdge(0, 1);
+    addEdge(0, 2);
+    addEdge(1, 3);
+    addEdge(2, 3);
+    HashMap<Integer, GraphNode> nodeMap = new HashMap<>();
+    nodes.forEach(node -> nodeMap.put(node.getId(), node));
+    mapper = new GraphBaseMapper(new HashGraph(nodeMap, Arrays.asList(0, 1)));
+  }
+
+  @After
+  public void cleanup() {
+    GenomeMap.getInstance().clear();
+  }
+
+  /**
+   * Test of findBase method, of class GraphBaseMapper.
+   */
+  @Test
+  public void testFindBase() {
+    assertSame(nodes.get(0), mapper.findBase(0, 0));
+    assertSame(nodes.get(0), mapper.findBase(0, 3));
+    assertSame(nodes.get(1), mapper.findBase(0, 4));
+    assertSame(nodes.get(3), mapper.findBase(0, 6));
+    assertSame(nodes.get(2), mapper.findBase(1, 6));
+    assertSame(nodes.get(3), mapper.findBase(1, 9));
+  }
+
+  /**
+   * Test that the last node of a genome is found when the base offset is larger than the genome.
+   */
+  @Test
+  public void testFindBaseAfterEnd() {
+    assertSame(nodes.get(3), mapper.findBase(0, 100));
+  }
+
+  /**
+   * Test that no node is found for a genome which isn't in the graph.
+   */
+  @Test
+  public void testFindBaseOfMissingGenome() {
+    assertNull(mapper.findBase(2, 0));
+  }
+
+  /**
+   * Test of mapAnnotations method, of class GraphBaseMapper.
+   */
+  @Test
+  public void testMapAnnotations() {
+    Annotation annotation = new Annotation("reference", "source", "gene", 3, 7, 0.0, "+", "0");
+
+    mapper.mapAnnotations(new LinkedList<>(Arrays.asList(annotation)));
+
+    assertTrue(nodes.get(0).getAnnotations().contains(annotation));
+    assertTrue(nodes.get(1).getAnnotations().contains(annotation));
+    assertFalse(nodes.get(2).hasAnnotations());
+    assertTrue(nodes.get(3).getAnnotations().contains(annotation));
+    assertEquals(2, annotation.getStartInGraph());
+    assertEquals(9, annotation.getEndInGraph());
+  }
+
+  /**
+   * Test that the annotations of multiple genomes are mapped correctly on a thread pool.
+   */
+  @Test
+  public void testMapAnnotationsParallel() {
+    Annotation reference = new Annotation("reference", "source", "gene", 3, 7, 0.0, "+", "0");
+    Annotation other = new Annotation("other", "source", "gene", 5, 9, 0.0, "+", "0");
+
+    mapper.mapAnnotations(Arrays.asList(reference, other), ForkJoinPool.commonPool()).join();
+
+    assertTrue(nodes.get(0).getAnnotations().contains(reference));
+    assertTrue(nodes.get(1).getAnnotations().contains(reference));
+    assertTrue(nodes.get(3).getAnnotations().contains(reference));
+    assertEquals(Arrays.asList(other), nodes.get(2).getAnnotations());
+    assertFalse(nodes.get(0).getAnnotations().contains(other));
+    assertEquals(2, reference.getStartInGraph());
+    assertEquals(9, reference.getEndInGraph());
+  }
+
+  private static GraphNode createNode(int id, String bases, int level, Integer... genomes) {
+    SequenceNode node = new SequenceNode(id, new BaseSequence(bases), Arrays.asList(genomes));
+    node.setLevel(level);
+    return node;
+  }
+
+  private void addEdge(int from, int to) {
+    nodes.get(from).addOutEdge(nodes.get(to));
+    nodes.get(to).addInEdge(nodes.get(from));
+  }
+}
@@ -0,0 +1,203 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph;
+
+import nl.tudelft.pl2016gr2.core.algorithms.subgraph.GraphOrdererThread;
+import nl.tudelft.pl2016gr2.core.factories.InputStreamGraphFactory;
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.function.Supplier;
+
+/**
+ * Compares the time which the {@link GraphBubbleFilter} and the {@link SuperbubbleFilter} take to
+ * filter the same graphs. Only the filtering is timed; every run filters a new copy of the graph.
+ * This is not a test, so it isn't run with the tests, but it can be run as a java application from
+ * the test classpath, for example with
+ * <code>mvn exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph.SuperbubbleFilterBenchmark
+ * </code>.
+ * <p>
+ * The GraphBubbleFilter only builds the top level bubbles, the SuperbubbleFilter builds the whole
+ * nested hierarchy, so the amount of bubbles of both filters is printed as well.
+ * </p>
+ */
+public class SuperbubbleFilterBenchmark {
+
+  private static final String[] GFA_FILES = {"SMALL.gfa"};
+  private static final String[] PLAIN_GFA_FILES = {"TEST1.gfa", "TEST2.gfa", "TEST3.gfa"};
+  private static final int GFA_RUNS = 50;
+  private static final int WARMUP_ROUNDS = 2;
+  private static final int[] RANDOM_GRAPH_SIZES = {10000, 50000, 200000};
+  private static final int LARGE_GRAPH_SIZE = 200000;
+  private static final int RANDOM_GRAPH_RUNS = 3;
+  private static final int MAX_DISTANCE = 6;
+  private static final int SINK_CHANCE = 15;
+  private static final double NANOSECONDS_PER_MILLISECOND = 1e6;
+
+  private SuperbubbleFilterBenchmark() {
+  }
+
+  /**
+   * Run the benchmark and print the results.
+   *
+   * @param args the arguments, which are ignored.
+   */
+  public static void main(String[] args) {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      for (String file : GFA_FILES) {
+        benchmark(file, () -> readGraph(file), GFA_RUNS);
+      }
+      for (String file : PLAIN_GFA_FILES) {
+        benchmark(file, () -> readPlainGraph(file), GFA_RUNS);
+      }
+    }
+    for (int size : RANDOM_GRAPH_SIZES) {
+      benchmark("random " + size, () -> createRandomGraph(size, size),
+          size >= LARGE_GRAPH_SIZE ? 1 : RANDOM_GRAPH_RUNS);
+    }
+  }
+
+  /**
+   * Filter the graph with both filters and print the average time of each filter.
+   *
+   * @param name  the name of the graph.
+   * @param graph the supplier of new copies of the graph, ordered by level.
+   * @param runs  the amount of times to filter the graph with each filter.
+   */
+  private static void benchmark(String name, Supplier<ArrayList<GraphNode>> graph, int runs) {
+    long graphBubbleTime = 0;
+    long superbubbleTime = 0;
+    int graphBubbles = 0;
+    int superbubbles = 0;
+    int size = 0;
+    for (int run = 0; run < runs; run++) {
+      ArrayList<GraphNode> nodes = graph.get();
+      size = nodes.size();
+      long start = System.nanoTime();
+      List<GraphNode> bubbledNodes = new GraphBubbleFilter(nodes).filter();
+      graphBubbleTime += System.nanoTime() - start;
+      graphBubbles = countBubbles(bubbledNodes);
+
+      nodes = graph.get();
+      start = System.nanoTime();
+      bubbledNodes = new SuperbubbleFilter(nodes).filter();
+      superbubbleTime += System.nanoTime() - start;
+      superbubbles = countBubbles(bubbledNodes);
+    }
+    System.out.printf("%-14s %7d nodes: GraphBubbleFilter %10.2f ms (%d top level bubbles), "
+        + "SuperbubbleFilter %10.2f ms (%d bubbles)%n", name, size,
+        graphBubbleTime / NANOSECONDS_PER_MILLISECOND / runs, graphBubbles,
+        superbubbleTime / NANOSECONDS_PER_MILLISECOND / runs, superbubbles);
+  }
+
+  /**
+   * Count the bubbles in the bubbled graph, including the nested bubbles.
+   *
+   * @param nodes the nodes of the bubbled graph.
+   * @return the amount of bubbles.
+   */
+  private static int countBubbles(Collection<GraphNode> nodes) {
+    int bubbles = 0;
+    for (GraphNode node : nodes) {
+      if (node instanceof Bubble) {
+        bubbles += 1 + countBubbles(((Bubble) node).getChildren());
+      }
+    }
+    return bubbles;
+  }
+
+  /**
+   * Read a gfa file from the resources and order its nodes by level.
+   *
+   * @param file the name of the file.
+   * @return the nodes of the graph, ordered by level.
+   */
+  private static ArrayList<GraphNode> readGraph(String file) {
+    GenomeMap.getInstance().clear();
+    SequenceGraph graph = new InputStreamGraphFactory(getResource(file)).getGraph();
+    return orderGraph(graph);
+  }
+
+  /**
+   * Read the segments and links of a gfa file from the resources which has no genome tags, which
+   * the gfa reader rejects, as a graph in which a single genome goes through every node.
+   *
+   * @param file the name of the file.
+   * @return the nodes of the graph, ordered by level.
+   */
+  private static ArrayList<GraphNode> readPlainGraph(String file) {
+    HashMap<Integer, GraphNode> nodes = new HashMap<>();
+    List<int[]> links = new ArrayList<>();
+    try (Scanner scanner = new Scanner(getResource(file))) {
+      while (scanner.hasNextLine()) {
+        String[] fields = scanner.nextLine().split("\t");
+        if ("S".equals(fields[0])) {
+          int id = Integer.parseInt(fields[1]);
+          nodes.put(id, new SequenceNode(id, new BaseSequence("A"), Arrays.asList(0)));
+        } else if ("L".equals(fields[0])) {
+          links.add(new int[]{Integer.parseInt(fields[1]), Integer.parseInt(fields[3])});
+        }
+      }
+    }
+    for (int[] link : links) {
+      connect(nodes.get(link[0]), nodes.get(link[1]));
+    }
+    return orderGraph(new HashGraph(nodes, Arrays.asList(0)));
+  }
+
+  private static InputStream getResource(String file) {
+    return SuperbubbleFilterBenchmark.class.getClassLoader().getResourceAsStream(file);
+  }
+
+  private static ArrayList<GraphNode> orderGraph(SequenceGraph graph) {
+    GraphOrdererThread orderer = new GraphOrdererThread(graph);
+    orderer.start();
+    return orderer.getGraph().getOrderedGraph();
+  }
+
+  /**
+   * Create a random graph in which a single genome goes through every node. Every node, except
+   * for some sinks, has one to three edges to the next few nodes.
+   *
+   * @param seed the seed of the random generator.
+   * @param size the amount of nodes.
+   * @return the nodes of the graph, ordered by level.
+   */
+  private static ArrayList<GraphNode> createRandomGraph(long seed, int size) {
+    Random random = new Random(seed);
+    ArrayList<GraphNode> nodes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      SequenceNode node = new SequenceNode(i, new BaseSequence("A"), Arrays.asList(0));
+      node.setLevel(i);
+      nodes.add(node);
+    }
+    for (int i = 0; i < size - 1; i++) {
+      if (random.nextInt(SINK_CHANCE) == 0) {
+        continue;
+      }
+      int edges = 1 + random.nextInt(random.nextInt(3) + 1);
+      for (int edge = 0; edge < edges; edge++) {
+        int target = Math.min(size - 1, i + 1 + random.nextInt(random.nextInt(MAX_DISTANCE) + 1));
+        connect(nodes.get(i), nodes.get(target));
+      }
+    }
+    return nodes;
+  }
+
+  private static void connect(GraphNode from, GraphNode to) {
+    from.addOutEdge(to);
+    to.addInEdge(from);
+  }
+}
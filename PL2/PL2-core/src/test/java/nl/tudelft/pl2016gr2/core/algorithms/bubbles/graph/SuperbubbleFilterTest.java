@@ -0,0 +1,266 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph;
+
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.addEdges;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.createNodes;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.getIds;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.getSequenceNodeIds;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Test of class {@link SuperbubbleFilter}.
+ */
+public class SuperbubbleFilterTest {
+
+  private static final int RANDOM_GRAPHS = 300;
+  private static final int GENOMES = 6;
+  private static final int MAX_DEPTH = 3;
+
+  /**
+   * Create the graph 0 -> (1, 5), 1 -> (2, 3) -> 4 -> 6, 5 -> 6 -> 7. The superbubble from 1 to 4
+   * is nested in the superbubble from 0 to 6.
+   */
+  @Test
+  public void testNestedBubbles() {
+    ArrayList<GraphNode> nodes = createNodes(8);
+    addEdges(nodes, 0, 1, 5);
+    addEdges(nodes, 1, 2, 3);
+    addEdges(nodes, 2, 4);
+    addEdges(nodes, 3, 4);
+    addEdges(nodes, 4, 6);
+    addEdges(nodes, 5, 6);
+    addEdges(nodes, 6, 7);
+
+    ArrayList<GraphNode> bubbledNodes = new SuperbubbleFilter(nodes).filter();
+
+    assertEquals(4, bubbledNodes.size());
+    assertEquals(Arrays.asList(0, 6, 7), getSequenceNodeIds(bubbledNodes));
+    assertTrue(bubbledNodes.get(1) instanceof GraphBubble);
+    Bubble outer = (Bubble) bubbledNodes.get(1);
+    assertEquals(Arrays.asList(0), getIds(bubbledNodes.get(1).getInEdges()));
+    assertEquals(Arrays.asList(6), getIds(bubbledNodes.get(1).getOutEdges()));
+    assertEquals(Arrays.asList(1, 4, 5), getSequenceNodeIds(outer.getChildren()));
+
+    Bubble inner = (Bubble) outer.getChildren().stream()
+        .filter(child -> child instanceof GraphBubble).findAny().get();
+    assertEquals(Arrays.asList(2, 3), getSequenceNodeIds(inner.getChildren()));
+  }
+
+  /**
+   * Test that zooming in on a superbubble connects the nodes inside of it, where the edge to a
+   * nested superbubble replaces the edges to the nodes inside of the nested superbubble.
+   */
+  @Test
+  public void testZoomIn() {
+    ArrayList<GraphNode> nodes = createNodes(7);
+    addEdges(nodes, 0, 1, 5);
+    addEdges(nodes, 1, 2, 3);
+    addEdges(nodes, 2, 4);
+    addEdges(nodes, 3, 4);
+    addEdges(nodes, 4, 6);
+    addEdges(nodes, 5, 6);
+
+    SuperbubbleFilter filter = new SuperbubbleFilter(nodes);
+    ArrayList<GraphNode> bubbledNodes = filter.filter();
+    Bubble outer = (Bubble) bubbledNodes.get(1);
+    assertEquals(Arrays.asList(outer), new ArrayList<>(nodes.get(0).getOutEdges()));
+
+    List<GraphNode> zoomedNodes = filter.zoomIn(outer);
+
+    assertEquals(4, zoomedNodes.size());
+    assertEquals(Arrays.asList(1, 5), getIds(nodes.get(0).getOutEdges()));
+    assertEquals(Arrays.asList(4, 5), getIds(nodes.get(6).getInEdges()));
+    GraphNode inner = nodes.get(1).getOutEdges().iterator().next();
+    assertTrue(inner instanceof GraphBubble);
+    assertTrue(zoomedNodes.contains(inner));
+    assertEquals(Arrays.asList(4), getIds(inner.getOutEdges()));
+    assertEquals(Arrays.asList(inner), new ArrayList<>(nodes.get(4).getInEdges()));
+  }
+
+  /**
+   * Create the graph 0 -> (1, 2) -> 3 -> 4, 2 -> 4. The edge from 2 to 4 leaves the part of the
+   * graph from 0 to 3, so the only superbubble is the one from 0 to 4.
+   */
+  @Test
+  public void testEdgeLeavingBubble() {
+    ArrayList<GraphNode> nodes = createNodes(5);
+    addEdges(nodes, 0, 1, 2);
+    addEdges(nodes, 1, 3);
+    addEdges(nodes, 2, 3, 4);
+    addEdges(nodes, 3, 4);
+
+    ArrayList<GraphNode> bubbledNodes = new SuperbubbleFilter(nodes).filter();
+
+    assertEquals(3, bubbledNodes.size());
+    Bubble bubble = (Bubble) bubbledNodes.get(1);
+    assertEquals(Arrays.asList(4), getIds(bubbledNodes.get(1).getOutEdges()));
+    assertEquals(Arrays.asList(1, 2, 3), getSequenceNodeIds(bubble.getChildren()));
+  }
+
+  /**
+   * Test that the superbubble filter collapses random graphs into the same bubbles as the
+   * {@link GraphBubbleFilter}. The graphs are built from the paths of genomes which split up at the
+   * entrance of a bubble and join again at its exit, so the bubbles of both filters are the same.
+   */
+  @Test
+  public void testSameBubblesAsGraphBubbleFilter() {
+    for (int seed = 0; seed < RANDOM_GRAPHS; seed++) {
+      Map<Integer, List<Integer>> expected
+          = getBubbleContents(new GraphBubbleFilter(createGenomeGraph(seed)).filter());
+      Map<Integer, List<Integer>> actual
+          = getBubbleContents(new SuperbubbleFilter(createGenomeGraph(seed)).filter());
+      assertEquals("graph " + seed, expected, actual);
+    }
+  }
+
+  /**
+   * Create a random graph of genome paths. The graph starts with two nodes which all genomes go
+   * through, because the {@link GraphBubbleFilter} never starts a bubble at those nodes, followed
+   * by a random chain of nodes and bubbles.
+   *
+   * @param seed the seed of the random generator.
+   * @return the nodes of the graph, ordered by their level.
+   */
+  private static ArrayList<GraphNode> createGenomeGraph(long seed) {
+    Random random = new Random(seed);
+    ArrayList<GraphNode> nodes = new ArrayList<>();
+    List<Integer> genomes = new ArrayList<>();
+    for (int genome = 0; genome < 2 + random.nextInt(GENOMES - 1); genome++) {
+      genomes.add(genome);
+    }
+    GraphNode first = createGenomeNode(nodes, genomes);
+    GraphNode second = createGenomeNode(nodes, genomes);
+    connect(first, second);
+    createChain(random, nodes, genomes, second, MAX_DEPTH);
+    return nodes;
+  }
+
+  /**
+   * Create a random chain of nodes and bubbles which the given genomes go through, after the given
+   * node.
+   *
+   * @param random   the random generator.
+   * @param nodes    the nodes of the graph.
+   * @param genomes  the genomes of the chain.
+   * @param previous the node before the chain.
+   * @param depth    the maximum depth of the bubbles in the chain.
+   * @return the last node of the chain.
+   */
+  private static GraphNode createChain(Random random, List<GraphNode> nodes, List<Integer> genomes,
+      GraphNode previous, int depth) {
+    GraphNode last = previous;
+    int segments = 1 + random.nextInt(3);
+    for (int segment = 0; segment < segments; segment++) {
+      GraphNode entrance = createGenomeNode(nodes, genomes);
+      connect(last, entrance);
+      last = entrance;
+      if (genomes.size() > 1 && depth > 0 && random.nextBoolean()) {
+        last = createBubble(random, nodes, genomes, entrance, depth);
+      }
+    }
+    return last;
+  }
+
+  /**
+   * Create a random bubble after the given entrance, in which the genomes split up into branches
+   * which join again at the exit of the bubble. A branch without nodes is an edge from the entrance
+   * to the exit.
+   *
+   * @param random   the random generator.
+   * @param nodes    the nodes of the graph.
+   * @param genomes  the genomes of the bubble.
+   * @param entrance the entrance of the bubble.
+   * @param depth    the maximum depth of the bubble.
+   * @return the exit of the bubble.
+   */
+  private static GraphNode createBubble(Random random, List<GraphNode> nodes,
+      List<Integer> genomes, GraphNode entrance, int depth) {
+    List<Integer> shuffled = new ArrayList<>(genomes);
+    Collections.shuffle(shuffled, random);
+    int split = 1 + random.nextInt(shuffled.size() - 1);
+    List<GraphNode> branchEnds = new ArrayList<>();
+    boolean hasDirectEdge = false;
+    for (List<Integer> branch : Arrays.asList(shuffled.subList(0, split),
+        shuffled.subList(split, shuffled.size()))) {
+      if (!hasDirectEdge && random.nextInt(4) == 0) {
+        hasDirectEdge = true;
+        branchEnds.add(entrance);
+      } else {
+        GraphNode start = createGenomeNode(nodes, new ArrayList<>(branch));
+        connect(entrance, start);
+        branchEnds.add(createChain(random, nodes, new ArrayList<>(branch), start, depth - 1));
+      }
+    }
+    GraphNode exit = createGenomeNode(nodes, genomes);
+    for (GraphNode branchEnd : branchEnds) {
+      connect(branchEnd, exit);
+    }
+    return exit;
+  }
+
+  /**
+   * Create a node which the given genomes go through, at the next level of the graph.
+   *
+   * @param nodes   the nodes of the graph.
+   * @param genomes the genomes of the node.
+   * @return the node.
+   */
+  private static GraphNode createGenomeNode(List<GraphNode> nodes, List<Integer> genomes) {
+    SequenceNode node = new SequenceNode(nodes.size(), new BaseSequence("A"), genomes);
+    node.setLevel(nodes.size());
+    nodes.add(node);
+    return node;
+  }
+
+  private static void connect(GraphNode from, GraphNode to) {
+    from.addOutEdge(to);
+    to.addInEdge(from);
+  }
+
+  /**
+   * Get the IDs of the sequence nodes inside of each top level bubble of a bubbled graph, by the
+   * ID of the entrance of the bubble.
+   *
+   * @param bubbledNodes the nodes of the bubbled graph.
+   * @return the IDs of the sequence nodes inside of each bubble, by the ID of its entrance.
+   */
+  private static Map<Integer, List<Integer>> getBubbleContents(List<GraphNode> bubbledNodes) {
+    Map<Integer, List<Integer>> contents = new TreeMap<>();
+    for (GraphNode node : bubbledNodes) {
+      if (node instanceof Bubble) {
+        Bubble bubble = (Bubble) node;
+        List<Integer> ids = new ArrayList<>();
+        addSequenceNodeIds(bubble.getChildren(), ids);
+        Collections.sort(ids);
+        contents.put(bubble.getInEdges().iterator().next().getId(), ids);
+      }
+    }
+    return contents;
+  }
+
+  private static void addSequenceNodeIds(Collection<GraphNode> nodes, List<Integer> ids) {
+    for (GraphNode node : nodes) {
+      if (node instanceof Bubble) {
+        addSequenceNodeIds(((Bubble) node).getChildren(), ids);
+      } else {
+        ids.add(node.getId());
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.mutations;
+
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.addEdges;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.createNodes;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.getSequenceNodeIds;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.Settings;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.IndelBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.PointMutationBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.StraightSequenceBubble;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Test of class {@link MutationBubbleAlgorithms}.
+ */
+public class MutationBubbleAlgorithmsTest {
+
+  private List<Settings.BubbleAlgorithms> previousAlgorithms;
+
+  @Before
+  public void setUp() {
+    previousAlgorithms = new ArrayList<>(Settings.getInstance().getAlgorithms());
+    Settings.getInstance().getAlgorithms().clear();
+    Settings.getInstance().getAlgorithms().addAll(Arrays.asList(Settings.BubbleAlgorithms.POINT,
+        Settings.BubbleAlgorithms.INDEL, Settings.BubbleAlgorithms.STRAIGHT));
+  }
+
+  @After
+  public void tearDown() {
+    Settings.getInstance().getAlgorithms().clear();
+    Settings.getInstance().getAlgorithms().addAll(previousAlgorithms);
+  }
+
+  /**
+   * Create the graph 0 -> (1, 4), 1 -> (2, 3) -> 4 -> 5 -> 6 -> 7, where 2 and 3 are single
+   * bases. The point mutation (2, 3) is nested in the indel (1, point mutation), which is nested
+   * in the straight sequence from 0 to 7.
+   */
+  @Test
+  public void testNestedBubbles() {
+    ArrayList<GraphNode> nodes = createNodes(8);
+    addEdges(nodes, 0, 1, 4);
+    addEdges(nodes, 1, 2, 3);
+    addEdges(nodes, 2, 4);
+    addEdges(nodes, 3, 4);
+    addEdges(nodes, 4, 5);
+    addEdges(nodes, 5, 6);
+    addEdges(nodes, 6, 7);
+
+    ArrayList<GraphNode> bubbledNodes = MutationBubbleAlgorithms.makeBubbels(nodes);
+
+    assertEquals(3, bubbledNodes.size());
+    assertEquals(0, bubbledNodes.get(0).getId());
+    assertEquals(7, bubbledNodes.get(2).getId());
+    assertTrue(bubbledNodes.get(1) instanceof StraightSequenceBubble);
+    Bubble straight = (Bubble) bubbledNodes.get(1);
+    assertEquals(Arrays.asList(4, 5, 6), getSequenceNodeIds(straight.getChildren()));
+
+    Bubble indel = (Bubble) straight.getChildren().stream()
+        .filter(child -> child instanceof IndelBubble).findAny().get();
+    assertEquals(Arrays.asList(1), getSequenceNodeIds(indel.getChildren()));
+    Bubble point = (Bubble) indel.getChildren().stream()
+        .filter(child -> child instanceof PointMutationBubble).findAny().get();
+    assertEquals(Arrays.asList(2, 3), getSequenceNodeIds(point.getChildren()));
+  }
+
+  /**
+   * Test that the bubbles are placed in order of their level, between the nodes of another path
+   * which aren't bubbled.
+   */
+  @Test
+  public void testOrderedByLevel() {
+    ArrayList<GraphNode> nodes = createNodes(6);
+    addEdges(nodes, 0, 1, 2);
+    addEdges(nodes, 1, 3, 4);
+    addEdges(nodes, 2, 5);
+    addEdges(nodes, 3, 5);
+    addEdges(nodes, 4, 5);
+
+    ArrayList<GraphNode> bubbledNodes = MutationBubbleAlgorithms.makeBubbels(nodes);
+
+    assertEquals(Arrays.asList(0, 1, 2, 4, 5), bubbledNodes.stream().map(GraphNode::getLevel)
+        .collect(Collectors.toList()));
+    assertTrue(bubbledNodes.get(3) instanceof PointMutationBubble);
+  }
+}
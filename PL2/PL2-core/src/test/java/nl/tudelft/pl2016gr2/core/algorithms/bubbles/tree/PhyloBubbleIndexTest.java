@@ -0,0 +1,288 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.tree;
+
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.addEdges;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.getIds;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.sourceforge.olduvai.treejuxtaposer.drawer.Tree;
+import nl.tudelft.pl2016gr2.core.factories.InputStreamGraphFactory;
+import nl.tudelft.pl2016gr2.core.factories.InputStreamTreeFactory;
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Bubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.PhyloBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.model.phylogenetictree.PhylogeneticTreeRoot;
+import nl.tudelft.pl2016gr2.parser.controller.GfaReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Test of class {@link PhyloBubbleIndex}.
+ */
+public class PhyloBubbleIndexTest {
+
+  private static final String NESTED_TREE
+      = "(((leaf1:1,leaf2:1):1,leaf3:1):1,(leaf4:1,leaf5:1):1);";
+
+  private PhylogeneticTreeRoot treeRoot;
+  private ArrayList<Integer> allGenomes;
+
+  /**
+   * Load the phylogenetic tree of the genomes of the small test graph.
+   *
+   * @throws Exception won't be thrown.
+   */
+  @Before
+  public void setup() throws Exception {
+    GenomeMap.getInstance().clear();
+    new InputStreamGraphFactory(GfaReader.class.getClassLoader()
+        .getResourceAsStream("SMALL.gfa")).getGraph();
+    Tree tree = new InputStreamTreeFactory(GfaReader.class.getClassLoader()
+        .getResourceAsStream("10tree_custom.rooted.TKK.nwk")).getTree();
+    treeRoot = new PhylogeneticTreeRoot(tree.getRoot(), new ArrayList<>());
+    allGenomes = treeRoot.getGenomes();
+  }
+
+  @After
+  public void cleanup() {
+    GenomeMap.getInstance().clear();
+  }
+
+  /**
+   * Create the graph 0 -> (1, 2) -> 3, where node 1 contains the genomes of the first child of the
+   * root of the tree and node 2 contains the genomes of the second child. Nodes 1 and 2 are put in
+   * a single bubble, which is split into the two branches when it is zoomed in on.
+   */
+  @Test
+  public void testZoomIn() {
+    ArrayList<GraphNode> nodes = createGraph();
+    PhyloBubbleFilter filter = new PhyloBubbleFilter(nodes);
+    ArrayList<GraphNode> bubbledNodes = filter.filter(treeRoot, allGenomes);
+
+    assertEquals(3, bubbledNodes.size());
+    assertTrue(bubbledNodes.get(1) instanceof PhyloBubble);
+    PhyloBubble bubble = (PhyloBubble) bubbledNodes.get(1);
+    assertEquals(getIds(nodes.subList(1, 3)), getIds(bubble.getChildren()));
+
+    List<GraphNode> zoomedNodes = filter.zoomIn(bubble);
+
+    assertEquals(getIds(nodes.subList(1, 3)), getIds(zoomedNodes));
+    assertEquals(getIds(nodes.subList(1, 3)), getIds(nodes.get(0).getOutEdges()));
+    assertEquals(getIds(nodes.subList(1, 3)), getIds(nodes.get(3).getInEdges()));
+  }
+
+  /**
+   * Test that zooming in on a bubble of which the hierarchy has been indexed in advance gives the
+   * same nodes as zooming in on a bubble which hasn't been indexed yet.
+   */
+  @Test
+  public void testIndexHierarchy() {
+    PhyloBubbleFilter indexedFilter = new PhyloBubbleFilter(createGraph());
+    ArrayList<GraphNode> indexedNodes = indexedFilter.filter(treeRoot, allGenomes);
+    indexedFilter.indexHierarchy(Runnable::run, () -> false).join();
+    PhyloBubbleFilter filter = new PhyloBubbleFilter(createGraph());
+    ArrayList<GraphNode> bubbledNodes = filter.filter(treeRoot, allGenomes);
+
+    List<GraphNode> indexedZoom = indexedFilter.zoomIn((PhyloBubble) indexedNodes.get(1));
+    List<GraphNode> zoom = filter.zoomIn((PhyloBubble) bubbledNodes.get(1));
+
+    assertEquals(getIds(zoom), getIds(indexedZoom));
+  }
+
+  /**
+   * Test that zooming in on every level of the hierarchy of a graph with nested phylo bubbles
+   * gives the same nodes when the whole hierarchy has been indexed in advance as when every view
+   * is only computed when its bubble is zoomed in on.
+   *
+   * @throws Exception won't be thrown.
+   */
+  @Test
+  public void testIndexHierarchyOfAllLevels() throws Exception {
+    useNestedTree();
+    PhyloBubbleFilter indexedFilter = new PhyloBubbleFilter(createNestedGraph());
+    ArrayList<GraphNode> indexedNodes = indexedFilter.filter(treeRoot, allGenomes);
+    indexedFilter.indexHierarchy(Runnable::run, () -> false).join();
+    PhyloBubbleFilter filter = new PhyloBubbleFilter(createNestedGraph());
+    ArrayList<GraphNode> bubbledNodes = filter.filter(treeRoot, allGenomes);
+
+    int levels = assertSameZooms(indexedFilter, indexedNodes, filter, bubbledNodes);
+
+    assertEquals(3, levels);
+  }
+
+  /**
+   * Test that cancelling the indexing doesn't change the views which are zoomed in on afterwards.
+   *
+   * @throws Exception won't be thrown.
+   */
+  @Test
+  public void testCancelIndexHierarchy() throws Exception {
+    useNestedTree();
+    PhyloBubbleFilter cancelledFilter = new PhyloBubbleFilter(createNestedGraph());
+    ArrayList<GraphNode> cancelledNodes = cancelledFilter.filter(treeRoot, allGenomes);
+    cancelledFilter.indexHierarchy(Runnable::run, () -> true).join();
+    PhyloBubbleFilter filter = new PhyloBubbleFilter(createNestedGraph());
+    ArrayList<GraphNode> bubbledNodes = filter.filter(treeRoot, allGenomes);
+
+    assertSameZooms(cancelledFilter, cancelledNodes, filter, bubbledNodes);
+  }
+
+  /**
+   * Test that the view of a bubble of which the edges have been changed is computed once for the
+   * changed edges, and that the stored view is used again when the edges are changed back.
+   */
+  @Test
+  public void testGetViewOfChangedBubble() {
+    PhyloBubbleFilter filter = new PhyloBubbleFilter(createGraph());
+    PhyloBubble bubble = (PhyloBubble) filter.filter(treeRoot, allGenomes).get(1);
+    PhyloBubbleIndex.View view = filter.getIndex().getView(bubble);
+    GraphNode dummyNode = createNode(4, allGenomes);
+
+    bubble.addInEdge(dummyNode);
+    PhyloBubbleIndex.View changedView = filter.getIndex().getView(bubble);
+
+    assertNotSame(view, changedView);
+    assertSame(changedView, filter.getIndex().getView(bubble));
+    bubble.removeInEdge(dummyNode);
+    assertSame(view, filter.getIndex().getView(bubble));
+  }
+
+  /**
+   * Test that popping a bubble which has been prefetched gives the same nodes as popping a bubble
+   * which hasn't been prefetched.
+   */
+  @Test
+  public void testPrefetch() {
+    PhyloBubbleFilter prefetchedFilter = new PhyloBubbleFilter(createGraph());
+    PhyloBubble prefetched = (PhyloBubble) prefetchedFilter.filter(treeRoot, allGenomes).get(1);
+    prefetched.prefetch();
+    PhyloBubbleFilter filter = new PhyloBubbleFilter(createGraph());
+    PhyloBubble bubble = (PhyloBubble) filter.filter(treeRoot, allGenomes).get(1);
+
+    assertEquals(getIds(bubble.pop()), getIds(prefetched.pop()));
+  }
+
+  /**
+   * Assert that zooming in on the bubbles of the nodes of both filters gives the same nodes, and
+   * do the same for the bubbles in the zoomed in nodes. Bubbles are matched by the nodes which
+   * are nested in them, as the identifiers of bubbles differ between filters.
+   *
+   * @param indexedFilter the filter which has indexed its hierarchy.
+   * @param indexedNodes  the nodes of the indexed filter.
+   * @param filter        the filter which computes its views when they are zoomed in on.
+   * @param nodes         the nodes of the other filter.
+   * @return the amount of levels of bubbles in the nodes.
+   */
+  private static int assertSameZooms(PhyloBubbleFilter indexedFilter,
+      List<GraphNode> indexedNodes, PhyloBubbleFilter filter, List<GraphNode> nodes) {
+    assertEquals(getNonBubbleIds(nodes), getNonBubbleIds(indexedNodes));
+    Map<List<Integer>, Bubble> indexedBubbles = getBubbles(indexedNodes);
+    Map<List<Integer>, Bubble> bubbles = getBubbles(nodes);
+    assertEquals(bubbles.keySet(), indexedBubbles.keySet());
+    int levels = 0;
+    for (Map.Entry<List<Integer>, Bubble> entry : bubbles.entrySet()) {
+      List<GraphNode> zoom = filter.zoomIn(entry.getValue());
+      List<GraphNode> indexedZoom = indexedFilter.zoomIn(indexedBubbles.get(entry.getKey()));
+      levels = Math.max(levels, 1 + assertSameZooms(indexedFilter, indexedZoom, filter, zoom));
+    }
+    return levels;
+  }
+
+  private static List<Integer> getNonBubbleIds(List<GraphNode> nodes) {
+    return getIds(nodes.stream().filter(node -> !(node instanceof Bubble))
+        .collect(Collectors.toList()));
+  }
+
+  private static Map<List<Integer>, Bubble> getBubbles(List<GraphNode> nodes) {
+    HashMap<List<Integer>, Bubble> bubbles = new HashMap<>();
+    for (GraphNode node : nodes) {
+      if (node instanceof Bubble) {
+        bubbles.put(getIds(node.getChildren()), (Bubble) node);
+      }
+    }
+    return bubbles;
+  }
+
+  /**
+   * Use the tree of which the leaves 1 and 2, the leaves 1, 2 and 3 and the leaves 4 and 5 are
+   * branches.
+   *
+   * @throws Exception won't be thrown.
+   */
+  private void useNestedTree() throws Exception {
+    GenomeMap.getInstance().clear();
+    for (int leaf = 1; leaf <= 5; leaf++) {
+      GenomeMap.getInstance().addGenome("leaf" + leaf);
+    }
+    Tree tree = new InputStreamTreeFactory(new ByteArrayInputStream(NESTED_TREE.getBytes(
+        StandardCharsets.UTF_8))).getTree();
+    treeRoot = new PhylogeneticTreeRoot(tree.getRoot(), new ArrayList<>());
+    allGenomes = treeRoot.getGenomes();
+  }
+
+  /**
+   * Create the graph of the file FilterBubblesTest.gfa (without the reference genome), in which
+   * the nodes of the genomes of every branch of the nested tree are nested bubbles.
+   *
+   * @return the nodes of the graph.
+   */
+  private static ArrayList<GraphNode> createNestedGraph() {
+    int[][] leaves = {{1, 2, 3, 4, 5}, {1, 2, 3}, {1, 2}, {3}, {4, 5}, {4}, {1}, {2}, {1, 2}, {5},
+        {1, 2, 3, 4, 5}};
+    ArrayList<GraphNode> nodes = new ArrayList<>();
+    for (int i = 0; i < leaves.length; i++) {
+      ArrayList<Integer> genomes = new ArrayList<>();
+      for (int leaf : leaves[i]) {
+        genomes.add(GenomeMap.getInstance().getId("leaf" + leaf));
+      }
+      nodes.add(createNode(i + 1, genomes));
+    }
+    addEdges(nodes, 0, 1, 4);
+    addEdges(nodes, 1, 2, 3);
+    addEdges(nodes, 2, 6, 7);
+    addEdges(nodes, 3, 10);
+    addEdges(nodes, 4, 5, 9);
+    addEdges(nodes, 5, 10);
+    addEdges(nodes, 6, 8);
+    addEdges(nodes, 7, 8);
+    addEdges(nodes, 8, 10);
+    addEdges(nodes, 9, 10);
+    return nodes;
+  }
+
+  private ArrayList<GraphNode> createGraph() {
+    ArrayList<GraphNode> nodes = new ArrayList<>();
+    nodes.add(createNode(0, allGenomes));
+    nodes.add(createNode(1, treeRoot.getChild(0).getGenomes()));
+    nodes.add(createNode(2, treeRoot.getChild(1).getGenomes()));
+    nodes.add(createNode(3, allGenomes));
+    for (int branch = 1; branch <= 2; branch++) {
+      nodes.get(0).addOutEdge(nodes.get(branch));
+      nodes.get(branch).addInEdge(nodes.get(0));
+      nodes.get(branch).addOutEdge(nodes.get(3));
+      nodes.get(3).addInEdge(nodes.get(branch));
+    }
+    return nodes;
+  }
+
+  private static GraphNode createNode(int id, Collection<Integer> genomes) {
+    SequenceNode node = new SequenceNode(id, new BaseSequence("A"), new ArrayList<>(genomes));
+    node.setLevel(id);
+    return node;
+  }
+}
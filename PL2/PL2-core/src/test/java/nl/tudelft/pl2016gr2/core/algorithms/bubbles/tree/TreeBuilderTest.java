@@ -0,0 +1,108 @@
+package nl.tudelft.pl2016gr2.core.algorithms.bubbles.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import net.sourceforge.olduvai.treejuxtaposer.drawer.Tree;
+import nl.tudelft.pl2016gr2.core.factories.InputStreamGraphFactory;
+import nl.tudelft.pl2016gr2.core.factories.InputStreamTreeFactory;
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeNode;
+import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeRoot;
+import nl.tudelft.pl2016gr2.model.phylogenetictree.PhylogeneticTreeRoot;
+import nl.tudelft.pl2016gr2.parser.controller.GfaReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test of class {@link TreeBuilder}.
+ */
+public class TreeBuilderTest {
+
+  private PhylogeneticTreeRoot treeRoot;
+
+  /**
+   * Load the phylogenetic tree of the genomes of the small test graph.
+   *
+   * @throws Exception won't be thrown.
+   */
+  @Before
+  public void setup() throws Exception {
+    GenomeMap.getInstance().clear();
+    new InputStreamGraphFactory(GfaReader.class.getClassLoader()
+        .getResourceAsStream("SMALL.gfa")).getGraph();
+    Tree tree = new InputStreamTreeFactory(GfaReader.class.getClassLoader()
+        .getResourceAsStream("10tree_custom.rooted.TKK.nwk")).getTree();
+    treeRoot = new PhylogeneticTreeRoot(tree.getRoot(), new ArrayList<>());
+  }
+
+  @After
+  public void cleanup() {
+    GenomeMap.getInstance().clear();
+  }
+
+  /**
+   * Test that the tree isn't changed when no genomes are selected.
+   */
+  @Test
+  public void testNoGenomes() {
+    assertSame(treeRoot, new TreeBuilder(treeRoot, new ArrayList<>()).getTree());
+  }
+
+  /**
+   * Test that a copy of the tree is made when all of the genomes are selected.
+   */
+  @Test
+  public void testAllGenomes() {
+    IPhylogeneticTreeRoot<?> newRoot = new TreeBuilder(treeRoot, treeRoot.getGenomes()).getTree();
+
+    assertEquals(treeRoot.getChildCount(), newRoot.getChildCount());
+    assertEquals(treeRoot.getGenomes(), newRoot.getGenomes());
+  }
+
+  /**
+   * Select the genomes of the first child of the root and a single genome of the second child. The
+   * first child is copied and the second child is replaced by the leaf of the selected genome.
+   */
+  @Test
+  public void testSkipNodes() {
+    IPhylogeneticTreeNode<?> firstChild = treeRoot.getChild(0);
+    IPhylogeneticTreeNode<?> secondChild = treeRoot.getChild(1);
+    Integer genome = secondChild.getGenomes().get(0);
+    ArrayList<Integer> genomes = new ArrayList<>(firstChild.getGenomes());
+    genomes.add(genome);
+
+    IPhylogeneticTreeRoot<?> newRoot = new TreeBuilder(treeRoot, genomes).getTree();
+
+    assertEquals(sorted(genomes), sorted(newRoot.getGenomes()));
+    assertEquals(firstChild.getChildCount(), newRoot.getChild(0).getChildCount());
+    assertTrue(newRoot.getChild(1).isLeaf());
+    assertEquals((int) genome, newRoot.getChild(1).getGenomeId());
+  }
+
+  /**
+   * Test that only a leaf remains when a single genome is selected.
+   */
+  @Test
+  public void testSingleGenome() {
+    Integer genome = treeRoot.getGenomes().get(2);
+
+    IPhylogeneticTreeRoot<?> newRoot = new TreeBuilder(treeRoot,
+        Collections.singletonList(genome)).getTree();
+
+    assertTrue(newRoot.isLeaf());
+    assertEquals((int) genome, newRoot.getGenomeId());
+  }
+
+  private static List<Integer> sorted(List<Integer> genomes) {
+    ArrayList<Integer> sortedGenomes = new ArrayList<>(genomes);
+    Collections.sort(sortedGenomes);
+    return sortedGenomes;
+  }
+}
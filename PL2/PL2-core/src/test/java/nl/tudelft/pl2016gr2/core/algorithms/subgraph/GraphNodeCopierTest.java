@@ -0,0 +1,170 @@
+package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
+
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.addEdges;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.createNodes;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.getIds;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.graph.GraphBubbleFilter;
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.mutations.MutationBubbleAlgorithms;
+import nl.tudelft.pl2016gr2.model.Settings;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphBubble;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Test of class {@link GraphNodeCopier}.
+ */
+public class GraphNodeCopierTest {
+
+  private List<Settings.BubbleAlgorithms> previousAlgorithms;
+  private ArrayList<GraphNode> nodes;
+
+  /**
+   * Create the graph 0 -> (1, 4), 1 -> (2, 3) -> 4 -> 5 -> 6 -> 7, which contains a point
+   * mutation nested in an indel nested in a straight sequence when it is bubbled.
+   */
+  @Before
+  public void setUp() {
+    previousAlgorithms = new ArrayList<>(Settings.getInstance().getAlgorithms());
+    Settings.getInstance().getAlgorithms().clear();
+    Settings.getInstance().getAlgorithms().addAll(Arrays.asList(Settings.BubbleAlgorithms.POINT,
+        Settings.BubbleAlgorithms.INDEL, Settings.BubbleAlgorithms.STRAIGHT));
+    nodes = createNodes(8);
+    for (int i = 0; i < nodes.size(); i++) {
+      nodes.get(i).addAllGenomes(i == 2 ? Arrays.asList(0) : Arrays.asList(0, 1));
+    }
+    addEdges(nodes, 0, 1, 4);
+    addEdges(nodes, 1, 2, 3);
+    addEdges(nodes, 2, 4);
+    addEdges(nodes, 3, 4);
+    addEdges(nodes, 4, 5);
+    addEdges(nodes, 5, 6);
+    addEdges(nodes, 6, 7);
+  }
+
+  @After
+  public void tearDown() {
+    Settings.getInstance().getAlgorithms().clear();
+    Settings.getInstance().getAlgorithms().addAll(previousAlgorithms);
+  }
+
+  /**
+   * Test that the copies of sequence nodes have the same data and only refer to copies.
+   */
+  @Test
+  public void testCopySequenceNodes() {
+    ArrayList<GraphNode> copies = GraphNodeCopier.copy(nodes);
+
+    assertEquals(nodes.size(), copies.size());
+    for (int i = 0; i < nodes.size(); i++) {
+      assertNotSame(nodes.get(i), copies.get(i));
+      assertEquals(nodes.get(i).getId(), copies.get(i).getId());
+      assertEquals(nodes.get(i).getLevel(), copies.get(i).getLevel());
+      assertEquals(nodes.get(i).getGenomeSet(), copies.get(i).getGenomeSet());
+      assertEquals(getIds(nodes.get(i).getOutEdges()), getIds(copies.get(i).getOutEdges()));
+    }
+    assertOnlyCopies(nodes, copies);
+  }
+
+  /**
+   * Test that the copies of nested bubbles are independent of the original bubbles.
+   */
+  @Test
+  public void testCopyBubbles() {
+    ArrayList<GraphNode> bubbledNodes = MutationBubbleAlgorithms.makeBubbels(nodes);
+    ArrayList<GraphNode> copies = GraphNodeCopier.copy(bubbledNodes);
+
+    assertEquals(bubbledNodes.size(), copies.size());
+    for (int i = 0; i < bubbledNodes.size(); i++) {
+      assertEquals(bubbledNodes.get(i).getClass(), copies.get(i).getClass());
+      assertEquals(bubbledNodes.get(i).getId(), copies.get(i).getId());
+      assertEquals(bubbledNodes.get(i).getGenomeSet(), copies.get(i).getGenomeSet());
+    }
+    assertOnlyCopies(bubbledNodes, copies);
+
+    GraphNode bubble = copies.get(0).getOutEdges().iterator().next();
+    assertTrue(bubble.hasChildren());
+    int originalOutEdges = bubbledNodes.get(0).getOutEdges().size();
+    copies.get(0).setOutEdges(Collections.emptyList());
+    assertEquals(originalOutEdges, bubbledNodes.get(0).getOutEdges().size());
+  }
+
+  /**
+   * Test that the bubbles of a filter, which can't be copied, are left out of the copies together
+   * with the edges to them. The graph 0 -> 1 -> 2 -> (3, 4) -> 5 -> 6 contains a graph bubble
+   * from node 2 to node 5 when it is filtered.
+   */
+  @Test
+  public void testSkipFilterBubbles() {
+    ArrayList<GraphNode> graphNodes = createNodes(7);
+    for (int i = 0; i < graphNodes.size(); i++) {
+      graphNodes.get(i).addAllGenomes(i == 3 ? Arrays.asList(0)
+          : i == 4 ? Arrays.asList(1) : Arrays.asList(0, 1));
+    }
+    addEdges(graphNodes, 0, 1);
+    addEdges(graphNodes, 1, 2);
+    addEdges(graphNodes, 2, 3, 4);
+    addEdges(graphNodes, 3, 5);
+    addEdges(graphNodes, 4, 5);
+    addEdges(graphNodes, 5, 6);
+    ArrayList<GraphNode> filteredNodes = new GraphBubbleFilter(graphNodes).filter();
+    List<GraphNode> filterBubbles = new ArrayList<>();
+    for (GraphNode node : filteredNodes) {
+      if (node instanceof GraphBubble) {
+        filterBubbles.add(node);
+      }
+    }
+    assertFalse(filterBubbles.isEmpty());
+
+    ArrayList<GraphNode> copies = GraphNodeCopier.copy(filteredNodes);
+
+    assertEquals(filteredNodes.size() - filterBubbles.size(), copies.size());
+    for (GraphNode node : getReachableNodes(copies).keySet()) {
+      assertFalse(node instanceof GraphBubble);
+    }
+    assertOnlyCopies(filteredNodes, copies);
+  }
+
+  /**
+   * Assert that none of the nodes which are reachable from the copies (through edges and nested
+   * nodes) is one of the nodes which are reachable from the original nodes.
+   *
+   * @param originals the original nodes.
+   * @param copies    the copies of the nodes.
+   */
+  private static void assertOnlyCopies(List<GraphNode> originals, List<GraphNode> copies) {
+    IdentityHashMap<GraphNode, Boolean> reachableOriginals = getReachableNodes(originals);
+    for (GraphNode copy : getReachableNodes(copies).keySet()) {
+      assertFalse(reachableOriginals.containsKey(copy));
+    }
+  }
+
+  private static IdentityHashMap<GraphNode, Boolean> getReachableNodes(List<GraphNode> start) {
+    IdentityHashMap<GraphNode, Boolean> reachable = new IdentityHashMap<>();
+    ArrayDeque<GraphNode> toVisit = new ArrayDeque<>(start);
+    while (!toVisit.isEmpty()) {
+      GraphNode node = toVisit.pop();
+      if (reachable.put(node, Boolean.TRUE) == null) {
+        toVisit.addAll(node.getInEdges());
+        toVisit.addAll(node.getOutEdges());
+        if (node.hasChildren()) {
+          toVisit.addAll(node.getChildren());
+        }
+      }
+    }
+    return reachable;
+  }
+}
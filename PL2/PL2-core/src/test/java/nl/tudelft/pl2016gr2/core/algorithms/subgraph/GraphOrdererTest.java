@@ -0,0 +1,165 @@
+package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
+
+import static org.junit.Assert.assertEquals;
+
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * This class tests the {@link GraphOrderer} class.
+ */
+public class GraphOrdererTest {
+
+  private HashGraph graph;
+
+  /**
+   * Create the graph 1 -> (2 -> 3, 4) -> 5, where node x has x bases.
+   */
+  @Before
+  public void initialize() {
+    HashMap<Integer, GraphNode> nodes = new HashMap<>();
+    for (int i = 1; i <= 5; i++) {
+      char[] bases = new char[i];
+      Arrays.fill(bases, 'A');
+      nodes.put(i, new SequenceNode(i, new BaseSequence(new String(bases)), Arrays.asList(0)));
+    }
+    addEdge(nodes, 1, 2);
+    addEdge(nodes, 2, 3);
+    addEdge(nodes, 3, 5);
+    addEdge(nodes, 1, 4);
+    addEdge(nodes, 4, 5);
+    graph = new HashGraph(nodes, Arrays.asList(0));
+  }
+
+  private static void addEdge(HashMap<Integer, GraphNode> nodes, int from, int to) {
+    nodes.get(from).addOutEdge(nodes.get(to));
+    nodes.get(to).addInEdge(nodes.get(from));
+  }
+
+  @Test
+  public void testLevels() {
+    new GraphOrderer(graph).order();
+    assertLevels(graph);
+  }
+
+  @Test
+  public void testLevelsOfCompactGraph() {
+    CompactGraph compactGraph = new CompactGraph(graph);
+    new GraphOrderer(compactGraph).order();
+    assertLevels(compactGraph);
+  }
+
+  /**
+   * Test that computing only the levels of a compact graph gives the same order of the graph as
+   * sorting the nodes right away.
+   */
+  @Test
+  public void testComputeLevelsOfCompactGraph() {
+    CompactGraph compactGraph = new CompactGraph(graph);
+    new GraphOrderer(compactGraph).computeLevels();
+    assertLevels(compactGraph);
+    List<Integer> order = compactGraph.getOrderedGraph().stream().map(GraphNode::getId)
+        .collect(Collectors.toList());
+    assertEquals(Arrays.asList(1, 2, 4, 3, 5), order);
+  }
+
+  @Test
+  public void testOrder() {
+    List<Integer> order = new GraphOrderer(graph).order().stream().map(GraphNode::getId)
+        .collect(Collectors.toList());
+    assertEquals(Arrays.asList(1, 2, 4, 3, 5), order);
+  }
+
+  /**
+   * Test if nodes which are part of a cycle are ignored.
+   */
+  @Test
+  public void testCycle() {
+    graph.getNode(5).setLevel(-1);
+    addEdge(getNodes(), 5, 3);
+    ArrayList<GraphNode> order = new GraphOrderer(graph).order();
+    assertEquals(5, order.size());
+    assertEquals(-1, graph.getNode(5).getLevel());
+    assertEquals(0, graph.getNode(3).getLevel());
+    assertEquals(5, graph.getNode(4).getLevel());
+  }
+
+  @Test
+  public void testParallelLevels() {
+    new GraphOrderer(graph).orderParallel();
+    assertLevels(graph);
+  }
+
+  /**
+   * Test if the parallel traversal results in the same levels as the serial traversal on a graph
+   * with frontiers which are wide enough to be processed in parallel.
+   */
+  @Test
+  public void testParallelEqualsSerial() {
+    CompactGraph serialGraph = createLayeredGraph();
+    CompactGraph parallelGraph = createLayeredGraph();
+    List<Integer> serialOrder = new GraphOrderer(serialGraph).order().stream()
+        .map(GraphNode::getId).collect(Collectors.toList());
+    List<Integer> parallelOrder = new GraphOrderer(parallelGraph).orderParallel().stream()
+        .map(GraphNode::getId).collect(Collectors.toList());
+    assertEquals(serialOrder, parallelOrder);
+    for (int i = 0; i < serialGraph.size(); i++) {
+      assertEquals(serialGraph.getLevel(i), parallelGraph.getLevel(i));
+    }
+  }
+
+  /**
+   * Create a graph with layers of nodes, where every node has random edges to the next layer.
+   *
+   * @return the created graph.
+   */
+  private static CompactGraph createLayeredGraph() {
+    int layers = 5;
+    int width = GraphOrderer.PARALLEL_THRESHOLD * 2;
+    int amountOfNodes = layers * width;
+    Random random = new Random(42);
+    int[] ids = new int[amountOfNodes];
+    BaseSequence[] sequences = new BaseSequence[amountOfNodes];
+    GenomeSet[] genomes = new GenomeSet[amountOfNodes];
+    int[][] outEdges = new int[amountOfNodes][];
+    for (int i = 0; i < amountOfNodes; i++) {
+      ids[i] = i;
+      char[] bases = new char[1 + random.nextInt(10)];
+      Arrays.fill(bases, 'C');
+      sequences[i] = new BaseSequence(new String(bases));
+      genomes[i] = GenomeSet.of(0);
+      int nextLayer = (i / width + 1) * width;
+      outEdges[i] = nextLayer >= amountOfNodes ? new int[0]
+          : random.ints(1 + random.nextInt(3), nextLayer, nextLayer + width).distinct().toArray();
+    }
+    return new CompactGraph(ids, sequences, genomes, outEdges, Arrays.asList(0));
+  }
+
+  private HashMap<Integer, GraphNode> getNodes() {
+    HashMap<Integer, GraphNode> nodes = new HashMap<>();
+    graph.forEach(node -> nodes.put(node.getId(), node));
+    return nodes;
+  }
+
+  private static void assertLevels(SequenceGraph graph) {
+    assertEquals(1, graph.getNode(1).getLevel());
+    assertEquals(3, graph.getNode(2).getLevel());
+    assertEquals(6, graph.getNode(3).getLevel());
+    assertEquals(5, graph.getNode(4).getLevel());
+    assertEquals(11, graph.getNode(5).getLevel());
+  }
+}
@@ -0,0 +1,133 @@
+package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
+
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.addEdges;
+import static nl.tudelft.pl2016gr2.util.TestingUtilities.createNodes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import nl.tudelft.pl2016gr2.core.algorithms.bubbles.mutations.MutationBubbleAlgorithms;
+import nl.tudelft.pl2016gr2.model.Settings.BubbleAlgorithms;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.util.Pair;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class tests the {@link OrderedGraphCache} class.
+ */
+public class OrderedGraphCacheTest {
+
+  private static final List<BubbleAlgorithms> ALGORITHMS
+      = Arrays.asList(BubbleAlgorithms.POINT, BubbleAlgorithms.PHYLO);
+
+  private OrderedGraphCache cache;
+  private SequenceGraph graph;
+
+  /**
+   * Create a cache for a mocked graph.
+   */
+  @Before
+  public void setUp() {
+    cache = new OrderedGraphCache(2);
+    graph = mock(SequenceGraph.class);
+    cache.setSource(graph, null);
+  }
+
+  private static Pair<OrderedGraph, OrderedGraph> createResult() {
+    return new Pair<>(new OrderedGraph(1, new ArrayList<>()), null);
+  }
+
+  @Test
+  public void testHitAndMiss() {
+    OrderedGraphCache.Key key = OrderedGraphCache.Key.forGraph(Arrays.asList(1, 2), ALGORITHMS);
+    assertNull(cache.get(key));
+    Pair<OrderedGraph, OrderedGraph> result = createResult();
+    cache.put(key, result);
+    assertTrue(result == cache.get(key));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testKeyIgnoresOrder() {
+    Pair<OrderedGraph, OrderedGraph> result = createResult();
+    cache.put(OrderedGraphCache.Key.forGraph(Arrays.asList(1, 2), ALGORITHMS), result);
+    assertTrue(result == cache.get(OrderedGraphCache.Key.forGraph(Arrays.asList(2, 1),
+        Arrays.asList(BubbleAlgorithms.PHYLO, BubbleAlgorithms.POINT))));
+  }
+
+  @Test
+  public void testKeyDistinguishesSettings() {
+    cache.put(OrderedGraphCache.Key.forGraph(Arrays.asList(1, 2), ALGORITHMS), createResult());
+    assertNull(cache.get(OrderedGraphCache.Key.forGraph(Arrays.asList(1, 2),
+        Arrays.asList(BubbleAlgorithms.POINT))));
+    assertNull(cache.get(OrderedGraphCache.Key.forComparison(Arrays.asList(1, 2),
+        Arrays.asList(1, 2), ALGORITHMS)));
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    OrderedGraphCache.Key first = OrderedGraphCache.Key.forGraph(Arrays.asList(1), ALGORITHMS);
+    OrderedGraphCache.Key second = OrderedGraphCache.Key.forGraph(Arrays.asList(2), ALGORITHMS);
+    OrderedGraphCache.Key third = OrderedGraphCache.Key.forGraph(Arrays.asList(3), ALGORITHMS);
+    Pair<OrderedGraph, OrderedGraph> firstResult = createResult();
+    cache.put(first, firstResult);
+    cache.put(second, createResult());
+    cache.get(first);
+    cache.put(third, createResult());
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    assertTrue(firstResult == cache.get(first));
+    assertNull(cache.get(second));
+  }
+
+  /**
+   * Test that the bubbles which were popped while the result was drawn are unpopped when the
+   * result is returned again.
+   */
+  @Test
+  public void testBubblesAreUnpoppedOnHit() {
+    ArrayList<GraphNode> nodes = createNodes(4);
+    nodes.get(0).addAllGenomes(Arrays.asList(0, 1));
+    nodes.get(1).addAllGenomes(Arrays.asList(0));
+    nodes.get(2).addAllGenomes(Arrays.asList(1));
+    nodes.get(3).addAllGenomes(Arrays.asList(0, 1));
+    addEdges(nodes, 0, 1, 2);
+    addEdges(nodes, 1, 3);
+    addEdges(nodes, 2, 3);
+    ArrayList<GraphNode> bubbledNodes = MutationBubbleAlgorithms.makeBubbels(nodes);
+    GraphNode bubble = bubbledNodes.get(0).getOutEdges().iterator().next();
+    assertTrue(bubble.hasChildren());
+    OrderedGraphCache.Key key = OrderedGraphCache.Key.forGraph(Arrays.asList(0, 1), ALGORITHMS);
+    cache.put(key, new Pair<>(new OrderedGraph(2, bubbledNodes), null));
+
+    bubble.pop();
+    assertTrue(bubble.isPopped());
+    assertFalse(bubbledNodes.get(0).getOutEdges().contains(bubble));
+
+    assertTrue(bubbledNodes == cache.get(key).left.getGraphOrder());
+    assertFalse(bubble.isPopped());
+    assertEquals(Arrays.asList(bubble), new ArrayList<>(bubbledNodes.get(0).getOutEdges()));
+  }
+
+  @Test
+  public void testNewSourceClearsCache() {
+    OrderedGraphCache.Key key = OrderedGraphCache.Key.forGraph(Arrays.asList(1), ALGORITHMS);
+    cache.put(key, createResult());
+    cache.setSource(graph, null);
+    assertEquals(1, cache.size());
+    cache.setSource(mock(SequenceGraph.class), null);
+    assertEquals(0, cache.size());
+    assertNull(cache.get(key));
+  }
+}
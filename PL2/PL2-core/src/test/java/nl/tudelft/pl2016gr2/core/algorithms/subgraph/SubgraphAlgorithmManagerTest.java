@@ -1,17 +1,19 @@
 package nl.tudelft.pl2016gr2.core.algorithms.subgraph;
 
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
 import net.sourceforge.olduvai.treejuxtaposer.drawer.Tree;
 import nl.tudelft.pl2016gr2.core.algorithms.bubbles.mutations.VerticalAligner;
+import nl.tudelft.pl2016gr2.core.algorithms.subgraph.SubgraphAlgorithmManager.Refinement;
 import nl.tudelft.pl2016gr2.core.factories.InputStreamGraphFactory;
 import nl.tudelft.pl2016gr2.core.factories.InputStreamTreeFactory;
 import nl.tudelft.pl2016gr2.core.factories.TreeFactory;
 import nl.tudelft.pl2016gr2.model.GenomeMap;
-import nl.tudelft.pl2016gr2.model.MetaData;
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeRoot;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.PhylogeneticTreeRoot;
 import nl.tudelft.pl2016gr2.parser.controller.GfaReader;
-import nl.tudelft.pl2016gr2.parser.controller.MetaDataReader;
 import nl.tudelft.pl2016gr2.util.Pair;
 import org.junit.After;
 import org.junit.Assert;
@@ -20,8 +22,14 @@ import org.junit.Test;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class tests the {@link SubgraphAlgorithmManager} class.
@@ -41,16 +49,14 @@ public class SubgraphAlgorithmManagerTest {
   @Before
   public void setup() throws Exception {
     GenomeMap.getInstance().clear();
-    InputStream in = GfaReader.class.getClassLoader().getResourceAsStream("TB10.gfa");
+    InputStream in = GfaReader.class.getClassLoader().getResourceAsStream("SMALL.gfa");
     InputStreamGraphFactory graphFactory = new InputStreamGraphFactory(in);
     graph = graphFactory.getGraph();
 
     TreeFactory treeFactory = new InputStreamTreeFactory(GfaReader.class.getClassLoader()
         .getResourceAsStream("10tree_custom.rooted.TKK.nwk"));
     Tree tree = treeFactory.getTree();
-    List<MetaData> metaDatas = new MetaDataReader(GfaReader.class.getClassLoader()
-        .getResourceAsStream("metadata.xlsx")).read();
-    treeRoot = new PhylogeneticTreeRoot(tree.getRoot(), metaDatas);
+    treeRoot = new PhylogeneticTreeRoot(tree.getRoot(), new ArrayList<>());
   }
 
   @After
@@ -87,4 +93,155 @@ public class SubgraphAlgorithmManagerTest {
     Assert.assertTrue(agraph.getGraphOrder().size() >= 0);
   }
 
+  /**
+   * Test that a request which is superseded by a newer request is cancelled. The first request is
+   * blocked in its split stage until the second request has been made, so it can't complete
+   * before it is superseded.
+   *
+   * @throws InterruptedException if the test is interrupted.
+   */
+  @Test
+  public void testSupersededRequestIsCancelled() throws InterruptedException {
+    GraphOrdererThread mainGraphOrder = new GraphOrdererThread(graph);
+    mainGraphOrder.start();
+    SubgraphAlgorithmManager.getCache().clear();
+    List<Integer> allGenomes = new ArrayList<>(GenomeMap.getInstance().copyAllGenomes());
+    CountDownLatch splitStarted = new CountDownLatch(1);
+    CountDownLatch gate = new CountDownLatch(1);
+    SequenceGraph gatedGraph = spy(graph);
+    doAnswer(invocation -> {
+      splitStarted.countDown();
+      gate.await();
+      return invocation.callRealMethod();
+    }).when(gatedGraph).size();
+
+    CompletableFuture<Pair<OrderedGraph, OrderedGraph>> first = SubgraphAlgorithmManager
+        .compareTwoGraphsAsync(allGenomes.subList(0, 2), allGenomes, gatedGraph, mainGraphOrder,
+            treeRoot);
+    boolean started = splitStarted.await(10, TimeUnit.SECONDS);
+    CompletableFuture<Pair<OrderedGraph, OrderedGraph>> second = SubgraphAlgorithmManager
+        .compareTwoGraphsAsync(allGenomes.subList(0, 3), allGenomes, graph, mainGraphOrder,
+            treeRoot);
+    gate.countDown();
+    Assert.assertTrue(started);
+    Assert.assertNotNull(second.join());
+    Assert.assertTrue(first.isCancelled());
+  }
+
+  /**
+   * Test that the snapshots of a single graph arrive in order of their refinement, before the
+   * complete result. The complete result is held back until both snapshots have arrived, so no
+   * snapshot is skipped, and a faster computed mutation bubble snapshot must not cause the
+   * unbubbled snapshot to be dropped.
+   *
+   * @throws InterruptedException if the test is interrupted.
+   */
+  @Test
+  public void testSnapshotsOfOneGraphArriveInOrder() throws InterruptedException {
+    SubgraphAlgorithmManager.getCache().clear();
+    List<Integer> genomes = new ArrayList<>(GenomeMap.getInstance().copyAllGenomes());
+    CountDownLatch snapshotsArrived = new CountDownLatch(2);
+    CountDownLatch gate = new CountDownLatch(1);
+    List<Refinement> refinements = Collections.synchronizedList(new ArrayList<>());
+    AtomicBoolean completed = new AtomicBoolean(false);
+    AtomicBoolean lateSnapshot = new AtomicBoolean(false);
+
+    CompletableFuture<OrderedGraph> result = SubgraphAlgorithmManager.alignOneGraphAsync(
+        genomes, graph, gateFilter(new CountDownLatch(1), gate), (refinement, snapshot) -> {
+          lateSnapshot.compareAndSet(false, completed.get());
+          Assert.assertFalse(snapshot.getGraphOrder().isEmpty());
+          refinements.add(refinement);
+          snapshotsArrived.countDown();
+        });
+    boolean arrived = snapshotsArrived.await(10, TimeUnit.SECONDS);
+    gate.countDown();
+    Assert.assertTrue(arrived);
+    Assert.assertNotNull(result.join());
+    completed.set(true);
+
+    Assert.assertEquals(Arrays.asList(Refinement.UNBUBBLED, Refinement.MUTATION_BUBBLES),
+        refinements);
+    Assert.assertFalse(lateSnapshot.get());
+  }
+
+  /**
+   * Test that the snapshots of two compared graphs arrive in order of their refinement, before the
+   * complete result.
+   *
+   * @throws InterruptedException if the test is interrupted.
+   */
+  @Test
+  public void testSnapshotsOfTwoGraphsArriveInOrder() throws InterruptedException {
+    SubgraphAlgorithmManager.getCache().clear();
+    List<Integer> genomes = new ArrayList<>(GenomeMap.getInstance().copyAllGenomes());
+    CountDownLatch snapshotsArrived = new CountDownLatch(2);
+    CountDownLatch gate = new CountDownLatch(1);
+    List<Refinement> refinements = Collections.synchronizedList(new ArrayList<>());
+
+    CompletableFuture<Pair<OrderedGraph, OrderedGraph>> result = SubgraphAlgorithmManager
+        .compareTwoGraphsAsync(genomes.subList(0, 4), genomes.subList(3, 8), graph,
+            gateFilter(new CountDownLatch(1), gate), (refinement, snapshot) -> {
+              Assert.assertFalse(snapshot.left.getGraphOrder().isEmpty());
+              Assert.assertFalse(snapshot.right.getGraphOrder().isEmpty());
+              refinements.add(refinement);
+              snapshotsArrived.countDown();
+            });
+    boolean arrived = snapshotsArrived.await(10, TimeUnit.SECONDS);
+    gate.countDown();
+    Assert.assertTrue(arrived);
+    Assert.assertNotNull(result.join());
+
+    Assert.assertEquals(Arrays.asList(Refinement.UNBUBBLED, Refinement.MUTATION_BUBBLES),
+        refinements);
+  }
+
+  /**
+   * Test that no snapshots of a request are published after the request has been superseded by
+   * a newer request. The first request is held back in its last bubbling stage until it has been
+   * superseded.
+   *
+   * @throws InterruptedException if the test is interrupted.
+   */
+  @Test
+  public void testNoSnapshotsAfterCancellation() throws InterruptedException {
+    SubgraphAlgorithmManager.getCache().clear();
+    List<Integer> genomes = new ArrayList<>(GenomeMap.getInstance().copyAllGenomes());
+    CountDownLatch filterStarted = new CountDownLatch(1);
+    CountDownLatch gate = new CountDownLatch(1);
+    AtomicBoolean cancelled = new AtomicBoolean(false);
+    AtomicBoolean publishedAfterCancellation = new AtomicBoolean(false);
+
+    CompletableFuture<OrderedGraph> first = SubgraphAlgorithmManager.alignOneGraphAsync(
+        genomes.subList(0, 4), graph, gateFilter(filterStarted, gate),
+        (refinement, snapshot) -> publishedAfterCancellation.compareAndSet(false, cancelled.get()));
+    boolean started = filterStarted.await(10, TimeUnit.SECONDS);
+    CompletableFuture<OrderedGraph> second = SubgraphAlgorithmManager.alignOneGraphAsync(
+        genomes.subList(0, 5), graph, treeRoot, (refinement, snapshot) -> { });
+    cancelled.set(true);
+    gate.countDown();
+    Assert.assertTrue(started);
+
+    Assert.assertNotNull(second.join());
+    Assert.assertTrue(first.isCancelled());
+    Assert.assertFalse(publishedAfterCancellation.get());
+  }
+
+  /**
+   * Create a tree root which holds back the phylo bubble filter, which is the last bubbling stage,
+   * until the gate is opened.
+   *
+   * @param arrived counted down when the filter has started.
+   * @param gate    the gate which holds back the filter.
+   * @return the tree root.
+   */
+  private IPhylogeneticTreeRoot<?> gateFilter(CountDownLatch arrived, CountDownLatch gate) {
+    IPhylogeneticTreeRoot<?> gatedRoot = spy(treeRoot);
+    doAnswer(invocation -> {
+      arrived.countDown();
+      gate.await();
+      return invocation.callRealMethod();
+    }).when(gatedRoot).getMetaDatas();
+    return gatedRoot;
+  }
+
 }
@@ -25,6 +25,8 @@ public class BubbleAlgorithmMenuController implements Initializable {
   @FXML
   private CheckBox graphBasedCollapsingCheckbox;
   @FXML
+  private CheckBox superbubbleCollapsingCheckbox;
+  @FXML
   private CheckBox pointMutationCheckbox;
   @FXML
   private CheckBox indelCheckbox;
@@ -32,9 +34,8 @@ public class BubbleAlgorithmMenuController implements Initializable {
   private CheckBox straightSequenceCheckbox;
 
   /**
-   * Bind the properties of the checkboxes so the graph checkboxes are disabled when the mutation
-   * checkbox is selected and the mutation checkboxes are disabled when the graph checkbox is
-   * selected.
+   * Bind the properties of the checkboxes so at most one of the phylogeny based, graph based and
+   * superbubble collapsing checkboxes is selected.
    *
    * @param location  unused.
    * @param resources unused.
@@ -44,11 +45,19 @@ public class BubbleAlgorithmMenuController implements Initializable {
     treeBasedCollapsingCheckbox.selectedProperty().addListener((obs, old, newValue) -> {
       if (newValue) {
         graphBasedCollapsingCheckbox.setSelected(!newValue);
+        superbubbleCollapsingCheckbox.setSelected(!newValue);
       }
     });
     graphBasedCollapsingCheckbox.selectedProperty().addListener((obs, old, newValue) -> {
       if (newValue) {
         treeBasedCollapsingCheckbox.setSelected(!newValue);
+        superbubbleCollapsingCheckbox.setSelected(!newValue);
+      }
+    });
+    superbubbleCollapsingCheckbox.selectedProperty().addListener((obs, old, newValue) -> {
+      if (newValue) {
+        treeBasedCollapsingCheckbox.setSelected(!newValue);
+        graphBasedCollapsingCheckbox.setSelected(!newValue);
       }
     });
     initializeMenuListener();
@@ -66,8 +75,11 @@ public class BubbleAlgorithmMenuController implements Initializable {
       addAlgorithm(algorithms, BubbleAlgorithms.STRAIGHT, straightSequenceCheckbox.isSelected());
       if (treeBasedCollapsingCheckbox.isSelected()) {
         addAlgorithm(algorithms, BubbleAlgorithms.PHYLO, treeBasedCollapsingCheckbox.isSelected());
-      } else {
+      } else if (graphBasedCollapsingCheckbox.isSelected()) {
         addAlgorithm(algorithms, BubbleAlgorithms.GRAPH, graphBasedCollapsingCheckbox.isSelected());
+      } else {
+        addAlgorithm(algorithms, BubbleAlgorithms.SUPERBUBBLE,
+            superbubbleCollapsingCheckbox.isSelected());
       }
       Settings.getInstance().setBubblingAlgorithms(algorithms);
     });
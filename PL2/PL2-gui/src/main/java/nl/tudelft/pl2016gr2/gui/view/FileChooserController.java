@@ -21,6 +21,8 @@ import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Callback;
+import nl.tudelft.pl2016gr2.core.factories.GraphFactory;
+import nl.tudelft.pl2016gr2.core.factories.SnapshotGraphFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -149,7 +151,7 @@ public class FileChooserController implements Initializable {
     try {
       inputFileConsumer.filesLoaded(
           new FileInputStream(treeFile),
-          new FileInputStream(graphFile),
+          new SnapshotGraphFactory(graphFile),
           new FileInputStream(metadataFile),
           new FileInputStream(annotationFile));
     } catch (FileNotFoundException ex) {
@@ -375,11 +377,11 @@ public class FileChooserController implements Initializable {
      * Load the given files.
      *
      * @param treeFile     the file of the phylogenetic tree.
-     * @param graphFile    the file of the graph.
+     * @param graphFactory the factory which reads the graph.
      * @param metadataFile the file of the metadata.
      * @param annotationFile the file of the annotations.
      */
-    void filesLoaded(InputStream treeFile, InputStream graphFile,
+    void filesLoaded(InputStream treeFile, GraphFactory graphFactory,
                      InputStream metadataFile, InputStream annotationFile);
   }
 }
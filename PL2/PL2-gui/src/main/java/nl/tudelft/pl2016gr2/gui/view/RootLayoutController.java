@@ -96,6 +96,8 @@ public class RootLayoutController implements
   @FXML
   private SelectionPaneController selectionPaneController;
 
+  private GraphFactory loadedGraphFactory;
+
   private final ObjectProperty<MetadataPropertyMap> metadataPropertyMap
       = new SimpleObjectProperty<>(new MetadataPropertyMap(new ArrayList<>()));
   
@@ -343,11 +345,23 @@ public class RootLayoutController implements
     annotationSearchPaneController.setup(selectionManager, graphPaneController);
   }
 
-  @Override
+  /**
+   * Load the given files.
+   *
+   * @param treeFile       the file of the phylogenetic tree.
+   * @param graphFile      the file of the graph.
+   * @param metadataFile   the file of the metadata.
+   * @param annotationFile the file of the annotations.
+   */
   public void filesLoaded(InputStream treeFile, InputStream graphFile,
       InputStream metadataFile, InputStream annotationFile) {
+    filesLoaded(treeFile, new InputStreamGraphFactory(graphFile), metadataFile, annotationFile);
+  }
+
+  @Override
+  public void filesLoaded(InputStream treeFile, GraphFactory graphFactory,
+      InputStream metadataFile, InputStream annotationFile) {
     try {
-      GraphFactory graphFactory = new InputStreamGraphFactory(graphFile);
       TreeFactory treeFactory = new InputStreamTreeFactory(treeFile);
       SequenceGraph graph = graphFactory.getGraph();
       Tree tree = treeFactory.getTree();
@@ -362,15 +376,32 @@ public class RootLayoutController implements
         loadTree(treeRoot);
         metadataSearchPaneController.setData(metaData);
         annotationSearchPaneController.setData(annotations);
+        replaceGraphFactory(graphFactory);
       } else {
         Logger.getLogger(RootLayoutController.class.getName()).log(
             Level.SEVERE, "tree or graph was null");
+        graphFactory.close();
       }
     } catch (IOException | InvalidFormatException ex) {
       Logger.getLogger(RootLayoutController.class.getName()).log(Level.SEVERE, null, ex);
     }
   }
 
+  /**
+   * Close the factory of the previously loaded graph, which is no longer used, and remember the
+   * factory of the newly loaded graph.
+   *
+   * @param graphFactory the factory of the newly loaded graph.
+   * @throws IOException if the factory of the previous graph can not be closed.
+   */
+  private void replaceGraphFactory(GraphFactory graphFactory) throws IOException {
+    GraphFactory previousGraphFactory = loadedGraphFactory;
+    loadedGraphFactory = graphFactory;
+    if (previousGraphFactory != null && previousGraphFactory != graphFactory) {
+      previousGraphFactory.close();
+    }
+  }
+
   /**
    * Prompts the user for with the FileChooser.
    */
@@ -2,6 +2,7 @@ package nl.tudelft.pl2016gr2.gui.view.graph;
 
 import com.sun.javafx.collections.ObservableSetWrapper;
 import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.binding.NumberBinding;
 import javafx.beans.binding.When;
 import javafx.beans.property.DoubleProperty;
@@ -49,6 +50,7 @@ import nl.tudelft.pl2016gr2.model.Settings;
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
 import nl.tudelft.pl2016gr2.model.graph.data.GraphViewRange;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.PhyloBubble;
 import nl.tudelft.pl2016gr2.model.phylogenetictree.IPhylogeneticTreeRoot;
 import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
 import nl.tudelft.pl2016gr2.util.Pair;
@@ -58,13 +60,20 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -122,6 +131,7 @@ public class GraphPaneController implements Initializable {
   private static final double SCROLL_ZOOM_FACTOR = 0.0025;
   private static final double MAX_ZOOM_FACTOR = 180.0;
   private static final double BUBBLE_POP_SIZE = 150.0;
+  private static final double BUBBLE_PREFETCH_SIZE = BUBBLE_POP_SIZE / 2.0;
   private static final double GRAPH_HEATMAP_HEIGHT = 20.0;
   private static final double DECENT_NODE_WIDTH = 30.0;
   public static final double HALF_HEATMAP_HEIGHT = GRAPH_HEATMAP_HEIGHT / 2.0;
@@ -132,6 +142,7 @@ public class GraphPaneController implements Initializable {
   private ContextMenu contextMenu;
   private IPhylogeneticTreeRoot<?> treeRoot;
   private final GraphUpdater graphUpdater = new GraphUpdater(this);
+  private final BubblePrefetcher bubblePrefetcher = new BubblePrefetcher();
 
   private GraphOrdererThread mainGraphOrder;
   private SequenceGraph mainGraph;
@@ -639,19 +650,40 @@ public class GraphPaneController implements Initializable {
   }
 
   /**
-   * Draw the given collection of genomes in the top graph.
+   * Draw the given collection of genomes in the top graph. The graph is computed in the
+   * background. Snapshots of the graph are drawn as soon as they are available and are replaced
+   * when a more refined graph is done, unless another graph has been requested in the meantime.
    *
    * @param genomes the collection of genomes.
    */
   private void drawOneGraph(Collection<Integer> genomes) {
-    topGraph = SubgraphAlgorithmManager.alignOneGraph(genomes, mainGraph, mainGraphOrder, treeRoot);
+    AtomicBoolean refining = new AtomicBoolean(false);
+    Consumer<OrderedGraph> drawer = graph -> Platform.runLater(
+        () -> drawOneGraph(graph, refining.getAndSet(true)));
+    SubgraphAlgorithmManager.alignOneGraphAsync(genomes, mainGraph, mainGraphOrder, treeRoot,
+        drawer)
+        .thenAccept(drawer)
+        .exceptionally(GraphPaneController::logPipelineFailure);
+  }
+
+  /**
+   * Draw the given graph as the top graph.
+   *
+   * @param graph    the graph to draw.
+   * @param refining whether the graph replaces a less refined version of the same graph, in which
+   *                 case the position and zoom level of the view are kept.
+   */
+  private void drawOneGraph(OrderedGraph graph, boolean refining) {
+    bubblePrefetcher.clear();
+    topGraph = graph;
     ArrayList<GraphNode> topGraphOrder = topGraph.getGraphOrder();
 
     amountOfLevels.set(topGraphOrder.get(topGraphOrder.size() - 1).getLevel());
-    zoomFactor.set(mainPane.getWidth() / amountOfLevels.get());
-    scrollbar.setValue(0.0);
+    if (!refining) {
+      zoomFactor.set(mainPane.getWidth() / amountOfLevels.get());
+      scrollbar.setValue(0.0);
+    }
     updateGraphSize();
-    System.gc();
     graphUpdater.update();
   }
 
@@ -674,22 +706,46 @@ public class GraphPaneController implements Initializable {
    * Draw and compare two subgraphs of genomes.
    */
   private void compareTwoGraphs() {
-    Pair<OrderedGraph, OrderedGraph> compareRes
-        = SubgraphAlgorithmManager.compareTwoGraphs(
-            getTopGraphGenomes(),
-            getBottomGraphGenomes(),
-            mainGraph,
-            mainGraphOrder,
-            treeRoot);
-    this.topGraph = compareRes.left;
-    this.bottomGraph = compareRes.right;
-    drawTwoGraphs();
+    AtomicBoolean refining = new AtomicBoolean(false);
+    Consumer<Pair<OrderedGraph, OrderedGraph>> drawer = compareRes -> Platform.runLater(() -> {
+      bubblePrefetcher.clear();
+      this.topGraph = compareRes.left;
+      this.bottomGraph = compareRes.right;
+      drawTwoGraphs(refining.getAndSet(true));
+    });
+    SubgraphAlgorithmManager.compareTwoGraphsAsync(
+        getTopGraphGenomes(),
+        getBottomGraphGenomes(),
+        mainGraph,
+        mainGraphOrder,
+        treeRoot,
+        drawer)
+        .thenAccept(drawer)
+        .exceptionally(GraphPaneController::logPipelineFailure);
+  }
+
+  /**
+   * Log the failure of the subgraph algorithms. Requests which have been cancelled because a newer
+   * request was made are not logged.
+   *
+   * @param ex the exception which caused the failure.
+   * @return null.
+   */
+  private static Void logPipelineFailure(Throwable ex) {
+    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+    if (!(cause instanceof CancellationException)) {
+      Logger.getLogger(GraphPaneController.class.getName()).log(Level.SEVERE, null, cause);
+    }
+    return null;
   }
 
   /**
    * Draw two graphs to compare.
+   *
+   * @param refining whether the graphs replace less refined versions of the same graphs, in which
+   *                 case the position and zoom level of the view are kept.
    */
-  private void drawTwoGraphs() {
+  private void drawTwoGraphs(boolean refining) {
     ArrayList<GraphNode> topGraphOrder = topGraph.getGraphOrder();
     ArrayList<GraphNode> bottomGraphOrder = bottomGraph.getGraphOrder();
     int highestTopLevel = topGraphOrder.get(topGraphOrder.size() - 1).getLevel();
@@ -699,10 +755,11 @@ public class GraphPaneController implements Initializable {
     } else {
       amountOfLevels.set(highestBottomLevel);
     }
-    zoomFactor.set(mainPane.getWidth() / amountOfLevels.get());
-    scrollbar.setValue(0.0);
+    if (!refining) {
+      zoomFactor.set(mainPane.getWidth() / amountOfLevels.get());
+      scrollbar.setValue(0.0);
+    }
     updateGraphSize();
-    System.gc();
     graphUpdater.update();
   }
 
@@ -734,6 +791,7 @@ public class GraphPaneController implements Initializable {
     getBottomGraphGenomes().clear();
     topPane.getChildren().clear();
     bottomPane.getChildren().clear();
+    bubblePrefetcher.clear();
     bottomGraph = null;
     topGraph = null;
     amountOfLevels.set(0);
@@ -872,8 +930,11 @@ public class GraphPaneController implements Initializable {
           drawnChildNodes);
     } else {
       node.unpop();
+      if (node instanceof PhyloBubble && width > BUBBLE_PREFETCH_SIZE) {
+        bubblePrefetcher.prefetch(node);
+      }
     }
-    drawAnnotationBox(node, viewNode, startLevel, drawnChildNodes);
+    drawAnnotationBox(node, viewNode, startLevel, endLevel, drawnChildNodes);
     heatmapColorer.drawHeatmap(node, startLevel);
   }
 
@@ -899,20 +960,22 @@ public class GraphPaneController implements Initializable {
   }
 
   /**
-   * Draw the annotations of the node.
+   * Draw the annotations of the node which are (partially) visible in the current view.
    *
    * @param node       the node.
    * @param viewNode   the view node of the node.
    * @param startLevel the start level of the current view.
+   * @param endLevel   the end level of the current view.
    * @param drawnChildNodes the drawn nodes which don't have any child nodes.
    */
   private void drawAnnotationBox(GraphNode node, IViewGraphNode viewNode,
-      double startLevel, ArrayList<Node> drawnChildNodes) {
+      double startLevel, double endLevel, ArrayList<Node> drawnChildNodes) {
     if (!node.hasAnnotations()) {
       return;
     }
     double previousEndPosition = Double.NEGATIVE_INFINITY;
-    for (Annotation annotation : node.getAnnotations()) {
+    for (Annotation annotation : node.getAnnotations((int) Math.floor(startLevel),
+        (int) Math.ceil(endLevel))) {
       double annotationStart = calcAnnotationStart(annotation, viewNode, startLevel);
       double annotationEnd = getAnnotationEnd(annotation, viewNode, startLevel);
 
@@ -1221,4 +1284,53 @@ public class GraphPaneController implements Initializable {
       updateGraph.set(true);
     }
   }
+
+  /**
+   * Prepares popping the phylo bubbles which are almost wide enough to be popped in the background,
+   * so they can be popped without delaying the frame in which they become wide enough. Every bubble
+   * is prepared at most once; bubbles of graphs which are no longer drawn are skipped.
+   */
+  private static class BubblePrefetcher {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "bubble-prefetcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    private final Set<GraphNode> requested = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Prepare popping a bubble in the background, unless this has already been requested. Must be
+     * called on the JavaFX thread.
+     *
+     * @param bubble the bubble.
+     */
+    private void prefetch(GraphNode bubble) {
+      if (bubble.isPopped() || !requested.add(bubble)) {
+        return;
+      }
+      int requestGeneration = generation.get();
+      EXECUTOR.execute(() -> {
+        if (requestGeneration != generation.get()) {
+          return;
+        }
+        try {
+          bubble.prefetch();
+        } catch (RuntimeException ex) {
+          Logger.getLogger(GraphPaneController.class.getName()).log(Level.SEVERE, null, ex);
+        }
+      });
+    }
+
+    /**
+     * Forget the requested bubbles and skip the pending requests, because another graph is drawn.
+     * Must be called on the JavaFX thread.
+     */
+    private void clear() {
+      requested.clear();
+      generation.incrementAndGet();
+    }
+  }
 }
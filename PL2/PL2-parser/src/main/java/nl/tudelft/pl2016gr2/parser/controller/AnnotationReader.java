@@ -2,28 +2,46 @@ package nl.tudelft.pl2016gr2.parser.controller;
 
 import nl.tudelft.pl2016gr2.model.Annotation;
 import nl.tudelft.pl2016gr2.model.GenomeMap;
-import nl.tudelft.pl2016gr2.util.Pair;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Class for reading a gff file.
+ * <p>
+ * The file is read line by line. The columns of a line are found by searching for the tabs in the
+ * line instead of splitting it, the positions are parsed without creating substrings and the
+ * values of the columns which are repeated a lot (sequence id, source, type, strand and phase)
+ * are shared between the annotations. The attribute column is stored as is and only parsed when
+ * an attribute of the annotation is requested (see {@link Annotation#getAttribute(String)}).
+ * Lines of genomes which aren't part of the graph are skipped before any of their columns are
+ * parsed.
+ * </p>
  *
  * @author Cas
  *
  */
 public class AnnotationReader {
 
+  private static final Logger LOGGER = Logger.getLogger(AnnotationReader.class.getName());
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int COLUMNS = 9;
+  private static final int SHIFT_BY_BASE_10 = 10;
+  private static final String FASTA_DIRECTIVE = "##FASTA";
+
   private final InputStream fileStream;
   private final GenomeMap genomeMap;
   private final ArrayList<Annotation> annotations = new ArrayList<>();
+  private final HashMap<String, String> sharedValues = new HashMap<>();
+  private final int[] columnStarts = new int[COLUMNS + 1];
 
   /**
    * Creates an AnnotationReader for the inputstream specified.
@@ -44,26 +62,38 @@ public class AnnotationReader {
     try {
       return parse();
     } catch (IOException ex) {
-      Logger.getLogger(AnnotationReader.class.getName()).log(Level.SEVERE, null, ex);
+      LOGGER.log(Level.SEVERE, null, ex);
       return null;
     }
   }
 
   /**
-   * Creates a BufferedReader and parses every line of the file.
+   * Creates a BufferedReader and parses every line of the file. Comment lines are skipped, and
+   * reading stops at the sequences which may be included at the end of the file.
    *
    * @return The list of annotations in the file.
    * @throws IOException from the BufferedReader.
    */
   private ArrayList<Annotation> parse() throws IOException {
-    try (BufferedReader br = new BufferedReader(new InputStreamReader(fileStream))) {
+    try (BufferedReader br = new BufferedReader(
+        new InputStreamReader(fileStream, StandardCharsets.UTF_8), BUFFER_SIZE)) {
       String line;
       while ((line = br.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        if (line.charAt(0) == '#') {
+          if (line.startsWith(FASTA_DIRECTIVE)) {
+            break;
+          }
+          continue;
+        }
         Annotation annotation = readLine(line);
         if (annotation != null) {
           annotations.add(annotation);
         }
       }
+      annotations.trimToSize();
       return annotations;
     }
   }
@@ -72,55 +102,101 @@ public class AnnotationReader {
    * Parser a line of the gff file
    *
    * @param line A full line of the gff file
-   * @return An annotation object with the information of the file.
+   * @return An annotation object with the information of the file, or null if the line couldn't
+   *         be parsed or if the genome of the line isn't part of the graph.
    */
   private Annotation readLine(String line) {
-    String[] tabSplitted = line.split("\t");
-    if (tabSplitted.length != 9) {
-      Logger.getLogger(AnnotationReader.class.getName()).log(Level.WARNING,
+    if (!findColumns(line)) {
+      LOGGER.log(Level.WARNING,
           "Line layout not recognised (other length than expected): {0}", line);
       return null;
     }
-    String refGenome = tabSplitted[0];
-    String unknownNull = tabSplitted[1];
-    String tag = tabSplitted[2];
-    int firstInt = Integer.parseInt(tabSplitted[3]);
-    int secondInt = Integer.parseInt(tabSplitted[4]);
-    double firstDouble = Double.parseDouble(tabSplitted[5]);
-    String plusMinus = tabSplitted[6];
-    String point = tabSplitted[7];
-    Annotation annotation = new Annotation(refGenome, unknownNull, tag, firstInt, secondInt,
-        firstDouble, plusMinus, point);
-    extractProperties(tabSplitted[8], annotation);
-    if (genomeMap.containsGenome(refGenome)) {
-      return annotation;
-    } else {
+    String refGenome = getSharedValue(line, 0);
+    if (!genomeMap.containsGenome(refGenome)) {
+      return null;
+    }
+    try {
+      int firstInt = parseInt(line, 3);
+      int secondInt = parseInt(line, 4);
+      double firstDouble = Double.parseDouble(getColumn(line, 5));
+      String attributeColumn = getColumn(line, 8);
+      return new Annotation(refGenome, getSharedValue(line, 1), getSharedValue(line, 2), firstInt,
+          secondInt, firstDouble, getSharedValue(line, 6), getSharedValue(line, 7),
+          attributeColumn.isEmpty() ? null : attributeColumn);
+    } catch (NumberFormatException ex) {
+      LOGGER.log(Level.WARNING, "Line contains an invalid number: {0}", line);
       return null;
     }
   }
 
   /**
-   * This method adds properties of some annotation contained in the gff file to an annotation.
+   * Find the start of each of the columns of the line. The start of the (non existing) column
+   * after the last column is set to the length of the line plus one, so the end of every column
+   * is the start of the next column minus one.
    *
-   * @param information The String with all properties
-   * @param annotation  The annotation to which these properties have to be added.
+   * @param line the line.
+   * @return if the line contains exactly the expected amount of columns.
    */
-  private void extractProperties(String information, Annotation annotation) {
-    String[] semicolonDelimited = information.split(";");
-    for (String str : semicolonDelimited) {
-      annotation.addAttribute(parseProperty(str));
+  private boolean findColumns(String line) {
+    columnStarts[0] = 0;
+    for (int column = 1; column < COLUMNS; column++) {
+      int tab = line.indexOf('\t', columnStarts[column - 1]);
+      if (tab == -1) {
+        return false;
+      }
+      columnStarts[column] = tab + 1;
     }
+    columnStarts[COLUMNS] = line.length() + 1;
+    return line.indexOf('\t', columnStarts[COLUMNS - 1]) == -1;
   }
 
   /**
-   * Splits the property on a '=' and takes the value.
+   * Get the value of a column of the line.
    *
-   * @param property the full property
-   * @return the value of the property
+   * @param line   the line.
+   * @param column the column.
+   * @return the value of the column.
    */
-  private Pair<String, String> parseProperty(String property) {
-    String[] propertySplit = property.split("=");
-    return new Pair<>(propertySplit[0], propertySplit[1]);
+  private String getColumn(String line, int column) {
+    return line.substring(columnStarts[column], columnStarts[column + 1] - 1);
   }
 
+  /**
+   * Get the value of a column of the line, which is shared with all other annotations that have
+   * the same value.
+   *
+   * @param line   the line.
+   * @param column the column.
+   * @return the shared value of the column.
+   */
+  private String getSharedValue(String line, int column) {
+    String value = getColumn(line, column);
+    String sharedValue = sharedValues.putIfAbsent(value, value);
+    return sharedValue == null ? value : sharedValue;
+  }
+
+  /**
+   * Parse the (positive) integer in a column of the line.
+   *
+   * @param line   the line.
+   * @param column the column.
+   * @return the integer.
+   * @throws NumberFormatException if the column doesn't contain a positive integer.
+   */
+  private int parseInt(String line, int column) {
+    int begin = columnStarts[column];
+    int end = columnStarts[column + 1] - 1;
+    if (begin == end) {
+      throw new NumberFormatException();
+    }
+    int value = 0;
+    for (int i = begin; i < end; i++) {
+      int digit = line.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException();
+      }
+      value = value * SHIFT_BY_BASE_10 + digit;
+    }
+    return value;
+  }
 }
@@ -0,0 +1,389 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.data.LazyBaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Node;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A chunk of a GFA file which is parsed by the {@link ParallelGfaReader}. The chunk always starts
+ * and ends at a line boundary. While parsing, nothing is shared with other chunks: the nodes and
+ * edges are stored in primitive buffers and the genomes of the nodes are stored as indices into a
+ * chunk local list of genome names. After all chunks have been parsed, they are merged into the
+ * graph (in file order) by the {@link ParallelGfaReader}.
+ */
+/*package*/ class GfaChunk extends RecursiveAction {
+
+  private static final long serialVersionUID = 1L;
+  private static final int SHIFT_BY_BASE_10 = 10;
+  private static final int INITIAL_BUFFER_SIZE = 1 << 10;
+
+  private final transient FileChannel channel;
+  private final long start;
+  private final long end;
+  private final boolean skipFirstLine;
+  private final transient SequenceStore sequenceStore;
+
+  private transient byte[] line = new byte[INITIAL_BUFFER_SIZE];
+  private long lineOffset;
+
+  private int[] nodeIds = new int[INITIAL_BUFFER_SIZE];
+  private transient BaseSequence[] sequences = new BaseSequence[INITIAL_BUFFER_SIZE];
+  private int[] nodeGenomeEnds = new int[INITIAL_BUFFER_SIZE];
+  private int nodeCount;
+  private int[] nodeGenomes = new int[INITIAL_BUFFER_SIZE];
+  private int nodeGenomeCount;
+  private int[] edges = new int[INITIAL_BUFFER_SIZE];
+  private int edgeCount;
+
+  private final ArrayList<String> genomeNames = new ArrayList<>();
+  private final HashMap<String, Integer> genomeIndices = new HashMap<>();
+  private final ArrayList<byte[]> headers = new ArrayList<>();
+
+  /**
+   * Create a chunk of a GFA file.
+   *
+   * @param channel       the channel of the GFA file.
+   * @param start         the position of the first byte of the chunk (the start of a line).
+   * @param end           the position after the last byte of the chunk (the end of a line).
+   * @param skipFirstLine if the first line of this chunk must be skipped.
+   * @param sequenceStore the store of the bases of the nodes, or null to read the bases into
+   *                      memory.
+   */
+  /*package*/ GfaChunk(FileChannel channel, long start, long end, boolean skipFirstLine,
+      SequenceStore sequenceStore) {
+    assert end - start <= Integer.MAX_VALUE;
+    this.channel = channel;
+    this.start = start;
+    this.end = end;
+    this.skipFirstLine = skipFirstLine;
+    this.sequenceStore = sequenceStore;
+  }
+
+  @Override
+  protected void compute() {
+    try {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      int size = (int) (end - start);
+      int lineStart = 0;
+      boolean skipLine = skipFirstLine;
+      for (int i = 0; i <= size; i++) {
+        if (i == size || buffer.get(i) == '\n') {
+          if (!skipLine) {
+            parseLine(buffer, lineStart, i);
+          }
+          skipLine = false;
+          lineStart = i + 1;
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    line = null;
+  }
+
+  /**
+   * Copy a line of the mapped buffer to the line buffer and parse it.
+   *
+   * @param buffer    the mapped buffer.
+   * @param lineStart the index of the first byte of the line.
+   * @param lineEnd   the index after the last byte of the line.
+   */
+  private void parseLine(MappedByteBuffer buffer, int lineStart, int lineEnd) {
+    int length = lineEnd - lineStart;
+    if (length > line.length) {
+      line = new byte[Math.max(line.length * 2, length)];
+    }
+    buffer.position(lineStart);
+    buffer.get(line, 0, length);
+    lineOffset = start + lineStart;
+    if (length > 0 && line[length - 1] == '\r') {
+      --length;
+    }
+    if (length == 0) {
+      return;
+    }
+    try {
+      switch (line[0]) {
+        case 'L':
+          parseEdge(line, length);
+          break;
+        case 'S':
+          parseNode(line, length);
+          break;
+        case 'H':
+          headers.add(Arrays.copyOf(line, length));
+          break;
+        default:
+          Logger.getLogger(GfaChunk.class.getName()).log(Level.WARNING,
+              "unknown line read at offset {0}: {1}", new Object[]{lineOffset,
+                new String(line, 0, length, StandardCharsets.US_ASCII)});
+      }
+    } catch (IllegalArgumentException ex) {
+      Logger.getLogger(GfaChunk.class.getName()).log(Level.WARNING,
+          "malformed line read at offset {0}: {1}", new Object[]{lineOffset,
+            new String(line, 0, length, StandardCharsets.US_ASCII)});
+    }
+  }
+
+  /**
+   * Parse a line of the GFA file that contains an edge.
+   *
+   * @param bytes  bytes of the line.
+   * @param length the length of the line.
+   * @throws IllegalArgumentException if the line ends before the edge is complete.
+   */
+  private void parseEdge(byte[] bytes, int length) {
+    int from = 0;
+    int index = 2;
+    while (MappedGfaReader.byteAt(bytes, index, length) != '\t') {
+      from *= SHIFT_BY_BASE_10;
+      from += bytes[index++] - '0';
+    }
+    index += 3;
+    int to = 0;
+    while (MappedGfaReader.byteAt(bytes, index, length) != '\t') {
+      to *= SHIFT_BY_BASE_10;
+      to += bytes[index++] - '0';
+    }
+    edges = ensureCapacity(edges, edgeCount + 2);
+    edges[edgeCount++] = from;
+    edges[edgeCount++] = to;
+  }
+
+  /**
+   * Parse a line of the GFA file that contains a node.
+   *
+   * @param bytes  bytes of the line.
+   * @param length the length of the line.
+   * @throws IllegalArgumentException if the line ends before the node is complete.
+   */
+  private void parseNode(byte[] bytes, int length) {
+    int nodeId = 0;
+    int index = 2;
+    while (MappedGfaReader.byteAt(bytes, index, length) != '\t') {
+      nodeId *= SHIFT_BY_BASE_10;
+      nodeId += bytes[index++] - '0';
+    }
+    index++;
+
+    int basesStart = index;
+    index = MappedGfaReader.skipTillCharacter(bytes, index, length, '\t', 1);
+    parseNodeGenomes(bytes, index, length);
+    if (nodeCount == nodeIds.length) {
+      nodeIds = Arrays.copyOf(nodeIds, nodeCount * 2);
+      sequences = Arrays.copyOf(sequences, nodeCount * 2);
+      nodeGenomeEnds = Arrays.copyOf(nodeGenomeEnds, nodeCount * 2);
+    }
+    nodeIds[nodeCount] = nodeId;
+    if (sequenceStore == null) {
+      sequences[nodeCount] = new BaseSequence(bytes, basesStart, index);
+    } else {
+      sequences[nodeCount]
+          = new LazyBaseSequence(sequenceStore, lineOffset + basesStart, index - basesStart);
+    }
+    nodeGenomeEnds[nodeCount++] = nodeGenomeCount;
+  }
+
+  /**
+   * Parse the genomes of a node and store their chunk local indices.
+   *
+   * @param bytes    the bytes of the node line in the GFA file.
+   * @param curIndex the current index; where the bases end in the line.
+   * @param length   the length of the line.
+   * @throws IllegalArgumentException if the line doesn't contain the genomes of the node.
+   */
+  private void parseNodeGenomes(byte[] bytes, int curIndex, int length) {
+    int index = curIndex;
+    index = MappedGfaReader.skipTillCharacter(bytes, index, length, ':', 2);
+    ++index;
+    int startIndex = index;
+    while (index < length && bytes[index] != '\t') {
+      ++index;
+      while (index < length && bytes[index] != '.' && bytes[index] != ';'
+          && bytes[index] != '\t') {
+        ++index;
+      }
+      String genome = new String(bytes, startIndex, index - startIndex, StandardCharsets.US_ASCII);
+      Integer genomeIndex = genomeIndices.get(genome);
+      if (genomeIndex == null) {
+        genomeIndex = genomeNames.size();
+        genomeNames.add(genome);
+        genomeIndices.put(genome, genomeIndex);
+      }
+      nodeGenomes = ensureCapacity(nodeGenomes, nodeGenomeCount + 1);
+      nodeGenomes[nodeGenomeCount++] = genomeIndex;
+      while (index < length && bytes[index] != ';' && bytes[index] != '\t') {
+        ++index;
+      }
+      startIndex = index + 1;
+    }
+  }
+
+  /**
+   * Parse the header lines of this chunk (in practice only the first chunk contains header lines).
+   * Must be called before the nodes of this chunk are added to the graph.
+   */
+  /*package*/ void addHeaders() {
+    for (byte[] header : headers) {
+      MappedGfaReader.parseHeader(header, header.length);
+    }
+  }
+
+  /**
+   * Give every parsed node its sequence and genomes. The chunk local genome indices are resolved to
+   * the identifiers in the {@link GenomeMap}.
+   *
+   * @param nodeSupplier supplies the node with the given identifier (creating it if needed).
+   */
+  /*package*/ void addNodes(IntFunction<Node> nodeSupplier) {
+    int[] genomeIds = getGenomeIds();
+    int genomeStart = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      Node node = nodeSupplier.apply(nodeIds[i]);
+      node.setSequence(sequences[i]);
+      ArrayList<Integer> genomes = new ArrayList<>(nodeGenomeEnds[i] - genomeStart);
+      for (int j = genomeStart; j < nodeGenomeEnds[i]; j++) {
+        genomes.add(genomeIds[nodeGenomes[j]]);
+      }
+      node.addAllGenomes(genomes);
+      genomeStart = nodeGenomeEnds[i];
+    }
+    sequences = null;
+  }
+
+  /**
+   * Pass the identifier, sequence and genomes of every parsed node to the given consumer. The
+   * chunk local genome indices are resolved to the identifiers in the {@link GenomeMap}.
+   *
+   * @param nodeConsumer the consumer of the nodes.
+   */
+  /*package*/ void forEachNode(NodeConsumer nodeConsumer) {
+    int[] genomeIds = getGenomeIds();
+    int genomeStart = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      int[] genomes = new int[nodeGenomeEnds[i] - genomeStart];
+      for (int j = 0; j < genomes.length; j++) {
+        genomes[j] = genomeIds[nodeGenomes[genomeStart + j]];
+      }
+      nodeConsumer.accept(nodeIds[i], sequences[i], GenomeSet.of(genomes));
+      genomeStart = nodeGenomeEnds[i];
+    }
+    sequences = null;
+  }
+
+  /**
+   * Get the identifiers in the {@link GenomeMap} of the chunk local genome indices. A genome which
+   * isn't declared in a header is added to the {@link GenomeMap}.
+   *
+   * @return the genome identifier of every chunk local genome index.
+   */
+  private int[] getGenomeIds() {
+    GenomeMap genomeMap = GenomeMap.getInstance();
+    int[] genomeIds = new int[genomeNames.size()];
+    for (int i = 0; i < genomeIds.length; i++) {
+      Integer genomeId = genomeMap.getId(genomeNames.get(i));
+      genomeIds[i] = genomeId == null ? genomeMap.addGenome(genomeNames.get(i)) : genomeId;
+    }
+    return genomeIds;
+  }
+
+  /**
+   * Get the largest identifier of the nodes which are defined or referred to by this chunk.
+   *
+   * @return the largest node identifier, or -1 if this chunk doesn't contain any node or edge.
+   */
+  /*package*/ int getMaxNodeId() {
+    int maxId = -1;
+    for (int i = 0; i < nodeCount; i++) {
+      maxId = Math.max(maxId, nodeIds[i]);
+    }
+    for (int i = 0; i < edgeCount; i++) {
+      maxId = Math.max(maxId, edges[i]);
+    }
+    return maxId;
+  }
+
+  /**
+   * Pass the identifiers of the nodes of every parsed edge to the given consumer.
+   *
+   * @param edgeConsumer the consumer of the edges.
+   */
+  /*package*/ void forEachEdge(EdgeConsumer edgeConsumer) {
+    for (int i = 0; i < edgeCount; i += 2) {
+      edgeConsumer.accept(edges[i], edges[i + 1]);
+    }
+  }
+
+  /**
+   * Add all of the parsed edges. Must be called after the nodes of all chunks have been added.
+   *
+   * @param nodeSupplier supplies the node with the given identifier (creating it if needed).
+   */
+  /*package*/ void addEdges(IntFunction<Node> nodeSupplier) {
+    for (int i = 0; i < edgeCount; i += 2) {
+      Node from = nodeSupplier.apply(edges[i]);
+      Node to = nodeSupplier.apply(edges[i + 1]);
+      to.addInEdge(from);
+      from.addOutEdge(to);
+    }
+  }
+
+  /**
+   * Make sure that the array can hold at least the given amount of elements.
+   *
+   * @param array    the array.
+   * @param capacity the needed capacity.
+   * @return the given array or a larger copy of it.
+   */
+  private static int[] ensureCapacity(int[] array, int capacity) {
+    if (capacity <= array.length) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(array.length * 2, capacity));
+  }
+
+  /**
+   * Consumer of the parsed nodes.
+   */
+  /*package*/ interface NodeConsumer {
+
+    /**
+     * Consume a parsed node.
+     *
+     * @param id       the identifier of the node.
+     * @param sequence the sequence of the node.
+     * @param genomes  the genomes of the node.
+     */
+    void accept(int id, BaseSequence sequence, GenomeSet genomes);
+  }
+
+  /**
+   * Consumer of the parsed edges.
+   */
+  /*package*/ interface EdgeConsumer {
+
+    /**
+     * Consume a parsed edge.
+     *
+     * @param from the identifier of the node at the start of the edge.
+     * @param to   the identifier of the node at the end of the edge.
+     */
+    void accept(int from, int to);
+  }
+}
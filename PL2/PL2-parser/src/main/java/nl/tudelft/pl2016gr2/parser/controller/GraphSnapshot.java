@@ -0,0 +1,386 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.data.LazyBaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A binary snapshot of a graph which is read from a gfa file. The snapshot is stored next to the
+ * gfa file and contains the genome names, and for every node its identifier, its encoded bases (as
+ * produced by {@link BaseSequence}), its genomes and its out edges. Reading a snapshot is a lot
+ * faster than parsing the gfa file, as nothing has to be parsed or encoded again. The bases of
+ * nodes which have a {@link LazyBaseSequence} into the gfa file are not stored in the snapshot:
+ * only their offset in the gfa file is stored, and they are read lazily again.
+ * <p>
+ * The size and modification time of the gfa file are stored in the snapshot, so a snapshot of a
+ * file which has been changed afterwards is ignored.
+ * </p>
+ */
+public class GraphSnapshot {
+
+  public static final String EXTENSION = ".snapshot";
+  private static final int MAGIC_NUMBER = 0x504c3253;
+  private static final int VERSION = 3;
+  private static final byte NO_SEQUENCE = 0;
+  private static final byte ENCODED_SEQUENCE = 1;
+  private static final byte LAZY_SEQUENCE = 2;
+  private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+  private static final int BUFFER_SIZE = 1 << 23;
+
+  private final Path gfaFile;
+  @TestId(id = "snapshotFile")
+  private final Path snapshotFile;
+  private SequenceStore sequenceStore;
+
+  /**
+   * Create a snapshot of the given gfa file. When a graph with lazy sequences is read, a sequence
+   * store of the gfa file is opened.
+   *
+   * @param gfaFile the gfa file.
+   */
+  public GraphSnapshot(Path gfaFile) {
+    this(gfaFile, null);
+  }
+
+  /**
+   * Create a snapshot of the given gfa file, which reads lazy sequences from the given store. The
+   * store is owned (and must be closed) by the caller.
+   *
+   * @param gfaFile       the gfa file.
+   * @param sequenceStore the store of the bases in the gfa file, or null to open a store when it
+   *                      is needed.
+   */
+  public GraphSnapshot(Path gfaFile, SequenceStore sequenceStore) {
+    this.gfaFile = gfaFile;
+    this.snapshotFile = gfaFile.resolveSibling(gfaFile.getFileName() + EXTENSION);
+    this.sequenceStore = sequenceStore;
+  }
+
+  /**
+   * Check if there is a snapshot of the gfa file, which was written after the last modification of
+   * the gfa file.
+   *
+   * @return if there is a valid snapshot of the gfa file.
+   */
+  public boolean isValid() {
+    if (!Files.isRegularFile(snapshotFile)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // read the complete header.
+      }
+      header.flip();
+      return isValidHeader(header);
+    } catch (IOException | RuntimeException ex) {
+      Logger.getLogger(GraphSnapshot.class.getName()).log(Level.WARNING, null, ex);
+      return false;
+    }
+  }
+
+  /**
+   * Read the graph from the snapshot. The genome map is filled with the genomes of the snapshot.
+   * The graph is read into a {@link CompactGraph}. A snapshot which can't be read, for example
+   * because it is truncated or corrupt, is deleted and the genome map is cleared, so the gfa file
+   * is parsed again.
+   *
+   * @return the read graph, or null if there is no valid snapshot of the gfa file.
+   */
+  public SequenceGraph read() {
+    if (!Files.isRegularFile(snapshotFile)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+      SnapshotBuffer buffer = new SnapshotBuffer(channel);
+      if (!isValidHeader(buffer.require(HEADER_SIZE))) {
+        return null;
+      }
+      readGenomes(buffer);
+      return readNodes(buffer);
+    } catch (IOException | RuntimeException ex) {
+      Logger.getLogger(GraphSnapshot.class.getName()).log(Level.WARNING, null, ex);
+      GenomeMap.getInstance().clear();
+      deleteSnapshot();
+      return null;
+    }
+  }
+
+  /**
+   * Delete the snapshot file. Failing to delete it is logged, but is not an error.
+   */
+  private void deleteSnapshot() {
+    try {
+      Files.deleteIfExists(snapshotFile);
+    } catch (IOException ex) {
+      Logger.getLogger(GraphSnapshot.class.getName()).log(Level.WARNING, null, ex);
+    }
+  }
+
+  /**
+   * Write a snapshot of the given graph, which must be the graph that is read from the gfa file. The
+   * snapshot is first written to a temporary file, which replaces the old snapshot when it is
+   * complete. Failing to write the snapshot is logged, but is not an error.
+   *
+   * @param graph the graph to write.
+   */
+  public void write(SequenceGraph graph) {
+    Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+          Files.newOutputStream(tempFile), BUFFER_SIZE))) {
+        output.writeInt(MAGIC_NUMBER);
+        output.writeInt(VERSION);
+        output.writeLong(Files.size(gfaFile));
+        output.writeLong(Files.getLastModifiedTime(gfaFile).toMillis());
+        writeGenomes(output);
+        writeNodes(output, graph);
+      }
+      Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException | RuntimeException ex) {
+      Logger.getLogger(GraphSnapshot.class.getName()).log(Level.WARNING, null, ex);
+      try {
+        Files.deleteIfExists(tempFile);
+      } catch (IOException deleteEx) {
+        Logger.getLogger(GraphSnapshot.class.getName()).log(Level.WARNING, null, deleteEx);
+      }
+    }
+  }
+
+  /**
+   * Check if the header of the snapshot matches the current gfa file.
+   *
+   * @param header the buffer containing the header.
+   * @return if the header matches the gfa file.
+   * @throws IOException if the attributes of the gfa file can not be read.
+   */
+  private boolean isValidHeader(ByteBuffer header) throws IOException {
+    return header.remaining() >= HEADER_SIZE
+        && header.getInt() == MAGIC_NUMBER
+        && header.getInt() == VERSION
+        && header.getLong() == Files.size(gfaFile)
+        && header.getLong() == Files.getLastModifiedTime(gfaFile).toMillis();
+  }
+
+  /**
+   * Write the names of all of the genomes in the genome map, ordered by their identifier.
+   *
+   * @param output the output to write to.
+   * @throws IOException if the output can not be written.
+   */
+  private static void writeGenomes(DataOutputStream output) throws IOException {
+    GenomeMap genomeMap = GenomeMap.getInstance();
+    Collection<Integer> genomes = genomeMap.copyAllGenomes();
+    output.writeInt(genomes.size());
+    for (int genome = 0; genome < genomes.size(); genome++) {
+      byte[] name = genomeMap.getGenome(genome).getBytes(StandardCharsets.UTF_8);
+      output.writeInt(name.length);
+      output.write(name);
+    }
+  }
+
+  /**
+   * Write all of the nodes of the graph.
+   *
+   * @param output the output to write to.
+   * @param graph  the graph.
+   * @throws IOException if the output can not be written.
+   */
+  private void writeNodes(DataOutputStream output, SequenceGraph graph) throws IOException {
+    output.writeInt(graph.size());
+    for (GraphNode graphNode : graph) {
+      SequenceNode node = (SequenceNode) graphNode;
+      output.writeInt(node.getId());
+      writeSequence(output, node.getBaseSequence());
+      int[] genomes = node.getGenomeSet().toArray();
+      output.writeInt(genomes.length);
+      for (int genome : genomes) {
+        output.writeInt(genome);
+      }
+      output.writeInt(node.getOutEdges().size());
+      for (GraphNode outEdge : node.getOutEdges()) {
+        output.writeInt(outEdge.getId());
+      }
+    }
+  }
+
+  /**
+   * Write the sequence of a node. A lazy sequence which refers to the gfa file is written as a
+   * reference to the gfa file, any other sequence is written in its encoded form.
+   *
+   * @param output   the output to write to.
+   * @param sequence the sequence to write (may be null).
+   * @throws IOException if the output can not be written.
+   */
+  private void writeSequence(DataOutputStream output, BaseSequence sequence) throws IOException {
+    if (sequence == null) {
+      output.writeByte(NO_SEQUENCE);
+    } else if (sequence instanceof LazyBaseSequence
+        && Files.isSameFile(((LazyBaseSequence) sequence).getStore().getFile(), gfaFile)) {
+      output.writeByte(LAZY_SEQUENCE);
+      output.writeLong(((LazyBaseSequence) sequence).getOffset());
+      output.writeInt(sequence.size());
+    } else {
+      output.writeByte(ENCODED_SEQUENCE);
+      sequence.write(output);
+    }
+  }
+
+  /**
+   * Read the genome names and put them in the (cleared) genome map.
+   *
+   * @param buffer the buffer to read from.
+   * @throws IOException if the snapshot can not be read.
+   */
+  private static void readGenomes(SnapshotBuffer buffer) throws IOException {
+    GenomeMap genomeMap = GenomeMap.getInstance();
+    genomeMap.clear();
+    int amountOfGenomes = buffer.require(Integer.BYTES).getInt();
+    for (int i = 0; i < amountOfGenomes; i++) {
+      int length = buffer.require(Integer.BYTES).getInt();
+      byte[] name = new byte[length];
+      buffer.require(length).get(name);
+      genomeMap.addGenome(new String(name, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Read all of the nodes into a compact graph, so no node objects have to be created.
+   *
+   * @param buffer the buffer to read from.
+   * @return the graph which contains the read nodes.
+   * @throws IOException if the snapshot can not be read.
+   */
+  private CompactGraph readNodes(SnapshotBuffer buffer) throws IOException {
+    int amountOfNodes = buffer.require(Integer.BYTES).getInt();
+    int[] nodeIds = new int[amountOfNodes];
+    BaseSequence[] sequences = new BaseSequence[amountOfNodes];
+    GenomeSet[] genomes = new GenomeSet[amountOfNodes];
+    int[][] outEdges = new int[amountOfNodes][];
+    for (int i = 0; i < amountOfNodes; i++) {
+      nodeIds[i] = buffer.require(Integer.BYTES).getInt();
+      sequences[i] = readSequence(buffer);
+      genomes[i] = GenomeSet.of(buffer.readInts());
+      outEdges[i] = buffer.readInts();
+    }
+    return new CompactGraph(nodeIds, sequences, genomes, outEdges,
+        GenomeMap.getInstance().copyAllGenomes());
+  }
+
+  /**
+   * Read the sequence of a node.
+   *
+   * @param buffer the buffer to read from.
+   * @return the read sequence, or null if the node has no sequence.
+   * @throws IOException if the snapshot can not be read.
+   */
+  private BaseSequence readSequence(SnapshotBuffer buffer) throws IOException {
+    switch (buffer.require(1).get()) {
+      case NO_SEQUENCE:
+        return null;
+      case ENCODED_SEQUENCE:
+        int serializedSize = BaseSequence.getSerializedSize(
+            buffer.require(BaseSequence.SERIALIZED_HEADER_SIZE));
+        return BaseSequence.read(buffer.require(serializedSize));
+      case LAZY_SEQUENCE:
+        ByteBuffer bytes = buffer.require(Long.BYTES + Integer.BYTES);
+        return new LazyBaseSequence(getSequenceStore(), bytes.getLong(), bytes.getInt());
+      default:
+        throw new IOException("Unknown sequence type in the snapshot file");
+    }
+  }
+
+  /**
+   * Get the store which reads the lazy sequences from the gfa file.
+   *
+   * @return the sequence store of the gfa file.
+   * @throws IOException if the gfa file can not be opened.
+   */
+  private SequenceStore getSequenceStore() throws IOException {
+    if (sequenceStore == null) {
+      sequenceStore = new SequenceStore(gfaFile);
+    }
+    return sequenceStore;
+  }
+
+  /**
+   * A buffer which reads the snapshot file piece by piece, so files of any size can be read with
+   * bulk reads into a direct buffer of limited size.
+   */
+  private static class SnapshotBuffer {
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Create a buffer which reads from the given channel.
+     *
+     * @param channel the channel to read from.
+     */
+    private SnapshotBuffer(FileChannel channel) {
+      this.channel = channel;
+      buffer.flip();
+    }
+
+    /**
+     * Make sure that the given amount of bytes is available in the buffer.
+     *
+     * @param bytes the amount of bytes which are needed.
+     * @return the buffer, which has at least the given amount of bytes remaining.
+     * @throws IOException if the file can not be read, or ends too early.
+     */
+    private ByteBuffer require(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        if (bytes > buffer.capacity()) {
+          ByteBuffer largerBuffer = ByteBuffer.allocateDirect(bytes);
+          largerBuffer.put(buffer);
+          buffer = largerBuffer;
+        } else {
+          buffer.compact();
+        }
+        while (buffer.position() < bytes) {
+          if (channel.read(buffer) < 0) {
+            throw new IOException("Unexpected end of the snapshot file");
+          }
+        }
+        buffer.flip();
+      }
+      return buffer;
+    }
+
+    /**
+     * Read an array of integers, which is preceded by its length.
+     *
+     * @return the read integers.
+     * @throws IOException if the file can not be read, or ends too early.
+     */
+    private int[] readInts() throws IOException {
+      int[] ints = new int[require(Integer.BYTES).getInt()];
+      ByteBuffer bytes = require(ints.length * Integer.BYTES);
+      bytes.asIntBuffer().get(ints);
+      bytes.position(bytes.position() + ints.length * Integer.BYTES);
+      return ints;
+    }
+  }
+}
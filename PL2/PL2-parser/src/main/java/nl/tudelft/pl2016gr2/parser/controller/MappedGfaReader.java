@@ -0,0 +1,391 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.LazyBaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Node;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class reads a gfa file by memory mapping it and scanning the raw bytes. Unlike the
+ * {@link GfaReader}, no line is ever decoded into a String or a character array: every line is
+ * copied (once) into a reusable byte buffer from which the nodes, edges and header are parsed. The
+ * file is mapped in chunks, so files larger than 2GB can be read as well. The resulting graph is
+ * equal to the graph which is read by the {@link GfaReader}.
+ * <p>
+ * When a {@link SequenceStore} is given, the bases of the nodes are not read into memory. Instead
+ * every node gets a {@link LazyBaseSequence}, which refers to the location of its bases in the
+ * file.
+ * </p>
+ */
+public class MappedGfaReader {
+
+  private static final int SHIFT_BY_BASE_10 = 10;
+  private static final long MAX_CHUNK_SIZE = 1L << 26;
+  private static final int INITIAL_LINE_SIZE = 1 << 12;
+
+  @TestId(id = "genomes")
+  private final HashMap<Integer, Node> nodes = new HashMap<>();
+  private final FileChannel channel;
+  private final long chunkSize;
+  private final SequenceStore sequenceStore;
+  @TestId(id = "originalGraph")
+  private SequenceGraph originalGraph;
+  @TestId(id = "line")
+  private byte[] line = new byte[INITIAL_LINE_SIZE];
+  private int lineLength;
+  private long lineOffset;
+  private boolean firstLine = true;
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file channel. The channel is
+   * closed after reading the file.
+   *
+   * @param channel the file channel to read.
+   */
+  public MappedGfaReader(FileChannel channel) {
+    this(channel, MAX_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file channel, mapping at most
+   * <code>chunkSize</code> bytes of the file at once. The channel is closed after reading the file.
+   *
+   * @param channel   the file channel to read.
+   * @param chunkSize the maximum amount of bytes to map at once.
+   */
+  public MappedGfaReader(FileChannel channel, long chunkSize) {
+    this(channel, chunkSize, null);
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file channel. The channel is
+   * closed after reading the file.
+   *
+   * @param channel       the file channel to read.
+   * @param chunkSize     the maximum amount of bytes to map at once.
+   * @param sequenceStore the store of the bases of the nodes, or null to read the bases into memory.
+   */
+  private MappedGfaReader(FileChannel channel, long chunkSize, SequenceStore sequenceStore) {
+    assert chunkSize > 0 && chunkSize <= Integer.MAX_VALUE;
+    this.channel = channel;
+    this.chunkSize = chunkSize;
+    this.sequenceStore = sequenceStore;
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file.
+   *
+   * @param file the file to read.
+   * @throws IOException if the file can not be opened.
+   */
+  public MappedGfaReader(Path file) throws IOException {
+    this(FileChannel.open(file, StandardOpenOption.READ));
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file. The bases of the nodes
+   * are not read into memory, but are retrieved from the given store when they are needed.
+   *
+   * @param file          the file to read.
+   * @param sequenceStore the store of the bases of the nodes, which must read from the same file.
+   * @throws IOException if the file can not be opened.
+   */
+  public MappedGfaReader(Path file, SequenceStore sequenceStore) throws IOException {
+    this(FileChannel.open(file, StandardOpenOption.READ), MAX_CHUNK_SIZE, sequenceStore);
+  }
+
+  /**
+   * Read the GFA file.
+   *
+   * @return the read graph.
+   */
+  public SequenceGraph read() {
+    if (originalGraph == null) {
+      try (FileChannel fileChannel = channel) {
+        parse(fileChannel);
+      } catch (IOException ex) {
+        Logger.getLogger(MappedGfaReader.class.getName()).log(Level.SEVERE, null, ex);
+      }
+      originalGraph = new HashGraph(nodes, GenomeMap.getInstance().copyAllGenomes());
+      originalGraph.iterator().forEachRemaining(GraphNode::trimToSize);
+    }
+    return originalGraph;
+  }
+
+  /**
+   * Parse a GFA file. The file is mapped chunk by chunk; a line which crosses the border of a chunk
+   * is kept in the line buffer and completed with the bytes of the next chunk.
+   *
+   * @param fileChannel the channel of the file to parse.
+   * @throws IOException if the file can not be mapped.
+   */
+  private void parse(FileChannel fileChannel) throws IOException {
+    long fileSize = fileChannel.size();
+    long position = 0;
+    while (position < fileSize) {
+      int mappedSize = (int) Math.min(chunkSize, fileSize - position);
+      MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position,
+          mappedSize);
+      int lineStart = 0;
+      for (int i = 0; i < mappedSize; i++) {
+        if (buffer.get(i) == '\n') {
+          appendToLine(buffer, lineStart, i);
+          parseLine();
+          lineStart = i + 1;
+          lineOffset = position + lineStart;
+        }
+      }
+      appendToLine(buffer, lineStart, mappedSize);
+      position += mappedSize;
+    }
+    parseLine();
+  }
+
+  /**
+   * Append the bytes of the mapped buffer between the given indices to the line buffer.
+   *
+   * @param buffer the mapped buffer.
+   * @param start  the index of the first byte to append.
+   * @param end    the index after the last byte to append.
+   */
+  private void appendToLine(MappedByteBuffer buffer, int start, int end) {
+    int length = end - start;
+    if (lineLength + length > line.length) {
+      byte[] newLine = new byte[Math.max(line.length * 2, lineLength + length)];
+      System.arraycopy(line, 0, newLine, 0, lineLength);
+      line = newLine;
+    }
+    buffer.position(start);
+    buffer.get(line, lineLength, length);
+    lineLength += length;
+  }
+
+  /**
+   * Parse the line which is currently stored in the line buffer and clear the line buffer. Just
+   * like the {@link GfaReader}, the first line of the file is skipped.
+   */
+  private void parseLine() {
+    int end = lineLength;
+    lineLength = 0;
+    if (end > 0 && line[end - 1] == '\r') {
+      --end;
+    }
+    if (firstLine) {
+      firstLine = false;
+      return;
+    }
+    if (end == 0) {
+      return;
+    }
+    try {
+      switch (line[0]) {
+        case 'L':
+          parseEdge(line, end);
+          break;
+        case 'S':
+          parseNode(line, end);
+          break;
+        case 'H':
+          parseHeader(line, end);
+          break;
+        default:
+          Logger.getLogger(MappedGfaReader.class.getName()).log(Level.WARNING,
+              "unknown line read at offset {0}: {1}", new Object[]{lineOffset,
+                new String(line, 0, end, StandardCharsets.US_ASCII)});
+      }
+    } catch (IllegalArgumentException ex) {
+      Logger.getLogger(MappedGfaReader.class.getName()).log(Level.WARNING,
+          "malformed line read at offset {0}: {1}", new Object[]{lineOffset,
+            new String(line, 0, end, StandardCharsets.US_ASCII)});
+    }
+  }
+
+  /**
+   * Parse a line of the GFA file that contains an edge.
+   *
+   * @param bytes bytes of the line.
+   * @param end   the index after the last byte of the line.
+   * @throws IllegalArgumentException if the line ends before the edge is complete.
+   */
+  @TestId(id = "parseEdge")
+  private void parseEdge(byte[] bytes, int end) {
+    int from = 0;
+    int index = 2;
+    while (byteAt(bytes, index, end) != '\t') {
+      from *= SHIFT_BY_BASE_10;
+      from += bytes[index++] - '0';
+    }
+    index += 3;
+    int to = 0;
+    while (byteAt(bytes, index, end) != '\t') {
+      to *= SHIFT_BY_BASE_10;
+      to += bytes[index++] - '0';
+    }
+    getNode(to).addInEdge(getNode(from));
+    getNode(from).addOutEdge(getNode(to));
+  }
+
+  /**
+   * Parse a line of the GFA file that contains a node.
+   *
+   * @param bytes bytes of the line.
+   * @param end   the index after the last byte of the line.
+   * @throws IllegalArgumentException if the line ends before the node is complete.
+   */
+  @TestId(id = "parseNode")
+  private void parseNode(byte[] bytes, int end) {
+    int nodeId = 0;
+    int index = 2;
+    while (byteAt(bytes, index, end) != '\t') {
+      nodeId *= SHIFT_BY_BASE_10;
+      nodeId += bytes[index++] - '0';
+    }
+    index++;
+
+    int basesStart = index;
+    index = skipTillCharacter(bytes, index, end, '\t', 1);
+    ArrayList<Integer> genomes = parseNodeGenomes(bytes, index, end);
+    Node node = getNode(nodeId);
+    if (sequenceStore == null) {
+      node.setSequence(new BaseSequence(bytes, basesStart, index));
+    } else {
+      node.setSequence(
+          new LazyBaseSequence(sequenceStore, lineOffset + basesStart, index - basesStart));
+    }
+    node.addAllGenomes(genomes);
+  }
+
+  /**
+   * Parse the genomes of a node. The genomes end at the next tab or at the end of the line.
+   *
+   * @param bytes    the bytes of the node line in the GFA file.
+   * @param curIndex the current index; where the bases end in the line.
+   * @param end      the index after the last byte of the line.
+   * @return the identifiers of the genomes of the node.
+   * @throws IllegalArgumentException if the line doesn't contain the genomes of the node.
+   */
+  @TestId(id = "parseNodeGenomes")
+  private static ArrayList<Integer> parseNodeGenomes(byte[] bytes, int curIndex, int end) {
+    int index = curIndex;
+    index = skipTillCharacter(bytes, index, end, ':', 2);
+    ++index;
+    int startIndex = index;
+    ArrayList<Integer> nodeGens = new ArrayList<>();
+    GenomeMap genomeMap = GenomeMap.getInstance();
+    while (index < end && bytes[index] != '\t') {
+      ++index;
+      while (index < end && bytes[index] != '.' && bytes[index] != ';' && bytes[index] != '\t') {
+        ++index;
+      }
+      nodeGens.add(genomeMap.getId(
+          new String(bytes, startIndex, index - startIndex, StandardCharsets.US_ASCII)));
+      while (index < end && bytes[index] != ';' && bytes[index] != '\t') {
+        ++index;
+      }
+      startIndex = index + 1;
+    }
+    return nodeGens;
+  }
+
+  /**
+   * Parse the header part of the GFA file, which contains all of the genomes.
+   *
+   * @param bytes the bytes of the header.
+   * @param end   the index after the last byte of the header.
+   * @throws IllegalArgumentException if the header doesn't contain the genomes.
+   */
+  @TestId(id = "parseHeader")
+  /*package*/ static void parseHeader(byte[] bytes, int end) {
+    // Clears the genome map from potential old entries.
+    GenomeMap.getInstance().clear();
+
+    int index = 0;
+    index = skipTillCharacter(bytes, index, end, ':', 2) + 1;
+    int start = index;
+    while (index < end) {
+      while (index < end && bytes[index] != '.' && bytes[index] != ';') {
+        ++index;
+      }
+      GenomeMap.getInstance().addGenome(
+          new String(bytes, start, index - start, StandardCharsets.US_ASCII));
+      while (index < end && bytes[index] != ';') {
+        ++index;
+      }
+      start = index + 1;
+      index += 2;
+    }
+  }
+
+  /**
+   * Skips all bytes till the given character is found.
+   *
+   * @param bytes      the array of bytes.
+   * @param startIndex the index at which to start in the array.
+   * @param end        the index after the last byte of the line.
+   * @param ch         the character to skip to.
+   * @param amount     the amount of times to skip the character.
+   * @return the index of the first occurence of the character after the given start index.
+   * @throws IllegalArgumentException if the line ends before the character is found.
+   */
+  /*package*/ static int skipTillCharacter(byte[] bytes, int startIndex, int end, char ch,
+      int amount) {
+    int index = startIndex;
+    for (int i = 0; i < amount; i++) {
+      ++index;
+      while (byteAt(bytes, index, end) != ch) {
+        ++index;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Get a byte of a line. The line buffer may contain bytes of a previous line after the end of
+   * the current line, so reading past the end of the line is an error.
+   *
+   * @param bytes the bytes of the line.
+   * @param index the index of the byte.
+   * @param end   the index after the last byte of the line.
+   * @return the byte at the given index.
+   * @throws IllegalArgumentException if the index is not within the line.
+   */
+  /*package*/ static byte byteAt(byte[] bytes, int index, int end) {
+    if (index >= end) {
+      throw new IllegalArgumentException("Unexpected end of line at index " + index);
+    }
+    return bytes[index];
+  }
+
+  /**
+   * Get a node, or create it if it doesn't exist yet.
+   *
+   * @param id the id of the node.
+   * @return the node.
+   */
+  @TestId(id = "getNode")
+  private Node getNode(int id) {
+    Node node = nodes.get(id);
+    if (node == null) {
+      node = new SequenceNode(id);
+      nodes.put(id, node);
+    }
+    return node;
+  }
+}
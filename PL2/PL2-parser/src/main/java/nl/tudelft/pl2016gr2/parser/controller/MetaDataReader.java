@@ -3,25 +3,45 @@ package nl.tudelft.pl2016gr2.parser.controller;
 import nl.tudelft.pl2016gr2.model.GenomeMap;
 import nl.tudelft.pl2016gr2.model.MetaData;
 
-import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import org.apache.poi.POIXMLDocument;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class MetaDataReader {
 
   private static final Logger logger = Logger.getLogger(MetaDataReader.class.getName());
+  private static final String HEADER_SPECIMEN_ID = "Specimen ID";
+  private static final int COLUMNS = 25;
+  /*package*/ static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+  private static final DateTimeFormatter[] DATE_FORMATS = {
+    DATE_FORMAT,
+    DateTimeFormatter.ISO_LOCAL_DATE,
+    DateTimeFormatter.ofPattern("d/M/yyyy")};
 
   private final InputStream stream;
 
@@ -36,7 +56,7 @@ public class MetaDataReader {
    *   This method will subsequently call various methods in this class
    *   to parse a single column, on a whole parsing a whole line.
    * </p>
-   * @param row the row to parse.
+   * @param row the text of the cells of the row to parse.
    * @return A single {@link MetaData} object that the given row represents.
    */
   /*
@@ -46,94 +66,95 @@ public class MetaDataReader {
    * this method Suppresses its warnings.
    */
   @SuppressWarnings("checkstyle:MethodLength")
-  private MetaData readRow(Row row) {
-    Iterator<Cell> iterator = row.cellIterator();
+  private MetaData readRow(String[] row) {
+    int column = 0;
 
     MetaData metaData = new MetaData();
 
-    parseSpecimenId(metaData, iterator.next());
-    parseAge(metaData, iterator.next());
-    parseSex(metaData, iterator.next());
-    parseHIVStatus(metaData, iterator.next());
-    parseCohort(metaData, iterator.next());
-    parseDateOfCollection(metaData, iterator.next());
-    parseStudyGeographicDistrict(metaData, iterator.next());
-    parseSpecimenType(metaData, iterator.next());
-    parseMicroscopySmearStatus(metaData, iterator.next());
-    iterator.next(); // swallow specimenId column
-    parseDNAIsolation(metaData, iterator.next());
-    parsePhenotypicDSTPattern(metaData, iterator.next());
-    parseCapreomycin(metaData, iterator.next());
-    parseEthambutol(metaData, iterator.next());
-    parseEthionamide(metaData, iterator.next());
-    parseIsoniazid(metaData, iterator.next());
-    parseKanamycin(metaData, iterator.next());
-    iterator.next(); // swallow specimenId column
-    parsePyrazinamide(metaData, iterator.next());
-    parseOfloxacin(metaData, iterator.next());
-    parseRifampin(metaData, iterator.next());
-    parseStreptomycin(metaData, iterator.next());
-    parseDigitalSpoligotype(metaData, iterator.next());
-    parseLineage(metaData, iterator.next());
-    parseGenotypicDSTPattern(metaData, iterator.next());
+    parseSpecimenId(metaData, row[column++]);
+    parseAge(metaData, row[column++]);
+    parseSex(metaData, row[column++]);
+    parseHIVStatus(metaData, row[column++]);
+    parseCohort(metaData, row[column++]);
+    parseDateOfCollection(metaData, row[column++]);
+    parseStudyGeographicDistrict(metaData, row[column++]);
+    parseSpecimenType(metaData, row[column++]);
+    parseMicroscopySmearStatus(metaData, row[column++]);
+    column++; // swallow specimenId column
+    parseDNAIsolation(metaData, row[column++]);
+    parsePhenotypicDSTPattern(metaData, row[column++]);
+    parseCapreomycin(metaData, row[column++]);
+    parseEthambutol(metaData, row[column++]);
+    parseEthionamide(metaData, row[column++]);
+    parseIsoniazid(metaData, row[column++]);
+    parseKanamycin(metaData, row[column++]);
+    column++; // swallow specimenId column
+    parsePyrazinamide(metaData, row[column++]);
+    parseOfloxacin(metaData, row[column++]);
+    parseRifampin(metaData, row[column++]);
+    parseStreptomycin(metaData, row[column++]);
+    parseDigitalSpoligotype(metaData, row[column++]);
+    parseLineage(metaData, row[column++]);
+    parseGenotypicDSTPattern(metaData, row[column++]);
 
     return metaData;
   }
 
-  private void parseSpecimenId(MetaData metaData, Cell cell) {
-    metaData.specimenId = cell.getStringCellValue();
+  private void parseSpecimenId(MetaData metaData, String value) {
+    metaData.specimenId = value;
   }
 
-  private void parseAge(MetaData metaData, Cell cell) {
-    if (cell.getCellType() == Cell.CELL_TYPE_NUMERIC) {
-      metaData.age = (int)cell.getNumericCellValue();
+  private void parseAge(MetaData metaData, String value) {
+    try {
+      metaData.age = (int) Double.parseDouble(value);
+    } catch (NumberFormatException ex) {
+      // the age is unknown
     }
   }
 
-  private void parseSex(MetaData metaData, Cell cell) {
-    if (cell.getCellType() == Cell.CELL_TYPE_STRING) {
-      metaData.sex = MetaData.Sex.valueOf(cell.getStringCellValue());
-    } else {
+  private void parseSex(MetaData metaData, String value) {
+    try {
+      metaData.sex = MetaData.Sex.valueOf(value);
+    } catch (IllegalArgumentException ex) {
       metaData.sex = MetaData.Sex.unknown;
     }
   }
 
   @SuppressWarnings("AbbreviationAsWordInName")
-  private void parseHIVStatus(MetaData metaData, Cell cell) {
-    metaData.hivStatus = MetaData.Status.valueOf(cell.getStringCellValue());
+  private void parseHIVStatus(MetaData metaData, String value) {
+    metaData.hivStatus = MetaData.Status.valueOf(value);
   }
 
-  private void parseCohort(MetaData metaData, Cell cell) {
-    metaData.cohort = cell.getStringCellValue();
+  private void parseCohort(MetaData metaData, String value) {
+    metaData.cohort = value;
   }
 
-  private void parseDateOfCollection(MetaData metaData, Cell cell) {
-    if (cell.getCellType() == Cell.CELL_TYPE_NUMERIC && HSSFDateUtil.isCellDateFormatted(cell)) {
-      metaData.dateOfCollection = cell.getDateCellValue();
-    } else {
+  private void parseDateOfCollection(MetaData metaData, String value) {
+    metaData.dateOfCollection = parseDate(value);
+    if (metaData.dateOfCollection == null) {
       logger.log(Level.WARNING, String.format(
               "Species %s with dateCell %s doesn't represent a date?",
               metaData.specimenId,
-              cell.toString())
+              value)
       );
     }
   }
 
-  private void parseStudyGeographicDistrict(MetaData metaData, Cell cell) {
-    metaData.studyGeographicDistrict = cell.getStringCellValue();
+  private void parseStudyGeographicDistrict(MetaData metaData, String value) {
+    metaData.studyGeographicDistrict = value;
   }
 
-  private void parseSpecimenType(MetaData metaData, Cell cell) {
-    metaData.specimenType = cell.getStringCellValue();
+  private void parseSpecimenType(MetaData metaData, String value) {
+    metaData.specimenType = value;
   }
 
-  private void parseMicroscopySmearStatus(MetaData metaData, Cell cell) {
-    metaData.microscopySmearStatus = MetaData.Status.valueOf(cell.getStringCellValue());
+  private void parseMicroscopySmearStatus(MetaData metaData, String value) {
+    metaData.microscopySmearStatus = MetaData.Status.valueOf(value);
   }
 
   @SuppressWarnings("AbbreviationAsWordInName")
-  private void parseDNAIsolation(MetaData metaData, Cell cell) {
-    switch (cell.getStringCellValue()) {
+  private void parseDNAIsolation(MetaData metaData, String value) {
+    switch (value) {
       case "single colony":
         metaData.dnaIsolation = MetaData.Isolation.Single;
         break;
@@ -146,57 +167,57 @@ public class MetaDataReader {
   }
 
   @SuppressWarnings("AbbreviationAsWordInName")
-  private void parsePhenotypicDSTPattern(MetaData metaData, Cell cell) {
-    metaData.phenotypicDSTPattern = cell.getStringCellValue();
+  private void parsePhenotypicDSTPattern(MetaData metaData, String value) {
+    metaData.phenotypicDSTPattern = value;
   }
 
-  private void parseCapreomycin(MetaData metaData, Cell cell) {
-    metaData.capreomycin = cell.getStringCellValue();
+  private void parseCapreomycin(MetaData metaData, String value) {
+    metaData.capreomycin = value;
   }
 
-  private void parseEthambutol(MetaData metaData, Cell cell) {
-    metaData.ethambutol = cell.getStringCellValue();
+  private void parseEthambutol(MetaData metaData, String value) {
+    metaData.ethambutol = value;
   }
 
-  private void parseEthionamide(MetaData metaData, Cell cell) {
-    metaData.ethionamide = cell.getStringCellValue();
+  private void parseEthionamide(MetaData metaData, String value) {
+    metaData.ethionamide = value;
   }
 
-  private void parseIsoniazid(MetaData metaData, Cell cell) {
-    metaData.isoniazid = cell.getStringCellValue();
+  private void parseIsoniazid(MetaData metaData, String value) {
+    metaData.isoniazid = value;
   }
 
-  private void parseKanamycin(MetaData metaData, Cell cell) {
-    metaData.kanamycin = cell.getStringCellValue();
+  private void parseKanamycin(MetaData metaData, String value) {
+    metaData.kanamycin = value;
   }
 
-  private void parsePyrazinamide(MetaData metaData, Cell cell) {
-    metaData.pyrazinamide = cell.getStringCellValue();
+  private void parsePyrazinamide(MetaData metaData, String value) {
+    metaData.pyrazinamide = value;
   }
 
-  private void parseOfloxacin(MetaData metaData, Cell cell) {
-    metaData.ofloxacin = cell.getStringCellValue();
+  private void parseOfloxacin(MetaData metaData, String value) {
+    metaData.ofloxacin = value;
   }
 
-  private void parseRifampin(MetaData metaData, Cell cell) {
-    metaData.rifampin = cell.getStringCellValue();
+  private void parseRifampin(MetaData metaData, String value) {
+    metaData.rifampin = value;
   }
 
-  private void parseStreptomycin(MetaData metaData, Cell cell) {
-    metaData.streptomycin = cell.getStringCellValue();
+  private void parseStreptomycin(MetaData metaData, String value) {
+    metaData.streptomycin = value;
   }
 
-  private void parseDigitalSpoligotype(MetaData metaData, Cell cell) {
-    metaData.digitalSpoligotype = cell.getStringCellValue();
+  private void parseDigitalSpoligotype(MetaData metaData, String value) {
+    metaData.digitalSpoligotype = value;
   }
 
-  private void parseLineage(MetaData metaData, Cell cell) {
-    metaData.lineage = cell.getStringCellValue();
+  private void parseLineage(MetaData metaData, String value) {
+    metaData.lineage = value;
   }
 
   @SuppressWarnings("AbbreviationAsWordInName")
-  private void parseGenotypicDSTPattern(MetaData metaData, Cell cell) {
-    metaData.genotypicDSTPattern = cell.getStringCellValue();
+  private void parseGenotypicDSTPattern(MetaData metaData, String value) {
+    metaData.genotypicDSTPattern = value;
   }
 
   /**
@@ -207,27 +228,210 @@ public class MetaDataReader {
    * @throws InvalidFormatException when the given file is not the proper format.
    */
   public List<MetaData> read() throws IOException, InvalidFormatException {
-    Workbook wb = WorkbookFactory.create(stream);
-    Sheet sheet = wb.getSheetAt(wb.getActiveSheetIndex());
     List<MetaData> out = new ArrayList<>();
     long startTime = System.currentTimeMillis();
+    read(out::add);
+    long stopTime = System.currentTimeMillis();
+    logger.log(Level.INFO, String.format("Took %d milliseconds to read %d annotations",
+        stopTime - startTime,
+        out.size()));
+    return out;
+  }
 
+  /**
+   * Reads the file given in the constructor and passes every {@link MetaData} to the consumer as
+   * soon as its row has been read. Only the rows of the genomes in the {@link GenomeMap} are
+   * parsed.
+   *
+   * <p>
+   *   The format of the file is derived from its first bytes. An xlsx workbook is read with a
+   *   SAX parser (see {@link XlsxSheetReader}) and a file which isn't a workbook is read as a
+   *   CSV file, or as a TSV file if its first line contains a tab. Only an old xls workbook is
+   *   completely loaded in memory before its rows are read.
+   * </p>
+   *
+   * @param consumer the consumer of the metadata.
+   * @throws IOException on io erros
+   * @throws InvalidFormatException when the given file is not the proper format.
+   */
+  public void read(Consumer<MetaData> consumer) throws IOException, InvalidFormatException {
     GenomeMap genomeMap = GenomeMap.getInstance();
+    Consumer<String[]> rowConsumer = row -> {
+      String specimenId = row[0];
+      if (!specimenId.isEmpty() && !specimenId.equals(HEADER_SPECIMEN_ID)
+          && genomeMap.getId(specimenId) != null) {
+        consumer.accept(readRow(row));
+      }
+    };
+    try (InputStream input = new BufferedInputStream(stream)) {
+      if (POIXMLDocument.hasOOXMLHeader(input)) {
+        XlsxSheetReader.read(input, COLUMNS, rowConsumer);
+      } else if (POIFSFileSystem.hasPOIFSHeader(input)) {
+        readWorkbook(input, rowConsumer);
+      } else {
+        readDelimited(input, rowConsumer);
+      }
+    }
+  }
+
+  /**
+   * Reads the active sheet of a workbook which is completely loaded in memory.
+   *
+   * @param input       the stream of the workbook.
+   * @param rowConsumer the consumer of the rows.
+   * @throws IOException on io erros
+   * @throws InvalidFormatException when the given file is not the proper format.
+   */
+  private void readWorkbook(InputStream input, Consumer<String[]> rowConsumer)
+      throws IOException, InvalidFormatException {
+    Workbook wb = WorkbookFactory.create(input);
+    Sheet sheet = wb.getSheetAt(wb.getActiveSheetIndex());
     for (Row row : sheet) {
-      Cell firstCell = row.getCell(row.getFirstCellNum());
-      if (firstCell.getCellType() == Cell.CELL_TYPE_STRING
-          && !firstCell.getStringCellValue().equals("Specimen ID")) {
-        MetaData metaData = readRow(row);
-        if (genomeMap.getId(metaData.specimenId) != null) {
-          out.add(metaData);
+      String[] values = new String[COLUMNS];
+      for (int column = 0; column < COLUMNS; column++) {
+        values[column] = getCellValue(row.getCell(column));
+      }
+      rowConsumer.accept(values);
+    }
+  }
+
+  /**
+   * Get the text of a cell of a workbook, in the same form as the {@link XlsxSheetReader}.
+   *
+   * @param cell the cell, or null if the cell doesn't exist.
+   * @return the text of the cell.
+   */
+  private static String getCellValue(Cell cell) {
+    if (cell == null) {
+      return "";
+    }
+    int type = cell.getCellType();
+    if (type == Cell.CELL_TYPE_FORMULA) {
+      type = cell.getCachedFormulaResultType();
+    }
+    switch (type) {
+      case Cell.CELL_TYPE_STRING:
+        return cell.getStringCellValue();
+      case Cell.CELL_TYPE_NUMERIC:
+        if (DateUtil.isCellDateFormatted(cell)) {
+          return formatDate(cell.getDateCellValue());
+        }
+        return formatNumber(cell.getNumericCellValue());
+      case Cell.CELL_TYPE_BOOLEAN:
+        return cell.getBooleanCellValue() ? "TRUE" : "FALSE";
+      default:
+        return "";
+    }
+  }
+
+  /**
+   * Reads a CSV or TSV file line by line. Fields may be quoted with double quotes, in which case
+   * they may contain the delimiter and escaped (doubled) quotes, but no line breaks.
+   *
+   * @param input       the stream of the file.
+   * @param rowConsumer the consumer of the rows.
+   * @throws IOException on io erros
+   */
+  private void readDelimited(InputStream input, Consumer<String[]> rowConsumer)
+      throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input,
+        StandardCharsets.UTF_8));
+    String line = reader.readLine();
+    if (line == null) {
+      return;
+    }
+    char delimiter = line.indexOf('\t') == -1 ? ',' : '\t';
+    StringBuilder field = new StringBuilder();
+    do {
+      String[] values = new String[COLUMNS];
+      Arrays.fill(values, "");
+      int column = 0;
+      int index = 0;
+      while (index <= line.length() && column < COLUMNS) {
+        index = readField(line, index, delimiter, field);
+        values[column++] = field.toString();
+      }
+      rowConsumer.accept(values);
+    } while ((line = reader.readLine()) != null);
+  }
+
+  /**
+   * Read a field of a delimited line.
+   *
+   * @param line      the line.
+   * @param start     the index of the first character of the field.
+   * @param delimiter the delimiter of the fields.
+   * @param field     the builder in which to store the field.
+   * @return the index of the first character of the next field.
+   */
+  private static int readField(String line, int start, char delimiter, StringBuilder field) {
+    field.setLength(0);
+    int index = start;
+    if (index < line.length() && line.charAt(index) == '"') {
+      index++;
+      while (index < line.length()) {
+        char character = line.charAt(index++);
+        if (character != '"') {
+          field.append(character);
+        } else if (index < line.length() && line.charAt(index) == '"') {
+          field.append('"');
+          index++;
+        } else {
+          break;
         }
       }
     }
-    long stopTime = System.currentTimeMillis();
-    logger.log(Level.INFO, String.format("Took %d milliseconds to read %d annotations",
-        stopTime - startTime,
-        out.size()));
-    return out;
+    int end = line.indexOf(delimiter, index);
+    if (end == -1) {
+      end = line.length();
+    }
+    field.append(line, index, end);
+    return end + 1;
   }
 
+  /**
+   * Parse a date, which is written as {@link #DATE_FORMAT}, as an ISO date or as day/month/year.
+   *
+   * @param value the text of the date.
+   * @return the date, or null if the text isn't a date.
+   */
+  private static Date parseDate(String value) {
+    for (DateTimeFormatter format : DATE_FORMATS) {
+      try {
+        LocalDateTime dateTime;
+        if (format == DATE_FORMAT) {
+          dateTime = LocalDateTime.parse(value, format);
+        } else {
+          dateTime = LocalDate.parse(value, format).atStartOfDay();
+        }
+        return Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+      } catch (DateTimeParseException ex) {
+        // try the next format
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Format a date of a cell as {@link #DATE_FORMAT}.
+   *
+   * @param date the date.
+   * @return the formatted date.
+   */
+  /*package*/ static String formatDate(Date date) {
+    return DATE_FORMAT.format(date.toInstant().atZone(ZoneId.systemDefault()));
+  }
+
+  /**
+   * Format a number of a cell, without a fraction if it doesn't have one.
+   *
+   * @param number the number.
+   * @return the formatted number.
+   */
+  /*package*/ static String formatNumber(double number) {
+    if (number == Math.rint(number) && Math.abs(number) < Long.MAX_VALUE) {
+      return Long.toString((long) number);
+    }
+    return Double.toString(number);
+  }
 }
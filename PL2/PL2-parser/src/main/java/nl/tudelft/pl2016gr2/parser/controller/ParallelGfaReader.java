@@ -0,0 +1,345 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.data.LazyBaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Node;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class reads a gfa file in parallel. The file is split into chunks at line boundaries, which
+ * are parsed on a {@link ForkJoinPool} into chunk local buffers. Afterwards the chunks are merged
+ * into the graph in two phases: first the nodes of all chunks are created, then the edges between
+ * them are added. The resulting graph is equal to the graph which is read by the
+ * {@link GfaReader}. Alternatively, the chunks can be merged straight into a {@link CompactGraph}
+ * (see {@link #readCompact()}), so no node objects are created at all.
+ * <p>
+ * When a {@link SequenceStore} is given, the bases of the nodes are not read into memory. Instead
+ * every node gets a {@link LazyBaseSequence}, which refers to the location of its bases in the
+ * file.
+ * </p>
+ */
+public class ParallelGfaReader {
+
+  private static final long MAX_CHUNK_SIZE = 1L << 26;
+  private static final long MIN_CHUNK_SIZE = 1L << 20;
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int SEARCH_BUFFER_SIZE = 1 << 12;
+
+  @TestId(id = "genomes")
+  private final HashMap<Integer, Node> nodes = new HashMap<>();
+  private final FileChannel channel;
+  private final ForkJoinPool pool;
+  private final long chunkSize;
+  private final SequenceStore sequenceStore;
+  @TestId(id = "originalGraph")
+  private SequenceGraph originalGraph;
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file, using the common fork
+   * join pool.
+   *
+   * @param file the file to read.
+   * @throws IOException if the file can not be opened.
+   */
+  public ParallelGfaReader(Path file) throws IOException {
+    this(FileChannel.open(file, StandardOpenOption.READ), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file, using the given fork
+   * join pool. The bases of the nodes are not read into memory, but are retrieved from the given
+   * store when they are needed.
+   *
+   * @param file          the file to read.
+   * @param pool          the pool in which the chunks of the file are parsed.
+   * @param sequenceStore the store of the bases of the nodes, which must read from the same file.
+   * @throws IOException if the file can not be opened.
+   */
+  public ParallelGfaReader(Path file, ForkJoinPool pool, SequenceStore sequenceStore)
+      throws IOException {
+    this(FileChannel.open(file, StandardOpenOption.READ), pool, 0, sequenceStore);
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file channel. The channel is
+   * closed after reading the file.
+   *
+   * @param channel the file channel to read.
+   * @param pool    the pool in which the chunks of the file are parsed.
+   */
+  public ParallelGfaReader(FileChannel channel, ForkJoinPool pool) {
+    this(channel, pool, 0);
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file channel. The channel is
+   * closed after reading the file.
+   *
+   * @param channel   the file channel to read.
+   * @param pool      the pool in which the chunks of the file are parsed.
+   * @param chunkSize the (approximate) size of a chunk in bytes, or 0 to base the size of the
+   *                  chunks on the size of the file and the parallelism of the pool.
+   */
+  public ParallelGfaReader(FileChannel channel, ForkJoinPool pool, long chunkSize) {
+    this(channel, pool, chunkSize, null);
+  }
+
+  /**
+   * Creates a reader object which reads the gfa data from the given file channel. The channel is
+   * closed after reading the file.
+   *
+   * @param channel       the file channel to read.
+   * @param pool          the pool in which the chunks of the file are parsed.
+   * @param chunkSize     the (approximate) size of a chunk in bytes, or 0 to base the size of the
+   *                      chunks on the size of the file and the parallelism of the pool.
+   * @param sequenceStore the store of the bases of the nodes, or null to read the bases into
+   *                      memory.
+   */
+  private ParallelGfaReader(FileChannel channel, ForkJoinPool pool, long chunkSize,
+      SequenceStore sequenceStore) {
+    assert chunkSize >= 0 && chunkSize <= MAX_CHUNK_SIZE;
+    this.channel = channel;
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+    this.sequenceStore = sequenceStore;
+  }
+
+  /**
+   * Read the GFA file.
+   *
+   * @return the read graph.
+   */
+  public SequenceGraph read() {
+    if (originalGraph == null) {
+      try (FileChannel fileChannel = channel) {
+        merge(parse(fileChannel));
+      } catch (IOException | UncheckedIOException ex) {
+        Logger.getLogger(ParallelGfaReader.class.getName()).log(Level.SEVERE, null, ex);
+      }
+      originalGraph = new HashGraph(nodes, GenomeMap.getInstance().copyAllGenomes());
+      originalGraph.iterator().forEachRemaining(GraphNode::trimToSize);
+    }
+    return originalGraph;
+  }
+
+  /**
+   * Read the GFA file into a {@link CompactGraph}. The graph is built from the parsed chunks
+   * directly, so unlike {@link #read()} no node objects are created. Nodes which are only referred
+   * to by edges are added without a sequence and genomes, just like {@link #read()} does. The nodes
+   * are ordered by their identifier.
+   *
+   * @return the read graph.
+   * @throws IOException if the file can not be read.
+   */
+  public CompactGraph readCompact() throws IOException {
+    ArrayList<GfaChunk> chunks;
+    try (FileChannel fileChannel = channel) {
+      chunks = parse(fileChannel);
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    chunks.forEach(GfaChunk::addHeaders);
+    int maxId = -1;
+    for (GfaChunk chunk : chunks) {
+      maxId = Math.max(maxId, chunk.getMaxNodeId());
+    }
+    boolean[] exists = new boolean[maxId + 1];
+    BaseSequence[] sequenceOfId = new BaseSequence[maxId + 1];
+    GenomeSet[] genomesOfId = new GenomeSet[maxId + 1];
+    int[] outDegrees = new int[maxId + 1];
+    for (GfaChunk chunk : chunks) {
+      chunk.forEachNode((id, sequence, genomes) -> {
+        exists[id] = true;
+        sequenceOfId[id] = sequence;
+        genomesOfId[id] = genomesOfId[id] == null ? genomes : genomesOfId[id].or(genomes);
+      });
+      chunk.forEachEdge((from, to) -> {
+        exists[from] = true;
+        exists[to] = true;
+        outDegrees[from]++;
+      });
+    }
+    int[][] outEdgesOfId = new int[maxId + 1][];
+    for (int id = 0; id <= maxId; id++) {
+      outEdgesOfId[id] = new int[outDegrees[id]];
+      outDegrees[id] = 0;
+    }
+    for (GfaChunk chunk : chunks) {
+      chunk.forEachEdge((from, to) -> outEdgesOfId[from][outDegrees[from]++] = to);
+    }
+    return createCompactGraph(exists, sequenceOfId, genomesOfId, outEdgesOfId);
+  }
+
+  /**
+   * Create a compact graph of the merged chunks. All of the arrays are indexed by node identifier.
+   *
+   * @param exists       if a node with the identifier exists.
+   * @param sequenceOfId the sequence of every node.
+   * @param genomesOfId  the genomes of every node (null if the node has no genomes).
+   * @param outEdgesOfId the identifiers of the out edges of every node (may contain duplicates).
+   * @return the compact graph.
+   */
+  private static CompactGraph createCompactGraph(boolean[] exists, BaseSequence[] sequenceOfId,
+      GenomeSet[] genomesOfId, int[][] outEdgesOfId) {
+    int amountOfNodes = 0;
+    for (boolean nodeExists : exists) {
+      if (nodeExists) {
+        amountOfNodes++;
+      }
+    }
+    int[] ids = new int[amountOfNodes];
+    BaseSequence[] sequences = new BaseSequence[amountOfNodes];
+    GenomeSet[] genomeSets = new GenomeSet[amountOfNodes];
+    int[][] outEdges = new int[amountOfNodes][];
+    int index = 0;
+    for (int id = 0; id < exists.length; id++) {
+      if (exists[id]) {
+        ids[index] = id;
+        sequences[index] = sequenceOfId[id];
+        genomeSets[index] = genomesOfId[id] == null ? GenomeSet.empty() : genomesOfId[id];
+        outEdges[index] = removeDuplicates(outEdgesOfId[id]);
+        index++;
+      }
+    }
+    return new CompactGraph(ids, sequences, genomeSets, outEdges,
+        GenomeMap.getInstance().copyAllGenomes());
+  }
+
+  /**
+   * Sort the given array and remove the duplicates from it.
+   *
+   * @param array the array.
+   * @return the sorted array without duplicates (which may be the given array).
+   */
+  private static int[] removeDuplicates(int[] array) {
+    Arrays.sort(array);
+    int size = 0;
+    for (int i = 0; i < array.length; i++) {
+      if (size == 0 || array[size - 1] != array[i]) {
+        array[size++] = array[i];
+      }
+    }
+    return size == array.length ? array : Arrays.copyOf(array, size);
+  }
+
+  /**
+   * Split the file into chunks and parse all of the chunks in parallel.
+   *
+   * @param fileChannel the channel of the file to parse.
+   * @return the parsed chunks, in file order.
+   * @throws IOException if the file can not be read.
+   */
+  private ArrayList<GfaChunk> parse(FileChannel fileChannel) throws IOException {
+    ArrayList<GfaChunk> chunks = split(fileChannel);
+    chunks.forEach(pool::execute);
+    chunks.forEach(GfaChunk::join);
+    return chunks;
+  }
+
+  /**
+   * Merge the parsed chunks into the graph. The header and nodes of the chunks are added in file
+   * order, after which the edges are added (so all of the nodes already exist).
+   *
+   * @param chunks the parsed chunks.
+   */
+  private void merge(ArrayList<GfaChunk> chunks) {
+    for (GfaChunk chunk : chunks) {
+      chunk.addHeaders();
+      chunk.addNodes(this::getNode);
+    }
+    for (GfaChunk chunk : chunks) {
+      chunk.addEdges(this::getNode);
+    }
+  }
+
+  /**
+   * Split the file into chunks. Every chunk ends at the end of a line.
+   *
+   * @param fileChannel the channel of the file to split.
+   * @return the chunks of the file.
+   * @throws IOException if the file can not be read.
+   */
+  @TestId(id = "split")
+  private ArrayList<GfaChunk> split(FileChannel fileChannel) throws IOException {
+    long fileSize = fileChannel.size();
+    long size = chunkSize;
+    if (size == 0) {
+      size = fileSize / (pool.getParallelism() * CHUNKS_PER_THREAD);
+      size = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size));
+    }
+    ArrayList<GfaChunk> chunks = new ArrayList<>();
+    long start = 0;
+    while (start < fileSize) {
+      long end = findLineEnd(fileChannel, Math.min(start + size, fileSize) - 1, fileSize);
+      chunks.add(new GfaChunk(fileChannel, start, end, start == 0, sequenceStore));
+      start = end;
+    }
+    return chunks;
+  }
+
+  /**
+   * Find the position after the first line break at or after the given position.
+   *
+   * @param fileChannel the channel of the file.
+   * @param position    the position from where to search.
+   * @param fileSize    the size of the file.
+   * @return the position after the line break, or the size of the file if there is no line break.
+   * @throws IOException if the file can not be read.
+   */
+  private static long findLineEnd(FileChannel fileChannel, long position, long fileSize)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+    long bufferStart = position;
+    while (bufferStart < fileSize) {
+      buffer.clear();
+      int read = fileChannel.read(buffer, bufferStart);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return bufferStart + i + 1;
+        }
+      }
+      bufferStart += read;
+    }
+    return fileSize;
+  }
+
+  /**
+   * Get a node, or create it if it doesn't exist yet.
+   *
+   * @param id the id of the node.
+   * @return the node.
+   */
+  @TestId(id = "getNode")
+  private Node getNode(int id) {
+    Node node = nodes.get(id);
+    if (node == null) {
+      node = new SequenceNode(id);
+      nodes.put(id, node);
+    }
+    return node;
+  }
+}
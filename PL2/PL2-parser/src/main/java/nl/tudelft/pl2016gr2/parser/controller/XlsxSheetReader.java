@@ -0,0 +1,278 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Reads the rows of the active sheet of an xlsx workbook with a SAX parser, so the rows are passed
+ * on while the sheet is parsed and the workbook is never stored as a tree of rows and cells. Only
+ * the shared strings and the cell styles of the workbook are kept in memory.
+ * <p>
+ * Every row is passed on as an array with the text of the cells in the first columns of the row
+ * (the cell in column A at index 0). Missing cells are empty strings, numbers are written without
+ * a fraction if they don't have one and dates are written as
+ * {@link MetaDataReader#DATE_FORMAT}.
+ * </p>
+ */
+/*package*/ class XlsxSheetReader extends DefaultHandler {
+
+  private static final int NO_STYLE = -1;
+  private static final int COLUMN_BASE = 26;
+  private static final String DISALLOW_DOCTYPE_DECLARATION
+      = "http://apache.org/xml/features/disallow-doctype-decl";
+
+  private final ReadOnlySharedStringsTable sharedStrings;
+  private final StylesTable styles;
+  private final int columns;
+  private final Consumer<String[]> rowConsumer;
+  private final StringBuilder cellText = new StringBuilder();
+
+  private String[] row;
+  private int column;
+  private String cellType;
+  private int cellStyle;
+  private boolean readingText;
+
+  /**
+   * Create a sheet reader.
+   *
+   * @param sharedStrings the shared strings of the workbook.
+   * @param styles        the cell styles of the workbook.
+   * @param columns       the amount of columns of every row to pass on.
+   * @param rowConsumer   the consumer of the rows.
+   */
+  private XlsxSheetReader(ReadOnlySharedStringsTable sharedStrings, StylesTable styles,
+      int columns, Consumer<String[]> rowConsumer) {
+    this.sharedStrings = sharedStrings;
+    this.styles = styles;
+    this.columns = columns;
+    this.rowConsumer = rowConsumer;
+  }
+
+  /**
+   * Read the rows of the active sheet of an xlsx workbook. This is the sheet which was selected
+   * when the workbook was saved, or the first sheet if the workbook doesn't specify it.
+   *
+   * @param stream      the stream of the workbook.
+   * @param columns     the amount of columns of every row to pass on.
+   * @param rowConsumer the consumer of the rows.
+   * @throws IOException            if the workbook can't be read.
+   * @throws InvalidFormatException if the stream doesn't contain an xlsx workbook.
+   */
+  /*package*/ static void read(InputStream stream, int columns, Consumer<String[]> rowConsumer)
+      throws IOException, InvalidFormatException {
+    OPCPackage workbook = OPCPackage.open(stream);
+    try {
+      XSSFReader reader = new XSSFReader(workbook);
+      XlsxSheetReader sheetReader = new XlsxSheetReader(new ReadOnlySharedStringsTable(workbook),
+          reader.getStylesTable(), columns, rowConsumer);
+      SAXParserFactory parserFactory = createParserFactory();
+      int activeSheet = getActiveSheetIndex(reader, parserFactory);
+      XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+      for (int i = 0; sheets.hasNext(); i++) {
+        try (InputStream sheet = sheets.next()) {
+          if (i == activeSheet) {
+            parserFactory.newSAXParser().parse(new InputSource(sheet), sheetReader);
+            break;
+          }
+        }
+      }
+    } catch (OpenXML4JException ex) {
+      throw new InvalidFormatException(ex.getMessage());
+    } catch (SAXException | ParserConfigurationException ex) {
+      throw new IOException(ex);
+    } finally {
+      workbook.revert();
+    }
+  }
+
+  /**
+   * Get the index of the active sheet of a workbook, which is the active tab of the first view of
+   * the workbook.
+   *
+   * @param reader        the reader of the workbook.
+   * @param parserFactory the factory of the parser of the workbook part.
+   * @return the index of the active sheet.
+   * @throws IOException                  if the workbook part can't be read.
+   * @throws InvalidFormatException       if the workbook doesn't contain a workbook part.
+   * @throws SAXException                 if the workbook part can't be parsed.
+   * @throws ParserConfigurationException if no parser can be created.
+   */
+  private static int getActiveSheetIndex(XSSFReader reader, SAXParserFactory parserFactory)
+      throws IOException, InvalidFormatException, SAXException, ParserConfigurationException {
+    int[] activeSheet = new int[1];
+    try (InputStream workbook = reader.getWorkbookData()) {
+      parserFactory.newSAXParser().parse(new InputSource(workbook), new DefaultHandler() {
+        private boolean foundView;
+
+        @Override
+        public void startElement(String uri, String localName, String qualifiedName,
+            Attributes attributes) {
+          if (!foundView && "workbookView".equals(localName)) {
+            foundView = true;
+            String activeTab = attributes.getValue("activeTab");
+            if (activeTab != null) {
+              activeSheet[0] = Integer.parseInt(activeTab);
+            }
+          }
+        }
+      });
+    }
+    return activeSheet[0];
+  }
+
+  /**
+   * Create a factory of namespace aware SAX parsers which process the workbook securely. A
+   * workbook part never contains a document type declaration, so these are rejected, which rules
+   * out any external entities.
+   *
+   * @return the parser factory.
+   * @throws ParserConfigurationException if the parser doesn't support secure processing.
+   * @throws SAXException                 if the parser doesn't support rejecting document type
+   *                                      declarations.
+   */
+  private static SAXParserFactory createParserFactory()
+      throws ParserConfigurationException, SAXException {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+    factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    factory.setFeature(DISALLOW_DOCTYPE_DECLARATION, true);
+    return factory;
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qualifiedName,
+      Attributes attributes) {
+    switch (localName) {
+      case "row":
+        row = new String[columns];
+        column = 0;
+        break;
+      case "c":
+        String reference = attributes.getValue("r");
+        if (reference != null) {
+          column = getColumn(reference);
+        }
+        cellType = attributes.getValue("t");
+        String style = attributes.getValue("s");
+        cellStyle = style == null ? NO_STYLE : Integer.parseInt(style);
+        cellText.setLength(0);
+        break;
+      case "v":
+      case "t":
+        readingText = true;
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public void characters(char[] characters, int start, int length) {
+    if (readingText) {
+      cellText.append(characters, start, length);
+    }
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qualifiedName) {
+    switch (localName) {
+      case "v":
+      case "t":
+        readingText = false;
+        break;
+      case "c":
+        if (column < columns) {
+          row[column] = getCellValue();
+        }
+        column++;
+        break;
+      case "row":
+        for (int i = 0; i < columns; i++) {
+          if (row[i] == null) {
+            row[i] = "";
+          }
+        }
+        rowConsumer.accept(row);
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Get the text of the cell which has just been read.
+   *
+   * @return the text of the cell.
+   */
+  private String getCellValue() {
+    String text = cellText.toString();
+    if (cellType == null || "n".equals(cellType)) {
+      return text.isEmpty() ? text : formatNumber(Double.parseDouble(text));
+    }
+    switch (cellType) {
+      case "s":
+        return sharedStrings.getEntryAt(Integer.parseInt(text));
+      case "b":
+        return "1".equals(text) ? "TRUE" : "FALSE";
+      case "e":
+        return "";
+      default:
+        return text;
+    }
+  }
+
+  /**
+   * Format a number of the cell which has just been read, as a date if the cell has a date
+   * format.
+   *
+   * @param number the number.
+   * @return the formatted number.
+   */
+  private String formatNumber(double number) {
+    if (cellStyle != NO_STYLE) {
+      XSSFCellStyle style = styles.getStyleAt(cellStyle);
+      String format = style.getDataFormatString();
+      if (format != null && DateUtil.isADateFormat(style.getDataFormat(), format)
+          && DateUtil.isValidExcelDate(number)) {
+        return MetaDataReader.formatDate(DateUtil.getJavaDate(number));
+      }
+    }
+    return MetaDataReader.formatNumber(number);
+  }
+
+  /**
+   * Get the index of the column of a cell reference (for example 2 for "C12").
+   *
+   * @param reference the cell reference.
+   * @return the index of the column.
+   */
+  private static int getColumn(String reference) {
+    int index = 0;
+    for (int i = 0; i < reference.length(); i++) {
+      char character = reference.charAt(i);
+      if (character < 'A' || character > 'Z') {
+        break;
+      }
+      index = index * COLUMN_BASE + character - 'A' + 1;
+    }
+    return index - 1;
+  }
+}
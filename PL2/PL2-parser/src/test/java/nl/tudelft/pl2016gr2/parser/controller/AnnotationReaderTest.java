@@ -1,6 +1,7 @@
 package nl.tudelft.pl2016gr2.parser.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import nl.tudelft.pl2016gr2.model.Annotation;
 import nl.tudelft.pl2016gr2.model.GenomeMap;
@@ -14,6 +15,7 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * This class tests the {@link AnnotationReader} class.
@@ -177,4 +179,53 @@ public class AnnotationReaderTest {
     assertEquals("7000008460096613", secondAnnotation.getAttribute("id"));
     assertEquals("transposase", secondAnnotation.getAttribute("DiSpLaYNaMe"));
   }
+
+  /**
+   * Test that the values of the columns which are repeated are shared between the annotations.
+   */
+  @Test
+  public void testSharedValues() {
+    String test = "MT_H37RV_BRD_V5\tsource\tgene\t1\t2\t0.0\t+\t.\tName=first\n"
+        + "MT_H37RV_BRD_V5\tsource\tgene\t3\t4\t0.0\t+\t.\tName=second";
+    List<Annotation> annotations = read(test);
+
+    assertEquals(2, annotations.size());
+    assertSame(annotations.get(0).source, annotations.get(1).source);
+    assertSame(annotations.get(0).type, annotations.get(1).type);
+    assertSame(annotations.get(0).strand, annotations.get(1).strand);
+    assertEquals("second", annotations.get(1).getName());
+  }
+
+  /**
+   * Test that comment lines and the sequences at the end of the file are skipped.
+   */
+  @Test
+  public void testSkipCommentsAndSequences() {
+    String test = "##gff-version 3\n"
+        + "# a comment\n"
+        + "MT_H37RV_BRD_V5\tsource\tgene\t1\t2\t0.0\t+\t.\tName=gene\n"
+        + "\n"
+        + "##FASTA\n"
+        + ">MT_H37RV_BRD_V5\n"
+        + "ACGT";
+    List<Annotation> annotations = read(test);
+
+    assertEquals(1, annotations.size());
+    assertEquals("gene", annotations.get(0).getName());
+  }
+
+  /**
+   * Test that a line which contains an invalid position is skipped.
+   */
+  @Test
+  public void testInvalidPosition() {
+    String test = "MT_H37RV_BRD_V5\tsource\tgene\tone\t2\t0.0\t+\t.\tName=gene";
+
+    assertEquals(0, read(test).size());
+  }
+
+  private static List<Annotation> read(String file) {
+    InputStream testStringStream = new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8));
+    return new AnnotationReader(testStringStream).read();
+  }
 }
@@ -0,0 +1,161 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import static nl.tudelft.pl2016gr2.parser.controller.MappedGfaReaderTest.assertGraphEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.LazyBaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.thirdparty.testing.utility.AccessPrivate;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class tests the {@link GraphSnapshot} class.
+ */
+public class GraphSnapshotTest {
+
+  private static final String TEST_GRAPH_RESOURCE = "SMALL.gfa";
+  private static final int FIRST_GENOME_NAME_LENGTH_OFFSET = 28;
+  private File file;
+  private GraphSnapshot snapshot;
+
+  /**
+   * Copy the test graph to a file, so a snapshot can be written next to it.
+   *
+   * @throws IOException When file creation fails.
+   */
+  @Before
+  public void initialize() throws IOException {
+    file = File.createTempFile("GraphSnapshotTest", TEST_GRAPH_RESOURCE);
+    FileUtils.copyInputStreamToFile(
+        GraphSnapshot.class.getClassLoader().getResourceAsStream(TEST_GRAPH_RESOURCE), file);
+    snapshot = new GraphSnapshot(file.toPath());
+  }
+
+  /**
+   * Remove the test graph and its snapshot.
+   *
+   * @throws IOException When the snapshot can not be deleted.
+   */
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(getSnapshotFile());
+    file.delete();
+    AccessPrivate.setFieldValue("singleton_instance", GenomeMap.class, null, null);
+  }
+
+  /**
+   * Test if there is no valid snapshot before it is written.
+   */
+  @Test
+  public void testNoSnapshot() {
+    assertFalse(snapshot.isValid());
+    assertNull(snapshot.read());
+  }
+
+  /**
+   * Test if the graph which is read from the snapshot equals the graph which was written.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testWriteAndRead() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    snapshot.write(expected);
+    assertTrue(snapshot.isValid());
+
+    AccessPrivate.setFieldValue("singleton_instance", GenomeMap.class, null, null);
+    SequenceGraph actual = snapshot.read();
+    assertGraphEquals(expected, actual);
+    assertEquals(11, GenomeMap.getInstance().copyAllGenomes().size());
+    assertEquals("MT_H37RV_BRD_V5", GenomeMap.getInstance().getGenome(0));
+  }
+
+  /**
+   * Test if a graph with lazily loaded bases is written as references into the gfa file.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testWriteAndReadLazy() throws IOException {
+    try (SequenceStore store = new SequenceStore(file.toPath())) {
+      SequenceGraph expected = new MappedGfaReader(file.toPath(), store).read();
+      snapshot.write(expected);
+      assertTrue(Files.size(getSnapshotFile()) < file.length());
+
+      SequenceGraph actual = snapshot.read();
+      assertTrue(((SequenceNode) actual.getNode(1)).getBaseSequence() instanceof LazyBaseSequence);
+      assertGraphEquals(expected, actual);
+    }
+  }
+
+  /**
+   * Test if the snapshot is invalidated when the gfa file is modified.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testModifiedGfaInvalidatesSnapshot() throws IOException {
+    snapshot.write(new GfaReader(new FileInputStream(file)).read());
+    assertTrue(file.setLastModified(file.lastModified() - 10000));
+    assertFalse(snapshot.isValid());
+    assertNull(snapshot.read());
+  }
+
+  /**
+   * Test if a truncated snapshot is deleted, so the gfa file is parsed again.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testTruncatedSnapshotIsDeleted() throws IOException {
+    snapshot.write(new GfaReader(new FileInputStream(file)).read());
+    try (FileChannel channel = FileChannel.open(getSnapshotFile(), StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() / 2);
+    }
+    assertTrue(snapshot.isValid());
+
+    assertNull(snapshot.read());
+    assertFalse(Files.exists(getSnapshotFile()));
+    assertTrue(GenomeMap.getInstance().copyAllGenomes().isEmpty());
+  }
+
+  /**
+   * Test if a snapshot with a corrupt length, which can't be decoded, is deleted.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testCorruptSnapshotIsDeleted() throws IOException {
+    snapshot.write(new GfaReader(new FileInputStream(file)).read());
+    try (FileChannel channel = FileChannel.open(getSnapshotFile(), StandardOpenOption.WRITE)) {
+      ByteBuffer negativeLength = ByteBuffer.allocate(Integer.BYTES).putInt(-1);
+      negativeLength.flip();
+      channel.write(negativeLength, FIRST_GENOME_NAME_LENGTH_OFFSET);
+    }
+
+    assertNull(snapshot.read());
+    assertFalse(Files.exists(getSnapshotFile()));
+  }
+
+  private Path getSnapshotFile() {
+    return AccessPrivate.getFieldValue("snapshotFile", GraphSnapshot.class, snapshot);
+  }
+}
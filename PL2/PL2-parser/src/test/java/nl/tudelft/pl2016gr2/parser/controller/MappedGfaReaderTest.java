@@ -0,0 +1,188 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.LazyBaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.Node;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.thirdparty.testing.utility.AccessPrivate;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * This class tests the {@link MappedGfaReader} class.
+ */
+public class MappedGfaReaderTest {
+
+  private static final String TEST_GRAPH_RESOURCE = "SMALL.gfa";
+  private File file;
+
+  /**
+   * Copy the test graph to a file, so it can be memory mapped.
+   *
+   * @throws IOException When file creation fails.
+   */
+  @Before
+  public void initialize() throws IOException {
+    file = File.createTempFile("MappedGfaReaderTest", TEST_GRAPH_RESOURCE);
+    FileUtils.copyInputStreamToFile(
+        MappedGfaReader.class.getClassLoader().getResourceAsStream(TEST_GRAPH_RESOURCE), file);
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+    AccessPrivate.setFieldValue("singleton_instance", GenomeMap.class, null, null);
+  }
+
+  /**
+   * Test if the read graph is equal to the graph read by the {@link GfaReader}.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadEqualsGfaReader() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    SequenceGraph actual = new MappedGfaReader(file.toPath()).read();
+    assertGraphEquals(expected, actual);
+    assertEquals(11, actual.getGenomes().size());
+  }
+
+  /**
+   * Test if lines which cross the border of a mapped chunk are read correctly.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadWithSmallChunks() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    SequenceGraph actual = new MappedGfaReader(
+        FileChannel.open(file.toPath(), StandardOpenOption.READ), 7).read();
+    assertGraphEquals(expected, actual);
+  }
+
+  /**
+   * Test if the graph with lazily loaded bases is equal to the graph read by the {@link GfaReader}.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadLazyEqualsGfaReader() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    try (SequenceStore store = new SequenceStore(file.toPath())) {
+      SequenceGraph actual = new MappedGfaReader(file.toPath(), store).read();
+      assertTrue(((SequenceNode) actual.getNode(1)).getBaseSequence() instanceof LazyBaseSequence);
+      assertGraphEquals(expected, actual);
+    }
+  }
+
+  /**
+   * Test of read method, of class MappedGfaReader.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadIsCached() throws IOException {
+    MappedGfaReader reader = new MappedGfaReader(file.toPath());
+    SequenceGraph actual = reader.read();
+    SequenceGraph expected = AccessPrivate.getFieldValue("originalGraph", MappedGfaReader.class,
+        reader);
+    assertEquals(expected, actual);
+    assertEquals(actual, reader.read());
+  }
+
+  /**
+   * Test of parseNode method, of class MappedGfaReader.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testParseNode() throws IOException {
+    GenomeMap.getInstance().addGenome("TKK_02_0008");
+    MappedGfaReader reader = new MappedGfaReader(file.toPath());
+    byte[] bytes = ("S\t3\tCAT\t*\tORI:Z:TKK_02_0008.fasta\tCRD:Z:TKK_02_0008.fasta\t"
+        + "START:Z:1451").getBytes("US-ASCII");
+    AccessPrivate.callMethod("parseNode", MappedGfaReader.class, reader, bytes, bytes.length);
+    Node node = AccessPrivate.callMethod("getNode", MappedGfaReader.class, reader, 3);
+    assertEquals("CAT", node.getSequence());
+    assertEquals(1, node.getGenomes().size());
+    assertEquals(GenomeMap.getInstance().getId("TKK_02_0008"), node.getGenomes().iterator().next());
+  }
+
+  /**
+   * Test of parseEdge method, of class MappedGfaReader.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testParseEdge() throws IOException {
+    MappedGfaReader reader = new MappedGfaReader(file.toPath());
+    byte[] bytes = "L\t12\t+\t3\t+\t0M".getBytes("US-ASCII");
+    AccessPrivate.callMethod("parseEdge", MappedGfaReader.class, reader, bytes, bytes.length);
+    SequenceNode node12 = AccessPrivate.callMethod("getNode", MappedGfaReader.class, reader, 12);
+    SequenceNode node3 = AccessPrivate.callMethod("getNode", MappedGfaReader.class, reader, 3);
+    assertEquals(new SequenceNode(3), node12.getOutEdges().iterator().next());
+    assertEquals(new SequenceNode(12), node3.getInEdges().iterator().next());
+  }
+
+  /**
+   * Test if a line which ends early is skipped, instead of being completed with the bytes of the
+   * previous (longer) line which are still in the line buffer.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadSkipsMalformedLines() throws IOException {
+    FileUtils.writeStringToFile(file, "H\tVN:Z:1.0\n"
+        + "H\tORI:Z:A.fasta;B.fasta;\n"
+        + "S\t1\tACGT\t*\tORI:Z:A.fasta;B.fasta\tCRD:Z:A.fasta\n"
+        + "S\t2\tAC\n"
+        + "L\t1\t+\t2\n", "US-ASCII");
+    SequenceGraph graph = new MappedGfaReader(file.toPath()).read();
+    assertEquals(1, graph.size());
+    SequenceNode node = (SequenceNode) graph.getNode(1);
+    assertEquals("ACGT", node.getSequence());
+    assertEquals(2, node.getGenomes().size());
+    assertTrue(node.getOutEdges().isEmpty());
+  }
+
+  /**
+   * Assert that two graphs contain the same nodes, with the same bases, genomes and edges.
+   *
+   * @param expected the expected graph.
+   * @param actual   the actual graph.
+   */
+  /*package*/ static void assertGraphEquals(SequenceGraph expected, SequenceGraph actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.getGenomes(), actual.getGenomes());
+    assertEquals(getIds(expected.getRootNodes()), getIds(actual.getRootNodes()));
+    expected.iterator().forEachRemaining(expectedNode -> {
+      GraphNode actualNode = actual.getNode(expectedNode.getId());
+      assertTrue(actualNode != null);
+      assertEquals(((Node) expectedNode).getSequence(), ((Node) actualNode).getSequence());
+      assertEquals(expectedNode.getGenomes(), actualNode.getGenomes());
+      assertEquals(getIds(expectedNode.getInEdges()), getIds(actualNode.getInEdges()));
+      assertEquals(getIds(expectedNode.getOutEdges()), getIds(actualNode.getOutEdges()));
+    });
+  }
+
+  private static Set<Integer> getIds(Collection<GraphNode> nodes) {
+    return nodes.stream().map(GraphNode::getId).collect(Collectors.toSet());
+  }
+}
@@ -1,18 +1,33 @@
 package nl.tudelft.pl2016gr2.parser.controller;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import nl.tudelft.pl2016gr2.model.GenomeMap;
 import nl.tudelft.pl2016gr2.model.MetaData;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 public class MetaDataReaderTest {
 
@@ -31,6 +46,7 @@ public class MetaDataReaderTest {
   @After
   public void teardown() {
     tempFile.delete();
+    GenomeMap.getInstance().clear();
   }
 
 
@@ -50,5 +66,194 @@ public class MetaDataReaderTest {
     List<MetaData> annotations = reader.read();
 
     assertEquals(2, annotations.size());
+    MetaData metaData = annotations.get(0);
+    assertEquals("TKK-01-0001", metaData.specimenId);
+    assertEquals(Integer.valueOf(28), metaData.age);
+    assertEquals(MetaData.Sex.Female, metaData.sex);
+    assertEquals(MetaData.Status.Positive, metaData.hivStatus);
+    assertEquals("KZNSUR", metaData.cohort);
+    assertDate(2008, Calendar.JANUARY, 16, metaData.dateOfCollection);
+    assertEquals("eThekwini", metaData.studyGeographicDistrict);
+    assertEquals(MetaData.Isolation.Single, metaData.dnaIsolation);
+    assertEquals("LAM4", metaData.digitalSpoligotype);
+    assertEquals("LIN 4", metaData.lineage);
+    assertEquals("TKK-01-0006", annotations.get(1).specimenId);
+    assertEquals(Integer.valueOf(70), annotations.get(1).age);
+  }
+
+  /**
+   * Test that missing cells of a workbook are read as empty cells, without shifting the cells
+   * after them to other columns.
+   */
+  @Test
+  public void testReadMissingCells() throws Exception {
+    GenomeMap.getInstance().addGenome("TKK-01-0001");
+
+    List<MetaData> metaDatas = readChangedWorkbook(
+        sheet -> sheet.replaceAll("<c r=\"[BC]2\"[^>]*>.*?</c>", ""));
+
+    assertEquals(1, metaDatas.size());
+    MetaData metaData = metaDatas.get(0);
+    assertNull(metaData.age);
+    assertEquals(MetaData.Sex.unknown, metaData.sex);
+    assertEquals(MetaData.Status.Positive, metaData.hivStatus);
+    assertEquals("KZNSUR", metaData.cohort);
+    assertDate(2008, Calendar.JANUARY, 16, metaData.dateOfCollection);
+  }
+
+  /**
+   * Test that a workbook of which the sheet contains a document type declaration is rejected.
+   */
+  @Test(expected = IOException.class)
+  public void testRejectDocumentType() throws Exception {
+    readChangedWorkbook(sheet -> sheet.replaceFirst("\\?>",
+        "?><!DOCTYPE worksheet [<!ENTITY specimen \"TKK-01-0001\">]>"));
+  }
+
+  /**
+   * Test that the active sheet of a workbook is read instead of the first sheet.
+   */
+  @Test
+  public void testReadActiveSheet() throws Exception {
+    GenomeMap.getInstance().addGenome("TKK-01-0001");
+    Map<String, UnaryOperator<String>> changes = new HashMap<>();
+    changes.put("xl/workbook.xml", workbook -> workbook
+        .replace("<workbookPr/>", "<workbookPr/><bookViews><workbookView activeTab=\"1\"/>"
+            + "</bookViews>")
+        .replace("<sheets>", "<sheets><sheet name=\"Empty\" sheetId=\"2\" r:id=\"rId4\"/>"));
+    changes.put("xl/_rels/workbook.xml.rels", relations -> relations.replace("</Relationships>",
+        "<Relationship Id=\"rId4\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/"
+        + "relationships/worksheet\" Target=\"worksheets/sheet2.xml\"/></Relationships>"));
+    changes.put("[Content_Types].xml", types -> types.replace("</Types>", "<Override ContentType="
+        + "\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\" "
+        + "PartName=\"/xl/worksheets/sheet2.xml\"/></Types>"));
+    changes.put("xl/worksheets/sheet2.xml", sheet -> "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+        + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+        + "<sheetData/></worksheet>");
+
+    List<MetaData> metaDatas = readChangedWorkbook(changes);
+
+    assertEquals(1, metaDatas.size());
+    assertEquals("TKK-01-0001", metaDatas.get(0).specimenId);
+  }
+
+  /**
+   * Test that an unexpected sex is read as unknown.
+   */
+  @Test
+  public void testReadUnexpectedSex() throws Exception {
+    GenomeMap.getInstance().addGenome("TKK-01-0001");
+    String tsv = "TKK-01-0001\t28\t1\tNegative\tKZNSUR\t15/1/2008\teThekwini\tsputum\t"
+        + "Positive\tTKK-01-0001\tsingle colony\tMDR\tS\tR\tS\tR\tS\tTKK-01-0001\tR\tS\t"
+        + "R\tR\tLAM4\tLIN 4\tMDR";
+
+    List<MetaData> metaDatas = read(tsv);
+
+    assertEquals(1, metaDatas.size());
+    assertEquals(MetaData.Sex.unknown, metaDatas.get(0).sex);
+  }
+
+  @Test
+  public void testReadCsv() throws Exception {
+    GenomeMap.getInstance().addGenome("TKK-01-0001");
+    String csv = "Specimen ID,Age,Sex,HIV status,Cohort,Date of collection,District,Type,Smear,"
+        + "Specimen ID,DNA isolation,DST,CAP,EMB,ETH,INH,KAN,Specimen ID,PZA,OFX,RIF,STR,"
+        + "Spoligotype,Lineage,Genotypic DST\n"
+        + "TKK-01-0001,28,Male,Negative,\"KZNSUR, cohort\",2008-01-15,eThekwini,sputum,Positive,"
+        + "TKK-01-0001,single colony,MDR,S,R,S,R,S,TKK-01-0001,R,S,R,R,LAM4,LIN 4,MDR\n"
+        + "TKK-01-0002,30,Female,Positive,KZNSUR,2008-01-16,eThekwini,sputum,Positive,"
+        + "TKK-01-0002,single colony,MDR,S,R,S,R,S,TKK-01-0002,R,S,R,R,LAM4,LIN 4,MDR\n";
+
+    List<MetaData> metaDatas = read(csv);
+
+    assertEquals(1, metaDatas.size());
+    MetaData metaData = metaDatas.get(0);
+    assertEquals("TKK-01-0001", metaData.specimenId);
+    assertEquals(Integer.valueOf(28), metaData.age);
+    assertEquals(MetaData.Sex.Male, metaData.sex);
+    assertEquals("KZNSUR, cohort", metaData.cohort);
+    assertEquals(MetaData.Isolation.Single, metaData.dnaIsolation);
+    assertEquals("LIN 4", metaData.lineage);
+    assertEquals("MDR", metaData.genotypicDSTPattern);
+    assertDate(2008, Calendar.JANUARY, 15, metaData.dateOfCollection);
+  }
+
+  @Test
+  public void testReadTsv() throws Exception {
+    GenomeMap.getInstance().addGenome("TKK-01-0001");
+    String tsv = "TKK-01-0001\tunknown\t\tNegative\tKZNSUR\t15/1/2008\teThekwini\tsputum\t"
+        + "Positive\tTKK-01-0001\tnon-single colony\tMDR\tS\tR\tS\tR\tS\tTKK-01-0001\tR\tS\t"
+        + "R\tR\tLAM4\tLIN 4\tMDR";
+
+    List<MetaData> metaDatas = read(tsv);
+
+    assertEquals(1, metaDatas.size());
+    MetaData metaData = metaDatas.get(0);
+    assertNull(metaData.age);
+    assertEquals(MetaData.Sex.unknown, metaData.sex);
+    assertEquals(MetaData.Isolation.NonSingle, metaData.dnaIsolation);
+    assertEquals("LAM4", metaData.digitalSpoligotype);
+    assertNotNull(metaData.dateOfCollection);
+  }
+
+  /**
+   * Read a copy of the test workbook of which the xml of the sheet has been changed.
+   *
+   * @param sheetChange the change of the xml of the sheet.
+   * @return the metadata which is read from the copy.
+   * @throws Exception if the copy can't be read.
+   */
+  private List<MetaData> readChangedWorkbook(UnaryOperator<String> sheetChange)
+      throws Exception {
+    return readChangedWorkbook(Collections.singletonMap("xl/worksheets/sheet1.xml", sheetChange));
+  }
+
+  /**
+   * Read a copy of the test workbook of which the xml of some parts has been changed. A part which
+   * doesn't exist in the test workbook is added to the copy, changed from an empty part.
+   *
+   * @param partChanges the changes of the xml of the parts, by the name of the part.
+   * @return the metadata which is read from the copy.
+   * @throws Exception if the copy can't be read.
+   */
+  private List<MetaData> readChangedWorkbook(Map<String, UnaryOperator<String>> partChanges)
+      throws Exception {
+    Map<String, UnaryOperator<String>> addedParts = new HashMap<>(partChanges);
+    ByteArrayOutputStream workbook = new ByteArrayOutputStream();
+    try (ZipInputStream original = new ZipInputStream(
+        getClass().getClassLoader().getResourceAsStream("TESTMETADATA1.xlsx"));
+        ZipOutputStream copy = new ZipOutputStream(workbook)) {
+      ZipEntry entry;
+      while ((entry = original.getNextEntry()) != null) {
+        byte[] data = IOUtils.toByteArray(original);
+        UnaryOperator<String> change = addedParts.remove(entry.getName());
+        if (change != null) {
+          data = change.apply(new String(data, StandardCharsets.UTF_8))
+              .getBytes(StandardCharsets.UTF_8);
+        }
+        copy.putNextEntry(new ZipEntry(entry.getName()));
+        copy.write(data);
+        copy.closeEntry();
+      }
+      for (Map.Entry<String, UnaryOperator<String>> part : addedParts.entrySet()) {
+        copy.putNextEntry(new ZipEntry(part.getKey()));
+        copy.write(part.getValue().apply("").getBytes(StandardCharsets.UTF_8));
+        copy.closeEntry();
+      }
+    }
+    return new MetaDataReader(new ByteArrayInputStream(workbook.toByteArray())).read();
+  }
+
+  private static void assertDate(int year, int month, int day, Date date) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime(date);
+    assertEquals(year, calendar.get(Calendar.YEAR));
+    assertEquals(month, calendar.get(Calendar.MONTH));
+    assertEquals(day, calendar.get(Calendar.DAY_OF_MONTH));
+  }
+
+  private List<MetaData> read(String file) throws Exception {
+    return new MetaDataReader(new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)))
+        .read();
   }
 }
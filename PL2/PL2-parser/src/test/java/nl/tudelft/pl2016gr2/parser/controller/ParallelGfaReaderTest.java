@@ -0,0 +1,174 @@
+package nl.tudelft.pl2016gr2.parser.controller;
+
+import static nl.tudelft.pl2016gr2.parser.controller.MappedGfaReaderTest.assertGraphEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.LazyBaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.SequenceStore;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.thirdparty.testing.utility.AccessPrivate;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class tests the {@link ParallelGfaReader} class. The {@link GfaReader} is used as the
+ * reference for the expected graphs.
+ */
+public class ParallelGfaReaderTest {
+
+  private static final String TEST_GRAPH_RESOURCE = "SMALL.gfa";
+  private static final int PARALLELISM = 4;
+  private final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+  private File file;
+
+  /**
+   * Copy the test graph to a file, so it can be memory mapped.
+   *
+   * @throws IOException When file creation fails.
+   */
+  @Before
+  public void initialize() throws IOException {
+    file = File.createTempFile("ParallelGfaReaderTest", TEST_GRAPH_RESOURCE);
+    FileUtils.copyInputStreamToFile(
+        ParallelGfaReader.class.getClassLoader().getResourceAsStream(TEST_GRAPH_RESOURCE), file);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+    file.delete();
+    AccessPrivate.setFieldValue("singleton_instance", GenomeMap.class, null, null);
+  }
+
+  /**
+   * Test if the read graph is equal to the graph read by the {@link GfaReader}.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadEqualsGfaReader() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    SequenceGraph actual = new ParallelGfaReader(file.toPath()).read();
+    assertGraphEquals(expected, actual);
+    assertEquals(11, actual.getGenomes().size());
+  }
+
+  /**
+   * Test if the graph is read correctly when it is split into many small chunks.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadWithSmallChunks() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    for (int chunkSize = 1; chunkSize < 200; chunkSize += 13) {
+      SequenceGraph actual = new ParallelGfaReader(
+          FileChannel.open(file.toPath(), StandardOpenOption.READ), pool, chunkSize).read();
+      assertGraphEquals(expected, actual);
+    }
+  }
+
+  /**
+   * Test if the graph with lazily loaded bases is equal to the graph read by the {@link GfaReader}.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadLazyEqualsGfaReader() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    try (SequenceStore store = new SequenceStore(file.toPath())) {
+      SequenceGraph actual = new ParallelGfaReader(file.toPath(), pool, store).read();
+      assertTrue(((SequenceNode) actual.getNode(1)).getBaseSequence() instanceof LazyBaseSequence);
+      assertGraphEquals(expected, actual);
+    }
+  }
+
+  /**
+   * Test if the compact graph is equal to the graph read by the {@link GfaReader}, also when the
+   * file is split into many small chunks.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadCompactEqualsGfaReader() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    CompactGraph actual = new ParallelGfaReader(file.toPath()).readCompact();
+    assertGraphEquals(expected, actual);
+    for (int chunkSize = 1; chunkSize < 200; chunkSize += 13) {
+      actual = new ParallelGfaReader(
+          FileChannel.open(file.toPath(), StandardOpenOption.READ), pool, chunkSize).readCompact();
+      assertGraphEquals(expected, actual);
+    }
+  }
+
+  /**
+   * Test if the compact graph with lazily loaded bases is equal to the graph read by the
+   * {@link GfaReader}.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testReadCompactLazyEqualsGfaReader() throws IOException {
+    SequenceGraph expected = new GfaReader(new FileInputStream(file)).read();
+    try (SequenceStore store = new SequenceStore(file.toPath())) {
+      CompactGraph actual = new ParallelGfaReader(file.toPath(), pool, store).readCompact();
+      assertTrue(((SequenceNode) actual.getNode(1)).getBaseSequence() instanceof LazyBaseSequence);
+      assertGraphEquals(expected, actual);
+    }
+  }
+
+  /**
+   * Test if a genome of a node which isn't declared in the header is added to the genomes of the
+   * graph, both when the graph is read as nodes and as a compact graph.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testUndeclaredGenomeIsAdded() throws IOException {
+    FileUtils.writeStringToFile(file, "H\tVN:Z:1.0\n"
+        + "H\tORI:Z:first.fasta\n"
+        + "S\t1\tACGT\t*\tORI:Z:first.fasta;second.fasta\n"
+        + "S\t2\tA\t*\tORI:Z:second.fasta\n"
+        + "L\t1\t+\t2\t+\t0M\n", "US-ASCII");
+    SequenceGraph graph = new ParallelGfaReader(file.toPath()).read();
+    int secondId = GenomeMap.getInstance().getId("second");
+    assertEquals(2, graph.getGenomes().size());
+    assertEquals(Arrays.asList(secondId), graph.getNode(2).getGenomes());
+
+    GenomeMap.getInstance().clear();
+    CompactGraph compactGraph = new ParallelGfaReader(file.toPath()).readCompact();
+    assertEquals(2, compactGraph.getGenomes().size());
+    assertEquals(2, compactGraph.getNode(1).getGenomes().size());
+  }
+
+  /**
+   * Test if the file is split at line boundaries.
+   *
+   * @throws IOException When the file can not be read.
+   */
+  @Test
+  public void testSplit() throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ParallelGfaReader reader = new ParallelGfaReader(channel, pool, 100);
+      ArrayList<GfaChunk> chunks = AccessPrivate.callMethod("split", ParallelGfaReader.class,
+          reader, channel);
+      assertTrue(chunks.size() > 1);
+      assertTrue(chunks.size() <= file.length() / 100 + 1);
+    }
+  }
+}
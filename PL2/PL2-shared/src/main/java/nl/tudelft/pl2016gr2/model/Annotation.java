@@ -20,7 +20,8 @@ public class Annotation implements Comparable<Annotation> {
   public final double score;
   public final String strand;
   public final String phase;
-  private final HashMap<String, String> attributes = new HashMap<>();
+  private String attributeColumn;
+  private HashMap<String, String> attributes;
 
   private int startInGraph;
   private int endInGraph;
@@ -39,6 +40,26 @@ public class Annotation implements Comparable<Annotation> {
    */
   public Annotation(String sequenceId, String source, String type, int start, int end,
       double score, String strand, String phase) {
+    this(sequenceId, source, type, start, end, score, strand, phase, null);
+  }
+
+  /**
+   * Create an Annotation of which the attributes are parsed from the attribute column of the
+   * annotation file ("key=value" pairs separated by semicolons) when they are accessed for the
+   * first time. Most attributes are never displayed, so this saves parsing and storing them.
+   *
+   * @param sequenceId      the id of the sequence
+   * @param source          the source
+   * @param type            the type
+   * @param start           the start
+   * @param end             the end
+   * @param score           the score
+   * @param strand          the strand
+   * @param phase           the phase
+   * @param attributeColumn the unparsed attributes, or null if there are no attributes.
+   */
+  public Annotation(String sequenceId, String source, String type, int start, int end,
+      double score, String strand, String phase, String attributeColumn) {
     this.sequenceId = sequenceId;
     this.source = source;
     this.type = type;
@@ -47,6 +68,7 @@ public class Annotation implements Comparable<Annotation> {
     this.score = score;
     this.strand = strand;
     this.phase = phase;
+    this.attributeColumn = attributeColumn;
   }
 
   /**
@@ -55,7 +77,7 @@ public class Annotation implements Comparable<Annotation> {
    * @param attribute a Pair containing the attribute/value pair.
    */
   public void addAttribute(Pair<String, String> attribute) {
-    attributes.put(attribute.left.toLowerCase(), attribute.right);
+    getAttributeMap().put(attribute.left.toLowerCase(), attribute.right);
   }
 
   /**
@@ -65,7 +87,7 @@ public class Annotation implements Comparable<Annotation> {
    * @return the value of the attribute.
    */
   public String getAttribute(String attribute) {
-    return attributes.get(attribute.toLowerCase());
+    return getAttributeMap().get(attribute.toLowerCase());
   }
 
   /**
@@ -75,7 +97,7 @@ public class Annotation implements Comparable<Annotation> {
    * @return if the attribute has a value.
    */
   public boolean containsAttribute(String attribute) {
-    return attributes.containsKey(attribute.toLowerCase());
+    return getAttributeMap().containsKey(attribute.toLowerCase());
   }
 
   /**
@@ -84,9 +106,46 @@ public class Annotation implements Comparable<Annotation> {
    * @return a hashmap of attributes.
    */
   public HashMap<String, String> getAttributes() {
+    return getAttributeMap();
+  }
+
+  /**
+   * Get the map of attributes, after parsing the attribute column if this hasn't been done yet.
+   *
+   * @return the map of attributes.
+   */
+  private synchronized HashMap<String, String> getAttributeMap() {
+    if (attributes == null) {
+      attributes = new HashMap<>();
+      if (attributeColumn != null) {
+        parseAttributes(attributeColumn);
+        attributeColumn = null;
+      }
+    }
     return attributes;
   }
 
+  /**
+   * Parse the "key=value" pairs of the attribute column. Pairs without a value are ignored.
+   *
+   * @param column the attribute column.
+   */
+  private void parseAttributes(String column) {
+    int pairStart = 0;
+    while (pairStart < column.length()) {
+      int pairEnd = column.indexOf(';', pairStart);
+      if (pairEnd == -1) {
+        pairEnd = column.length();
+      }
+      int separator = column.indexOf('=', pairStart);
+      if (separator != -1 && separator < pairEnd) {
+        attributes.put(column.substring(pairStart, separator).toLowerCase(),
+            column.substring(separator + 1, pairEnd));
+      }
+      pairStart = pairEnd + 1;
+    }
+  }
+
   public int getStartInGraph() {
     return startInGraph;
   }
@@ -113,7 +172,7 @@ public class Annotation implements Comparable<Annotation> {
     if (name != null) {
       return name;
     }
-    for (String property : attributes.keySet()) {
+    for (String property : getAttributeMap().keySet()) {
       if (property.toLowerCase().contains("name")) {
         return getAttribute(property);
       }
@@ -127,7 +186,7 @@ public class Annotation implements Comparable<Annotation> {
    * @param propertyConsumer the action to perform.
    */
   public void forEachProperty(BiConsumer<String, String> propertyConsumer) {
-    attributes.forEach(propertyConsumer);
+    getAttributeMap().forEach(propertyConsumer);
     propertyConsumer.accept("sequenceId", sequenceId);
     propertyConsumer.accept("source", source);
     propertyConsumer.accept("phase", phase);
@@ -72,6 +72,6 @@ public class Settings {
    * All of the possible bubbling algorithms which can be used.
    */
   public enum BubbleAlgorithms {
-    POINT, INDEL, STRAIGHT, PHYLO, GRAPH;
+    POINT, INDEL, STRAIGHT, PHYLO, GRAPH, SUPERBUBBLE;
   }
 }
@@ -0,0 +1,613 @@
+package nl.tudelft.pl2016gr2.model.graph;
+
+import nl.tudelft.pl2016gr2.model.Annotation;
+import nl.tudelft.pl2016gr2.model.graph.data.AnnotationIndex;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.nodes.CompactSequenceNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A sequence graph which stores its nodes in primitive arrays instead of as node objects. Every
+ * node has an index (from 0 till the amount of nodes) and all of its data is stored at that index
+ * in parallel arrays. The edges are stored in compressed sparse row form: the out edges of the
+ * node at index <code>i</code> are the node indices
+ * <code>outTargets[outOffsets[i]]..outTargets[outOffsets[i + 1] - 1]</code>, and the in edges are
+ * stored in the same way. Nodes which have exactly the same genomes share a single
+ * {@link GenomeSet}.
+ * <p>
+ * The {@link GraphNode} methods of this graph return {@link CompactSequenceNode} objects, which
+ * are lightweight views on the data of a node in this graph. The edges of the graph can not be
+ * modified, but the levels and annotations of the nodes can. Algorithms which traverse the whole
+ * graph should use the index based methods, which don't create any node objects.
+ * </p>
+ */
+public class CompactGraph implements SequenceGraph {
+
+  private final int[] ids;
+  private final int[] indices;
+  private final int[] outOffsets;
+  private final int[] outTargets;
+  private final int[] inOffsets;
+  private final int[] inTargets;
+  private final int[] sizes;
+  private final int[] levels;
+  private volatile int[] levelOrder;
+  private final int[] genomeSetHandles;
+  private final GenomeSet[] genomeSets;
+  private final BaseSequence[] sequences;
+  private final ConcurrentHashMap<Integer, AnnotationIndex> annotations
+      = new ConcurrentHashMap<>();
+  private final ArrayList<Integer> genomes;
+
+  /**
+   * Create a compact graph which contains the same nodes, edges, genomes and levels as the given
+   * graph. All of the nodes of the given graph must be {@link SequenceNode}s.
+   *
+   * @param graph the graph to copy.
+   */
+  public CompactGraph(SequenceGraph graph) {
+    this.genomes = new ArrayList<>(graph.getGenomes());
+    ArrayList<GraphNode> nodes = new ArrayList<>(graph.size());
+    graph.forEach(nodes::add);
+    nodes.sort((first, second) -> Integer.compare(first.getId(), second.getId()));
+
+    int amountOfNodes = nodes.size();
+    ids = new int[amountOfNodes];
+    sequences = new BaseSequence[amountOfNodes];
+    GenomeSet[] nodeGenomes = new GenomeSet[amountOfNodes];
+    int[][] outEdges = new int[amountOfNodes][];
+    for (int i = 0; i < amountOfNodes; i++) {
+      GraphNode node = nodes.get(i);
+      assert node instanceof SequenceNode : "Only sequence nodes can be stored in a compact graph";
+      ids[i] = node.getId();
+      sequences[i] = ((SequenceNode) node).getBaseSequence();
+      nodeGenomes[i] = node.getGenomeSet();
+      outEdges[i] = node.getOutEdges().stream().mapToInt(GraphNode::getId).toArray();
+    }
+    indices = createIndices(ids);
+    outOffsets = new int[amountOfNodes + 1];
+    outTargets = createOutEdges(outEdges);
+    inOffsets = new int[amountOfNodes + 1];
+    inTargets = createInEdges();
+    sizes = createSizes(sequences);
+    genomeSetHandles = new int[amountOfNodes];
+    genomeSets = createGenomeSets(nodeGenomes);
+    levels = new int[amountOfNodes];
+    for (int i = 0; i < amountOfNodes; i++) {
+      levels[i] = nodes.get(i).getLevel();
+    }
+  }
+
+  /**
+   * Create a compact graph from the data of its nodes. The data of a node must be stored at the
+   * same position in every array.
+   *
+   * @param ids        the identifiers of the nodes.
+   * @param sequences  the sequences of the nodes.
+   * @param genomeSets the genomes of the nodes.
+   * @param outEdges   the identifiers of the out edges of the nodes.
+   * @param genomes    the genomes of the graph.
+   */
+  public CompactGraph(int[] ids, BaseSequence[] sequences, GenomeSet[] genomeSets,
+      int[][] outEdges, Collection<Integer> genomes) {
+    assert ids.length == sequences.length && ids.length == genomeSets.length
+        && ids.length == outEdges.length : "The node data must have the same length";
+    this.genomes = new ArrayList<>(genomes);
+    this.ids = ids;
+    this.sequences = sequences;
+    int amountOfNodes = ids.length;
+    indices = createIndices(ids);
+    outOffsets = new int[amountOfNodes + 1];
+    outTargets = createOutEdges(outEdges);
+    inOffsets = new int[amountOfNodes + 1];
+    inTargets = createInEdges();
+    sizes = createSizes(sequences);
+    genomeSetHandles = new int[amountOfNodes];
+    this.genomeSets = createGenomeSets(genomeSets);
+    levels = new int[amountOfNodes];
+  }
+
+  /**
+   * Create the identifier to index mapping.
+   *
+   * @param ids the identifiers of the nodes.
+   * @return an array which contains the index of every identifier, or -1 for unused identifiers.
+   */
+  private static int[] createIndices(int[] ids) {
+    int maxId = -1;
+    for (int id : ids) {
+      assert id >= 0 : "Negative node identifiers can not be stored in a compact graph: " + id;
+      maxId = Math.max(maxId, id);
+    }
+    int[] indices = new int[maxId + 1];
+    Arrays.fill(indices, -1);
+    for (int i = 0; i < ids.length; i++) {
+      assert indices[ids[i]] == -1 : "Duplicate node identifier: " + ids[i];
+      indices[ids[i]] = i;
+    }
+    return indices;
+  }
+
+  /**
+   * Fill the out edge offsets and create the out edge targets.
+   *
+   * @param outEdges the identifiers of the out edges of every node.
+   * @return the out edge targets.
+   */
+  private int[] createOutEdges(int[][] outEdges) {
+    for (int i = 0; i < outEdges.length; i++) {
+      outOffsets[i + 1] = outOffsets[i] + outEdges[i].length;
+    }
+    int[] targets = new int[outOffsets[outEdges.length]];
+    for (int i = 0; i < outEdges.length; i++) {
+      for (int j = 0; j < outEdges[i].length; j++) {
+        targets[outOffsets[i] + j] = getIndex(outEdges[i][j]);
+        assert targets[outOffsets[i] + j] >= 0 : "Edge to unknown node " + outEdges[i][j];
+      }
+    }
+    return targets;
+  }
+
+  /**
+   * Fill the in edge offsets and create the in edge targets, by reversing the out edges.
+   *
+   * @return the in edge targets.
+   */
+  private int[] createInEdges() {
+    int amountOfNodes = ids.length;
+    for (int target : outTargets) {
+      inOffsets[target + 1]++;
+    }
+    for (int i = 0; i < amountOfNodes; i++) {
+      inOffsets[i + 1] += inOffsets[i];
+    }
+    int[] targets = new int[outTargets.length];
+    int[] inserted = new int[amountOfNodes];
+    for (int from = 0; from < amountOfNodes; from++) {
+      for (int edge = outOffsets[from]; edge < outOffsets[from + 1]; edge++) {
+        int to = outTargets[edge];
+        targets[inOffsets[to] + inserted[to]++] = from;
+      }
+    }
+    return targets;
+  }
+
+  /**
+   * Get the amount of bases of every node.
+   *
+   * @param sequences the sequences of the nodes.
+   * @return the amount of bases of every node.
+   */
+  private static int[] createSizes(BaseSequence[] sequences) {
+    int[] sizes = new int[sequences.length];
+    for (int i = 0; i < sequences.length; i++) {
+      if (sequences[i] != null) {
+        sizes[i] = sequences[i].size();
+      }
+    }
+    return sizes;
+  }
+
+  /**
+   * Fill the genome set handles, so every distinct set of genomes is only stored once.
+   *
+   * @param nodeGenomes the genomes of every node.
+   * @return the distinct genome sets.
+   */
+  private GenomeSet[] createGenomeSets(GenomeSet[] nodeGenomes) {
+    HashMap<GenomeSet, Integer> handles = new HashMap<>();
+    ArrayList<GenomeSet> distinctSets = new ArrayList<>();
+    for (int i = 0; i < nodeGenomes.length; i++) {
+      Integer handle = handles.get(nodeGenomes[i]);
+      if (handle == null) {
+        handle = distinctSets.size();
+        handles.put(nodeGenomes[i], handle);
+        distinctSets.add(nodeGenomes[i]);
+      }
+      genomeSetHandles[i] = handle;
+    }
+    return distinctSets.toArray(new GenomeSet[distinctSets.size()]);
+  }
+
+  /**
+   * Get the index of the node with the given identifier.
+   *
+   * @param id the identifier of the node.
+   * @return the index of the node, or -1 if the graph doesn't contain the node.
+   */
+  public int getIndex(int id) {
+    if (id < 0 || id >= indices.length) {
+      return -1;
+    }
+    return indices[id];
+  }
+
+  /**
+   * Get the identifier of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the identifier of the node.
+   */
+  public int getId(int index) {
+    return ids[index];
+  }
+
+  /**
+   * Get a node object of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return a node object which is backed by this graph.
+   */
+  public GraphNode getNodeAt(int index) {
+    return new CompactSequenceNode(this, index);
+  }
+
+  /**
+   * Get the amount of out edges of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the amount of out edges.
+   */
+  public int getOutDegree(int index) {
+    return outOffsets[index + 1] - outOffsets[index];
+  }
+
+  /**
+   * Get the index of the node to which an out edge of the node at the given index goes.
+   *
+   * @param index the index of the node.
+   * @param edge  the number of the out edge (from 0 till the out degree of the node).
+   * @return the index of the node to which the edge goes.
+   */
+  public int getOutEdge(int index, int edge) {
+    return outTargets[outOffsets[index] + edge];
+  }
+
+  /**
+   * Get the position of the first out edge of the node at the given index among all of the out
+   * edges of the graph. The out edges of a node have consecutive positions.
+   *
+   * @param index the index of the node.
+   * @return the position of the first out edge of the node.
+   */
+  public int getOutEdgeOffset(int index) {
+    return outOffsets[index];
+  }
+
+  /**
+   * Get the amount of edges in the graph.
+   *
+   * @return the amount of edges.
+   */
+  public int getEdgeCount() {
+    return outTargets.length;
+  }
+
+  /**
+   * Get the amount of in edges of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the amount of in edges.
+   */
+  public int getInDegree(int index) {
+    return inOffsets[index + 1] - inOffsets[index];
+  }
+
+  /**
+   * Get the index of the node from which an in edge of the node at the given index comes.
+   *
+   * @param index the index of the node.
+   * @param edge  the number of the in edge (from 0 till the in degree of the node).
+   * @return the index of the node from which the edge comes.
+   */
+  public int getInEdge(int index, int edge) {
+    return inTargets[inOffsets[index] + edge];
+  }
+
+  /**
+   * Get the amount of bases of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the amount of bases of the node.
+   */
+  public int getNodeSize(int index) {
+    return sizes[index];
+  }
+
+  /**
+   * Get the level of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the level of the node.
+   */
+  public int getLevel(int index) {
+    return levels[index];
+  }
+
+  /**
+   * Set the level of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @param level the level of the node.
+   */
+  public void setLevel(int index, int level) {
+    levels[index] = level;
+    levelOrder = null;
+  }
+
+  /**
+   * Set the levels of all of the nodes at once.
+   *
+   * @param newLevels the level of every node, by index.
+   */
+  public void setLevels(int[] newLevels) {
+    System.arraycopy(newLevels, 0, levels, 0, levels.length);
+    levelOrder = null;
+  }
+
+  /**
+   * Get the indices of the nodes sorted by their level (and by index for equal levels). The order
+   * is computed when it is requested for the first time after the levels have been changed, and
+   * is shared by all of the subgraphs of this graph (see {@link SubgraphMask}), so the nodes of a
+   * subgraph never have to be sorted. The returned array must not be modified.
+   *
+   * @return the indices of the nodes sorted by their level.
+   */
+  /*package*/ int[] getLevelOrder() {
+    int[] order = levelOrder;
+    if (order == null) {
+      long[] levelAndIndices = new long[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        levelAndIndices[i] = ((long) levels[i] << Integer.SIZE) | i;
+      }
+      Arrays.sort(levelAndIndices);
+      order = new int[ids.length];
+      for (int i = 0; i < ids.length; i++) {
+        order[i] = (int) levelAndIndices[i];
+      }
+      levelOrder = order;
+    }
+    return order;
+  }
+
+  /**
+   * Get the genomes of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the genomes of the node.
+   */
+  public GenomeSet getGenomeSet(int index) {
+    return genomeSets[genomeSetHandles[index]];
+  }
+
+  /**
+   * Get the handle of the genomes of the node at the given index. Nodes which have exactly the same
+   * genomes have the same handle.
+   *
+   * @param index the index of the node.
+   * @return the handle of the genomes of the node, from 0 till the amount of distinct genome sets.
+   */
+  public int getGenomeSetHandle(int index) {
+    return genomeSetHandles[index];
+  }
+
+  /**
+   * Get the amount of distinct genome sets of the nodes in this graph.
+   *
+   * @return the amount of distinct genome sets.
+   */
+  public int getGenomeSetCount() {
+    return genomeSets.length;
+  }
+
+  /**
+   * Get the genome set with the given handle.
+   *
+   * @param handle the handle of the genome set.
+   * @return the genome set.
+   */
+  public GenomeSet getGenomeSetOfHandle(int handle) {
+    return genomeSets[handle];
+  }
+
+  /**
+   * Get the sequence of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the sequence of the node, or null if the node has no sequence.
+   */
+  public BaseSequence getSequence(int index) {
+    return sequences[index];
+  }
+
+  /**
+   * Get the annotations of the node at the given index.
+   *
+   * @param index the index of the node.
+   * @return the annotations of the node, or null if the node has no annotations.
+   */
+  public AnnotationIndex getAnnotations(int index) {
+    return annotations.get(index);
+  }
+
+  /**
+   * Add an annotation to the node at the given index. Annotations may be added from multiple
+   * threads at the same time.
+   *
+   * @param index      the index of the node.
+   * @param annotation the annotation.
+   */
+  public void addAnnotation(int index, Annotation annotation) {
+    getOrCreateAnnotations(index).add(annotation);
+  }
+
+  /**
+   * Get the annotations of the node at the given index, and create an empty index of annotations
+   * for the node if it has no annotations yet.
+   *
+   * @param index the index of the node.
+   * @return the annotations of the node.
+   */
+  public AnnotationIndex getOrCreateAnnotations(int index) {
+    return annotations.computeIfAbsent(index, key -> new AnnotationIndex());
+  }
+
+  /**
+   * Get a list of node objects of the nodes at the given indices.
+   *
+   * @param targets the array which contains the indices of the nodes.
+   * @param from    the first index in the array (inclusive).
+   * @param to      the last index in the array (exclusive).
+   * @return an unmodifiable list which creates the node objects when they are requested.
+   */
+  private List<GraphNode> getNodeList(int[] targets, int from, int to) {
+    return new AbstractList<GraphNode>() {
+      @Override
+      public GraphNode get(int index) {
+        return getNodeAt(targets[from + index]);
+      }
+
+      @Override
+      public int size() {
+        return to - from;
+      }
+    };
+  }
+
+  /**
+   * Get the out edges of the node at the given index as node objects.
+   *
+   * @param index the index of the node.
+   * @return an unmodifiable list of the out edges.
+   */
+  public List<GraphNode> getOutEdges(int index) {
+    return getNodeList(outTargets, outOffsets[index], outOffsets[index + 1]);
+  }
+
+  /**
+   * Get the in edges of the node at the given index as node objects.
+   *
+   * @param index the index of the node.
+   * @return an unmodifiable list of the in edges.
+   */
+  public List<GraphNode> getInEdges(int index) {
+    return getNodeList(inTargets, inOffsets[index], inOffsets[index + 1]);
+  }
+
+  @Override
+  public Collection<GraphNode> getRootNodes() {
+    ArrayList<GraphNode> rootNodes = new ArrayList<>();
+    for (int i = 0; i < ids.length; i++) {
+      if (getInDegree(i) == 0) {
+        rootNodes.add(getNodeAt(i));
+      }
+    }
+    return rootNodes;
+  }
+
+  @Override
+  public Collection<Integer> getGenomes() {
+    return genomes;
+  }
+
+  @Override
+  public void addAsRootNode(GraphNode rootNode) {
+    throw new UnsupportedOperationException("The nodes of a compact graph can not be modified.");
+  }
+
+  @Override
+  public void addGenome(int genome) {
+    assert !genomes.contains(genome) : "Adding already existing genome to the graph.";
+    genomes.add(genome);
+  }
+
+  @Override
+  public void removeGenome(int genome) {
+    assert genomes.contains(genome) : "Removing non-existent genome from the graph.";
+    genomes.remove((Integer) genome);
+  }
+
+  @Override
+  public int size() {
+    return ids.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return ids.length == 0;
+  }
+
+  @Override
+  public boolean contains(GraphNode node) {
+    return getIndex(node.getId()) != -1;
+  }
+
+  @Override
+  public GraphNode getNode(int id) {
+    int index = getIndex(id);
+    if (index == -1) {
+      return null;
+    }
+    return getNodeAt(index);
+  }
+
+  @Override
+  public void add(GraphNode node) {
+    throw new UnsupportedOperationException("The nodes of a compact graph can not be modified.");
+  }
+
+  @Override
+  public void remove(GraphNode node, boolean updateInlinks, boolean updatOutlinks) {
+    throw new UnsupportedOperationException("The nodes of a compact graph can not be modified.");
+  }
+
+  @Override
+  public Iterator<GraphNode> iterator() {
+    return new Iterator<GraphNode>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < ids.length;
+      }
+
+      @Override
+      public GraphNode next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return getNodeAt(index++);
+      }
+    };
+  }
+
+  @Override
+  public ArrayList<GraphNode> getOrderedGraph() {
+    ArrayList<GraphNode> graphOrder = new ArrayList<>(ids.length);
+    for (int index : getLevelOrder()) {
+      graphOrder.add(getNodeAt(index));
+    }
+    return graphOrder;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (GraphNode node : this) {
+      sb.append(node.toString()).append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,179 @@
+package nl.tudelft.pl2016gr2.model.graph;
+
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+
+import java.util.stream.IntStream;
+
+/**
+ * The nodes and edges of a {@link CompactGraph} which are part of a subgraph.
+ * <p>
+ * The genomes of the subgraph are a single {@link GenomeSet}, which is intersected with the genome
+ * sets of the graph word by word. Every distinct genome set of the graph is checked only once,
+ * after which the nodes are marked in a bitmask with one bit per node index. The edges are marked
+ * with one flag per edge position (see {@link CompactGraph#getOutEdgeOffset(int)}). The node
+ * range is partitioned over the threads of the common fork join pool when the graph is large
+ * enough; every thread only writes its own words of the node mask and the flags of the out edges
+ * of its own nodes.
+ * </p>
+ */
+/*package*/ class SubgraphMask {
+
+  /**
+   * Ranges with less elements than this are processed by a single thread.
+   */
+  /*package*/ static final int PARALLEL_THRESHOLD = 1 << 10;
+
+  private final CompactGraph graph;
+  private final GenomeSet genomeMask;
+  private final boolean[] genomeSets;
+  private final long[] nodes;
+  private final boolean[] edges;
+  private final int amountOfNodes;
+
+  /**
+   * Determine which nodes and edges of the graph contain at least one of the given genomes.
+   *
+   * @param graph      the graph.
+   * @param genomeMask the genomes of the subgraph.
+   */
+  /*package*/ SubgraphMask(CompactGraph graph, GenomeSet genomeMask) {
+    this.graph = graph;
+    this.genomeMask = genomeMask;
+    int amountOfSets = graph.getGenomeSetCount();
+    this.genomeSets = new boolean[amountOfSets];
+    range(0, amountOfSets).forEach(
+        handle -> genomeSets[handle] = graph.getGenomeSetOfHandle(handle).intersects(genomeMask));
+
+    int size = graph.size();
+    this.nodes = new long[(size + Long.SIZE - 1) / Long.SIZE];
+    range(0, nodes.length).forEach(this::fillNodeWord);
+    this.amountOfNodes = IntStream.range(0, nodes.length).map(word -> Long.bitCount(nodes[word]))
+        .sum();
+
+    this.edges = new boolean[graph.getEdgeCount()];
+    range(0, size).forEach(this::fillOutEdges);
+  }
+
+  /**
+   * Create a stream over the given range, which is parallel if the range is large enough.
+   *
+   * @param from the first element (inclusive).
+   * @param to   the last element (exclusive).
+   * @return the stream.
+   */
+  private static IntStream range(int from, int to) {
+    IntStream stream = IntStream.range(from, to);
+    if (to - from >= PARALLEL_THRESHOLD) {
+      stream = stream.parallel();
+    }
+    return stream;
+  }
+
+  /**
+   * Mark the nodes of a single word of the node mask.
+   *
+   * @param word the index of the word.
+   */
+  private void fillNodeWord(int word) {
+    long bits = 0L;
+    int first = word * Long.SIZE;
+    int last = Math.min(first + Long.SIZE, graph.size());
+    for (int index = first; index < last; index++) {
+      if (genomeSets[graph.getGenomeSetHandle(index)]) {
+        bits |= 1L << (index - first);
+      }
+    }
+    nodes[word] = bits;
+  }
+
+  /**
+   * Mark the out edges of the node at the given index which are part of the subgraph.
+   *
+   * @param index the index of the node.
+   */
+  private void fillOutEdges(int index) {
+    if (!containsNode(index)) {
+      return;
+    }
+    int offset = graph.getOutEdgeOffset(index);
+    for (int edge = 0; edge < graph.getOutDegree(index); edge++) {
+      int target = graph.getOutEdge(index, edge);
+      edges[offset + edge] = containsNode(target) && hasGenomesOverEdge(index, target);
+    }
+  }
+
+  /**
+   * Check if any of the genomes of the subgraph go over the edge between the given nodes. This is
+   * the same as intersecting the genomes over the edge (see
+   * <code>GraphNode#getGenomesOverEdge</code>) with the genomes of the subgraph.
+   *
+   * @param from   the index of the node from which the edge starts.
+   * @param target the index of the node to which the edge goes.
+   * @return whether any of the genomes of the subgraph go over the edge.
+   */
+  private boolean hasGenomesOverEdge(int from, int target) {
+    GenomeSet overEdge = graph.getGenomeSet(from).and(graph.getGenomeSet(target)).and(genomeMask);
+    int targetLevel = graph.getLevel(target);
+    for (int edge = 0; edge < graph.getOutDegree(from) && !overEdge.isEmpty(); edge++) {
+      int other = graph.getOutEdge(from, edge);
+      if (other != target && graph.getLevel(other) < targetLevel) {
+        overEdge = overEdge.andNot(graph.getGenomeSet(other));
+      }
+    }
+    return !overEdge.isEmpty();
+  }
+
+  /**
+   * Check if the node at the given index is part of the subgraph.
+   *
+   * @param index the index of the node.
+   * @return whether the node is part of the subgraph.
+   */
+  /*package*/ boolean containsNode(int index) {
+    return (nodes[index / Long.SIZE] & (1L << (index % Long.SIZE))) != 0;
+  }
+
+  /**
+   * Check if an out edge of the node at the given index is part of the subgraph.
+   *
+   * @param index the index of the node.
+   * @param edge  the number of the out edge (from 0 till the out degree of the node).
+   * @return whether the edge is part of the subgraph.
+   */
+  /*package*/ boolean containsOutEdge(int index, int edge) {
+    return edges[graph.getOutEdgeOffset(index) + edge];
+  }
+
+  /**
+   * Check if the edge between the given nodes is part of the subgraph.
+   *
+   * @param from   the index of the node from which the edge starts.
+   * @param target the index of the node to which the edge goes.
+   * @return whether the edge is part of the subgraph.
+   */
+  /*package*/ boolean containsEdge(int from, int target) {
+    for (int edge = 0; edge < graph.getOutDegree(from); edge++) {
+      if (graph.getOutEdge(from, edge) == target) {
+        return containsOutEdge(from, edge);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the identifiers of the nodes of the subgraph, sorted by their level in the main graph
+   * (see {@link CompactGraph#getLevelOrder()}).
+   *
+   * @return the identifiers of the nodes of the subgraph.
+   */
+  /*package*/ int[] getNodeIds() {
+    int[] ids = new int[amountOfNodes];
+    int position = 0;
+    for (int index : graph.getLevelOrder()) {
+      if (containsNode(index)) {
+        ids[position++] = graph.getId(index);
+      }
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,323 @@
+package nl.tudelft.pl2016gr2.model.graph;
+
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SubgraphSequenceNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A subgraph of a sequence graph, which contains all of the nodes of the main graph which contain
+ * at least one of the genomes of the subgraph. The subgraph doesn't copy the main graph, but
+ * references the nodes of the main graph and a mask of the genomes of the subgraph.
+ * <p>
+ * The nodes of the subgraph are {@link SubgraphSequenceNode}s, which are created when they are
+ * requested for the first time. They only contain the genomes of the subgraph, and their edges are
+ * derived from the main graph when they are accessed: an edge of the main graph is part of the
+ * subgraph if at least one of the genomes which go over the edge is part of the subgraph. The
+ * nodes can be modified (for instance by the bubbling algorithms) without modifying the main
+ * graph.
+ * </p>
+ * <p>
+ * The nodes of the subgraph can not be added or removed.
+ * </p>
+ * <p>
+ * When the main graph is a {@link CompactGraph}, all of the nodes and edges of the subgraph are
+ * determined up front in parallel (see {@link SubgraphMask}), so deriving the edges of a node only
+ * requires looking up a flag per edge.
+ * </p>
+ */
+public class SubgraphView implements SequenceGraph {
+
+  private final SequenceGraph mainGraph;
+  private final GenomeSet genomeMask;
+  private final ArrayList<Integer> genomes;
+  private final SubgraphMask compactMask;
+  private final int[] nodeIds;
+  private final HashMap<Integer, SubgraphSequenceNode> nodes = new HashMap<>();
+
+  /**
+   * Create a subgraph of the given graph.
+   *
+   * @param mainGraph the main graph.
+   * @param genomes   the genomes of the subgraph.
+   */
+  public SubgraphView(SequenceGraph mainGraph, GenomeSet genomes) {
+    this.mainGraph = mainGraph;
+    this.genomeMask = genomes;
+    this.genomes = new ArrayList<>(genomes.toList());
+    if (mainGraph instanceof CompactGraph) {
+      this.compactMask = new SubgraphMask((CompactGraph) mainGraph, genomes);
+    } else {
+      this.compactMask = null;
+    }
+    this.nodeIds = findNodeIds();
+  }
+
+  /**
+   * Find the identifiers of all of the nodes of the main graph which are part of the subgraph.
+   * The nodes of a compact graph are found with a {@link SubgraphMask}, without creating any node
+   * objects.
+   *
+   * @return the identifiers of the nodes of the subgraph.
+   */
+  private int[] findNodeIds() {
+    if (compactMask != null) {
+      return compactMask.getNodeIds();
+    }
+    int[] ids = new int[mainGraph.size()];
+    int amountOfNodes = 0;
+    for (GraphNode node : mainGraph) {
+      if (node.getGenomeSet().intersects(genomeMask)) {
+        if (amountOfNodes == ids.length) {
+          ids = Arrays.copyOf(ids, ids.length * 2 + 1);
+        }
+        ids[amountOfNodes++] = node.getId();
+      }
+    }
+    return Arrays.copyOf(ids, amountOfNodes);
+  }
+
+  /**
+   * Check if a node of the main graph is part of the subgraph.
+   *
+   * @param mainNode the node of the main graph, or null.
+   * @return whether the node is part of the subgraph.
+   */
+  private boolean isPartOfSubgraph(GraphNode mainNode) {
+    if (mainNode == null) {
+      return false;
+    }
+    if (compactMask != null) {
+      int index = ((CompactGraph) mainGraph).getIndex(mainNode.getId());
+      return index != -1 && compactMask.containsNode(index);
+    }
+    return mainNode.getGenomeSet().intersects(genomeMask);
+  }
+
+  /**
+   * Check if an edge of the main graph is part of the subgraph, which is the case if any of the
+   * genomes of the subgraph go over the edge (see {@link GraphNode#getGenomesOverEdge(GraphNode)}).
+   *
+   * @param from the node of the main graph from which the edge starts.
+   * @param to   the node of the main graph to which the edge goes.
+   * @return whether the edge is part of the subgraph.
+   */
+  private boolean isPartOfSubgraph(GraphNode from, GraphNode to) {
+    if (compactMask != null) {
+      CompactGraph compactGraph = (CompactGraph) mainGraph;
+      return compactMask.containsEdge(compactGraph.getIndex(from.getId()),
+          compactGraph.getIndex(to.getId()));
+    }
+    GenomeSet overEdge = from.getGenomeSet().and(to.getGenomeSet()).and(genomeMask);
+    for (GraphNode outEdge : from.getOutEdges()) {
+      if (overEdge.isEmpty()) {
+        return false;
+      }
+      if (outEdge.getLevel() < to.getLevel() && !outEdge.equals(to)) {
+        overEdge = overEdge.andNot(outEdge.getGenomeSet());
+      }
+    }
+    return !overEdge.isEmpty();
+  }
+
+  /**
+   * Get the genome mask of this subgraph.
+   *
+   * @return the genomes of this subgraph.
+   */
+  public GenomeSet getGenomeMask() {
+    return genomeMask;
+  }
+
+  /**
+   * Get the in edges of a node in this subgraph. Called by a {@link SubgraphSequenceNode} when its
+   * in edges are accessed for the first time.
+   *
+   * @param original the node of the main graph.
+   * @return the nodes of this subgraph which are in edges of the node.
+   */
+  public Collection<GraphNode> getInEdges(GraphNode original) {
+    ArrayList<GraphNode> inEdges = new ArrayList<>();
+    for (GraphNode inEdge : original.getInEdges()) {
+      GraphNode mainInEdge = mainGraph.getNode(inEdge.getId());
+      if (isPartOfSubgraph(mainInEdge) && isPartOfSubgraph(mainInEdge, original)) {
+        inEdges.add(getNode(mainInEdge));
+      }
+    }
+    return inEdges;
+  }
+
+  /**
+   * Get the out edges of a node in this subgraph. Called by a {@link SubgraphSequenceNode} when
+   * its out edges are accessed for the first time.
+   *
+   * @param original the node of the main graph.
+   * @return the nodes of this subgraph which are out edges of the node.
+   */
+  public Collection<GraphNode> getOutEdges(GraphNode original) {
+    ArrayList<GraphNode> outEdges = new ArrayList<>();
+    for (GraphNode outEdge : original.getOutEdges()) {
+      GraphNode mainOutEdge = mainGraph.getNode(outEdge.getId());
+      if (isPartOfSubgraph(mainOutEdge) && isPartOfSubgraph(original, mainOutEdge)) {
+        outEdges.add(getNode(mainOutEdge));
+      }
+    }
+    return outEdges;
+  }
+
+  /**
+   * Get the subgraph node of a node of the main graph which is part of the subgraph, and create it
+   * if it doesn't exist yet.
+   *
+   * @param mainNode the node of the main graph.
+   * @return the node of the subgraph.
+   */
+  private SubgraphSequenceNode getNode(GraphNode mainNode) {
+    SubgraphSequenceNode node = nodes.get(mainNode.getId());
+    if (node == null) {
+      assert mainNode instanceof SequenceNode : "Only sequence nodes can be part of a subgraph";
+      GenomeSet nodeGenomes = mainNode.getGenomeSet();
+      if (!genomeMask.containsAll(nodeGenomes)) {
+        nodeGenomes = nodeGenomes.and(genomeMask);
+      }
+      node = new SubgraphSequenceNode(this, (SequenceNode) mainNode, nodeGenomes);
+      nodes.put(node.getId(), node);
+    }
+    return node;
+  }
+
+  @Override
+  public GraphNode getNode(int id) {
+    SubgraphSequenceNode node = nodes.get(id);
+    if (node != null) {
+      return node;
+    }
+    GraphNode mainNode = mainGraph.getNode(id);
+    if (!isPartOfSubgraph(mainNode)) {
+      return null;
+    }
+    return getNode(mainNode);
+  }
+
+  @Override
+  public Collection<GraphNode> getRootNodes() {
+    ArrayList<GraphNode> rootNodes = new ArrayList<>();
+    for (GraphNode node : this) {
+      if (node.isRoot()) {
+        rootNodes.add(node);
+      }
+    }
+    return rootNodes;
+  }
+
+  @Override
+  public Collection<Integer> getGenomes() {
+    return genomes;
+  }
+
+  @Override
+  public void addAsRootNode(GraphNode rootNode) {
+    throw new UnsupportedOperationException("The nodes of a subgraph can not be modified.");
+  }
+
+  @Override
+  public void addGenome(int genome) {
+    assert !genomes.contains(genome) : "Adding already existing genome to the graph.";
+    genomes.add(genome);
+  }
+
+  @Override
+  public void removeGenome(int genome) {
+    assert genomes.contains(genome) : "Removing non-existent genome from the graph.";
+    genomes.remove((Integer) genome);
+  }
+
+  @Override
+  public int size() {
+    return nodeIds.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return nodeIds.length == 0;
+  }
+
+  @Override
+  public boolean contains(GraphNode node) {
+    return nodes.containsKey(node.getId()) || isPartOfSubgraph(mainGraph.getNode(node.getId()));
+  }
+
+  @Override
+  public void add(GraphNode node) {
+    throw new UnsupportedOperationException("The nodes of a subgraph can not be modified.");
+  }
+
+  @Override
+  public void remove(GraphNode node, boolean updateInlinks, boolean updatOutlinks) {
+    throw new UnsupportedOperationException("The nodes of a subgraph can not be modified.");
+  }
+
+  @Override
+  public Iterator<GraphNode> iterator() {
+    return new Iterator<GraphNode>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < nodeIds.length;
+      }
+
+      @Override
+      public GraphNode next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return getNode(nodeIds[index++]);
+      }
+    };
+  }
+
+  @Override
+  public ArrayList<GraphNode> getOrderedGraph() {
+    ArrayList<GraphNode> graphOrder = new ArrayList<>(nodeIds.length);
+    forEach(graphOrder::add);
+    if (!isSortedByLevel(graphOrder)) {
+      graphOrder.sort((GraphNode firstNode, GraphNode secondNode)
+          -> Integer.compare(firstNode.getLevel(), secondNode.getLevel()));
+    }
+    return graphOrder;
+  }
+
+  /**
+   * Check if the nodes are sorted by their level. The nodes of a subgraph of a compact graph are
+   * already found in the level order of the main graph (see {@link SubgraphMask#getNodeIds()}), so
+   * they only have to be sorted when their levels have been changed.
+   *
+   * @param nodes the nodes.
+   * @return whether the nodes are sorted by their level.
+   */
+  private static boolean isSortedByLevel(ArrayList<GraphNode> nodes) {
+    for (int i = 1; i < nodes.size(); i++) {
+      if (nodes.get(i - 1).getLevel() > nodes.get(i).getLevel()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (GraphNode node : this) {
+      sb.append(node.toString()).append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,160 @@
+package nl.tudelft.pl2016gr2.model.graph.data;
+
+import nl.tudelft.pl2016gr2.model.Annotation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An interval index of annotations, keyed on their position in the graph
+ * ({@link Annotation#getStartInGraph()} to {@link Annotation#getEndInGraph()}).
+ * <p>
+ * The annotations are stored in an array which is sorted by their start in the graph. The array
+ * is an implicit binary search tree: the middle element of a range of the array is the root of
+ * the subtree of that range. For every subtree, the largest end in the graph of its annotations
+ * is stored, so subtrees which end before the requested range can be skipped. Finding the
+ * annotations which overlap with a range of levels takes O(log(n) + k) time, where k is the number
+ * of found annotations.
+ * </p>
+ * <p>
+ * The index is (re)built when it is queried after annotations have been added. The annotations
+ * are usually added in order of their start, in which case building the index takes linear time.
+ * The position of an annotation in the graph must not change after it has been queried.
+ * </p>
+ */
+public class AnnotationIndex {
+
+  private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+  private static final int[] NO_ENDS = new int[0];
+  private static final Comparator<Annotation> START_COMPARATOR
+      = Comparator.comparingInt(Annotation::getStartInGraph);
+
+  private Annotation[] annotations = NO_ANNOTATIONS;
+  private int[] maxEnds = NO_ENDS;
+  private int size = 0;
+  private boolean indexed = true;
+
+  /**
+   * Add an annotation to the index.
+   *
+   * @param annotation the annotation.
+   */
+  public synchronized void add(Annotation annotation) {
+    if (size == annotations.length) {
+      annotations = Arrays.copyOf(annotations, Math.max(4, size * 2));
+    }
+    annotations[size++] = annotation;
+    indexed = false;
+  }
+
+  /**
+   * Check if the index doesn't contain any annotations.
+   *
+   * @return if the index doesn't contain any annotations.
+   */
+  public synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Get the number of annotations in the index.
+   *
+   * @return the number of annotations in the index.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Get all of the annotations, ordered by their start in the graph.
+   *
+   * @return all of the annotations, ordered by their start in the graph.
+   */
+  public synchronized List<Annotation> getAll() {
+    buildIndex();
+    return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(annotations, size)));
+  }
+
+  /**
+   * Get the annotations which overlap with the given range of levels, ordered by their start in
+   * the graph.
+   *
+   * @param from the first level of the range.
+   * @param to   the last level of the range.
+   * @return the annotations which overlap with the range.
+   */
+  public synchronized List<Annotation> query(int from, int to) {
+    if (size == 0 || from > to) {
+      return Collections.emptyList();
+    }
+    buildIndex();
+    ArrayList<Annotation> found = new ArrayList<>();
+    query(0, size, from, to, found);
+    return found;
+  }
+
+  /**
+   * Add the annotations of the subtree of the given range of the array which overlap with the
+   * range of levels to the found annotations, in order of their start.
+   *
+   * @param low   the first index of the subtree (inclusive).
+   * @param high  the last index of the subtree (exclusive).
+   * @param from  the first level of the range.
+   * @param to    the last level of the range.
+   * @param found the found annotations.
+   */
+  private void query(int low, int high, int from, int to, List<Annotation> found) {
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (maxEnds[middle] < from) {
+        return;
+      }
+      query(low, middle, from, to, found);
+      Annotation annotation = annotations[middle];
+      if (annotation.getStartInGraph() > to) {
+        return;
+      }
+      if (annotation.getEndInGraph() >= from) {
+        found.add(annotation);
+      }
+      low = middle + 1;
+    }
+  }
+
+  /**
+   * Sort the annotations and compute the largest end of every subtree, if annotations have been
+   * added since the index was built.
+   */
+  private void buildIndex() {
+    if (indexed) {
+      return;
+    }
+    annotations = Arrays.copyOf(annotations, size);
+    Arrays.sort(annotations, START_COMPARATOR);
+    maxEnds = new int[size];
+    buildMaxEnds(0, size);
+    indexed = true;
+  }
+
+  /**
+   * Compute the largest end of the subtree of the given range of the array and of all of its
+   * subtrees.
+   *
+   * @param low  the first index of the subtree (inclusive).
+   * @param high the last index of the subtree (exclusive).
+   * @return the largest end of the subtree.
+   */
+  private int buildMaxEnds(int low, int high) {
+    if (low >= high) {
+      return Integer.MIN_VALUE;
+    }
+    int middle = (low + high) >>> 1;
+    int maxEnd = Math.max(annotations[middle].getEndInGraph(),
+        Math.max(buildMaxEnds(low, middle), buildMaxEnds(middle + 1, high)));
+    maxEnds[middle] = maxEnd;
+    return maxEnd;
+  }
+}
@@ -2,9 +2,16 @@ package nl.tudelft.pl2016gr2.model.graph.data;
 
 import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
 /**
- * This class represents a DNA sequence. It efficiently encodes the ATCG and N (unknown) bases as
- * bits in an array of integers, so fewer memory is needed than when using a simple String. The
+ * This class represents a DNA sequence. It efficiently encodes the ATCG bases as 2 bits in an array
+ * of longs, so fewer memory is needed than when using a simple String. Other bases (N and the other
+ * IUPAC codes) are very rare, so they are stored separately in a sorted list of exceptions. The
  * stored bases are immutable (just like a String) and it is possible to retrieve a String of the
  * stored bases by calling the <code>getBaseSequence()</code> method.
  *
@@ -12,23 +19,53 @@ import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
  */
 public class BaseSequence {
 
-  private static final int BITS_PER_BASE = 3;
-  private static final int BITS_PER_INT = Integer.BYTES * 8;
+  /**
+   * The size (in bytes) of the header which precedes the bases written by the
+   * <code>write(DataOutput)</code> method.
+   */
+  public static final int SERIALIZED_HEADER_SIZE = 3 * Integer.BYTES;
+
+  private static final int BITS_PER_BASE = 2;
+  private static final int BASES_PER_LONG = Long.SIZE / BITS_PER_BASE;
+  private static final int BASES_PER_BYTE = Byte.SIZE / BITS_PER_BASE;
+  private static final int LOG_BASES_PER_LONG = 5;
+  private static final int BASE_MASK = 0b11;
+  private static final int BYTE_MASK = 0xFF;
+
+  private static final int BASE_A = 0b00;
+  private static final int BASE_C = 0b01;
+  private static final int BASE_G = 0b10;
+  private static final int BASE_T = 0b11;
+  private static final char[] DECODED_BASES = {'A', 'C', 'G', 'T'};
+  private static final String EXCEPTION_BASES = "NRYKMSWBDHV";
 
-  private static final int END_OF_BASES = 0b000;
-  private static final int BASE_A = 0b001;
-  private static final int BASE_T = 0b010;
-  private static final int BASE_C = 0b011;
-  private static final int BASE_G = 0b100;
-  private static final int BASE_UNKNOWN = 0b101;
+  /**
+   * For every possible byte (4 encoded bases), the 4 decoded bases.
+   */
+  private static final char[] DECODED_BYTES = new char[(BYTE_MASK + 1) * BASES_PER_BYTE];
+
+  private static final long[] NO_BASES = new long[0];
+  private static final int[] NO_EXCEPTION_POSITIONS = new int[0];
+  private static final byte[] NO_EXCEPTION_BASES = new byte[0];
+
+  static {
+    for (int i = 0; i <= BYTE_MASK; i++) {
+      for (int j = 0; j < BASES_PER_BYTE; j++) {
+        DECODED_BYTES[i * BASES_PER_BYTE + j] = DECODED_BASES[(i >>> (j * BITS_PER_BASE)) & 0b11];
+      }
+    }
+  }
 
   @TestId(id = "bases")
-  private final int[] bases;
+  private final long[] bases;
   private final int amountOfBases;
+  @TestId(id = "exceptionPositions")
+  private int[] exceptionPositions = NO_EXCEPTION_POSITIONS;
+  private byte[] exceptionBases = NO_EXCEPTION_BASES;
 
   /**
    * Create a base sequence. The characters in the String may only have one of the following values:
-   * A, T, C, G, N (otherwise an AssertionError will be thrown).
+   * A, T, C, G, N or one of the other IUPAC codes (otherwise an AssertionError will be thrown).
    *
    * @param bases the sequence of bases.
    */
@@ -39,18 +76,136 @@ public class BaseSequence {
   /**
    * Create a base sequence. This constructor is made for the parser (as the parser parses an array
    * of characters). The characters in the array between the startIndex and endIndex may only have
-   * one of the following values: A, T, C, G, N (otherwise an AssertionError will be thrown).
+   * one of the following values: A, T, C, G, N or one of the other IUPAC codes (otherwise an
+   * AssertionError will be thrown).
    *
    * @param bases      an array containing the sequence of bases.
    * @param startIndex the index in the array where the bases start.
    * @param endIndex   the index in the array where the bases end.
    */
   public BaseSequence(char[] bases, int startIndex, int endIndex) {
-    amountOfBases = endIndex - startIndex;
-    int bitsNeeded = amountOfBases * BITS_PER_BASE;
-    int intsNeeded = (int) Math.ceil(bitsNeeded / (double) BITS_PER_INT);
-    this.bases = new int[intsNeeded];
-    setBases(bases, startIndex, endIndex);
+    this(endIndex - startIndex, index -> bases[startIndex + index]);
+  }
+
+  /**
+   * Create a base sequence from raw (ASCII) bytes. This constructor is made for the memory mapped
+   * parser, which reads the bytes of the file without decoding them to characters. The bytes in the
+   * array between the startIndex and endIndex may only have one of the following values: A, T, C,
+   * G, N or one of the other IUPAC codes (otherwise an AssertionError will be thrown).
+   *
+   * @param bases      an array containing the sequence of bases.
+   * @param startIndex the index in the array where the bases start.
+   * @param endIndex   the index in the array where the bases end.
+   */
+  public BaseSequence(byte[] bases, int startIndex, int endIndex) {
+    this(endIndex - startIndex, index -> bases[startIndex + index]);
+  }
+
+  /**
+   * Create a base sequence by encoding the given bases.
+   *
+   * @param amountOfBases the amount of bases.
+   * @param baseAt        gives the (unencoded) base at the given index of the sequence.
+   */
+  private BaseSequence(int amountOfBases, IntUnaryOperator baseAt) {
+    this.amountOfBases = amountOfBases;
+    this.bases = new long[longsNeeded(amountOfBases)];
+    int amountOfExceptions = 0;
+    for (int i = 0; i < amountOfBases; i++) {
+      if (!setBase(i, (char) baseAt.applyAsInt(i))) {
+        amountOfExceptions++;
+      }
+    }
+    if (amountOfExceptions > 0) {
+      initializeExceptions(amountOfExceptions);
+      int exception = 0;
+      for (int i = 0; i < amountOfBases; i++) {
+        char base = (char) baseAt.applyAsInt(i);
+        if (encode(base) < 0) {
+          setException(exception++, i, base);
+        }
+      }
+    }
+  }
+
+  /**
+   * Create a base sequence which doesn't store any bases itself. This constructor is meant for
+   * subclasses which retrieve the bases from elsewhere (see {@link LazyBaseSequence}); they must
+   * override the <code>getBaseSequence()</code>, <code>getBase(int)</code>,
+   * <code>subsequence(int, int)</code> and <code>size()</code> methods.
+   */
+  protected BaseSequence() {
+    this(NO_BASES, 0);
+  }
+
+  /**
+   * Create a base sequence from already encoded bases.
+   *
+   * @param bases         the encoded bases.
+   * @param amountOfBases the amount of bases which are encoded.
+   */
+  private BaseSequence(long[] bases, int amountOfBases) {
+    this.bases = bases;
+    this.amountOfBases = amountOfBases;
+  }
+
+  /**
+   * Write the encoded bases to the given output, so they can be read back by the
+   * <code>read(ByteBuffer)</code> method without encoding the bases again.
+   *
+   * @param output the output to write to.
+   * @throws IOException if the output can not be written.
+   */
+  public void write(DataOutput output) throws IOException {
+    output.writeInt(amountOfBases);
+    output.writeInt(bases.length);
+    output.writeInt(exceptionPositions.length);
+    for (long encodedBases : bases) {
+      output.writeLong(encodedBases);
+    }
+    for (int position : exceptionPositions) {
+      output.writeInt(position);
+    }
+    output.write(exceptionBases);
+  }
+
+  /**
+   * Get the size (in bytes) of a base sequence which is written by the
+   * <code>write(DataOutput)</code> method. The buffer must contain at least the header of the base
+   * sequence at its current position; the position of the buffer is not changed.
+   *
+   * @param buffer the buffer containing the header of the written base sequence.
+   * @return the size of the written base sequence, including its header.
+   */
+  public static int getSerializedSize(ByteBuffer buffer) {
+    int longs = buffer.getInt(buffer.position() + Integer.BYTES);
+    int exceptions = buffer.getInt(buffer.position() + 2 * Integer.BYTES);
+    return SERIALIZED_HEADER_SIZE + longs * Long.BYTES + exceptions * (Integer.BYTES + 1);
+  }
+
+  /**
+   * Read a base sequence which is written by the <code>write(DataOutput)</code> method. The
+   * encoded bases are read in bulk from the buffer, after which the position of the buffer is right
+   * after the read base sequence.
+   *
+   * @param buffer the buffer to read from.
+   * @return the read base sequence.
+   */
+  public static BaseSequence read(ByteBuffer buffer) {
+    int amountOfBases = buffer.getInt();
+    long[] bases = new long[buffer.getInt()];
+    int amountOfExceptions = buffer.getInt();
+    buffer.asLongBuffer().get(bases);
+    buffer.position(buffer.position() + bases.length * Long.BYTES);
+    BaseSequence sequence = new BaseSequence(bases, amountOfBases);
+    if (amountOfExceptions > 0) {
+      sequence.exceptionPositions = new int[amountOfExceptions];
+      sequence.exceptionBases = new byte[amountOfExceptions];
+      buffer.asIntBuffer().get(sequence.exceptionPositions);
+      buffer.position(buffer.position() + amountOfExceptions * Integer.BYTES);
+      buffer.get(sequence.exceptionBases);
+    }
+    return sequence;
   }
 
   /**
@@ -59,83 +214,137 @@ public class BaseSequence {
    * @return the base sequence as a string.
    */
   public String getBaseSequence() {
-    StringBuilder sb = new StringBuilder();
-    int index = 0;
-    int encodedBase = getBase(index / BITS_PER_INT, index % BITS_PER_INT);
-    while (encodedBase != END_OF_BASES) {
-      sb.append(decode(encodedBase));
-      index += BITS_PER_BASE;
-      encodedBase = getBase(index / BITS_PER_INT, index % BITS_PER_INT);
+    return subsequence(0, amountOfBases);
+  }
+
+  /**
+   * Get the bases between the given indices as a string.
+   *
+   * @param from the index of the first base (inclusive).
+   * @param to   the index of the last base (exclusive).
+   * @return the bases between the given indices.
+   */
+  public String subsequence(int from, int to) {
+    assert 0 <= from && from <= to && to <= amountOfBases;
+    char[] decoded = new char[to - from];
+    decode(from, to, decoded);
+    return new String(decoded);
+  }
+
+  /**
+   * Get a single base.
+   *
+   * @param index the index of the base.
+   * @return the base at the given index.
+   */
+  public char getBase(int index) {
+    assert 0 <= index && index < amountOfBases;
+    if (exceptionPositions.length > 0) {
+      int exception = Arrays.binarySearch(exceptionPositions, index);
+      if (exception >= 0) {
+        return (char) exceptionBases[exception];
+      }
     }
-    return sb.toString();
+    return decodeBase(index);
   }
 
   /**
-   * Get a single encoded base. If there is no base present at given index the END_OF_BASES value
-   * will be returned to indicate that all bases have been read.
+   * Decode the bases between the given indices. Whole bytes (4 bases) of the encoded words are
+   * decoded at once with a lookup table, after which the exceptions are put in place.
    *
-   * @param arrayIndex the index in the array of the base.
-   * @param bitIndex   the index of the starting bit of the base in the array.
-   * @return the read encoded base.
+   * @param from    the index of the first base (inclusive).
+   * @param to      the index of the last base (exclusive).
+   * @param decoded the array in which to put the decoded bases.
    */
-  private int getBase(int arrayIndex, int bitIndex) {
-    if (bitIndex <= BITS_PER_INT - BITS_PER_BASE) {
-      if (arrayIndex < bases.length) {
-        return (bases[arrayIndex] >> bitIndex) & 0b111;
+  private void decode(int from, int to, char[] decoded) {
+    int index = from;
+    while (index < to && (index & (BASES_PER_BYTE - 1)) != 0) {
+      decoded[index - from] = decodeBase(index);
+      index++;
+    }
+    while (index + BASES_PER_BYTE <= to) {
+      long word = bases[index >>> LOG_BASES_PER_LONG];
+      int encodedByte = (int) (word >>> ((index & (BASES_PER_LONG - 1)) * BITS_PER_BASE))
+          & BYTE_MASK;
+      System.arraycopy(DECODED_BYTES, encodedByte * BASES_PER_BYTE, decoded, index - from,
+          BASES_PER_BYTE);
+      index += BASES_PER_BYTE;
+    }
+    while (index < to) {
+      decoded[index - from] = decodeBase(index);
+      index++;
+    }
+    if (exceptionPositions.length > 0) {
+      int exception = Arrays.binarySearch(exceptionPositions, from);
+      if (exception < 0) {
+        exception = -exception - 1;
       }
-      return END_OF_BASES;
-    } else if (arrayIndex + 1 < bases.length) {
-      int bits = (bases[arrayIndex] >>> bitIndex) & 0b111;
-      int bitsLeftToCopy = BITS_PER_BASE - (BITS_PER_INT - bitIndex);
-      for (int i = 0; i < bitsLeftToCopy; i++) {
-        bits += (bases[arrayIndex + 1] & (1 << i)) << BITS_PER_BASE - bitsLeftToCopy;
+      while (exception < exceptionPositions.length && exceptionPositions[exception] < to) {
+        decoded[exceptionPositions[exception] - from] = (char) exceptionBases[exception];
+        exception++;
       }
-      return bits;
     }
-    return END_OF_BASES;
   }
 
   /**
-   * Encode the bases and put them into the array of integers.
+   * Decode a single base from the array of longs (ignoring the exceptions).
    *
-   * @param bases      an array containing the bases of the sequence.
-   * @param startIndex the index in the array where the bases start.
-   * @param endIndex   the index in the array where the bases end.
+   * @param index the index of the base.
+   * @return the decoded base.
    */
-  private void setBases(char[] bases, int startIndex, int endIndex) {
-    for (int i = 0; i < endIndex - startIndex; i++) {
-      char base = bases[startIndex + i];
-      setBase((i * BITS_PER_BASE) / BITS_PER_INT, (i * BITS_PER_BASE) % BITS_PER_INT, encode(base));
-    }
+  private char decodeBase(int index) {
+    long word = bases[index >>> LOG_BASES_PER_LONG];
+    return DECODED_BASES[(int) (word >>> ((index & (BASES_PER_LONG - 1)) * BITS_PER_BASE))
+        & BASE_MASK];
   }
 
   /**
-   * Set a single encoded base.
+   * Encode a single base and store it in the array of longs.
    *
-   * @param arrayIndex  the index in the array of the base.
-   * @param bitIndex    the index of the starting bit of the base in the array.
-   * @param encodedBase the encoded base.
+   * @param index the index of the base.
+   * @param base  the base.
+   * @return false if the base can not be stored in 2 bits and must be stored as an exception.
    */
-  private void setBase(int arrayIndex, int bitIndex, int encodedBase) {
-    if (bitIndex <= BITS_PER_INT - BITS_PER_BASE) {
-      bases[arrayIndex] += encodedBase << bitIndex;
-    } else {
-      int baseCopy = encodedBase;
-      for (int i = bitIndex; i < BITS_PER_INT; i++) {
-        bases[arrayIndex] += (baseCopy & 1) << i;
-        baseCopy >>= 1;
-      }
-      bases[arrayIndex + 1] = baseCopy;
+  private boolean setBase(int index, char base) {
+    int encodedBase = encode(base);
+    if (encodedBase < 0) {
+      return false;
     }
+    bases[index >>> LOG_BASES_PER_LONG]
+        |= ((long) encodedBase) << ((index & (BASES_PER_LONG - 1)) * BITS_PER_BASE);
+    return true;
+  }
+
+  /**
+   * Create the lists of exceptions.
+   *
+   * @param amountOfExceptions the amount of exceptions.
+   */
+  private void initializeExceptions(int amountOfExceptions) {
+    exceptionPositions = new int[amountOfExceptions];
+    exceptionBases = new byte[amountOfExceptions];
+  }
+
+  /**
+   * Set an exception: a base which can not be stored in 2 bits. Exceptions must be set in
+   * increasing order of their index, so the list of exceptions stays sorted.
+   *
+   * @param exception the index of the exception.
+   * @param index     the index of the base.
+   * @param base      the base.
+   */
+  private void setException(int exception, int index, char base) {
+    exceptionPositions[exception] = index;
+    exceptionBases[exception] = (byte) base;
   }
 
   /**
    * Encode a base.
    *
    * @param base the base to encode.
-   * @return the encoded base.
+   * @return the encoded base, or -1 if the base must be stored as an exception.
    */
-  private int encode(char base) {
+  private static int encode(char base) {
     switch (base) {
       case 'C':
         return BASE_C;
@@ -145,34 +354,22 @@ public class BaseSequence {
         return BASE_A;
       case 'T':
         return BASE_T;
-      case 'N':
-        return BASE_UNKNOWN;
       default:
-        throw new AssertionError();
+        if (EXCEPTION_BASES.indexOf(base) < 0) {
+          throw new AssertionError("Unknown base: " + base);
+        }
+        return -1;
     }
   }
 
   /**
-   * Decode a base.
+   * Calculate the amount of longs which are needed to store the given amount of bases.
    *
-   * @param encodedBase the encoded base to decode.
-   * @return the decoded base.
+   * @param amountOfBases the amount of bases.
+   * @return the amount of longs needed.
    */
-  private char decode(int encodedBase) {
-    switch (encodedBase) {
-      case BASE_C:
-        return 'C';
-      case BASE_G:
-        return 'G';
-      case BASE_A:
-        return 'A';
-      case BASE_T:
-        return 'T';
-      case BASE_UNKNOWN:
-        return 'N';
-      default:
-        throw new AssertionError();
-    }
+  private static int longsNeeded(int amountOfBases) {
+    return (amountOfBases + BASES_PER_LONG - 1) / BASES_PER_LONG;
   }
 
   /**
@@ -0,0 +1,561 @@
+package nl.tudelft.pl2016gr2.model.graph.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable set of genome ids. A set is stored as a bitset (one bit per possible genome) when it
+ * contains a lot of genomes, or as a sorted array of genome ids when it only contains a few of the
+ * genomes, whichever takes the least amount of memory. Set operations between two bitsets are
+ * performed on 64 genomes at a time.
+ * <p>
+ * Because a set is immutable, it can be shared between nodes (and their copies) without copying.
+ * </p>
+ */
+public abstract class GenomeSet {
+
+  private static final int ADDRESS_BITS_PER_WORD = 6;
+  private static final int[] NO_GENOMES = new int[0];
+  private static final GenomeSet EMPTY = new SparseGenomeSet(NO_GENOMES);
+
+  private List<Integer> list;
+
+  /**
+   * Only the nested classes can extend this class.
+   */
+  private GenomeSet() {
+  }
+
+  /**
+   * Get the empty genome set.
+   *
+   * @return the empty genome set.
+   */
+  public static GenomeSet empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Create a genome set which contains the given genomes. The genomes don't have to be sorted and
+   * may contain duplicates.
+   *
+   * @param genomes the genomes.
+   * @return a genome set which contains the given genomes.
+   */
+  public static GenomeSet of(Collection<Integer> genomes) {
+    int[] array = new int[genomes.size()];
+    int index = 0;
+    for (Integer genome : genomes) {
+      array[index++] = genome;
+    }
+    return of(array);
+  }
+
+  /**
+   * Create a genome set which contains the given genomes. The genomes don't have to be sorted and
+   * may contain duplicates.
+   *
+   * @param genomes the genomes.
+   * @return a genome set which contains the given genomes.
+   */
+  public static GenomeSet of(int... genomes) {
+    int[] sorted = Arrays.copyOf(genomes, genomes.length);
+    Arrays.sort(sorted);
+    int size = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      assert sorted[i] >= 0 : "Genome ids can not be negative: " + sorted[i];
+      if (size == 0 || sorted[size - 1] != sorted[i]) {
+        sorted[size++] = sorted[i];
+      }
+    }
+    return fromSorted(sorted, size);
+  }
+
+  /**
+   * Create a genome set from the first <code>size</code> genomes of a sorted array without
+   * duplicates. The representation which uses the least memory is chosen.
+   *
+   * @param sorted the sorted genomes.
+   * @param size   the amount of genomes in the array which are part of the set.
+   * @return the genome set.
+   */
+  private static GenomeSet fromSorted(int[] sorted, int size) {
+    if (size == 0) {
+      return EMPTY;
+    }
+    int wordCount = (sorted[size - 1] >>> ADDRESS_BITS_PER_WORD) + 1;
+    if (isSparse(size, wordCount)) {
+      return new SparseGenomeSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+    }
+    long[] words = new long[wordCount];
+    for (int i = 0; i < size; i++) {
+      words[sorted[i] >>> ADDRESS_BITS_PER_WORD] |= 1L << sorted[i];
+    }
+    return new DenseGenomeSet(words, size);
+  }
+
+  /**
+   * Create a genome set from a bitset. The array may be modified and is used by the created set
+   * if a bitset is the most compact representation.
+   *
+   * @param words the bitset.
+   * @return the genome set.
+   */
+  private static GenomeSet fromWords(long[] words) {
+    int wordCount = words.length;
+    while (wordCount > 0 && words[wordCount - 1] == 0) {
+      wordCount--;
+    }
+    int cardinality = 0;
+    for (int i = 0; i < wordCount; i++) {
+      cardinality += Long.bitCount(words[i]);
+    }
+    if (cardinality == 0) {
+      return EMPTY;
+    }
+    if (isSparse(cardinality, wordCount)) {
+      int[] genomes = new int[cardinality];
+      int index = 0;
+      for (int i = 0; i < wordCount; i++) {
+        long word = words[i];
+        while (word != 0) {
+          genomes[index++] = (i << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+        }
+      }
+      return new SparseGenomeSet(genomes);
+    }
+    return new DenseGenomeSet(
+        wordCount == words.length ? words : Arrays.copyOf(words, wordCount), cardinality);
+  }
+
+  /**
+   * Check if a sorted array takes less memory than a bitset.
+   *
+   * @param cardinality the amount of genomes in the set.
+   * @param wordCount   the amount of words the bitset would need.
+   * @return if a sorted array takes less memory than a bitset.
+   */
+  private static boolean isSparse(int cardinality, int wordCount) {
+    return (long) cardinality * Integer.BYTES < (long) wordCount * Long.BYTES;
+  }
+
+  /**
+   * Check if the given genome is in this set.
+   *
+   * @param genome the genome.
+   * @return if the genome is in this set.
+   */
+  public abstract boolean contains(int genome);
+
+  /**
+   * Get the amount of genomes in this set.
+   *
+   * @return the amount of genomes in this set.
+   */
+  public abstract int cardinality();
+
+  /**
+   * Check if this set is empty.
+   *
+   * @return if this set is empty.
+   */
+  public boolean isEmpty() {
+    return cardinality() == 0;
+  }
+
+  /**
+   * Perform the given action for every genome in this set, in ascending order.
+   *
+   * @param action the action to perform.
+   */
+  public abstract void forEach(IntConsumer action);
+
+  /**
+   * Check if this set is stored as a bitset.
+   *
+   * @return if this set is stored as a bitset.
+   */
+  /*package*/ abstract boolean isDense();
+
+  /**
+   * Get the intersection of this set and the given set.
+   *
+   * @param other the other set.
+   * @return the genomes which are in both sets.
+   */
+  public GenomeSet and(GenomeSet other) {
+    if (!isDense()) {
+      return ((SparseGenomeSet) this).filter(other, true);
+    } else if (!other.isDense()) {
+      return ((SparseGenomeSet) other).filter(this, true);
+    }
+    long[] thisWords = ((DenseGenomeSet) this).words;
+    long[] otherWords = ((DenseGenomeSet) other).words;
+    long[] words = new long[Math.min(thisWords.length, otherWords.length)];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = thisWords[i] & otherWords[i];
+    }
+    return fromWords(words);
+  }
+
+  /**
+   * Get the union of this set and the given set.
+   *
+   * @param other the other set.
+   * @return the genomes which are in any of the sets.
+   */
+  public GenomeSet or(GenomeSet other) {
+    if (other.isEmpty()) {
+      return this;
+    } else if (isEmpty()) {
+      return other;
+    } else if (!isDense() && !other.isDense()) {
+      return ((SparseGenomeSet) this).merge((SparseGenomeSet) other);
+    } else if (!isDense()) {
+      return ((SparseGenomeSet) this).addTo((DenseGenomeSet) other);
+    } else if (!other.isDense()) {
+      return ((SparseGenomeSet) other).addTo((DenseGenomeSet) this);
+    }
+    long[] thisWords = ((DenseGenomeSet) this).words;
+    long[] otherWords = ((DenseGenomeSet) other).words;
+    long[] words = Arrays.copyOf(thisWords, Math.max(thisWords.length, otherWords.length));
+    for (int i = 0; i < otherWords.length; i++) {
+      words[i] |= otherWords[i];
+    }
+    return fromWords(words);
+  }
+
+  /**
+   * Get the genomes of this set which are not in the given set.
+   *
+   * @param other the other set.
+   * @return the genomes of this set which are not in the given set.
+   */
+  public GenomeSet andNot(GenomeSet other) {
+    if (other.isEmpty()) {
+      return this;
+    } else if (!isDense()) {
+      return ((SparseGenomeSet) this).filter(other, false);
+    } else if (!other.isDense()) {
+      return ((SparseGenomeSet) other).removeFrom((DenseGenomeSet) this);
+    }
+    long[] thisWords = ((DenseGenomeSet) this).words;
+    long[] otherWords = ((DenseGenomeSet) other).words;
+    long[] words = Arrays.copyOf(thisWords, thisWords.length);
+    for (int i = 0; i < Math.min(words.length, otherWords.length); i++) {
+      words[i] &= ~otherWords[i];
+    }
+    return fromWords(words);
+  }
+
+  /**
+   * Check if this set and the given set have any genome in common.
+   *
+   * @param other the other set.
+   * @return if this set and the given set have any genome in common.
+   */
+  public boolean intersects(GenomeSet other) {
+    if (!isDense()) {
+      return ((SparseGenomeSet) this).anyContainedIn(other);
+    } else if (!other.isDense()) {
+      return ((SparseGenomeSet) other).anyContainedIn(this);
+    }
+    long[] thisWords = ((DenseGenomeSet) this).words;
+    long[] otherWords = ((DenseGenomeSet) other).words;
+    for (int i = 0; i < Math.min(thisWords.length, otherWords.length); i++) {
+      if ((thisWords[i] & otherWords[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check if this set contains all of the genomes of the given set.
+   *
+   * @param other the other set.
+   * @return if this set contains all of the genomes of the given set.
+   */
+  public boolean containsAll(GenomeSet other) {
+    if (other.cardinality() > cardinality()) {
+      return false;
+    } else if (!other.isDense()) {
+      return ((SparseGenomeSet) other).allContainedIn(this);
+    } else if (!isDense()) {
+      return ((DenseGenomeSet) other).allContainedIn(this);
+    }
+    long[] thisWords = ((DenseGenomeSet) this).words;
+    long[] otherWords = ((DenseGenomeSet) other).words;
+    if (otherWords.length > thisWords.length) {
+      return false;
+    }
+    for (int i = 0; i < otherWords.length; i++) {
+      if ((otherWords[i] & ~thisWords[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the genomes of this set as an array in ascending order.
+   *
+   * @return the genomes of this set.
+   */
+  public int[] toArray() {
+    int[] genomes = new int[cardinality()];
+    int[] index = new int[1];
+    forEach(genome -> genomes[index[0]++] = genome);
+    return genomes;
+  }
+
+  /**
+   * Get the genomes of this set as a sorted list.
+   *
+   * @return a new sorted list which contains the genomes of this set.
+   */
+  public List<Integer> toList() {
+    ArrayList<Integer> genomes = new ArrayList<>(cardinality());
+    forEach(genomes::add);
+    return genomes;
+  }
+
+  /**
+   * Get the genomes of this set as an unmodifiable sorted list. The list is created the first time
+   * it is requested and is shared by all of the later callers.
+   *
+   * @return an unmodifiable sorted list which contains the genomes of this set.
+   */
+  public List<Integer> asList() {
+    List<Integer> genomes = list;
+    if (genomes == null) {
+      genomes = Collections.unmodifiableList(toList());
+      list = genomes;
+    }
+    return genomes;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (!(obj instanceof GenomeSet)) {
+      return false;
+    }
+    GenomeSet other = (GenomeSet) obj;
+    return cardinality() == other.cardinality() && containsAll(other);
+  }
+
+  @Override
+  public int hashCode() {
+    int[] hash = new int[1];
+    forEach(genome -> hash[0] = 31 * hash[0] + genome);
+    return hash[0];
+  }
+
+  @Override
+  public String toString() {
+    return toList().toString();
+  }
+
+  /**
+   * A genome set which stores its genomes as a bitset.
+   */
+  private static final class DenseGenomeSet extends GenomeSet {
+
+    private final long[] words;
+    private final int cardinality;
+
+    private DenseGenomeSet(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    public boolean contains(int genome) {
+      int wordIndex = genome >>> ADDRESS_BITS_PER_WORD;
+      return genome >= 0 && wordIndex < words.length && (words[wordIndex] & (1L << genome)) != 0;
+    }
+
+    @Override
+    public int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+      for (int i = 0; i < words.length; i++) {
+        long word = words[i];
+        while (word != 0) {
+          action.accept((i << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    /*package*/ boolean isDense() {
+      return true;
+    }
+
+    private boolean allContainedIn(GenomeSet other) {
+      for (int i = 0; i < words.length; i++) {
+        long word = words[i];
+        while (word != 0) {
+          if (!other.contains((i << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word))) {
+            return false;
+          }
+          word &= word - 1;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A genome set which stores its genomes as a sorted array.
+   */
+  private static final class SparseGenomeSet extends GenomeSet {
+
+    private final int[] genomes;
+
+    private SparseGenomeSet(int[] genomes) {
+      this.genomes = genomes;
+    }
+
+    @Override
+    public boolean contains(int genome) {
+      return Arrays.binarySearch(genomes, genome) >= 0;
+    }
+
+    @Override
+    public int cardinality() {
+      return genomes.length;
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+      for (int genome : genomes) {
+        action.accept(genome);
+      }
+    }
+
+    @Override
+    /*package*/ boolean isDense() {
+      return false;
+    }
+
+    @Override
+    public int[] toArray() {
+      return genomes.length == 0 ? NO_GENOMES : genomes.clone();
+    }
+
+    /**
+     * Get the genomes of this set which are (or are not) in the given set.
+     *
+     * @param other    the other set.
+     * @param contains if the genomes which are in the other set must be kept (true) or the genomes
+     *                 which are not in the other set (false).
+     * @return the filtered set.
+     */
+    private GenomeSet filter(GenomeSet other, boolean contains) {
+      int[] filtered = new int[genomes.length];
+      int size = 0;
+      for (int genome : genomes) {
+        if (other.contains(genome) == contains) {
+          filtered[size++] = genome;
+        }
+      }
+      if (size == genomes.length) {
+        return this;
+      }
+      return fromSorted(filtered, size);
+    }
+
+    /**
+     * Merge the genomes of this set and the given set.
+     *
+     * @param other the other set.
+     * @return the union of both sets.
+     */
+    private GenomeSet merge(SparseGenomeSet other) {
+      int[] merged = new int[genomes.length + other.genomes.length];
+      int thisIndex = 0;
+      int otherIndex = 0;
+      int size = 0;
+      while (thisIndex < genomes.length && otherIndex < other.genomes.length) {
+        int thisValue = genomes[thisIndex];
+        int otherValue = other.genomes[otherIndex];
+        if (thisValue <= otherValue) {
+          thisIndex++;
+        }
+        if (otherValue <= thisValue) {
+          otherIndex++;
+        }
+        merged[size++] = Math.min(thisValue, otherValue);
+      }
+      while (thisIndex < genomes.length) {
+        merged[size++] = genomes[thisIndex++];
+      }
+      while (otherIndex < other.genomes.length) {
+        merged[size++] = other.genomes[otherIndex++];
+      }
+      return fromSorted(merged, size);
+    }
+
+    /**
+     * Add the genomes of this set to the given bitset. This set must not be empty.
+     *
+     * @param other the bitset.
+     * @return the union of both sets.
+     */
+    private GenomeSet addTo(DenseGenomeSet other) {
+      int wordCount = (genomes[genomes.length - 1] >>> ADDRESS_BITS_PER_WORD) + 1;
+      long[] words = Arrays.copyOf(other.words, Math.max(other.words.length, wordCount));
+      for (int genome : genomes) {
+        words[genome >>> ADDRESS_BITS_PER_WORD] |= 1L << genome;
+      }
+      return fromWords(words);
+    }
+
+    /**
+     * Remove the genomes of this set from the given bitset.
+     *
+     * @param other the bitset.
+     * @return the genomes of the bitset which are not in this set.
+     */
+    private GenomeSet removeFrom(DenseGenomeSet other) {
+      long[] words = Arrays.copyOf(other.words, other.words.length);
+      for (int genome : genomes) {
+        int wordIndex = genome >>> ADDRESS_BITS_PER_WORD;
+        if (wordIndex < words.length) {
+          words[wordIndex] &= ~(1L << genome);
+        }
+      }
+      return fromWords(words);
+    }
+
+    private boolean anyContainedIn(GenomeSet other) {
+      for (int genome : genomes) {
+        if (other.contains(genome)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean allContainedIn(GenomeSet other) {
+      for (int genome : genomes) {
+        if (!other.contains(genome)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package nl.tudelft.pl2016gr2.model.graph.data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A base sequence which only stores where its bases are located in a file. The bases are read from
+ * the {@link SequenceStore} the first time they are needed (and then cached by the store), so a
+ * graph can be kept in memory without the bulk of its sequences. The amount of bases is always
+ * available without reading the file. Single bases and parts of a sequence which is too large to
+ * be cached are read from the file without reading the rest of the sequence.
+ */
+public class LazyBaseSequence extends BaseSequence {
+
+  private final SequenceStore store;
+  private final long offset;
+  private final int amountOfBases;
+
+  /**
+   * Create a base sequence which reads its bases from the given store.
+   *
+   * @param store         the store which contains the bases.
+   * @param offset        the offset of the bases in the file of the store.
+   * @param amountOfBases the amount of bases in the sequence.
+   */
+  public LazyBaseSequence(SequenceStore store, long offset, int amountOfBases) {
+    this.store = store;
+    this.offset = offset;
+    this.amountOfBases = amountOfBases;
+  }
+
+  /**
+   * Get the offset of the bases in the file of the store.
+   *
+   * @return the offset of the bases.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Get the store which contains the bases.
+   *
+   * @return the store which contains the bases.
+   */
+  public SequenceStore getStore() {
+    return store;
+  }
+
+  @Override
+  public String getBaseSequence() {
+    return store.getSequence(offset, amountOfBases);
+  }
+
+  @Override
+  public String subsequence(int from, int to) {
+    return store.getSubsequence(offset, amountOfBases, from, to);
+  }
+
+  @Override
+  public char getBase(int index) {
+    return store.getBase(offset, amountOfBases, index);
+  }
+
+  @Override
+  public int size() {
+    return amountOfBases;
+  }
+
+  /**
+   * Write the encoded bases to the given output. The bases are read from the store and encoded, so
+   * the output is the same as the output of an in memory base sequence.
+   *
+   * @param output the output to write to.
+   * @throws IOException if the output can not be written.
+   */
+  @Override
+  public void write(DataOutput output) throws IOException {
+    new BaseSequence(getBaseSequence()).write(output);
+  }
+}
@@ -0,0 +1,207 @@
+package nl.tudelft.pl2016gr2.model.graph.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A store which reads base sequences from a file (for example a gfa file) on demand. The sequences
+ * are stored in the file as plain (ASCII) text and are identified by their offset in the file. The
+ * most recently used sequences are kept in a cache, which is bounded by the total amount of bases
+ * that it contains.
+ * <p>
+ * The store keeps the file open until it is closed, which should be done when the graph whose
+ * sequences are in the store is no longer used.
+ * </p>
+ */
+public class SequenceStore implements Closeable {
+
+  private static final int DEFAULT_MAX_CACHED_BASES = 1 << 24;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final long maxCachedBases;
+  private final LinkedHashMap<Long, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedBases;
+
+  /**
+   * Create a store which reads the sequences from the given file.
+   *
+   * @param file the file containing the sequences.
+   * @throws IOException if the file can not be opened.
+   */
+  public SequenceStore(Path file) throws IOException {
+    this(file, DEFAULT_MAX_CACHED_BASES);
+  }
+
+  /**
+   * Create a store which reads the sequences from the given file.
+   *
+   * @param file           the file containing the sequences.
+   * @param maxCachedBases the maximum amount of bases which are kept in the cache.
+   * @throws IOException if the file can not be opened.
+   */
+  public SequenceStore(Path file, long maxCachedBases) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    this.maxCachedBases = maxCachedBases;
+  }
+
+  /**
+   * Get the file from which the sequences are read.
+   *
+   * @return the file from which the sequences are read.
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Get the sequence which is stored at the given offset in the file. The sequence is read from the
+   * file if it isn't in the cache.
+   *
+   * @param offset the offset of the sequence in the file.
+   * @param length the amount of bases in the sequence.
+   * @return the sequence.
+   * @throws UncheckedIOException if the sequence can not be read from the file.
+   */
+  public synchronized String getSequence(long offset, int length) {
+    String sequence = cache.get(offset);
+    if (sequence == null) {
+      sequence = readSequence(offset, length);
+      cacheSequence(offset, sequence);
+    }
+    return sequence;
+  }
+
+  /**
+   * Get a part of the sequence which is stored at the given offset in the file. A sequence which
+   * fits in the cache is read completely and cached, so the next parts of the sequence are read
+   * from the cache. Only the requested part of a larger sequence is read from the file.
+   *
+   * @param offset the offset of the sequence in the file.
+   * @param length the amount of bases in the sequence.
+   * @param from   the index of the first base of the part (inclusive).
+   * @param to     the index of the last base of the part (exclusive).
+   * @return the part of the sequence.
+   * @throws IndexOutOfBoundsException if the part isn't part of the sequence.
+   * @throws UncheckedIOException      if the sequence can not be read from the file.
+   */
+  public synchronized String getSubsequence(long offset, int length, int from, int to) {
+    if (isCacheable(offset, length)) {
+      return getSequence(offset, length).substring(from, to);
+    }
+    checkRange(length, from, to);
+    return readSequence(offset + from, to - from);
+  }
+
+  /**
+   * Get a base of the sequence which is stored at the given offset in the file. A sequence which
+   * fits in the cache is read completely and cached; only the requested base of a larger sequence
+   * is read from the file.
+   *
+   * @param offset the offset of the sequence in the file.
+   * @param length the amount of bases in the sequence.
+   * @param index  the index of the base in the sequence.
+   * @return the base.
+   * @throws IndexOutOfBoundsException if the index isn't part of the sequence.
+   * @throws UncheckedIOException      if the sequence can not be read from the file.
+   */
+  public synchronized char getBase(long offset, int length, int index) {
+    if (isCacheable(offset, length)) {
+      return getSequence(offset, length).charAt(index);
+    }
+    checkRange(length, index, index + 1);
+    return readSequence(offset + index, 1).charAt(0);
+  }
+
+  /**
+   * Check if a sequence is in the cache or can be put in the cache.
+   *
+   * @param offset the offset of the sequence in the file.
+   * @param length the amount of bases in the sequence.
+   * @return whether the sequence is or can be cached.
+   */
+  private boolean isCacheable(long offset, int length) {
+    return length <= maxCachedBases || cache.containsKey(offset);
+  }
+
+  /**
+   * Check if a range of bases is part of a sequence.
+   *
+   * @param length the amount of bases in the sequence.
+   * @param from   the index of the first base of the range (inclusive).
+   * @param to     the index of the last base of the range (exclusive).
+   * @throws IndexOutOfBoundsException if the range isn't part of the sequence.
+   */
+  private static void checkRange(int length, int from, int to) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException("Range [" + from + ", " + to
+          + ") is out of the bounds of a sequence of " + length + " bases");
+    }
+  }
+
+  /**
+   * Get the amount of bases which are currently in the cache.
+   *
+   * @return the amount of cached bases.
+   */
+  public synchronized long getCachedBases() {
+    return cachedBases;
+  }
+
+  /**
+   * Read a sequence from the file.
+   *
+   * @param offset the offset of the sequence in the file.
+   * @param length the amount of bases in the sequence.
+   * @return the read sequence.
+   * @throws UncheckedIOException if the sequence can not be read from the file.
+   */
+  private String readSequence(long offset, int length) {
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, offset + buffer.position()) < 0) {
+          throw new IOException("Sequence exceeds the end of the file: " + file);
+        }
+      }
+      return new String(buffer.array(), StandardCharsets.US_ASCII);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Put a sequence in the cache and evict the least recently used sequences until the cache is
+   * within its bounds again. A sequence which is larger than the cache itself is not cached.
+   *
+   * @param offset   the offset of the sequence in the file.
+   * @param sequence the sequence.
+   */
+  private void cacheSequence(long offset, String sequence) {
+    if (sequence.length() > maxCachedBases) {
+      return;
+    }
+    cache.put(offset, sequence);
+    cachedBases += sequence.length();
+    Iterator<Map.Entry<Long, String>> iterator = cache.entrySet().iterator();
+    while (cachedBases > maxCachedBases) {
+      cachedBases -= iterator.next().getValue().length();
+      iterator.remove();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -4,17 +4,17 @@ import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import nl.tudelft.pl2016gr2.model.Annotation;
 import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.data.AnnotationIndex;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.model.graph.data.GraphNodeGuiData;
 import nl.tudelft.pl2016gr2.model.metadata.LineageColor;
 import nl.tudelft.pl2016gr2.thirdparty.testing.utility.TestId;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Aides in implementing the <code>GraphNode</code> interface by implementing methods that should
@@ -27,7 +27,7 @@ public abstract class AbstractGraphNode implements GraphNode {
   @TestId(id = "id_field")
   private int identifier;
   private final GraphNodeGuiData guiData = new GraphNodeGuiData();
-  private PriorityQueue<Annotation> annotations;
+  private AnnotationIndex annotations;
   private LineageColor lineage;
 
   private HashSet<GraphNode> inEdges;
@@ -42,7 +42,7 @@ public abstract class AbstractGraphNode implements GraphNode {
     this.identifier = identifier;
     this.inEdges = new HashSet<>();
     this.outEdges = new HashSet<>();
-    this.annotations = new PriorityQueue<>();
+    this.annotations = new AnnotationIndex();
   }
 
   /**
@@ -57,7 +57,17 @@ public abstract class AbstractGraphNode implements GraphNode {
     this.identifier = identifier;
     this.inEdges = new HashSet<>(inEdges);
     this.outEdges = new HashSet<>(outEdges);
-    this.annotations = new PriorityQueue<>();
+    this.annotations = new AnnotationIndex();
+  }
+
+  /**
+   * Construct a node which is a view on another node or graph, and doesn't store its own ID, edges
+   * and annotations. Such nodes must override {@link #getId()}, and every method which accesses the
+   * edges or the annotations, or set them with {@link #setInEdges(Collection)},
+   * {@link #setOutEdges(Collection)} and {@link #setAnnotations(AnnotationIndex)}. Otherwise these
+   * methods throw an {@link UnsupportedOperationException}.
+   */
+  protected AbstractGraphNode() {
   }
 
   /**
@@ -66,10 +76,10 @@ public abstract class AbstractGraphNode implements GraphNode {
    * @param abstractGraphNode the abstractGraphNode to copy.
    */
   protected AbstractGraphNode(AbstractGraphNode abstractGraphNode) {
-    this.identifier = abstractGraphNode.identifier;
+    this.identifier = abstractGraphNode.getId();
     this.inEdges = abstractGraphNode.inEdges;
     this.outEdges = abstractGraphNode.outEdges;
-    this.annotations = abstractGraphNode.annotations;
+    this.annotations = abstractGraphNode.getAnnotationIndex();
   }
 
   @Override
@@ -84,41 +94,24 @@ public abstract class AbstractGraphNode implements GraphNode {
 
   @Override
   public Collection<Integer> getGenomesOverEdge(GraphNode node) {
-    Collection<Integer> genomes = new ArrayList<>();
-    Collection<Integer> otherGenomes = new HashSet<>();
+    GenomeSet otherGenomes = GenomeSet.empty();
     // Mark genomes that are seen in other out edges which appear before the node.
-    this.getOutEdges().forEach(outEdge -> {
+    for (GraphNode outEdge : getOutEdges()) {
       if (outEdge.getLevel() < node.getLevel() && !outEdge.equals(node)) {
-        otherGenomes.addAll(outEdge.getGenomes());
+        otherGenomes = otherGenomes.or(outEdge.getGenomeSet());
       }
-    });
-    List<Integer> thisGenomes = getGenomes();
-    node.forEachContainedGenome(thisGenomes, genome -> {
-      if (!otherGenomes.contains(genome)) {
-        genomes.add(genome);
-      }
-    });
-    return genomes;
+    }
+    return getGenomeSet().and(node.getGenomeSet()).andNot(otherGenomes).toList();
   }
 
   @Override
-  public void forEachContainedGenome(List<Integer> genomes, Consumer<Integer> genomeConsumer) {
-    List<Integer> thisGenomes = getGenomes();
-    int thisIndex = 0;
-    int otherIndex = 0;
-    while (thisIndex < thisGenomes.size() && otherIndex < genomes.size()) {
-      int thisValue = thisGenomes.get(thisIndex);
-      int otherValue = genomes.get(otherIndex);
-      if (thisValue < otherValue) {
-        thisIndex++;
-      } else if (thisValue > otherValue) {
-        otherIndex++;
-      } else {
-        thisIndex++;
-        otherIndex++;
-        genomeConsumer.accept(thisValue);
-      }
-    }
+  public void forEachContainedGenome(GenomeSet genomes, IntConsumer genomeConsumer) {
+    getGenomeSet().and(genomes).forEach(genomeConsumer);
+  }
+
+  @Override
+  public List<Integer> getGenomes() {
+    return getGenomeSet().asList();
   }
 
   @Override
@@ -128,7 +121,7 @@ public abstract class AbstractGraphNode implements GraphNode {
 
   @Override
   public Collection<GraphNode> getInEdges() {
-    return inEdges;
+    return getInEdgeSet();
   }
 
   @Override
@@ -139,22 +132,22 @@ public abstract class AbstractGraphNode implements GraphNode {
 
   @Override
   public void addAllInEdges(Collection<GraphNode> nodes) {
-    inEdges.addAll(nodes);
+    getInEdgeSet().addAll(nodes);
   }
 
   @Override
   public void addInEdge(GraphNode node) {
-    inEdges.add(node);
+    getInEdgeSet().add(node);
   }
 
   @Override
   public void removeInEdge(GraphNode node) {
-    inEdges.remove(node);
+    getInEdgeSet().remove(node);
   }
 
   @Override
   public Collection<GraphNode> getOutEdges() {
-    return outEdges;
+    return getOutEdgeSet();
   }
 
   @Override
@@ -169,17 +162,47 @@ public abstract class AbstractGraphNode implements GraphNode {
 
   @Override
   public void addAllOutEdges(Collection<GraphNode> nodes) {
-    outEdges.addAll(nodes);
+    getOutEdgeSet().addAll(nodes);
   }
 
   @Override
   public void addOutEdge(GraphNode node) {
-    outEdges.add(node);
+    getOutEdgeSet().add(node);
   }
 
   @Override
   public void removeOutEdge(GraphNode node) {
-    outEdges.remove(node);
+    getOutEdgeSet().remove(node);
+  }
+
+  /**
+   * Get the set in which the in edges of this node are stored.
+   *
+   * @return the set in which the in edges of this node are stored.
+   * @throws UnsupportedOperationException if the in edges of this view only node are stored by its
+   *                                       graph.
+   */
+  private HashSet<GraphNode> getInEdgeSet() {
+    if (inEdges == null) {
+      throw new UnsupportedOperationException("The in edges of view only node " + getId()
+          + " are stored by its graph and must be accessed through an override");
+    }
+    return inEdges;
+  }
+
+  /**
+   * Get the set in which the out edges of this node are stored.
+   *
+   * @return the set in which the out edges of this node are stored.
+   * @throws UnsupportedOperationException if the out edges of this view only node are stored by
+   *                                       its graph.
+   */
+  private HashSet<GraphNode> getOutEdgeSet() {
+    if (outEdges == null) {
+      throw new UnsupportedOperationException("The out edges of view only node " + getId()
+          + " are stored by its graph and must be accessed through an override");
+    }
+    return outEdges;
   }
 
   @Override
@@ -195,7 +218,7 @@ public abstract class AbstractGraphNode implements GraphNode {
 
   @Override
   public int hashCode() {
-    return identifier * 37;
+    return getId() * 37;
   }
 
   @Override
@@ -203,7 +226,7 @@ public abstract class AbstractGraphNode implements GraphNode {
     if (obj == null || !getClass().equals(obj.getClass())) {
       return false;
     }
-    return identifier == ((AbstractGraphNode) obj).identifier;
+    return getId() == ((AbstractGraphNode) obj).getId();
   }
 
   @Override
@@ -212,22 +235,46 @@ public abstract class AbstractGraphNode implements GraphNode {
   }
 
   protected void setAnnotations(AbstractGraphNode node) {
-    this.annotations = node.annotations;
+    this.annotations = node.getAnnotationIndex();
+  }
+
+  protected void setAnnotations(AnnotationIndex annotations) {
+    this.annotations = annotations;
+  }
+
+  /**
+   * Get the index in which the annotations of this node are stored.
+   *
+   * @return the index in which the annotations of this node are stored.
+   * @throws UnsupportedOperationException if the annotations of this view only node are stored by
+   *                                       its graph.
+   */
+  protected AnnotationIndex getAnnotationIndex() {
+    if (annotations == null) {
+      throw new UnsupportedOperationException("The annotations of view only node " + getId()
+          + " are stored by its graph and must be accessed through an override");
+    }
+    return annotations;
   }
 
   @Override
   public void addAnnotation(Annotation annotation) {
-    annotations.add(annotation);
+    getAnnotationIndex().add(annotation);
   }
 
   @Override
   public boolean hasAnnotations() {
-    return !annotations.isEmpty();
+    return !getAnnotationIndex().isEmpty();
   }
 
   @Override
-  public PriorityQueue<Annotation> getAnnotations() {
-    return annotations;
+  public List<Annotation> getAnnotations() {
+    return getAnnotationIndex().getAll();
+  }
+
+  @Override
+  public List<Annotation> getAnnotations(int fromLevel, int toLevel) {
+    return getAnnotationIndex().query(fromLevel, toLevel);
   }
 
   @Override
@@ -235,10 +282,10 @@ public abstract class AbstractGraphNode implements GraphNode {
     if (lineage == null) {
       HashMap<LineageColor, Integer> lineageFrequency = new HashMap<>();
       GenomeMap genomeMap = GenomeMap.getInstance();
-      for (Integer genome : getGenomes()) {
+      getGenomeSet().forEach(genome -> {
         LineageColor color = LineageColor.toLineage(genomeMap.getMetadata(genome));
         lineageFrequency.put(color, lineageFrequency.getOrDefault(color, 0) + 1);
-      }
+      });
       final IntegerProperty maxFreq = new SimpleIntegerProperty(0);
       lineage = LineageColor.NONE;
       lineageFrequency.forEach((LineageColor color, Integer freq) -> {
@@ -252,49 +299,17 @@ public abstract class AbstractGraphNode implements GraphNode {
   }
 
   @Override
-  public boolean containsAllGenomes(List<Integer> genomes) {
-    List<Integer> thisGenomes = getGenomes();
-    int index = 0;
-    for (int i = 0; i < thisGenomes.size() && index < genomes.size(); i++) {
-      if (thisGenomes.get(i).intValue() == genomes.get(index).intValue()) {
-        index++;
-      } else if (thisGenomes.get(i) > genomes.get(index)) {
-        return false;
-      }
-    }
-    return index == genomes.size();
+  public boolean containsAllGenomes(GenomeSet genomes) {
+    return getGenomeSet().containsAll(genomes);
   }
 
   @Override
-  public boolean containsAnyGenome(List<Integer> genomes) {
-    List<Integer> thisGenomes = getGenomes();
-    int thisIndex = 0;
-    int otherIndex = 0;
-    while (thisIndex < thisGenomes.size() && otherIndex < genomes.size()) {
-      int thisValue = thisGenomes.get(thisIndex);
-      int otherValue = genomes.get(otherIndex);
-      if (thisValue < otherValue) {
-        thisIndex++;
-      } else if (thisValue > otherValue) {
-        otherIndex++;
-      } else {
-        return true;
-      }
-    }
-    return false;
+  public boolean containsAnyGenome(GenomeSet genomes) {
+    return getGenomeSet().intersects(genomes);
   }
 
   @Override
-  public boolean hasSameGenomes(List<Integer> genomes) {
-    List<Integer> thisGenomes = getGenomes();
-    if (thisGenomes.size() != genomes.size()) {
-      return false;
-    }
-    for (int i = 0; i < genomes.size(); i++) {
-      if (genomes.get(i).intValue() != thisGenomes.get(i).intValue()) {
-        return false;
-      }
-    }
-    return true;
+  public boolean hasSameGenomes(GenomeSet genomes) {
+    return getGenomeSet().equals(genomes);
   }
 }
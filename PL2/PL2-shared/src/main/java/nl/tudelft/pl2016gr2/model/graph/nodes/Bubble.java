@@ -1,9 +1,9 @@
 package nl.tudelft.pl2016gr2.model.graph.nodes;
 
-import java.util.ArrayList;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 
 /**
  * An aggregate <code>GraphNode</code>, containing other <code>GraphNodes</code>.
@@ -127,14 +127,12 @@ public abstract class Bubble extends AbstractGraphNode implements GraphNode {
   }
 
   @Override
-  public List<Integer> getGenomes() {
-    HashSet<Integer> genomeSet = new HashSet<>();
+  public GenomeSet getGenomeSet() {
+    GenomeSet genomes = GenomeSet.empty();
     for (GraphNode nestedNode : nestedNodes) {
-      genomeSet.addAll(nestedNode.getGenomes());
+      genomes = genomes.or(nestedNode.getGenomeSet());
     }
-    ArrayList<Integer> sortedGenomes = new ArrayList<>(genomeSet);
-    sortedGenomes.sort(null);
-    return sortedGenomes;
+    return genomes;
   }
 
 
@@ -160,9 +158,7 @@ public abstract class Bubble extends AbstractGraphNode implements GraphNode {
         node) : "Tried to get genomes over edge for node " + node.getId() + "but it is "
         + "not a direct successor. This = " + this.getId();
 
-    Collection<Integer> genomes = new ArrayList<>();
-    forEachContainedGenome(node.getGenomes(), genomes::add);
-    return genomes;
+    return getGenomeSet().and(node.getGenomeSet()).toList();
   }
 
   @Override
@@ -18,4 +18,15 @@ public interface BubbleFilter {
    * @return the list of aligned and sorted nested nodes.
    */
   List<GraphNode> zoomIn(Bubble bubble);
+
+  /**
+   * Prepare zooming in on the bubble ahead of time. This is called from a background thread, so it
+   * must not change the graph. By default nothing is prepared: only phylo bubbles are prefetched,
+   * because zooming in on the other bubbles rewires the edges of the drawn graph and the result
+   * can't be computed ahead of time.
+   *
+   * @param bubble the bubble which is likely to be zoomed in on.
+   */
+  default void prefetch(Bubble bubble) {
+  }
 }
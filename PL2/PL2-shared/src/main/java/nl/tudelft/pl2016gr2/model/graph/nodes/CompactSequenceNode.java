@@ -0,0 +1,201 @@
+package nl.tudelft.pl2016gr2.model.graph.nodes;
+
+import nl.tudelft.pl2016gr2.model.Annotation;
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.AnnotationIndex;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A lightweight view on a node of a {@link CompactGraph}. The node doesn't store any edges, level
+ * or annotations itself, but reads and writes them in the graph, so any number of views on the
+ * same node can exist at the same time. Views on the same node are equal to each other.
+ * <p>
+ * The edges and genomes of the node can not be modified. A copy of the node is a normal
+ * {@link SequenceNode}, which can be modified.
+ * </p>
+ */
+public class CompactSequenceNode extends SequenceNode {
+
+  private static final String UNMODIFIABLE = "The edges of a compact graph can not be modified.";
+
+  private final CompactGraph graph;
+  private final int index;
+
+  /**
+   * Create a view on the node at the given index of the graph.
+   *
+   * @param graph the graph.
+   * @param index the index of the node in the graph.
+   */
+  public CompactSequenceNode(CompactGraph graph, int index) {
+    super(graph.getSequence(index), graph.getGenomeSet(index));
+    this.graph = graph;
+    this.index = index;
+  }
+
+  /**
+   * Get the index of this node in its graph.
+   *
+   * @return the index of this node.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  @Override
+  public int getId() {
+    return graph.getId(index);
+  }
+
+  @Override
+  public Collection<GraphNode> getInEdges() {
+    return graph.getInEdges(index);
+  }
+
+  @Override
+  public Collection<GraphNode> getOutEdges() {
+    return graph.getOutEdges(index);
+  }
+
+  @Override
+  public boolean isRoot() {
+    return graph.getInDegree(index) == 0;
+  }
+
+  @Override
+  public void setInEdges(Collection<GraphNode> edges) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void addAllInEdges(Collection<GraphNode> nodes) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void addInEdge(GraphNode node) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void removeInEdge(GraphNode node) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void setOutEdges(Collection<GraphNode> edges) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void addAllOutEdges(Collection<GraphNode> nodes) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void addOutEdge(GraphNode node) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void removeOutEdge(GraphNode node) {
+    throw new UnsupportedOperationException(UNMODIFIABLE);
+  }
+
+  @Override
+  public void setSequence(BaseSequence sequence) {
+    throw new UnsupportedOperationException("The nodes of a compact graph can not be modified.");
+  }
+
+  @Override
+  public void addAllGenomes(Collection<Integer> genomes) {
+    throw new UnsupportedOperationException("The nodes of a compact graph can not be modified.");
+  }
+
+  @Override
+  public int size() {
+    return graph.getNodeSize(index);
+  }
+
+  @Override
+  public int getLevel() {
+    return graph.getLevel(index);
+  }
+
+  @Override
+  public void setLevel(int level) {
+    graph.setLevel(index, level);
+  }
+
+  @Override
+  public void addPositionOffset(int offset) {
+    graph.setLevel(index, graph.getLevel(index) + offset);
+  }
+
+  @Override
+  public void addAnnotation(Annotation annotation) {
+    graph.addAnnotation(index, annotation);
+  }
+
+  @Override
+  public boolean hasAnnotations() {
+    return graph.getAnnotations(index) != null;
+  }
+
+  @Override
+  public List<Annotation> getAnnotations() {
+    AnnotationIndex annotations = graph.getAnnotations(index);
+    return annotations == null ? Collections.emptyList() : annotations.getAll();
+  }
+
+  @Override
+  public List<Annotation> getAnnotations(int fromLevel, int toLevel) {
+    AnnotationIndex annotations = graph.getAnnotations(index);
+    return annotations == null ? Collections.emptyList() : annotations.query(fromLevel, toLevel);
+  }
+
+  /**
+   * Get the index in which the graph stores the annotations of this node. The index is created in
+   * the graph if the node has no annotations yet, so nodes which share the index with this node
+   * (such as the nodes of subgraphs) add their annotations to the graph.
+   *
+   * @return the index in which the annotations of this node are stored.
+   */
+  @Override
+  protected AnnotationIndex getAnnotationIndex() {
+    return graph.getOrCreateAnnotations(index);
+  }
+
+  @Override
+  public GraphNode copy() {
+    SequenceNode node = new SequenceNode(getId(), getBaseSequence());
+    node.setLevel(getLevel());
+    copyAnnotations(node);
+    return node;
+  }
+
+  @Override
+  public GraphNode copyAll() {
+    SequenceNode node = new SequenceNode(getId(), getBaseSequence(), getGenomes(), getInEdges(),
+        getOutEdges());
+    node.setLevel(getLevel());
+    copyAnnotations(node);
+    return node;
+  }
+
+  /**
+   * Let the given copy of this node share the annotations of this node.
+   *
+   * @param node the copy of this node.
+   */
+  private void copyAnnotations(SequenceNode node) {
+    AnnotationIndex annotations = graph.getAnnotations(index);
+    if (annotations != null) {
+      node.setAnnotations(annotations);
+    }
+  }
+}
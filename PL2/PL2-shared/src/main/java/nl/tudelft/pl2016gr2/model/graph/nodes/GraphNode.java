@@ -2,6 +2,7 @@ package nl.tudelft.pl2016gr2.model.graph.nodes;
 
 import nl.tudelft.pl2016gr2.model.Annotation;
 import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.model.graph.data.GraphNodeGuiData;
 import nl.tudelft.pl2016gr2.model.metadata.LineageColor;
 import nl.tudelft.pl2016gr2.util.Copyable;
@@ -10,8 +11,7 @@ import nl.tudelft.pl2016gr2.visitor.Visitable;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Represents a node in a <code>SequenceGraph</code> and provides basic operations on it.
@@ -209,14 +209,25 @@ public interface GraphNode extends Visitable, Copyable<GraphNode> {
    * <code>GraphNode</code> is annotated with information about its genomes.
    * </p>
    * <p>
-   * The collection that is returned is not meant for editing. Depending on the implementing class,
-   * it might be unmodifiable.
+   * The list that is returned is unmodifiable and is shared by the nodes with the same
+   * {@link GenomeSet}.
    * </p>
    *
    * @return The genomes of this <code>GraphNode</code>
    */
   List<Integer> getGenomes();
 
+  /**
+   * Returns the set of all genomes that go through this <code>GraphNode</code>.
+   * <p>
+   * Prefer this method over {@link #getGenomes()} when testing genome membership, as the set
+   * operations of a {@link GenomeSet} don't need to walk over a list of boxed genomes.
+   * </p>
+   *
+   * @return The genomes of this <code>GraphNode</code>
+   */
+  GenomeSet getGenomeSet();
+
   /**
    * Adds all genomes to the current genomes, leaving the old genomes untouched.
    * <p>
@@ -230,27 +241,27 @@ public interface GraphNode extends Visitable, Copyable<GraphNode> {
   /**
    * Check if this node contains all of the given genomes. Should run in O(n) time.
    *
-   * @param genomes a sorted list of genomes.
+   * @param genomes a set of genomes.
    * @return if this node contains all of the given genomes.
    */
-  boolean containsAllGenomes(List<Integer> genomes);
+  boolean containsAllGenomes(GenomeSet genomes);
   
   /**
-   * Check if this node has exactly the same set of genomes as the given set of sorted genomes.
-   * Should run in O(n).
+   * Check if this node has exactly the same set of genomes as the given set of genomes. Should run
+   * in O(n).
    * 
-   * @param genomes the given sorted set of genomes.
+   * @param genomes the given set of genomes.
    * @return if this node contains exactly the same set of genomes.
    */
-  boolean hasSameGenomes(List<Integer> genomes);
+  boolean hasSameGenomes(GenomeSet genomes);
   
   /**
-   * Check if any of the given sorted genomes is present in this node. Should run in O(n).
+   * Check if any of the given genomes is present in this node. Should run in O(n).
    * 
-   * @param genomes the given sorted list of genomes.
-   * @return if any of the given sorted genomes is present in this node.
+   * @param genomes the given set of genomes.
+   * @return if any of the given genomes is present in this node.
    */
-  boolean containsAnyGenome(List<Integer> genomes);
+  boolean containsAnyGenome(GenomeSet genomes);
   
   /**
    * Check if this node contains the given genomes. Should run in O(log(n)) time.
@@ -261,14 +272,14 @@ public interface GraphNode extends Visitable, Copyable<GraphNode> {
   boolean containsGenome(Integer genome);
 
   /**
-   * Perform the given action for each genome which is contained both in the given list of sorted
-   * genomes and in this node.
+   * Perform the given action for each genome which is contained both in the given set of genomes
+   * and in this node, in ascending order.
    *
-   * @param genomes        the sorted list of genomes.
+   * @param genomes        the set of genomes.
    * @param genomeConsumer the action to perform for each genome which is contained both in the
-   *                       given list of sorted genomes and in this node.
+   *                       given set of genomes and in this node.
    */
-  void forEachContainedGenome(List<Integer> genomes, Consumer<Integer> genomeConsumer);
+  void forEachContainedGenome(GenomeSet genomes, IntConsumer genomeConsumer);
 
   /**
    * Calculates the genomes that pass over the edge between this node and the specified node.
@@ -364,6 +375,14 @@ public interface GraphNode extends Visitable, Copyable<GraphNode> {
    */
   boolean isPopped();
 
+  /**
+   * Prepares popping this bubble, so a later call to {@link #pop()} returns sooner. This may be
+   * called from any thread, as it doesn't change the graph. By default nothing is prepared; only
+   * {@link PhyloBubble}s are prefetched.
+   */
+  default void prefetch() {
+  }
+
   /**
    * Add an annotation to this node.
    *
@@ -383,7 +402,16 @@ public interface GraphNode extends Visitable, Copyable<GraphNode> {
    *
    * @return the annotations ordered by position.
    */
-  PriorityQueue<Annotation> getAnnotations();
+  List<Annotation> getAnnotations();
+
+  /**
+   * Get the annotations which overlap with the given range of levels, ordered by position.
+   *
+   * @param fromLevel the first level of the range.
+   * @param toLevel   the last level of the range.
+   * @return the annotations which overlap with the range, ordered by position.
+   */
+  List<Annotation> getAnnotations(int fromLevel, int toLevel);
 
   /**
    * Calculates the most frequent lineage in this node.
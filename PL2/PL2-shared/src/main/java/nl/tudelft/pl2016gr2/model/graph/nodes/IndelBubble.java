@@ -1,11 +1,10 @@
 package nl.tudelft.pl2016gr2.model.graph.nodes;
 
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.visitor.NodeVisitor;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 
 /**
  * This kind of bubble contains an insertion/deletion mutation.
@@ -17,7 +16,7 @@ public class IndelBubble extends Bubble {
   private final IVerticalAligner aligner;
   private boolean isPopped;
   private boolean verticallyAligned;
-  private List<Integer> genomes;
+  private final GenomeSet genomes;
 
   /**
    * Constructs an indelBubble. In the constructor, the genomes of this indelBubble are set to the
@@ -32,28 +31,29 @@ public class IndelBubble extends Bubble {
   public IndelBubble(int id, Collection<GraphNode> inEdges,
       Collection<GraphNode> outEdges, HashSet<GraphNode> nestedNodes, IVerticalAligner aligner) {
     super(id, inEdges, outEdges, nestedNodes);
-    this.genomes = inEdges.iterator().next().getGenomes();
+    this.genomes = inEdges.iterator().next().getGenomeSet();
     this.aligner = aligner;
   }
 
   private IndelBubble(IndelBubble bubble, IVerticalAligner aligner) {
     super(bubble);
+    this.genomes = bubble.genomes;
     this.aligner = aligner;
   }
 
   @Override
   public int getGenomeSize() {
-    return genomes.size();
+    return genomes.cardinality();
   }
 
   @Override
-  public List<Integer> getGenomes() {
+  public GenomeSet getGenomeSet() {
     return genomes;
   }
 
   @Override
   public boolean containsGenome(Integer genome) {
-    return Collections.binarySearch(genomes, genome) >= 0;
+    return genomes.contains(genome);
   }
 
   @Override
@@ -86,6 +86,16 @@ public class PhyloBubble extends AbstractGraphBubble {
     return new PhyloBubble(this, treeNode, getFilter());
   }
 
+  /**
+   * Computes the indexed view of this bubble (see the phylo bubble filter), which is the expensive
+   * part of popping it. The view only depends on the edges which were stored when the bubble was
+   * created, so this doesn't read or change any state of the drawn graph.
+   */
+  @Override
+  public void prefetch() {
+    getFilter().prefetch(this);
+  }
+
   @Override
   public String toString() {
     return String.format("%s: \n%s", "Phylogenetic Bubble", super.toString());
@@ -99,7 +109,7 @@ public class PhyloBubble extends AbstractGraphBubble {
   @Override
   public int getGenomeSize() {
     if (genomeSize == -1) {
-      genomeSize = getGenomes().size();
+      genomeSize = getGenomeSet().cardinality();
     }
     return genomeSize;
   }
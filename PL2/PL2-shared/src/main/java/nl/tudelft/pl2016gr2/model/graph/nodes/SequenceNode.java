@@ -1,12 +1,11 @@
 package nl.tudelft.pl2016gr2.model.graph.nodes;
 
 import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.visitor.NodeVisitor;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 
 /**
  * A simple implementation of <code>Node</code> that offers the DNA sequence as a String, but
@@ -17,7 +16,7 @@ import java.util.List;
 public class SequenceNode extends AbstractGraphNode implements Node {
 
   private BaseSequence sequence;
-  private final ArrayList<Integer> genomes;
+  private GenomeSet genomes;
 
   /**
    * The level of this node (the depth in the graph.
@@ -31,7 +30,7 @@ public class SequenceNode extends AbstractGraphNode implements Node {
    */
   public SequenceNode(int identifier) {
     super(identifier);
-    genomes = new ArrayList<>(0);
+    genomes = GenomeSet.empty();
   }
 
   /**
@@ -43,7 +42,7 @@ public class SequenceNode extends AbstractGraphNode implements Node {
   public SequenceNode(int identifier, BaseSequence sequence) {
     super(identifier);
     this.sequence = sequence;
-    genomes = new ArrayList<>(0);
+    genomes = GenomeSet.empty();
   }
 
   /**
@@ -56,9 +55,7 @@ public class SequenceNode extends AbstractGraphNode implements Node {
   public SequenceNode(int identifier, BaseSequence sequence, Collection<Integer> genomes) {
     super(identifier);
     this.sequence = sequence;
-    this.genomes = new ArrayList<>(genomes);
-    this.genomes.sort(null);
-    this.genomes.trimToSize();
+    this.genomes = GenomeSet.of(genomes);
   }
 
   /**
@@ -77,8 +74,19 @@ public class SequenceNode extends AbstractGraphNode implements Node {
       Collection<GraphNode> inEdges, Collection<GraphNode> outEdges) {
     super(identifier, inEdges, outEdges);
     this.sequence = sequence;
-    this.genomes = new ArrayList<>(genomes);
-    this.genomes.sort(null);
+    this.genomes = GenomeSet.of(genomes);
+  }
+
+  /**
+   * Constructs a node which is a view on another node or graph which stores the ID, edges, level
+   * and annotations of the node itself (see {@link AbstractGraphNode#AbstractGraphNode()}).
+   *
+   * @param sequence The DNA sequence that this node holds
+   * @param genomes  The genomes that go through this node
+   */
+  protected SequenceNode(BaseSequence sequence, GenomeSet genomes) {
+    this.sequence = sequence;
+    this.genomes = genomes;
   }
 
   /**
@@ -105,21 +113,28 @@ public class SequenceNode extends AbstractGraphNode implements Node {
     return sequence.getBaseSequence();
   }
 
+  /**
+   * Get the encoded sequence of this node, without decoding it to a String.
+   *
+   * @return the encoded sequence, or null if this node has no sequence.
+   */
+  public BaseSequence getBaseSequence() {
+    return sequence;
+  }
+
   @Override
-  public List<Integer> getGenomes() {
+  public GenomeSet getGenomeSet() {
     return genomes;
   }
 
   @Override
   public void addAllGenomes(Collection<Integer> genomes) {
-    this.genomes.addAll(genomes);
-    this.genomes.trimToSize();
-    this.genomes.sort(null);
+    this.genomes = this.genomes.or(GenomeSet.of(genomes));
   }
-  
+
   @Override
   public boolean containsGenome(Integer genome) {
-    return Collections.binarySearch(genomes, genome) >= 0;
+    return genomes.contains(genome);
   }
 
   /**
@@ -173,6 +188,26 @@ public class SequenceNode extends AbstractGraphNode implements Node {
     return String.format("Sequence %d:\n%s\n", getId(), sequenceString);
   }
 
+  /**
+   * Sequence nodes are equal if they have the same identifier, regardless of whether they are
+   * stand alone nodes or views on a node of a graph (such as a {@link CompactSequenceNode}).
+   *
+   * @param obj the object to compare with.
+   * @return whether the object is a sequence node with the same identifier.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof SequenceNode)) {
+      return false;
+    }
+    return getId() == ((SequenceNode) obj).getId();
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
   @Override
   public void accept(NodeVisitor visitor) {
     visitor.visit(this);
@@ -181,7 +216,6 @@ public class SequenceNode extends AbstractGraphNode implements Node {
   @Override
   public void trimToSize() {
     super.trimToSize();
-    genomes.trimToSize();
   }
 
   @Override
@@ -210,7 +244,7 @@ public class SequenceNode extends AbstractGraphNode implements Node {
 
   @Override
   public int getGenomeSize() {
-    return genomes.size();
+    return genomes.cardinality();
   }
 
 }
@@ -1,11 +1,10 @@
 package nl.tudelft.pl2016gr2.model.graph.nodes;
 
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.visitor.NodeVisitor;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 
 /**
  * This kind of bubble contains a straight sequence of nodes.
@@ -45,12 +44,11 @@ public class StraightSequenceBubble extends Bubble {
   }
 
   @Override
-  public List<Integer> getGenomes() {
-    List<Integer> genomes = new ArrayList<>();
+  public GenomeSet getGenomeSet() {
+    GenomeSet genomes = GenomeSet.empty();
     for (GraphNode inEdge : getInEdges()) {
-      genomes.addAll(inEdge.getGenomes()); // only 1 in edge, so no duplicates
+      genomes = genomes.or(inEdge.getGenomeSet()); // only 1 in edge, so no duplicates
     }
-    genomes.sort(null);
     return genomes;
   }
 
@@ -0,0 +1,155 @@
+package nl.tudelft.pl2016gr2.model.graph.nodes;
+
+import nl.tudelft.pl2016gr2.model.Annotation;
+import nl.tudelft.pl2016gr2.model.graph.SubgraphView;
+import nl.tudelft.pl2016gr2.model.graph.data.AnnotationIndex;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A node of a {@link SubgraphView}. The node shares the sequence and annotations of the node of
+ * the main graph it represents, and only contains the genomes of the subgraph. Its edges are
+ * derived from the main graph when they are accessed for the first time, after which they are
+ * stored in this node and can be modified like the edges of any other {@link SequenceNode}.
+ */
+public class SubgraphSequenceNode extends SequenceNode {
+
+  private final SubgraphView subgraph;
+  private final SequenceNode original;
+  private boolean inEdgesResolved = false;
+  private boolean outEdgesResolved = false;
+
+  /**
+   * Create a node of a subgraph.
+   *
+   * @param subgraph the subgraph.
+   * @param original the node of the main graph which this node represents.
+   * @param genomes  the genomes of the node which are part of the subgraph.
+   */
+  public SubgraphSequenceNode(SubgraphView subgraph, SequenceNode original, GenomeSet genomes) {
+    super(original.getBaseSequence(), genomes);
+    this.subgraph = subgraph;
+    this.original = original;
+    setLevel(original.getLevel());
+    getGuiData().overlapping = original.getGuiData().overlapping;
+  }
+
+  @Override
+  public int getId() {
+    return original.getId();
+  }
+
+  /**
+   * Derive the in edges from the main graph, if this hasn't been done yet.
+   */
+  private void resolveInEdges() {
+    if (!inEdgesResolved) {
+      inEdgesResolved = true;
+      super.setInEdges(subgraph.getInEdges(original));
+    }
+  }
+
+  /**
+   * Derive the out edges from the main graph, if this hasn't been done yet.
+   */
+  private void resolveOutEdges() {
+    if (!outEdgesResolved) {
+      outEdgesResolved = true;
+      super.setOutEdges(subgraph.getOutEdges(original));
+    }
+  }
+
+  @Override
+  public Collection<GraphNode> getInEdges() {
+    resolveInEdges();
+    return super.getInEdges();
+  }
+
+  @Override
+  public void setInEdges(Collection<GraphNode> edges) {
+    inEdgesResolved = true;
+    super.setInEdges(edges);
+  }
+
+  @Override
+  public void addAllInEdges(Collection<GraphNode> nodes) {
+    resolveInEdges();
+    super.addAllInEdges(nodes);
+  }
+
+  @Override
+  public void addInEdge(GraphNode node) {
+    resolveInEdges();
+    super.addInEdge(node);
+  }
+
+  @Override
+  public void removeInEdge(GraphNode node) {
+    resolveInEdges();
+    super.removeInEdge(node);
+  }
+
+  @Override
+  public Collection<GraphNode> getOutEdges() {
+    resolveOutEdges();
+    return super.getOutEdges();
+  }
+
+  @Override
+  public void setOutEdges(Collection<GraphNode> edges) {
+    outEdgesResolved = true;
+    super.setOutEdges(edges);
+  }
+
+  @Override
+  public void addAllOutEdges(Collection<GraphNode> nodes) {
+    resolveOutEdges();
+    super.addAllOutEdges(nodes);
+  }
+
+  @Override
+  public void addOutEdge(GraphNode node) {
+    resolveOutEdges();
+    super.addOutEdge(node);
+  }
+
+  @Override
+  public void removeOutEdge(GraphNode node) {
+    resolveOutEdges();
+    super.removeOutEdge(node);
+  }
+
+  @Override
+  public void addAnnotation(Annotation annotation) {
+    original.addAnnotation(annotation);
+  }
+
+  @Override
+  public boolean hasAnnotations() {
+    return original.hasAnnotations();
+  }
+
+  @Override
+  public List<Annotation> getAnnotations() {
+    return original.getAnnotations();
+  }
+
+  @Override
+  public List<Annotation> getAnnotations(int fromLevel, int toLevel) {
+    return original.getAnnotations(fromLevel, toLevel);
+  }
+
+  @Override
+  protected AnnotationIndex getAnnotationIndex() {
+    return original.getAnnotationIndex();
+  }
+
+  @Override
+  public GraphNode copyAll() {
+    resolveInEdges();
+    resolveOutEdges();
+    return super.copyAll();
+  }
+}
@@ -3,6 +3,7 @@ package nl.tudelft.pl2016gr2.model.phylogenetictree;
 import javafx.beans.property.BooleanProperty;
 import javafx.scene.paint.Color;
 import nl.tudelft.pl2016gr2.model.MetaData;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -82,6 +83,13 @@ public interface IPhylogeneticTreeNode<T extends IPhylogeneticTreeNode> extends
    */
   ArrayList<Integer> getGenomeIds();
 
+  /**
+   * Get the set of genome ids which are present in this branch of the tree.
+   *
+   * @return the set of genome ids which are present in this branch of the tree.
+   */
+  GenomeSet getGenomeSet();
+
   /**
    * Get the length of the edge to this node.
    *
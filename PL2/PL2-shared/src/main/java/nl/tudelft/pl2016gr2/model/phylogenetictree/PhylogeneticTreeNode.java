@@ -6,15 +6,23 @@ import javafx.scene.paint.Color;
 import net.sourceforge.olduvai.treejuxtaposer.drawer.TreeNode;
 import nl.tudelft.pl2016gr2.model.GenomeMap;
 import nl.tudelft.pl2016gr2.model.MetaData;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.model.metadata.LineageColor;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
  * This class is a storage class for a phylogenetic tree node. It retrieves and stores the needed
  * values of the newick parser {@link TreeNode}.
+ * <p>
+ * When the tree is complete, its root numbers the leaves in depth first order (see
+ * {@link #indexLeaves()}). Every node then stores the range of its leaves in this order and the set
+ * of its genomes, so the genomes of a node don't have to be collected from its subtree each time.
+ * </p>
  *
  * @author Faris
  */
@@ -26,6 +34,10 @@ public class PhylogeneticTreeNode implements IPhylogeneticTreeNode<PhylogeneticT
   private final PhylogeneticTreeNode parent;
   private MetaData metaData;
   private LineageColor lineageColor = LineageColor.NONE;
+  private PhylogeneticTreeNode[] leaves;
+  private int firstLeaf;
+  private int endLeaf;
+  private GenomeSet genomeSet;
 
   /**
    * If all of the child nodes of this node are drawn in the top graph.
@@ -191,7 +203,11 @@ public class PhylogeneticTreeNode implements IPhylogeneticTreeNode<PhylogeneticT
   @Override
   public ArrayList<Integer> getGenomes() {
     ArrayList<Integer> res = new ArrayList<>();
-    if (isLeaf()) {
+    if (leaves != null) {
+      for (int i = firstLeaf; i < endLeaf; i++) {
+        res.add(GenomeMap.getInstance().getId(leaves[i].getLabel()));
+      }
+    } else if (isLeaf()) {
       res.add(GenomeMap.getInstance().getId(getLabel()));
     } else {
       for (PhylogeneticTreeNode child : children) {
@@ -204,7 +220,11 @@ public class PhylogeneticTreeNode implements IPhylogeneticTreeNode<PhylogeneticT
   @Override
   public ArrayList<Integer> getGenomeIds() {
     ArrayList<Integer> res = new ArrayList<>();
-    if (isLeaf()) {
+    if (leaves != null) {
+      for (int i = firstLeaf; i < endLeaf; i++) {
+        res.add(leaves[i].genomeId);
+      }
+    } else if (isLeaf()) {
       res.add(genomeId);
     } else {
       for (PhylogeneticTreeNode child : children) {
@@ -214,6 +234,53 @@ public class PhylogeneticTreeNode implements IPhylogeneticTreeNode<PhylogeneticT
     return res;
   }
 
+  @Override
+  public GenomeSet getGenomeSet() {
+    if (genomeSet != null) {
+      return genomeSet;
+    } else if (isLeaf()) {
+      return genomeId >= 0 ? GenomeSet.of(genomeId) : GenomeSet.empty();
+    }
+    return children[0].getGenomeSet().or(children[1].getGenomeSet());
+  }
+
+  /**
+   * Number the leaves of the subtree of this node in depth first order, and store the range of
+   * leaves and the set of genomes of every node in the subtree. This must be done after the subtree
+   * has been completely built, as it isn't updated when children are added.
+   */
+  protected void indexLeaves() {
+    ArrayList<PhylogeneticTreeNode> preorder = new ArrayList<>();
+    ArrayList<PhylogeneticTreeNode> leafOrder = new ArrayList<>();
+    ArrayDeque<PhylogeneticTreeNode> toVisit = new ArrayDeque<>();
+    toVisit.push(this);
+    while (!toVisit.isEmpty()) {
+      PhylogeneticTreeNode node = toVisit.pop();
+      preorder.add(node);
+      node.firstLeaf = leafOrder.size();
+      if (node.isLeaf()) {
+        leafOrder.add(node);
+      } else {
+        toVisit.push(node.children[1]);
+        toVisit.push(node.children[0]);
+      }
+    }
+
+    PhylogeneticTreeNode[] leafArray
+        = leafOrder.toArray(new PhylogeneticTreeNode[leafOrder.size()]);
+    for (int i = preorder.size() - 1; i >= 0; i--) {
+      PhylogeneticTreeNode node = preorder.get(i);
+      node.leaves = leafArray;
+      if (node.isLeaf()) {
+        node.endLeaf = node.firstLeaf + 1;
+        node.genomeSet = node.genomeId >= 0 ? GenomeSet.of(node.genomeId) : GenomeSet.empty();
+      } else {
+        node.endLeaf = node.children[1].endLeaf;
+        node.genomeSet = node.children[0].genomeSet.or(node.children[1].genomeSet);
+      }
+    }
+  }
+
   @Override
   public double getEdgeLength() {
     return weight;
@@ -251,6 +318,9 @@ public class PhylogeneticTreeNode implements IPhylogeneticTreeNode<PhylogeneticT
    */
   @Override
   public Iterator<PhylogeneticTreeNode> iterator() {
+    if (leaves != null) {
+      return Arrays.asList(leaves).subList(firstLeaf, endLeaf).iterator();
+    }
     return new LeafNodeIterator();
   }
 
@@ -29,6 +29,7 @@ public class PhylogeneticTreeRoot extends PhylogeneticTreeNode
    */
   public PhylogeneticTreeRoot(TreeNode node, List<MetaData> metaDatas) {
     super(node, null);
+    indexLeaves();
     for (PhylogeneticTreeNode leafNode : this) {
       genomeToTreeMap.put(leafNode.getGenomeId(), leafNode);
     }
@@ -44,6 +45,7 @@ public class PhylogeneticTreeRoot extends PhylogeneticTreeNode
    */
   public PhylogeneticTreeRoot(IPhylogeneticTreeNode node, List<MetaData> metaDatas) {
     super(node);
+    indexLeaves();
     for (PhylogeneticTreeNode leafNode : this) {
       genomeToTreeMap.put(leafNode.getGenomeId(), leafNode);
     }
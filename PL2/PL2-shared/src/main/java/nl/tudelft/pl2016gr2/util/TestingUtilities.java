@@ -2,11 +2,16 @@ package nl.tudelft.pl2016gr2.util;
 
 import static org.mockito.Mockito.mock;
 
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
 import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * A static class with utility functions that reduce code duplication in tests.
@@ -34,4 +39,56 @@ public class TestingUtilities {
     }
     return mockedNode;
   }
+
+  /**
+   * Create the given amount of sequence nodes without edges or genomes. The id and the level of
+   * every node are its index. The first node has the sequence "ACGT", the other nodes "A".
+   *
+   * @param amount the amount of nodes.
+   * @return the nodes.
+   */
+  public static ArrayList<GraphNode> createNodes(int amount) {
+    ArrayList<GraphNode> nodes = new ArrayList<>();
+    for (int i = 0; i < amount; i++) {
+      SequenceNode node = new SequenceNode(i, new BaseSequence(i == 0 ? "ACGT" : "A"));
+      node.setLevel(i);
+      nodes.add(node);
+    }
+    return nodes;
+  }
+
+  /**
+   * Add edges from one node to the target nodes.
+   *
+   * @param nodes   the nodes.
+   * @param from    the index of the node the edges start at.
+   * @param targets the indices of the nodes the edges end at.
+   */
+  public static void addEdges(List<GraphNode> nodes, int from, int... targets) {
+    for (int target : targets) {
+      nodes.get(from).addOutEdge(nodes.get(target));
+      nodes.get(target).addInEdge(nodes.get(from));
+    }
+  }
+
+  /**
+   * Get the sorted ids of the given nodes.
+   *
+   * @param nodes the nodes.
+   * @return the sorted ids of the nodes.
+   */
+  public static List<Integer> getIds(Collection<GraphNode> nodes) {
+    return nodes.stream().map(GraphNode::getId).sorted().collect(Collectors.toList());
+  }
+
+  /**
+   * Get the sorted ids of the sequence nodes among the given nodes.
+   *
+   * @param nodes the nodes.
+   * @return the sorted ids of the sequence nodes.
+   */
+  public static List<Integer> getSequenceNodeIds(Collection<GraphNode> nodes) {
+    return nodes.stream().filter(node -> node instanceof SequenceNode).map(GraphNode::getId)
+        .sorted().collect(Collectors.toList());
+  }
 }
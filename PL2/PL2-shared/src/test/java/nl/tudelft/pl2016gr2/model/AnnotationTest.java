@@ -116,4 +116,18 @@ public class AnnotationTest {
     assertEquals(2, annotation.getAttributes().size());
     assertTrue(annotation.getAttributes().containsKey("a"));
   }
+
+  /**
+   * Test that the attributes of the attribute column are parsed when they are accessed.
+   */
+  @Test
+  public void testAttributeColumn() {
+    Annotation parsed = new Annotation("id", "source", "type", 1, 2, 0.1, "strand", "phase",
+        "ID=gene1;displayName=gene;empty;Note=a=b");
+
+    assertEquals("gene1", parsed.getAttribute("id"));
+    assertEquals("gene", parsed.getName());
+    assertEquals("a=b", parsed.getAttribute("note"));
+    assertEquals(3, parsed.getAttributes().size());
+  }
 }
@@ -0,0 +1,156 @@
+package nl.tudelft.pl2016gr2.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.nodes.CompactSequenceNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests the {@link CompactGraph} class.
+ */
+public class CompactGraphTest {
+
+  private CompactGraph graph;
+
+  /**
+   * Create a graph with a bubble: 1 -> (2, 3) -> 4.
+   */
+  @Before
+  public void setUp() {
+    int[] ids = {1, 2, 3, 4};
+    BaseSequence[] sequences = {new BaseSequence("AC"), new BaseSequence("G"),
+        new BaseSequence("TTT"), new BaseSequence("A")};
+    GenomeSet[] genomes = {GenomeSet.of(0, 1), GenomeSet.of(0), GenomeSet.of(1),
+        GenomeSet.of(0, 1)};
+    int[][] outEdges = {{2, 3}, {4}, {4}, {}};
+    graph = new CompactGraph(ids, sequences, genomes, outEdges, Arrays.asList(0, 1));
+  }
+
+  @Test
+  public void testIndices() {
+    assertEquals(4, graph.size());
+    assertEquals(2, graph.getIndex(3));
+    assertEquals(3, graph.getId(2));
+    assertEquals(-1, graph.getIndex(0));
+    assertEquals(-1, graph.getIndex(100));
+    assertNull(graph.getNode(100));
+  }
+
+  @Test
+  public void testEdges() {
+    int first = graph.getIndex(1);
+    assertEquals(2, graph.getOutDegree(first));
+    assertEquals(0, graph.getInDegree(first));
+    int last = graph.getIndex(4);
+    assertEquals(2, graph.getInDegree(last));
+    assertEquals(0, graph.getOutDegree(last));
+    assertEquals(last, graph.getOutEdge(graph.getIndex(2), 0));
+    assertEquals(first, graph.getInEdge(graph.getIndex(3), 0));
+    assertEquals(Arrays.asList(2, 3), getIds(graph.getNode(1).getOutEdges()));
+    assertEquals(Arrays.asList(2, 3), getIds(graph.getNode(4).getInEdges()));
+  }
+
+  @Test
+  public void testRootNodes() {
+    assertEquals(Arrays.asList(1), getIds(graph.getRootNodes()));
+    assertTrue(graph.getNode(1).isRoot());
+    assertFalse(graph.getNode(2).isRoot());
+  }
+
+  @Test
+  public void testNodeData() {
+    GraphNode node = graph.getNode(3);
+    assertEquals("TTT", ((SequenceNode) node).getSequence());
+    assertEquals(3, node.size());
+    assertEquals(Arrays.asList(1), node.getGenomes());
+    assertEquals(GenomeSet.of(0, 1), graph.getGenomeSet(graph.getIndex(1)));
+    assertTrue(graph.getGenomeSet(graph.getIndex(1)) == graph.getGenomeSet(graph.getIndex(4)));
+  }
+
+  @Test
+  public void testNodeViewsShareState() {
+    graph.getNode(2).setLevel(5);
+    assertEquals(5, graph.getNode(2).getLevel());
+    assertEquals(graph.getNode(2), graph.getNode(2));
+
+    Annotation annotation = new Annotation("Sequence", "Source", "Type", 0, 1, 1.0, "+", ".");
+    graph.getNode(2).addAnnotation(annotation);
+    assertTrue(graph.getNode(2).hasAnnotations());
+    assertFalse(graph.getNode(3).hasAnnotations());
+    assertTrue(graph.getNode(2).copy().getAnnotations().contains(annotation));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testEdgesAreUnmodifiable() {
+    graph.getNode(1).addOutEdge(graph.getNode(4));
+  }
+
+  @Test
+  public void testCopyIsModifiable() {
+    graph.getNode(2).setLevel(3);
+    GraphNode copy = graph.getNode(2).copy();
+    assertFalse(copy instanceof CompactSequenceNode);
+    assertEquals(3, copy.getLevel());
+    copy.addOutEdge(graph.getNode(4).copy());
+    copy.addAllGenomes(Arrays.asList(0));
+    assertEquals(1, copy.getOutEdges().size());
+    assertEquals(0, graph.getNode(2).copy().getGenomeSize());
+  }
+
+  @Test
+  public void testOrderedGraph() {
+    graph.getNode(1).setLevel(2);
+    graph.getNode(2).setLevel(3);
+    graph.getNode(3).setLevel(5);
+    graph.getNode(4).setLevel(6);
+    assertEquals(Arrays.asList(1, 2, 3, 4), getOrderedIds(graph.getOrderedGraph()));
+    graph.getNode(2).setLevel(7);
+    assertEquals(Arrays.asList(1, 3, 4, 2), getOrderedIds(graph.getOrderedGraph()));
+  }
+
+  @Test
+  public void testFromSequenceGraph() {
+    HashMap<Integer, GraphNode> nodes = new HashMap<>();
+    SequenceNode first = new SequenceNode(7, new BaseSequence("ACGT"), Arrays.asList(0, 2));
+    SequenceNode second = new SequenceNode(3, new BaseSequence("C"), Arrays.asList(2));
+    first.addOutEdge(second);
+    second.addInEdge(first);
+    first.setLevel(4);
+    nodes.put(7, first);
+    nodes.put(3, second);
+    CompactGraph copy = new CompactGraph(new HashGraph(nodes, Arrays.asList(0, 2)));
+
+    assertEquals(2, copy.size());
+    assertEquals(0, copy.getIndex(3));
+    assertEquals(4, copy.getNode(7).getLevel());
+    assertEquals("ACGT", ((SequenceNode) copy.getNode(7)).getSequence());
+    assertEquals(Arrays.asList(3), getIds(copy.getNode(7).getOutEdges()));
+    assertEquals(Arrays.asList(7), getIds(copy.getRootNodes()));
+    assertEquals(Arrays.asList(0, 2), new ArrayList<>(copy.getGenomes()));
+  }
+
+  private static List<Integer> getIds(Collection<GraphNode> nodes) {
+    return nodes.stream().map(GraphNode::getId).sorted().collect(Collectors.toList());
+  }
+
+  private static List<Integer> getOrderedIds(List<GraphNode> nodes) {
+    return nodes.stream().map(GraphNode::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,183 @@
+package nl.tudelft.pl2016gr2.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.graph.CompactGraph;
+import nl.tudelft.pl2016gr2.model.graph.HashGraph;
+import nl.tudelft.pl2016gr2.model.graph.SequenceGraph;
+import nl.tudelft.pl2016gr2.model.graph.SubgraphView;
+import nl.tudelft.pl2016gr2.model.graph.data.BaseSequence;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
+import nl.tudelft.pl2016gr2.model.graph.nodes.GraphNode;
+import nl.tudelft.pl2016gr2.model.graph.nodes.SequenceNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Tests the {@link SubgraphView} class.
+ */
+public class SubgraphViewTest {
+
+  private CompactGraph mainGraph;
+
+  /**
+   * Create the graph 1 -> (2, 3) -> 4 -> 5, where genome 0 goes over 1, 2, 4, genome 1 goes over
+   * 1, 3, 4 and genome 2 goes over 1, 4, 5.
+   */
+  @Before
+  public void setUp() {
+    int[] ids = {1, 2, 3, 4, 5};
+    BaseSequence[] sequences = {new BaseSequence("A"), new BaseSequence("C"),
+        new BaseSequence("G"), new BaseSequence("T"), new BaseSequence("AA")};
+    GenomeSet[] genomes = {GenomeSet.of(0, 1, 2), GenomeSet.of(0), GenomeSet.of(1),
+        GenomeSet.of(0, 1, 2), GenomeSet.of(2)};
+    int[][] outEdges = {{2, 3, 4}, {4}, {4}, {5}, {}};
+    mainGraph = new CompactGraph(ids, sequences, genomes, outEdges, Arrays.asList(0, 1, 2));
+    for (int i = 0; i < ids.length; i++) {
+      mainGraph.setLevel(i, i + 1);
+    }
+  }
+
+  @Test
+  public void testNodes() {
+    SubgraphView subgraph = new SubgraphView(mainGraph, GenomeSet.of(0));
+    assertEquals(3, subgraph.size());
+    assertEquals(Arrays.asList(1, 2, 4), getIds(subgraph.getOrderedGraph()));
+    assertNull(subgraph.getNode(3));
+    assertTrue(subgraph.contains(mainGraph.getNode(2)));
+    assertFalse(subgraph.contains(mainGraph.getNode(5)));
+    assertEquals(Arrays.asList(0), subgraph.getNode(1).getGenomes());
+    assertEquals(4, subgraph.getNode(4).getLevel());
+  }
+
+  @Test
+  public void testEdges() {
+    SubgraphView subgraph = new SubgraphView(mainGraph, GenomeSet.of(0, 1));
+    assertEquals(Arrays.asList(2, 3), getIds(subgraph.getNode(1).getOutEdges()));
+    assertEquals(Arrays.asList(2, 3), getIds(subgraph.getNode(4).getInEdges()));
+    assertTrue(subgraph.getNode(4).getOutEdges().isEmpty());
+    assertEquals(Arrays.asList(1), getIds(subgraph.getRootNodes()));
+  }
+
+  @Test
+  public void testEdgeWithoutSubgraphGenomes() {
+    SubgraphView subgraph = new SubgraphView(mainGraph, GenomeSet.of(2));
+    assertEquals(Arrays.asList(4), getIds(subgraph.getNode(1).getOutEdges()));
+    assertEquals(Arrays.asList(5), getIds(subgraph.getNode(4).getOutEdges()));
+  }
+
+  @Test
+  public void testNodesAreShared() {
+    SubgraphView subgraph = new SubgraphView(mainGraph, GenomeSet.of(0, 1));
+    GraphNode first = subgraph.getNode(1);
+    assertTrue(first == subgraph.getNode(1));
+    assertTrue(first.getOutEdges().iterator().next()
+        == subgraph.getNode(first.getOutEdges().iterator().next().getId()));
+  }
+
+  /**
+   * Test that the annotations which are added to a node of a subgraph are stored in the main
+   * graph, also if the node didn't have any annotations before, and that reading the annotations
+   * of nodes without annotations doesn't create an index of annotations in the main graph.
+   */
+  @Test
+  public void testAnnotationsAreSharedWithMainGraph() {
+    SubgraphView subgraph = new SubgraphView(mainGraph, GenomeSet.of(0));
+    assertTrue(subgraph.getNode(2).getAnnotations().isEmpty());
+    assertTrue(mainGraph.getNode(2).getAnnotations(0, 10).isEmpty());
+    assertNull(mainGraph.getAnnotations(1));
+
+    Annotation annotation = new Annotation("id", "source", "type", 1, 2, 0.0, "+", "0");
+    subgraph.getNode(2).addAnnotation(annotation);
+
+    assertEquals(Arrays.asList(annotation), mainGraph.getNode(2).getAnnotations());
+    assertEquals(Arrays.asList(annotation),
+        new SubgraphView(mainGraph, GenomeSet.of(0)).getNode(2).getAnnotations());
+  }
+
+  @Test
+  public void testModificationsDontChangeMainGraph() {
+    SequenceGraph subgraph = new SubgraphView(mainGraph, GenomeSet.of(0));
+    GraphNode node = subgraph.getNode(2);
+    node.setLevel(10);
+    node.removeInEdge(subgraph.getNode(1));
+    node.addOutEdge(subgraph.getNode(1));
+
+    assertEquals(10, node.getLevel());
+    assertTrue(node.getInEdges().isEmpty());
+    assertEquals(Arrays.asList(1, 4), getIds(node.getOutEdges()));
+    assertEquals(2, mainGraph.getNode(2).getLevel());
+    assertEquals(Arrays.asList(1), getIds(mainGraph.getNode(2).getInEdges()));
+  }
+
+  @Test
+  public void testNodesEqualMainGraphNodes() {
+    SubgraphView subgraph = new SubgraphView(mainGraph, GenomeSet.of(0));
+    assertTrue(subgraph.getNode(2).equals(mainGraph.getNode(2)));
+    assertTrue(mainGraph.getNode(2).equals(subgraph.getNode(2)));
+    assertTrue(subgraph.getNode(1).getOutEdges().contains(mainGraph.getNode(2)));
+  }
+
+  /**
+   * Test if a subgraph of a compact graph, of which the nodes and edges are determined in
+   * parallel, is the same as the subgraph of the same graph stored as node objects.
+   */
+  @Test
+  public void testCompactEqualsHashGraph() {
+    HashGraph hashGraph = createRandomGraph();
+    CompactGraph compactGraph = new CompactGraph(hashGraph);
+    GenomeSet genomes = GenomeSet.of(1, 4, 6);
+    SubgraphView hashSubgraph = new SubgraphView(hashGraph, genomes);
+    SubgraphView compactSubgraph = new SubgraphView(compactGraph, genomes);
+
+    assertEquals(getIds(hashSubgraph.getOrderedGraph()),
+        getIds(compactSubgraph.getOrderedGraph()));
+    for (GraphNode node : hashSubgraph) {
+      GraphNode compactNode = compactSubgraph.getNode(node.getId());
+      assertEquals(node.getGenomes(), compactNode.getGenomes());
+      assertEquals(getIds(node.getInEdges()), getIds(compactNode.getInEdges()));
+      assertEquals(getIds(node.getOutEdges()), getIds(compactNode.getOutEdges()));
+    }
+  }
+
+  /**
+   * Create a graph with random genomes and random edges to nodes with a higher identifier.
+   *
+   * @return the graph.
+   */
+  private static HashGraph createRandomGraph() {
+    int amountOfNodes = 4096;
+    Random random = new Random(7);
+    HashMap<Integer, GraphNode> nodes = new HashMap<>();
+    for (int i = 0; i < amountOfNodes; i++) {
+      List<Integer> genomes = random.ints(1 + random.nextInt(4), 0, 8).boxed().distinct()
+          .collect(Collectors.toList());
+      SequenceNode node = new SequenceNode(i, new BaseSequence("ACGT"), genomes);
+      node.setLevel(i);
+      nodes.put(i, node);
+    }
+    for (int i = 0; i < amountOfNodes - 1; i++) {
+      int amountOfEdges = 1 + random.nextInt(3);
+      for (int edge = 0; edge < amountOfEdges; edge++) {
+        int target = Math.min(amountOfNodes - 1, i + 1 + random.nextInt(5));
+        nodes.get(i).addOutEdge(nodes.get(target));
+        nodes.get(target).addInEdge(nodes.get(i));
+      }
+    }
+    return new HashGraph(nodes, Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7));
+  }
+
+  private static List<Integer> getIds(Collection<GraphNode> nodes) {
+    return nodes.stream().map(GraphNode::getId).sorted().collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,119 @@
+package nl.tudelft.pl2016gr2.model.graph.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import nl.tudelft.pl2016gr2.model.Annotation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test of class {@link AnnotationIndex}.
+ */
+public class AnnotationIndexTest {
+
+  private AnnotationIndex index;
+  private Annotation first;
+  private Annotation second;
+  private Annotation third;
+
+  /**
+   * Create an index with the annotations [0, 10], [5, 6] and [8, 20], which are added out of
+   * order.
+   */
+  @Before
+  public void setup() {
+    index = new AnnotationIndex();
+    first = createAnnotation(0, 10);
+    second = createAnnotation(5, 6);
+    third = createAnnotation(8, 20);
+    index.add(third);
+    index.add(first);
+    index.add(second);
+  }
+
+  /**
+   * Test of isEmpty method, of class AnnotationIndex.
+   */
+  @Test
+  public void testIsEmpty() {
+    assertTrue(new AnnotationIndex().isEmpty());
+    assertFalse(index.isEmpty());
+    assertEquals(3, index.size());
+  }
+
+  /**
+   * Test of getAll method, of class AnnotationIndex.
+   */
+  @Test
+  public void testGetAll() {
+    assertEquals(Arrays.asList(first, second, third), index.getAll());
+  }
+
+  /**
+   * Test of query method, of class AnnotationIndex.
+   */
+  @Test
+  public void testQuery() {
+    assertEquals(Arrays.asList(first, second), index.query(6, 6));
+    assertEquals(Arrays.asList(first, third), index.query(7, 8));
+    assertEquals(Arrays.asList(third), index.query(11, 100));
+    assertEquals(Collections.emptyList(), index.query(21, 30));
+    assertEquals(Arrays.asList(first, second, third), index.query(-5, 100));
+  }
+
+  /**
+   * Test that an annotation which is added after a query is found by the next query.
+   */
+  @Test
+  public void testAddAfterQuery() {
+    assertEquals(Collections.emptyList(), index.query(25, 30));
+    Annotation annotation = createAnnotation(22, 28);
+    index.add(annotation);
+
+    assertEquals(Arrays.asList(annotation), index.query(25, 30));
+  }
+
+  /**
+   * Compare the results of queries on a lot of random annotations to a linear search.
+   */
+  @Test
+  public void testQueryRandom() {
+    Random random = new Random(42);
+    AnnotationIndex randomIndex = new AnnotationIndex();
+    ArrayList<Annotation> annotations = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      int start = random.nextInt(1000);
+      Annotation annotation = createAnnotation(start, start + random.nextInt(100));
+      annotations.add(annotation);
+      randomIndex.add(annotation);
+    }
+    for (int i = 0; i < 100; i++) {
+      int from = random.nextInt(1100);
+      int to = from + random.nextInt(50);
+      List<Annotation> found = randomIndex.query(from, to);
+
+      for (Annotation annotation : annotations) {
+        boolean overlaps = annotation.getStartInGraph() <= to && annotation.getEndInGraph() >= from;
+        assertEquals(overlaps, found.contains(annotation));
+      }
+      for (int j = 1; j < found.size(); j++) {
+        assertTrue(found.get(j - 1).getStartInGraph() <= found.get(j).getStartInGraph());
+      }
+    }
+  }
+
+  private static Annotation createAnnotation(int startInGraph, int endInGraph) {
+    Annotation annotation = new Annotation("id", "source", "type", 1, 2, 0.0, "+", "0");
+    annotation.setStartInGraph(startInGraph);
+    annotation.setEndInGraph(endInGraph);
+    return annotation;
+  }
+}
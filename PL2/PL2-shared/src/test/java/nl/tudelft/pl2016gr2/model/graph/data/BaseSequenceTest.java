@@ -5,6 +5,12 @@ import static org.junit.Assert.assertEquals;
 import nl.tudelft.pl2016gr2.thirdparty.testing.utility.AccessPrivate;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * This class tests the {@link BaseSequence} class.
  *
@@ -85,7 +91,70 @@ public class BaseSequenceTest {
   @Test
   public void testGetBaseSequenceMemoryUsage() {
     BaseSequence seq = new BaseSequence(longString);
-    int[] bases = AccessPrivate.getFieldValue("bases", BaseSequence.class, seq);
-    assertEquals(32, bases.length); //32 ints are needed to store the 1011 bases
+    long[] bases = AccessPrivate.getFieldValue("bases", BaseSequence.class, seq);
+    assertEquals(11, bases.length); //11 longs are needed to store the 331 bases
+    int[] exceptions = AccessPrivate.getFieldValue("exceptionPositions", BaseSequence.class, seq);
+    assertEquals(10, exceptions.length); //10 N bases are stored as exceptions
+  }
+
+  /**
+   * Test of the byte array constructor of class BaseSequence.
+   */
+  @Test
+  public void testGetBaseSequenceFromBytes() {
+    byte[] bytes = ("S\t1\t" + longString + "\t*").getBytes(StandardCharsets.US_ASCII);
+    BaseSequence seq = new BaseSequence(bytes, 4, 4 + longString.length());
+    assertEquals(longString, seq.getBaseSequence());
+    assertEquals(longString.length(), seq.size());
+  }
+
+  /**
+   * Test of getBase method, of class BaseSequence.
+   */
+  @Test
+  public void testGetBase() {
+    BaseSequence seq = new BaseSequence(longString);
+    for (int i = 0; i < longString.length(); i++) {
+      assertEquals(longString.charAt(i), seq.getBase(i));
+    }
+  }
+
+  /**
+   * Test of subsequence method, of class BaseSequence.
+   */
+  @Test
+  public void testSubsequence() {
+    BaseSequence seq = new BaseSequence(longString);
+    for (int from = 0; from < 70; from += 3) {
+      for (int to = from; to < longString.length(); to += 17) {
+        assertEquals(longString.substring(from, to), seq.subsequence(from, to));
+      }
+    }
+  }
+
+  /**
+   * Test if the other IUPAC codes are stored as well.
+   */
+  @Test
+  public void testGetBaseSequenceIupac() {
+    String bases = "ACGTRYKMSWBDHVNACGT";
+    assertEquals(bases, new BaseSequence(bases).getBaseSequence());
+  }
+
+  /**
+   * Test if a written base sequence is read back the same.
+   *
+   * @throws IOException if the base sequence can not be written.
+   */
+  @Test
+  public void testWriteAndRead() throws IOException {
+    BaseSequence seq = new BaseSequence(longString);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    seq.write(new DataOutputStream(bytes));
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    assertEquals(bytes.size(), BaseSequence.getSerializedSize(buffer));
+    BaseSequence read = BaseSequence.read(buffer);
+    assertEquals(longString, read.getBaseSequence());
+    assertEquals(0, buffer.remaining());
   }
 }
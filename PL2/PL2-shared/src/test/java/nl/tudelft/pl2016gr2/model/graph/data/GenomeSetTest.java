@@ -0,0 +1,158 @@
+package nl.tudelft.pl2016gr2.model.graph.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class tests the {@link GenomeSet} class.
+ */
+public class GenomeSetTest {
+
+  private static final GenomeSet DENSE = GenomeSet.of(range(0, 300, 2));
+  private static final GenomeSet SPARSE = GenomeSet.of(4, 150, 151, 299);
+
+  /**
+   * Test if a set which contains a lot of genomes is stored as a bitset, and a set with a few
+   * genomes as a sorted array.
+   */
+  @Test
+  public void testRepresentation() {
+    assertTrue(DENSE.isDense());
+    assertFalse(SPARSE.isDense());
+    assertFalse(GenomeSet.empty().isDense());
+  }
+
+  /**
+   * Test if unsorted genomes with duplicates are stored as a sorted set.
+   */
+  @Test
+  public void testOf() {
+    GenomeSet set = GenomeSet.of(Arrays.asList(5, 1, 3, 1, 5));
+    assertEquals(3, set.cardinality());
+    assertEquals(Arrays.asList(1, 3, 5), set.toList());
+    assertArrayEquals(new int[] {1, 3, 5}, set.toArray());
+  }
+
+  @Test
+  public void testContains() {
+    assertTrue(DENSE.contains(0));
+    assertTrue(DENSE.contains(298));
+    assertFalse(DENSE.contains(1));
+    assertFalse(DENSE.contains(300));
+    assertFalse(DENSE.contains(100000));
+    assertTrue(SPARSE.contains(151));
+    assertFalse(SPARSE.contains(152));
+  }
+
+  @Test
+  public void testCardinality() {
+    assertEquals(150, DENSE.cardinality());
+    assertEquals(4, SPARSE.cardinality());
+    assertTrue(GenomeSet.empty().isEmpty());
+  }
+
+  @Test
+  public void testAnd() {
+    assertEquals(GenomeSet.of(4, 150), DENSE.and(SPARSE));
+    assertEquals(GenomeSet.of(4, 150), SPARSE.and(DENSE));
+    GenomeSet other = GenomeSet.of(range(0, 300, 3));
+    assertEquals(GenomeSet.of(range(0, 300, 6)), DENSE.and(other));
+    assertTrue(DENSE.and(GenomeSet.of(range(1, 300, 2))).isEmpty());
+  }
+
+  @Test
+  public void testOr() {
+    GenomeSet union = DENSE.or(SPARSE);
+    assertEquals(152, union.cardinality());
+    assertTrue(union.contains(151));
+    assertTrue(union.contains(299));
+    assertEquals(GenomeSet.of(1, 4, 150, 151, 299), SPARSE.or(GenomeSet.of(1, 4)));
+    assertEquals(SPARSE, SPARSE.or(GenomeSet.empty()));
+    assertEquals(GenomeSet.of(range(0, 300, 1)), DENSE.or(GenomeSet.of(range(1, 300, 2))));
+    GenomeSet small = GenomeSet.of(range(0, 10, 1));
+    assertTrue(small.isDense());
+    assertEquals(GenomeSet.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 150, 151, 299), small.or(SPARSE));
+    assertEquals(small.or(SPARSE), SPARSE.or(small));
+  }
+
+  @Test
+  public void testAndNot() {
+    assertEquals(GenomeSet.of(151, 299), SPARSE.andNot(DENSE));
+    GenomeSet difference = DENSE.andNot(SPARSE);
+    assertEquals(148, difference.cardinality());
+    assertFalse(difference.contains(4));
+    assertTrue(difference.contains(6));
+    assertEquals(DENSE, DENSE.andNot(GenomeSet.of(1, 100000)));
+  }
+
+  @Test
+  public void testIntersects() {
+    assertTrue(DENSE.intersects(SPARSE));
+    assertTrue(SPARSE.intersects(DENSE));
+    assertFalse(DENSE.intersects(GenomeSet.of(range(1, 300, 2))));
+    assertFalse(SPARSE.intersects(GenomeSet.of(1, 2, 3)));
+    assertFalse(DENSE.intersects(GenomeSet.empty()));
+  }
+
+  @Test
+  public void testContainsAll() {
+    assertTrue(DENSE.containsAll(GenomeSet.of(0, 2, 298)));
+    assertFalse(DENSE.containsAll(SPARSE));
+    assertTrue(GenomeSet.of(range(0, 300, 1)).containsAll(DENSE));
+    assertFalse(DENSE.containsAll(GenomeSet.of(range(0, 300, 1))));
+    assertTrue(SPARSE.containsAll(GenomeSet.empty()));
+    GenomeSet small = GenomeSet.of(range(0, 10, 1));
+    GenomeSet sparse = GenomeSet.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 100000);
+    assertFalse(sparse.isDense());
+    assertTrue(sparse.containsAll(small));
+    assertFalse(GenomeSet.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 11, 100000).containsAll(small));
+  }
+
+  @Test
+  public void testEquals() {
+    assertEquals(DENSE, GenomeSet.of(range(0, 300, 2)));
+    assertEquals(DENSE.hashCode(), GenomeSet.of(range(0, 300, 2)).hashCode());
+    assertFalse(DENSE.equals(SPARSE));
+    assertFalse(SPARSE.equals(GenomeSet.of(4, 150, 151)));
+  }
+
+  @Test
+  public void testForEach() {
+    List<Integer> genomes = new ArrayList<>();
+    SPARSE.forEach(genomes::add);
+    assertEquals(Arrays.asList(4, 150, 151, 299), genomes);
+    genomes.clear();
+    DENSE.forEach(genomes::add);
+    assertEquals(DENSE.toList(), genomes);
+    assertEquals(Integer.valueOf(298), genomes.get(149));
+  }
+
+  @Test
+  public void testAsList() {
+    assertEquals(SPARSE.toList(), SPARSE.asList());
+    assertEquals(DENSE.toList(), DENSE.asList());
+    assertSame(DENSE.asList(), DENSE.asList());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAsListIsUnmodifiable() {
+    SPARSE.asList().add(1);
+  }
+
+  private static int[] range(int from, int to, int step) {
+    int[] genomes = new int[(to - from + step - 1) / step];
+    for (int i = 0; i < genomes.length; i++) {
+      genomes[i] = from + i * step;
+    }
+    return genomes;
+  }
+}
@@ -0,0 +1,131 @@
+package nl.tudelft.pl2016gr2.model.graph.data;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class tests the {@link LazyBaseSequence} and {@link SequenceStore} classes.
+ */
+public class LazyBaseSequenceTest {
+
+  private static final String CONTENT = "S\t1\tACGTN\t*\nS\t2\tGGGAAATTT\t*\n";
+  private Path file;
+  private SequenceStore store;
+
+  /**
+   * Write a file containing some sequences.
+   *
+   * @throws IOException When file creation fails.
+   */
+  @Before
+  public void initialize() throws IOException {
+    file = Files.createTempFile("LazyBaseSequenceTest", ".gfa");
+    Files.write(file, CONTENT.getBytes(StandardCharsets.US_ASCII));
+    store = new SequenceStore(file, 10);
+  }
+
+  /**
+   * Close the store and delete the file.
+   *
+   * @throws IOException When the file can not be deleted.
+   */
+  @After
+  public void tearDown() throws IOException {
+    store.close();
+    Files.delete(file);
+  }
+
+  /**
+   * Test of getBaseSequence method, of class LazyBaseSequence.
+   */
+  @Test
+  public void testGetBaseSequence() {
+    assertEquals("ACGTN", new LazyBaseSequence(store, 4, 5).getBaseSequence());
+    assertEquals("GGGAAATTT", new LazyBaseSequence(store, 16, 9).getBaseSequence());
+  }
+
+  /**
+   * Test if the size is known without reading the bases.
+   */
+  @Test
+  public void testSize() {
+    assertEquals(9, new LazyBaseSequence(store, 16, 9).size());
+    assertEquals(0, store.getCachedBases());
+  }
+
+  /**
+   * Test if the least recently used sequences are evicted from the cache.
+   */
+  @Test
+  public void testCacheIsBounded() {
+    store.getSequence(4, 5);
+    assertEquals(5, store.getCachedBases());
+    store.getSequence(16, 9);
+    assertEquals(9, store.getCachedBases());
+    store.getSequence(4, 5);
+    assertEquals(5, store.getCachedBases());
+  }
+
+  /**
+   * Test that single bases and parts of a sequence which is larger than the cache are read without
+   * reading the whole sequence. The sequence exceeds the end of the file, so reading it completely
+   * would fail.
+   */
+  @Test
+  public void testGetBaseOfSequenceLargerThanCache() {
+    LazyBaseSequence sequence = new LazyBaseSequence(store, 16, 100);
+    String bases = "GGGAAATTT";
+    for (int i = 0; i < bases.length(); i++) {
+      assertEquals(bases.charAt(i), sequence.getBase(i));
+    }
+    assertEquals("AAAT", sequence.subsequence(3, 7));
+    assertEquals(0, store.getCachedBases());
+  }
+
+  /**
+   * Test that the bases of a sequence which fits in the cache are read from the cached sequence.
+   */
+  @Test
+  public void testGetBaseOfCachedSequence() {
+    LazyBaseSequence sequence = new LazyBaseSequence(store, 4, 5);
+    assertEquals('G', sequence.getBase(2));
+    assertEquals(5, store.getCachedBases());
+    assertEquals("CGT", sequence.subsequence(1, 4));
+  }
+
+  /**
+   * Test that a base outside of a sequence which is larger than the cache can't be read.
+   */
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetBaseOutOfBounds() {
+    new LazyBaseSequence(store, 16, 100).getBase(100);
+  }
+
+  /**
+   * Test if a sequence which exceeds the end of the file results in an exception.
+   */
+  @Test(expected = UncheckedIOException.class)
+  public void testSequenceExceedsFile() {
+    new LazyBaseSequence(store, 20, 10).getBaseSequence();
+  }
+
+  /**
+   * Test if reading from a closed store results in an exception.
+   *
+   * @throws IOException When the store can not be closed.
+   */
+  @Test(expected = UncheckedIOException.class)
+  public void testReadAfterClose() throws IOException {
+    store.close();
+    store.getSequence(4, 5);
+  }
+}
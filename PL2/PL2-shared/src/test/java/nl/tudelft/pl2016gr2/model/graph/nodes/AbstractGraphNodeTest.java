@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import nl.tudelft.pl2016gr2.thirdparty.testing.utility.AccessPrivate;
 import org.junit.Before;
 import org.junit.Rule;
@@ -99,4 +100,26 @@ public class AbstractGraphNodeTest {
     assertEquals(null, node.getChildren());
   }
 
+  @Test
+  public void testViewOnlyNodeWithoutEdges() {
+    AbstractGraphNode node = new SequenceNode(null, GenomeSet.empty());
+    exception.expect(UnsupportedOperationException.class);
+    node.getOutEdges();
+  }
+
+  @Test
+  public void testViewOnlyNodeWithoutAnnotations() {
+    AbstractGraphNode node = new SequenceNode(null, GenomeSet.empty());
+    exception.expect(UnsupportedOperationException.class);
+    node.hasAnnotations();
+  }
+
+  @Test
+  public void testViewOnlyNodeWithSetEdges() {
+    AbstractGraphNode node = new SequenceNode(null, GenomeSet.empty());
+    node.setInEdges(Collections.singletonList(new SequenceNode(1)));
+    node.addInEdge(new SequenceNode(2));
+    assertEquals(2, node.getInEdges().size());
+  }
+
 }
@@ -3,6 +3,8 @@ package nl.tudelft.pl2016gr2.model.phylogenetictree;
 
 import net.sourceforge.olduvai.treejuxtaposer.TreeParser;
 import net.sourceforge.olduvai.treejuxtaposer.drawer.Tree;
+import nl.tudelft.pl2016gr2.model.GenomeMap;
+import nl.tudelft.pl2016gr2.model.graph.data.GenomeSet;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,6 +14,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,6 +27,7 @@ public class PhylogeneticTreeRootTest {
 
 
   private PhylogeneticTreeRoot treeNode;
+  private Tree tree;
 
   /**
    * Initialize a phylogenetic tree node.
@@ -35,7 +39,7 @@ public class PhylogeneticTreeRootTest {
         "10tree_custom.rooted.TKK.nwk"));
     BufferedReader br = new BufferedReader(reader);
     TreeParser tp = new TreeParser(br);
-    Tree tree = tp.tokenize("Tree");
+    tree = tp.tokenize("Tree");
 
     try {
       reader.close();
@@ -78,4 +82,28 @@ public class PhylogeneticTreeRootTest {
     Assert.assertFalse(treeNode.getInHighlightedPathProperty().get());
   }
 
+
+  /**
+   * Test that the genomes of the tree nodes are stored when the root is constructed, with the
+   * leaves in depth first order.
+   */
+  @Test
+  public void testGetGenomeSet() {
+    GenomeMap.getInstance().clear();
+    try {
+      GenomeMap.getInstance().addGenome("TKK_02_0001");
+      GenomeMap.getInstance().addGenome("TKK_02_0002");
+      GenomeMap.getInstance().addGenome("TKK_02_0010");
+      PhylogeneticTreeRoot root = new PhylogeneticTreeRoot(tree.getRoot(), new ArrayList<>());
+
+      Assert.assertEquals(GenomeSet.of(0, 1, 2), root.getGenomeSet());
+      Assert.assertEquals(GenomeSet.of(0, 1, 2), root.getChild(0).getGenomeSet());
+      Assert.assertTrue(root.getChild(1).getGenomeSet().isEmpty());
+      Assert.assertEquals(Arrays.asList(0, 1, 2), root.getChild(0).getGenomeIds());
+      Assert.assertEquals(Arrays.asList(0, 1, 2, -1, -1, -1, -1, -1, -1, -1),
+          root.getGenomeIds());
+    } finally {
+      GenomeMap.getInstance().clear();
+    }
+  }
 }